@@ -44,5 +44,12 @@ public enum MemoryCompactionPolicy {
    * on-disk compaction does after the data is flushed to disk). This policy is most useful for
    * applications with high data churn or small working sets.
    */
-  EAGER
+  EAGER,
+  /**
+   * Optimized for cells written in key order, like time series with increasing row keys. Cells
+   * arriving in order are appended to a sorted array instead of being inserted into a skip list,
+   * falling back to the skip list once a cell arrives out of order. The segments in memory are
+   * flattened but never merged or compacted; they are flushed to disk as they are.
+   */
+  APPEND
 }
@@ -100,6 +100,12 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
    * */
   void updateScanTime(long t);
 
+  /**
+   * Update the histogram of store files a Get read data blocks from, one value per store read.
+   * @param storeFiles the number of store files read
+   */
+  void updateStoreFilesReadPerGet(long storeFiles);
+
   /**
    * Increment the number of slow Puts that have happened.
    */
@@ -207,6 +213,15 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
   String STOREFILE_COUNT_DESC = "Number of Store Files";
   String MEMSTORE_SIZE = "memStoreSize";
   String MEMSTORE_SIZE_DESC = "Size of the memstore";
+  String MEMSTORE_CHUNKS_IN_USE = "memStoreChunksInUse";
+  String MEMSTORE_CHUNKS_IN_USE_DESC =
+      "Number of MSLAB chunks handed out by the memstore chunk pool";
+  String MEMSTORE_CHUNK_FRAGMENTATION_PERCENT = "memStoreChunkFragmentationPercent";
+  String MEMSTORE_CHUNK_FRAGMENTATION_PERCENT_DESC =
+      "Percent of the memory of the pooled MSLAB chunks in use that holds no cell data";
+  String MEMSTORE_OVERFLOW_CHUNK_COUNT = "memStoreOverflowChunkCount";
+  String MEMSTORE_OVERFLOW_CHUNK_COUNT_DESC =
+      "Number of MSLAB chunks made outside of the memstore chunk pool because it was exhausted";
   String STOREFILE_SIZE = "storeFileSize";
   String MAX_STORE_FILE_AGE = "maxStoreFileAge";
   String MIN_STORE_FILE_AGE = "minStoreFileAge";
@@ -299,6 +314,22 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
   String BLOCK_CACHE_FAILED_INSERTION_COUNT = "blockCacheFailedInsertionCount";
   String BLOCK_CACHE_FAILED_INSERTION_COUNT_DESC = "Number of times that a block cache " +
       "insertion failed. Usually due to size restrictions.";
+  String BLOCK_CACHE_INDEX_TIER_SIZE = "blockCacheIndexTierSize";
+  String BLOCK_CACHE_INDEX_TIER_SIZE_DESC = "Size of the dedicated index and bloom block tier.";
+  String BLOCK_CACHE_INDEX_TIER_FREE_SIZE = "blockCacheIndexTierFreeSize";
+  String BLOCK_CACHE_INDEX_TIER_FREE_SIZE_DESC =
+      "Size of the index and bloom block tier that is not occupied.";
+  String BLOCK_CACHE_INDEX_TIER_COUNT = "blockCacheIndexTierCount";
+  String BLOCK_CACHE_INDEX_TIER_COUNT_DESC = "Number of blocks in the index and bloom block tier.";
+  String BLOCK_CACHE_INDEX_TIER_HIT_COUNT = "blockCacheIndexTierHitCount";
+  String BLOCK_CACHE_INDEX_TIER_HIT_COUNT_DESC =
+      "Count of the hits on the index and bloom block tier.";
+  String BLOCK_CACHE_INDEX_TIER_MISS_COUNT = "blockCacheIndexTierMissCount";
+  String BLOCK_CACHE_INDEX_TIER_MISS_COUNT_DESC =
+      "Count of the misses on the index and bloom block tier.";
+  String BLOCK_CACHE_INDEX_TIER_EVICTION_COUNT = "blockCacheIndexTierEvictionCount";
+  String BLOCK_CACHE_INDEX_TIER_EVICTION_COUNT_DESC =
+      "Count of the number of blocks evicted from the index and bloom block tier.";
   String BLOCK_CACHE_DATA_MISS_COUNT = "blockCacheDataMissCount";
   String BLOCK_CACHE_ENCODED_DATA_MISS_COUNT = "blockCacheEncodedDataMissCount";
   String BLOCK_CACHE_LEAF_INDEX_MISS_COUNT = "blockCacheLeafIndexMissCount";
@@ -343,6 +374,9 @@ public interface MetricsRegionServerSource extends BaseSource, JvmPauseMonitorSo
   String SCAN_KEY = "scan";
   String SCAN_SIZE_KEY = "scanSize";
   String SCAN_TIME_KEY = "scanTime";
+  String STORE_FILES_READ_PER_GET_KEY = "storeFilesReadPerGet";
+  String STORE_FILES_READ_PER_GET_DESC =
+      "Histogram for the number of store files a Get read data blocks from, per store";
 
   String SLOW_MUTATE_KEY = "slowPutCount";
   String SLOW_GET_KEY = "slowGetCount";
@@ -92,6 +92,22 @@ public interface MetricsRegionServerWrapper {
    */
   long getMemstoreSize();
 
+  /**
+   * Get the number of MSLAB chunks handed out by the memstore chunk pool and not yet given back.
+   */
+  long getMemStoreChunksInUse();
+
+  /**
+   * Get the percent of the memory of the pooled MSLAB chunks in use that holds no cell data.
+   */
+  double getMemStoreChunkFragmentationPercent();
+
+  /**
+   * Get the number of MSLAB chunks made outside of the memstore chunk pool because it was
+   * exhausted.
+   */
+  long getMemStoreOverflowChunkCount();
+
   /**
    * Get the total size of the store files this region server is serving from.
    */
@@ -268,6 +284,36 @@ public interface MetricsRegionServerWrapper {
    */
   long getBlockCacheFailedInsertions();
 
+  /**
+   * Get the total size (in bytes) of the index block tier, 0 if there is none.
+   */
+  long getBlockCacheIndexTierSize();
+
+  /**
+   * Get the size (in bytes) of the index block tier that is free.
+   */
+  long getBlockCacheIndexTierFreeSize();
+
+  /**
+   * Get the number of index and bloom blocks in the index block tier.
+   */
+  long getBlockCacheIndexTierCount();
+
+  /**
+   * Get the count of hits to the index block tier.
+   */
+  long getBlockCacheIndexTierHitCount();
+
+  /**
+   * Get the count of misses to the index block tier.
+   */
+  long getBlockCacheIndexTierMissCount();
+
+  /**
+   * Get the number of blocks evicted from the index block tier.
+   */
+  long getBlockCacheIndexTierEvictedCount();
+
   /**
    * Force a re-computation of the metrics.
    */
@@ -41,6 +41,15 @@ public interface MetricsRegionSource extends Comparable<MetricsRegionSource> {
       "Number of files that were input for finished, successful or aborted, compactions";
   String COPROCESSOR_EXECUTION_STATISTICS = "coprocessorExecutionStatistics";
   String COPROCESSOR_EXECUTION_STATISTICS_DESC = "Statistics for coprocessor execution times";
+  String STORE_FILES_READ_PER_GET = "storeFilesReadPerGet";
+  String STORE_FILES_READ_PER_GET_DESC =
+      "Average number of store files Gets read data blocks from, per store read";
+  String BLOCKS_READ_PER_SCAN_ROW = "blocksReadPerScanRow";
+  String BLOCKS_READ_PER_SCAN_ROW_DESC =
+      "Average number of data blocks scans read per row they walked";
+  String COMPACTION_WRITE_AMPLIFICATION = "compactionWriteAmplification";
+  String COMPACTION_WRITE_AMPLIFICATION_DESC =
+      "Bytes flushes and compactions wrote to store files per byte flushed";
   String REPLICA_ID = "replicaid";
   String REPLICA_ID_DESC = "The replica ID of a region. 0 is primary, otherwise is secondary";
 
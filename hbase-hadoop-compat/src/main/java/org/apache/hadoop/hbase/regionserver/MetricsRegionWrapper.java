@@ -117,6 +117,21 @@ public interface MetricsRegionWrapper {
    */
   long getNumCompactionsFailed();
 
+  /**
+   * @return Average number of store files Gets read data blocks from, per store read
+   */
+  double getStoreFilesReadPerGet();
+
+  /**
+   * @return Average number of data blocks scans read per row they walked
+   */
+  double getBlocksReadPerScanRow();
+
+  /**
+   * @return Bytes flushes and compactions wrote to store files per byte flushed
+   */
+  double getCompactionWriteAmplification();
+
   int getRegionHashCode();
 
   /**
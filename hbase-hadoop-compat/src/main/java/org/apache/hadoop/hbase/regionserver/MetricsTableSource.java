@@ -36,6 +36,18 @@ public interface MetricsTableSource extends Comparable<MetricsTableSource> {
   String STORE_FILE_SIZE_DESC = "The size of store files size";
   String TABLE_SIZE = "tableSize";
   String TABLE_SIZE_DESC = "Total size of the table in the region server";
+  String INDEX_TIER_CACHE_SIZE = "indexTierCacheSize";
+  String INDEX_TIER_CACHE_SIZE_DESC =
+      "Size of the index and bloom blocks of the table held in the index block tier";
+  String STORE_FILES_READ_PER_GET = "storeFilesReadPerGet";
+  String STORE_FILES_READ_PER_GET_DESC =
+      "Average number of store files Gets read data blocks from, per store read";
+  String BLOCKS_READ_PER_SCAN_ROW = "blocksReadPerScanRow";
+  String BLOCKS_READ_PER_SCAN_ROW_DESC =
+      "Average number of data blocks scans read per row they walked";
+  String COMPACTION_WRITE_AMPLIFICATION = "compactionWriteAmplification";
+  String COMPACTION_WRITE_AMPLIFICATION_DESC =
+      "Bytes flushes and compactions wrote to store files per byte flushed";
 
   String getTableName();
 
@@ -54,4 +54,24 @@ public interface MetricsTableWrapperAggregate {
    * Get the table region size against this table
    */
   long getTableSize(String table);
+
+  /**
+   * Get the size of the index and bloom blocks of this table held in the index block tier
+   */
+  long getIndexTierCacheSize(String table);
+
+  /**
+   * Get the average number of store files Gets of this table read data blocks from, per store
+   */
+  double getStoreFilesReadPerGet(String table);
+
+  /**
+   * Get the average number of data blocks scans of this table read per row they walked
+   */
+  double getBlocksReadPerScanRow(String table);
+
+  /**
+   * Get the bytes flushes and compactions of this table wrote per byte flushed
+   */
+  double getCompactionWriteAmplification(String table);
 }
@@ -64,6 +64,9 @@ public interface MetricsWALSource extends BaseSource {
       "How many times a log roll was requested due to too few DN's in the write pipeline.";
   String WRITTEN_BYTES = "writtenBytes";
   String WRITTEN_BYTES_DESC = "Size (in bytes) of the data written to the WAL.";
+  String GROUP_PREFIX = "regiongroup.";
+  String GROUP_APPEND_SIZE = ".appendSize";
+  String GROUP_SYNC_TIME = ".syncTime";
 
   /**
    * Add the append size.
@@ -99,4 +102,27 @@ public interface MetricsWALSource extends BaseSource {
   void incrementWrittenBytes(long val);
 
   long getWrittenBytes();
+
+  /**
+   * @return the metrics of the WAL of a region group, registering them on first use. Callers
+   *         should keep the returned instance instead of looking it up for every append.
+   */
+  GroupMetrics getGroupMetrics(String group);
+
+  long getGroupAppendSize(String group);
+
+  /**
+   * The metrics of the WAL of one region group.
+   */
+  interface GroupMetrics {
+    /**
+     * Add the append size to the bytes appended to the WAL of the group.
+     */
+    void incrementAppendSize(long size);
+
+    /**
+     * Add the time it took to sync the WAL of the group.
+     */
+    void incrementSyncTime(long time);
+  }
 }
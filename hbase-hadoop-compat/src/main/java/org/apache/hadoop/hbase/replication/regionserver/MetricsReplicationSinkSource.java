@@ -23,10 +23,12 @@ public interface MetricsReplicationSinkSource {
   public static final String SINK_APPLIED_BATCHES = "sink.appliedBatches";
   public static final String SINK_APPLIED_OPS = "sink.appliedOps";
   public static final String SINK_APPLIED_HFILES = "sink.appliedHFiles";
+  public static final String SINK_BULK_LOADED_CELLS = "sink.bulkLoadedCells";
 
   void setLastAppliedOpAge(long age);
   void incrAppliedBatches(long batches);
   void incrAppliedOps(long batchsize);
   long getLastAppliedOpAge();
   void incrAppliedHFiles(long hfileSize);
+  void incrBulkLoadedCells(long cells);
 }
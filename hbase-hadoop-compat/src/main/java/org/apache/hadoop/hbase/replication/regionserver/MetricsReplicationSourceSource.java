@@ -50,6 +50,17 @@ public interface MetricsReplicationSourceSource extends BaseSource {
   public static final String SOURCE_COMPLETED_LOGS = "source.completedLogs";
   public static final String SOURCE_COMPLETED_RECOVERY_QUEUES = "source.completedRecoverQueues";
 
+  public static final String SOURCE_WAL_READ_TIME = "source.walReadTime";
+  public static final String SOURCE_FILTER_TIME = "source.filterTime";
+  public static final String SOURCE_SHIP_TIME = "source.shipTime";
+  public static final String SOURCE_SHIPPED_BATCH_SIZE = "source.shippedBatchSize";
+  public static final String SOURCE_SIZE_OF_LOG_QUEUE_IN_BYTES = "source.sizeOfLogQueueInBytes";
+
+  /** Prefix of the metrics of a single WAL group of a source */
+  public static final String WAL_GROUP_PREFIX = "walGroup.";
+  /** Prefix of the metrics of a single table replicated by a source */
+  public static final String TABLE_PREFIX = "table.";
+
   void setLastShippedAge(long age);
   void incrSizeOfLogQueue(int size);
   void decrSizeOfLogQueue(int size);
@@ -72,4 +83,11 @@ public interface MetricsReplicationSourceSource extends BaseSource {
   void incrRepeatedFileBytes(final long bytes);
   void incrCompletedWAL();
   void incrCompletedRecoveryQueue();
+  void updateWALReadTime(long time);
+  void updateFilterTime(long time);
+  void updateShipTime(long time);
+  void updateShippedBatchSize(long size);
+  void incrSizeOfLogQueueInBytes(long size);
+  void decrSizeOfLogQueueInBytes(long size);
+  long getSizeOfLogQueueInBytes();
 }
@@ -44,6 +44,7 @@ public class MetricsRegionServerSourceImpl
   private final MetricHistogram replayHisto;
   private final MetricHistogram scanSizeHisto;
   private final MetricHistogram scanTimeHisto;
+  private final MetricHistogram storeFilesReadPerGetHisto;
 
   private final MutableFastCounter slowPut;
   private final MutableFastCounter slowDelete;
@@ -115,6 +116,8 @@ public class MetricsRegionServerSourceImpl
     replayHisto = getMetricsRegistry().newTimeHistogram(REPLAY_KEY);
     scanSizeHisto = getMetricsRegistry().newSizeHistogram(SCAN_SIZE_KEY);
     scanTimeHisto = getMetricsRegistry().newTimeHistogram(SCAN_TIME_KEY);
+    storeFilesReadPerGetHisto = getMetricsRegistry().newHistogram(STORE_FILES_READ_PER_GET_KEY,
+      STORE_FILES_READ_PER_GET_DESC);
 
     flushTimeHisto = getMetricsRegistry().newTimeHistogram(FLUSH_TIME, FLUSH_TIME_DESC);
     flushMemstoreSizeHisto = getMetricsRegistry()
@@ -209,6 +212,11 @@ public class MetricsRegionServerSourceImpl
     scanTimeHisto.add(t);
   }
 
+  @Override
+  public void updateStoreFilesReadPerGet(long storeFiles) {
+    storeFilesReadPerGetHisto.add(storeFiles);
+  }
+
   @Override
   public void incrSlowPut() {
    slowPut.incr();
@@ -331,6 +339,13 @@ public class MetricsRegionServerSourceImpl
           .addGauge(Interns.info(WALFILE_SIZE, WALFILE_SIZE_DESC), rsWrap.getWALFileSize())
           .addGauge(Interns.info(STOREFILE_COUNT, STOREFILE_COUNT_DESC), rsWrap.getNumStoreFiles())
           .addGauge(Interns.info(MEMSTORE_SIZE, MEMSTORE_SIZE_DESC), rsWrap.getMemstoreSize())
+          .addGauge(Interns.info(MEMSTORE_CHUNKS_IN_USE, MEMSTORE_CHUNKS_IN_USE_DESC),
+              rsWrap.getMemStoreChunksInUse())
+          .addGauge(Interns.info(MEMSTORE_CHUNK_FRAGMENTATION_PERCENT,
+              MEMSTORE_CHUNK_FRAGMENTATION_PERCENT_DESC),
+              rsWrap.getMemStoreChunkFragmentationPercent())
+          .addCounter(Interns.info(MEMSTORE_OVERFLOW_CHUNK_COUNT,
+              MEMSTORE_OVERFLOW_CHUNK_COUNT_DESC), rsWrap.getMemStoreOverflowChunkCount())
           .addGauge(Interns.info(STOREFILE_SIZE, STOREFILE_SIZE_DESC), rsWrap.getStoreFileSize())
           .addGauge(Interns.info(MAX_STORE_FILE_AGE, MAX_STORE_FILE_AGE_DESC),
               rsWrap.getMaxStoreFileAge())
@@ -416,6 +431,19 @@ public class MetricsRegionServerSourceImpl
               BLOCK_CACHE_EXPRESS_HIT_PERCENT_DESC), rsWrap.getBlockCacheHitCachingPercent())
           .addCounter(Interns.info(BLOCK_CACHE_FAILED_INSERTION_COUNT,
               BLOCK_CACHE_FAILED_INSERTION_COUNT_DESC),rsWrap.getBlockCacheFailedInsertions())
+          .addGauge(Interns.info(BLOCK_CACHE_INDEX_TIER_SIZE, BLOCK_CACHE_INDEX_TIER_SIZE_DESC),
+              rsWrap.getBlockCacheIndexTierSize())
+          .addGauge(Interns.info(BLOCK_CACHE_INDEX_TIER_FREE_SIZE,
+              BLOCK_CACHE_INDEX_TIER_FREE_SIZE_DESC), rsWrap.getBlockCacheIndexTierFreeSize())
+          .addGauge(Interns.info(BLOCK_CACHE_INDEX_TIER_COUNT, BLOCK_CACHE_INDEX_TIER_COUNT_DESC),
+              rsWrap.getBlockCacheIndexTierCount())
+          .addCounter(Interns.info(BLOCK_CACHE_INDEX_TIER_HIT_COUNT,
+              BLOCK_CACHE_INDEX_TIER_HIT_COUNT_DESC), rsWrap.getBlockCacheIndexTierHitCount())
+          .addCounter(Interns.info(BLOCK_CACHE_INDEX_TIER_MISS_COUNT,
+              BLOCK_CACHE_INDEX_TIER_MISS_COUNT_DESC), rsWrap.getBlockCacheIndexTierMissCount())
+          .addCounter(Interns.info(BLOCK_CACHE_INDEX_TIER_EVICTION_COUNT,
+              BLOCK_CACHE_INDEX_TIER_EVICTION_COUNT_DESC),
+              rsWrap.getBlockCacheIndexTierEvictedCount())
           .addCounter(Interns.info(BLOCK_CACHE_DATA_MISS_COUNT, ""), rsWrap.getDataMissCount())
           .addCounter(Interns.info(BLOCK_CACHE_LEAF_INDEX_MISS_COUNT, ""),
               rsWrap.getLeafIndexMissCount())
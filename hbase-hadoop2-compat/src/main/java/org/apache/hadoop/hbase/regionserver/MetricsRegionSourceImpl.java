@@ -270,6 +270,18 @@ public class MetricsRegionSourceImpl implements MetricsRegionSource {
               regionNamePrefix + MetricsRegionServerSource.WRITE_REQUEST_COUNT,
               MetricsRegionServerSource.WRITE_REQUEST_COUNT_DESC),
           this.regionWrapper.getWriteRequestCount());
+      mrb.addGauge(Interns.info(
+              regionNamePrefix + MetricsRegionSource.STORE_FILES_READ_PER_GET,
+              MetricsRegionSource.STORE_FILES_READ_PER_GET_DESC),
+          this.regionWrapper.getStoreFilesReadPerGet());
+      mrb.addGauge(Interns.info(
+              regionNamePrefix + MetricsRegionSource.BLOCKS_READ_PER_SCAN_ROW,
+              MetricsRegionSource.BLOCKS_READ_PER_SCAN_ROW_DESC),
+          this.regionWrapper.getBlocksReadPerScanRow());
+      mrb.addGauge(Interns.info(
+              regionNamePrefix + MetricsRegionSource.COMPACTION_WRITE_AMPLIFICATION,
+              MetricsRegionSource.COMPACTION_WRITE_AMPLIFICATION_DESC),
+          this.regionWrapper.getCompactionWriteAmplification());
       mrb.addCounter(Interns.info(regionNamePrefix + MetricsRegionSource.REPLICA_ID,
               MetricsRegionSource.REPLICA_ID_DESC),
           this.regionWrapper.getReplicaId());
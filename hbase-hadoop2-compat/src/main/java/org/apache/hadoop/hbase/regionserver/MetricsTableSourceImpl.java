@@ -140,6 +140,19 @@ public class MetricsTableSourceImpl implements MetricsTableSource {
         mrb.addGauge(Interns.info(tableNamePrefix + MetricsTableSource.TABLE_SIZE,
           MetricsTableSource.TABLE_SIZE_DESC),
           tableWrapperAgg.getTableSize(tableName.getNameAsString()));
+        mrb.addGauge(Interns.info(tableNamePrefix + MetricsTableSource.INDEX_TIER_CACHE_SIZE,
+          MetricsTableSource.INDEX_TIER_CACHE_SIZE_DESC),
+          tableWrapperAgg.getIndexTierCacheSize(tableName.getNameAsString()));
+        mrb.addGauge(Interns.info(tableNamePrefix + MetricsTableSource.STORE_FILES_READ_PER_GET,
+          MetricsTableSource.STORE_FILES_READ_PER_GET_DESC),
+          tableWrapperAgg.getStoreFilesReadPerGet(tableName.getNameAsString()));
+        mrb.addGauge(Interns.info(tableNamePrefix + MetricsTableSource.BLOCKS_READ_PER_SCAN_ROW,
+          MetricsTableSource.BLOCKS_READ_PER_SCAN_ROW_DESC),
+          tableWrapperAgg.getBlocksReadPerScanRow(tableName.getNameAsString()));
+        mrb.addGauge(Interns.info(
+          tableNamePrefix + MetricsTableSource.COMPACTION_WRITE_AMPLIFICATION,
+          MetricsTableSource.COMPACTION_WRITE_AMPLIFICATION_DESC),
+          tableWrapperAgg.getCompactionWriteAmplification(tableName.getNameAsString()));
       }
     }
   }
@@ -116,4 +116,28 @@ public class MetricsWALSourceImpl extends BaseSourceImpl implements MetricsWALSo
     return writtenBytes.value();
   }
 
+  @Override
+  public GroupMetrics getGroupMetrics(String group) {
+    final MutableFastCounter appendSize =
+        getMetricsRegistry().getCounter(GROUP_PREFIX + group + GROUP_APPEND_SIZE, 0L);
+    final MetricHistogram syncTime =
+        getMetricsRegistry().getHistogram(GROUP_PREFIX + group + GROUP_SYNC_TIME);
+    return new GroupMetrics() {
+      @Override
+      public void incrementAppendSize(long size) {
+        appendSize.incr(size);
+      }
+
+      @Override
+      public void incrementSyncTime(long time) {
+        syncTime.add(time);
+      }
+    };
+  }
+
+  @Override
+  public long getGroupAppendSize(String group) {
+    return getMetricsRegistry().getCounter(GROUP_PREFIX + group + GROUP_APPEND_SIZE, 0L).value();
+  }
+
 }
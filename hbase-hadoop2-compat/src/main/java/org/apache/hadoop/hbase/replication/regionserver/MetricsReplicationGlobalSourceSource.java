@@ -44,6 +44,11 @@ public class MetricsReplicationGlobalSourceSource implements MetricsReplicationS
   private final MutableFastCounter repeatedFileBytes;
   private final MutableFastCounter completedWAL;
   private final MutableFastCounter completedRecoveryQueue;
+  private final MutableHistogram walReadTimeHist;
+  private final MutableHistogram filterTimeHist;
+  private final MutableHistogram shipTimeHist;
+  private final MutableHistogram shippedBatchSizeHist;
+  private final MutableGaugeLong sizeOfLogQueueInBytesGauge;
 
   public MetricsReplicationGlobalSourceSource(MetricsReplicationSourceImpl rms) {
     this.rms = rms;
@@ -78,6 +83,12 @@ public class MetricsReplicationGlobalSourceSource implements MetricsReplicationS
     repeatedFileBytes = rms.getMetricsRegistry().getCounter(SOURCE_REPEATED_LOG_FILE_BYTES, 0L);
     completedWAL = rms.getMetricsRegistry().getCounter(SOURCE_COMPLETED_LOGS, 0L);
     completedRecoveryQueue = rms.getMetricsRegistry().getCounter(SOURCE_COMPLETED_RECOVERY_QUEUES, 0L);
+    walReadTimeHist = rms.getMetricsRegistry().getHistogram(SOURCE_WAL_READ_TIME);
+    filterTimeHist = rms.getMetricsRegistry().getHistogram(SOURCE_FILTER_TIME);
+    shipTimeHist = rms.getMetricsRegistry().getHistogram(SOURCE_SHIP_TIME);
+    shippedBatchSizeHist = rms.getMetricsRegistry().getHistogram(SOURCE_SHIPPED_BATCH_SIZE);
+    sizeOfLogQueueInBytesGauge =
+        rms.getMetricsRegistry().getGauge(SOURCE_SIZE_OF_LOG_QUEUE_IN_BYTES, 0L);
   }
 
   @Override public void setLastShippedAge(long age) {
@@ -189,6 +200,41 @@ public class MetricsReplicationGlobalSourceSource implements MetricsReplicationS
     completedRecoveryQueue.incr(1L);
   }
 
+  @Override
+  public void updateWALReadTime(long time) {
+    walReadTimeHist.add(time);
+  }
+
+  @Override
+  public void updateFilterTime(long time) {
+    filterTimeHist.add(time);
+  }
+
+  @Override
+  public void updateShipTime(long time) {
+    shipTimeHist.add(time);
+  }
+
+  @Override
+  public void updateShippedBatchSize(long size) {
+    shippedBatchSizeHist.add(size);
+  }
+
+  @Override
+  public void incrSizeOfLogQueueInBytes(long size) {
+    sizeOfLogQueueInBytesGauge.incr(size);
+  }
+
+  @Override
+  public void decrSizeOfLogQueueInBytes(long size) {
+    sizeOfLogQueueInBytesGauge.decr(size);
+  }
+
+  @Override
+  public long getSizeOfLogQueueInBytes() {
+    return sizeOfLogQueueInBytesGauge.value();
+  }
+
   @Override
   public void init() {
     rms.init();
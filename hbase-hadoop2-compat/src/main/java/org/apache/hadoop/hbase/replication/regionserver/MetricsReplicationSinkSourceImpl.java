@@ -28,12 +28,14 @@ public class MetricsReplicationSinkSourceImpl implements MetricsReplicationSinkS
   private final MutableFastCounter batchesCounter;
   private final MutableFastCounter opsCounter;
   private final MutableFastCounter hfilesCounter;
+  private final MutableFastCounter bulkLoadedCellsCounter;
 
   public MetricsReplicationSinkSourceImpl(MetricsReplicationSourceImpl rms) {
     ageHist = rms.getMetricsRegistry().getHistogram(SINK_AGE_OF_LAST_APPLIED_OP);
     batchesCounter = rms.getMetricsRegistry().getCounter(SINK_APPLIED_BATCHES, 0L);
     opsCounter = rms.getMetricsRegistry().getCounter(SINK_APPLIED_OPS, 0L);
     hfilesCounter = rms.getMetricsRegistry().getCounter(SINK_APPLIED_HFILES, 0L);
+    bulkLoadedCellsCounter = rms.getMetricsRegistry().getCounter(SINK_BULK_LOADED_CELLS, 0L);
   }
 
   @Override public void setLastAppliedOpAge(long age) {
@@ -57,4 +59,9 @@ public class MetricsReplicationSinkSourceImpl implements MetricsReplicationSinkS
   public void incrAppliedHFiles(long hfiles) {
     hfilesCounter.incr(hfiles);
   }
+
+  @Override
+  public void incrBulkLoadedCells(long cells) {
+    bulkLoadedCellsCounter.incr(cells);
+  }
 }
@@ -67,6 +67,17 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
   private final MutableFastCounter completedWAL;
   private final MutableFastCounter completedRecoveryQueue;
 
+  private final String walReadTimeKey;
+  private final String filterTimeKey;
+  private final String shipTimeKey;
+  private final String shippedBatchSizeKey;
+  private final String sizeOfLogQueueInBytesKey;
+  private final MutableHistogram walReadTimeHist;
+  private final MutableHistogram filterTimeHist;
+  private final MutableHistogram shipTimeHist;
+  private final MutableHistogram shippedBatchSizeHist;
+  private final MutableGaugeLong sizeOfLogQueueInBytesGauge;
+
   public MetricsReplicationSourceSourceImpl(MetricsReplicationSourceImpl rms, String id) {
     this.rms = rms;
     this.id = id;
@@ -125,6 +136,21 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
 
     completedRecoveryKey = this.keyPrefix + "completedRecoverQueues";
     completedRecoveryQueue = rms.getMetricsRegistry().getCounter(completedRecoveryKey, 0L);
+
+    walReadTimeKey = this.keyPrefix + "walReadTime";
+    walReadTimeHist = rms.getMetricsRegistry().getHistogram(walReadTimeKey);
+
+    filterTimeKey = this.keyPrefix + "filterTime";
+    filterTimeHist = rms.getMetricsRegistry().getHistogram(filterTimeKey);
+
+    shipTimeKey = this.keyPrefix + "shipTime";
+    shipTimeHist = rms.getMetricsRegistry().getHistogram(shipTimeKey);
+
+    shippedBatchSizeKey = this.keyPrefix + "shippedBatchSize";
+    shippedBatchSizeHist = rms.getMetricsRegistry().getHistogram(shippedBatchSizeKey);
+
+    sizeOfLogQueueInBytesKey = this.keyPrefix + "sizeOfLogQueueInBytes";
+    sizeOfLogQueueInBytesGauge = rms.getMetricsRegistry().getGauge(sizeOfLogQueueInBytesKey, 0L);
   }
 
   @Override public void setLastShippedAge(long age) {
@@ -190,6 +216,12 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
     rms.removeMetric(repeatedBytesKey);
     rms.removeMetric(completedLogsKey);
     rms.removeMetric(completedRecoveryKey);
+
+    rms.removeMetric(walReadTimeKey);
+    rms.removeMetric(filterTimeKey);
+    rms.removeMetric(shipTimeKey);
+    rms.removeMetric(shippedBatchSizeKey);
+    rms.removeMetric(sizeOfLogQueueInBytesKey);
   }
 
   @Override
@@ -252,6 +284,41 @@ public class MetricsReplicationSourceSourceImpl implements MetricsReplicationSou
     completedRecoveryQueue.incr(1L);
   }
 
+  @Override
+  public void updateWALReadTime(long time) {
+    walReadTimeHist.add(time);
+  }
+
+  @Override
+  public void updateFilterTime(long time) {
+    filterTimeHist.add(time);
+  }
+
+  @Override
+  public void updateShipTime(long time) {
+    shipTimeHist.add(time);
+  }
+
+  @Override
+  public void updateShippedBatchSize(long size) {
+    shippedBatchSizeHist.add(size);
+  }
+
+  @Override
+  public void incrSizeOfLogQueueInBytes(long size) {
+    sizeOfLogQueueInBytesGauge.incr(size);
+  }
+
+  @Override
+  public void decrSizeOfLogQueueInBytes(long size) {
+    sizeOfLogQueueInBytesGauge.decr(size);
+  }
+
+  @Override
+  public long getSizeOfLogQueueInBytes() {
+    return sizeOfLogQueueInBytesGauge.value();
+  }
+
   @Override
   public void init() {
     rms.init();
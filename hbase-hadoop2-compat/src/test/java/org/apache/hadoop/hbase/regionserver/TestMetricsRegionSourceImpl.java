@@ -161,6 +161,21 @@ public class TestMetricsRegionSourceImpl {
       return 0;
     }
 
+    @Override
+    public double getStoreFilesReadPerGet() {
+      return 0;
+    }
+
+    @Override
+    public double getBlocksReadPerScanRow() {
+      return 0;
+    }
+
+    @Override
+    public double getCompactionWriteAmplification() {
+      return 0;
+    }
+
     @Override
     public int getRegionHashCode() {
       return regionName.hashCode();
@@ -106,6 +106,26 @@ public class TestMetricsTableSourceImpl {
       return 3000;
     }
 
+    @Override
+    public long getIndexTierCacheSize(String table) {
+      return 4000;
+    }
+
+    @Override
+    public double getStoreFilesReadPerGet(String table) {
+      return 1.5;
+    }
+
+    @Override
+    public double getBlocksReadPerScanRow(String table) {
+      return 2.5;
+    }
+
+    @Override
+    public double getCompactionWriteAmplification(String table) {
+      return 3.5;
+    }
+
     public String getTableName() {
       return tableName;
     }
@@ -23,6 +23,7 @@ import org.apache.hadoop.hbase.testclassification.MetricsTests;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
@@ -37,4 +38,18 @@ public class TestMetricsWALSourceImpl {
     assertSame(walSource,
         CompatibilitySingletonFactory.getInstance(MetricsWALSource.class));
   }
+
+  @Test
+  public void testGroupMetrics() throws Exception {
+    MetricsWALSource walSource = new MetricsWALSourceImpl("TestGroupMetrics", "", "regionserver",
+        "RegionServer,sub=TestGroupMetrics");
+    MetricsWALSource.GroupMetrics first = walSource.getGroupMetrics("g1");
+    first.incrementAppendSize(10);
+    // A second lookup shares the registered counter.
+    walSource.getGroupMetrics("g1").incrementAppendSize(5);
+    walSource.getGroupMetrics("g2").incrementAppendSize(7);
+    first.incrementSyncTime(3);
+    assertEquals(15, walSource.getGroupAppendSize("g1"));
+    assertEquals(7, walSource.getGroupAppendSize("g2"));
+  }
 }
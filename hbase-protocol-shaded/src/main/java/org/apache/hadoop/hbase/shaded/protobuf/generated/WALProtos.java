@@ -171,6 +171,15 @@ public final class WALProtos {
      */
     org.apache.hadoop.hbase.shaded.com.google.protobuf.ByteString
         getCellCodecClsNameBytes();
+
+    /**
+     * <code>optional int32 value_compression_algorithm = 6;</code>
+     */
+    boolean hasValueCompressionAlgorithm();
+    /**
+     * <code>optional int32 value_compression_algorithm = 6;</code>
+     */
+    int getValueCompressionAlgorithm();
   }
   /**
    * Protobuf type {@code hbase.pb.WALHeader}
@@ -189,6 +198,7 @@ public final class WALProtos {
       hasTagCompression_ = false;
       writerClsName_ = "";
       cellCodecClsName_ = "";
+      valueCompressionAlgorithm_ = 0;
     }
 
     @java.lang.Override
@@ -246,6 +256,11 @@ public final class WALProtos {
               cellCodecClsName_ = bs;
               break;
             }
+            case 48: {
+              bitField0_ |= 0x00000020;
+              valueCompressionAlgorithm_ = input.readInt32();
+              break;
+            }
           }
         }
       } catch (org.apache.hadoop.hbase.shaded.com.google.protobuf.InvalidProtocolBufferException e) {
@@ -400,6 +415,21 @@ public final class WALProtos {
       }
     }
 
+    public static final int VALUE_COMPRESSION_ALGORITHM_FIELD_NUMBER = 6;
+    private int valueCompressionAlgorithm_;
+    /**
+     * <code>optional int32 value_compression_algorithm = 6;</code>
+     */
+    public boolean hasValueCompressionAlgorithm() {
+      return ((bitField0_ & 0x00000020) == 0x00000020);
+    }
+    /**
+     * <code>optional int32 value_compression_algorithm = 6;</code>
+     */
+    public int getValueCompressionAlgorithm() {
+      return valueCompressionAlgorithm_;
+    }
+
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
       byte isInitialized = memoizedIsInitialized;
@@ -427,6 +457,9 @@ public final class WALProtos {
       if (((bitField0_ & 0x00000010) == 0x00000010)) {
         org.apache.hadoop.hbase.shaded.com.google.protobuf.GeneratedMessageV3.writeString(output, 5, cellCodecClsName_);
       }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        output.writeInt32(6, valueCompressionAlgorithm_);
+      }
       unknownFields.writeTo(output);
     }
 
@@ -453,6 +486,10 @@ public final class WALProtos {
       if (((bitField0_ & 0x00000010) == 0x00000010)) {
         size += org.apache.hadoop.hbase.shaded.com.google.protobuf.GeneratedMessageV3.computeStringSize(5, cellCodecClsName_);
       }
+      if (((bitField0_ & 0x00000020) == 0x00000020)) {
+        size += org.apache.hadoop.hbase.shaded.com.google.protobuf.CodedOutputStream
+          .computeInt32Size(6, valueCompressionAlgorithm_);
+      }
       size += unknownFields.getSerializedSize();
       memoizedSize = size;
       return size;
@@ -495,6 +532,11 @@ public final class WALProtos {
         result = result && getCellCodecClsName()
             .equals(other.getCellCodecClsName());
       }
+      result = result && (hasValueCompressionAlgorithm() == other.hasValueCompressionAlgorithm());
+      if (hasValueCompressionAlgorithm()) {
+        result = result && (getValueCompressionAlgorithm()
+            == other.getValueCompressionAlgorithm());
+      }
       result = result && unknownFields.equals(other.unknownFields);
       return result;
     }
@@ -528,6 +570,10 @@ public final class WALProtos {
         hash = (37 * hash) + CELL_CODEC_CLS_NAME_FIELD_NUMBER;
         hash = (53 * hash) + getCellCodecClsName().hashCode();
       }
+      if (hasValueCompressionAlgorithm()) {
+        hash = (37 * hash) + VALUE_COMPRESSION_ALGORITHM_FIELD_NUMBER;
+        hash = (53 * hash) + getValueCompressionAlgorithm();
+      }
       hash = (29 * hash) + unknownFields.hashCode();
       memoizedHashCode = hash;
       return hash;
@@ -656,6 +702,8 @@ public final class WALProtos {
         bitField0_ = (bitField0_ & ~0x00000008);
         cellCodecClsName_ = "";
         bitField0_ = (bitField0_ & ~0x00000010);
+        valueCompressionAlgorithm_ = 0;
+        bitField0_ = (bitField0_ & ~0x00000020);
         return this;
       }
 
@@ -700,6 +748,10 @@ public final class WALProtos {
           to_bitField0_ |= 0x00000010;
         }
         result.cellCodecClsName_ = cellCodecClsName_;
+        if (((from_bitField0_ & 0x00000020) == 0x00000020)) {
+          to_bitField0_ |= 0x00000020;
+        }
+        result.valueCompressionAlgorithm_ = valueCompressionAlgorithm_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -761,6 +813,9 @@ public final class WALProtos {
           cellCodecClsName_ = other.cellCodecClsName_;
           onChanged();
         }
+        if (other.hasValueCompressionAlgorithm()) {
+          setValueCompressionAlgorithm(other.getValueCompressionAlgorithm());
+        }
         this.mergeUnknownFields(other.unknownFields);
         onChanged();
         return this;
@@ -1039,6 +1094,38 @@ public final class WALProtos {
         onChanged();
         return this;
       }
+
+      private int valueCompressionAlgorithm_ ;
+      /**
+       * <code>optional int32 value_compression_algorithm = 6;</code>
+       */
+      public boolean hasValueCompressionAlgorithm() {
+        return ((bitField0_ & 0x00000020) == 0x00000020);
+      }
+      /**
+       * <code>optional int32 value_compression_algorithm = 6;</code>
+       */
+      public int getValueCompressionAlgorithm() {
+        return valueCompressionAlgorithm_;
+      }
+      /**
+       * <code>optional int32 value_compression_algorithm = 6;</code>
+       */
+      public Builder setValueCompressionAlgorithm(int value) {
+        bitField0_ |= 0x00000020;
+        valueCompressionAlgorithm_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional int32 value_compression_algorithm = 6;</code>
+       */
+      public Builder clearValueCompressionAlgorithm() {
+        bitField0_ = (bitField0_ & ~0x00000020);
+        valueCompressionAlgorithm_ = 0;
+        onChanged();
+        return this;
+      }
       public final Builder setUnknownFields(
           final org.apache.hadoop.hbase.shaded.com.google.protobuf.UnknownFieldSet unknownFields) {
         return super.setUnknownFields(unknownFields);
@@ -12177,56 +12264,57 @@ public final class WALProtos {
       descriptor;
   static {
     java.lang.String[] descriptorData = {
-      "\n\tWAL.proto\022\010hbase.pb\032\013HBase.proto\"\217\001\n\tW" +
+      "\n\tWAL.proto\022\010hbase.pb\032\013HBase.proto\"\264\001\n\tW" +
       "ALHeader\022\027\n\017has_compression\030\001 \001(\010\022\026\n\016enc" +
       "ryption_key\030\002 \001(\014\022\033\n\023has_tag_compression" +
       "\030\003 \001(\010\022\027\n\017writer_cls_name\030\004 \001(\t\022\033\n\023cell_" +
-      "codec_cls_name\030\005 \001(\t\"\273\002\n\006WALKey\022\033\n\023encod" +
-      "ed_region_name\030\001 \002(\014\022\022\n\ntable_name\030\002 \002(\014" +
-      "\022\033\n\023log_sequence_number\030\003 \002(\004\022\022\n\nwrite_t" +
-      "ime\030\004 \002(\004\022&\n\ncluster_id\030\005 \001(\0132\016.hbase.pb" +
-      ".UUIDB\002\030\001\022%\n\006scopes\030\006 \003(\0132\025.hbase.pb.Fam" +
-      "ilyScope\022\032\n\022following_kv_count\030\007 \001(\r\022#\n\013",
-      "cluster_ids\030\010 \003(\0132\016.hbase.pb.UUID\022\022\n\nnon" +
-      "ceGroup\030\t \001(\004\022\r\n\005nonce\030\n \001(\004\022\034\n\024orig_seq" +
-      "uence_number\030\013 \001(\004\"F\n\013FamilyScope\022\016\n\006fam" +
-      "ily\030\001 \002(\014\022\'\n\nscope_type\030\002 \002(\0162\023.hbase.pb" +
-      ".ScopeType\"\276\001\n\024CompactionDescriptor\022\022\n\nt" +
-      "able_name\030\001 \002(\014\022\033\n\023encoded_region_name\030\002" +
-      " \002(\014\022\023\n\013family_name\030\003 \002(\014\022\030\n\020compaction_" +
-      "input\030\004 \003(\t\022\031\n\021compaction_output\030\005 \003(\t\022\026" +
-      "\n\016store_home_dir\030\006 \002(\t\022\023\n\013region_name\030\007 " +
-      "\001(\014\"\244\003\n\017FlushDescriptor\0225\n\006action\030\001 \002(\0162",
-      "%.hbase.pb.FlushDescriptor.FlushAction\022\022" +
-      "\n\ntable_name\030\002 \002(\014\022\033\n\023encoded_region_nam" +
-      "e\030\003 \002(\014\022\035\n\025flush_sequence_number\030\004 \001(\004\022E" +
-      "\n\rstore_flushes\030\005 \003(\0132..hbase.pb.FlushDe" +
-      "scriptor.StoreFlushDescriptor\022\023\n\013region_" +
-      "name\030\006 \001(\014\032Y\n\024StoreFlushDescriptor\022\023\n\013fa" +
-      "mily_name\030\001 \002(\014\022\026\n\016store_home_dir\030\002 \002(\t\022" +
-      "\024\n\014flush_output\030\003 \003(\t\"S\n\013FlushAction\022\017\n\013" +
-      "START_FLUSH\020\000\022\020\n\014COMMIT_FLUSH\020\001\022\017\n\013ABORT" +
-      "_FLUSH\020\002\022\020\n\014CANNOT_FLUSH\020\003\"q\n\017StoreDescr",
-      "iptor\022\023\n\013family_name\030\001 \002(\014\022\026\n\016store_home" +
-      "_dir\030\002 \002(\t\022\022\n\nstore_file\030\003 \003(\t\022\035\n\025store_" +
-      "file_size_bytes\030\004 \001(\004\"\237\001\n\022BulkLoadDescri" +
-      "ptor\022\'\n\ntable_name\030\001 \002(\0132\023.hbase.pb.Tabl" +
-      "eName\022\033\n\023encoded_region_name\030\002 \002(\014\022)\n\006st" +
-      "ores\030\003 \003(\0132\031.hbase.pb.StoreDescriptor\022\030\n" +
-      "\020bulkload_seq_num\030\004 \002(\003\"\272\002\n\025RegionEventD" +
-      "escriptor\022=\n\nevent_type\030\001 \002(\0162).hbase.pb" +
-      ".RegionEventDescriptor.EventType\022\022\n\ntabl" +
-      "e_name\030\002 \002(\014\022\033\n\023encoded_region_name\030\003 \002(",
-      "\014\022\033\n\023log_sequence_number\030\004 \001(\004\022)\n\006stores" +
-      "\030\005 \003(\0132\031.hbase.pb.StoreDescriptor\022$\n\006ser" +
-      "ver\030\006 \001(\0132\024.hbase.pb.ServerName\022\023\n\013regio" +
-      "n_name\030\007 \001(\014\".\n\tEventType\022\017\n\013REGION_OPEN" +
-      "\020\000\022\020\n\014REGION_CLOSE\020\001\"\014\n\nWALTrailer*d\n\tSc" +
-      "opeType\022\033\n\027REPLICATION_SCOPE_LOCAL\020\000\022\034\n\030" +
-      "REPLICATION_SCOPE_GLOBAL\020\001\022\034\n\030REPLICATIO" +
-      "N_SCOPE_SERIAL\020\002BF\n1org.apache.hadoop.hb" +
-      "ase.shaded.protobuf.generatedB\tWALProtos" +
-      "H\001\210\001\000\240\001\001"
+      "codec_cls_name\030\005 \001(\t\022#\n\033value_compressio" +
+      "n_algorithm\030\006 \001(\005\"\273\002\n\006WALKey\022\033\n\023encoded_" +
+      "region_name\030\001 \002(\014\022\022\n\ntable_name\030\002 \002(\014\022\033\n" +
+      "\023log_sequence_number\030\003 \002(\004\022\022\n\nwrite_time" +
+      "\030\004 \002(\004\022&\n\ncluster_id\030\005 \001(\0132\016.hbase.pb.UU" +
+      "IDB\002\030\001\022%\n\006scopes\030\006 \003(\0132\025.hbase.pb.Family",
+      "Scope\022\032\n\022following_kv_count\030\007 \001(\r\022#\n\013clu" +
+      "ster_ids\030\010 \003(\0132\016.hbase.pb.UUID\022\022\n\nnonceG" +
+      "roup\030\t \001(\004\022\r\n\005nonce\030\n \001(\004\022\034\n\024orig_sequen" +
+      "ce_number\030\013 \001(\004\"F\n\013FamilyScope\022\016\n\006family" +
+      "\030\001 \002(\014\022\'\n\nscope_type\030\002 \002(\0162\023.hbase.pb.Sc" +
+      "opeType\"\276\001\n\024CompactionDescriptor\022\022\n\ntabl" +
+      "e_name\030\001 \002(\014\022\033\n\023encoded_region_name\030\002 \002(" +
+      "\014\022\023\n\013family_name\030\003 \002(\014\022\030\n\020compaction_inp" +
+      "ut\030\004 \003(\t\022\031\n\021compaction_output\030\005 \003(\t\022\026\n\016s" +
+      "tore_home_dir\030\006 \002(\t\022\023\n\013region_name\030\007 \001(\014",
+      "\"\244\003\n\017FlushDescriptor\0225\n\006action\030\001 \002(\0162%.h" +
+      "base.pb.FlushDescriptor.FlushAction\022\022\n\nt" +
+      "able_name\030\002 \002(\014\022\033\n\023encoded_region_name\030\003" +
+      " \002(\014\022\035\n\025flush_sequence_number\030\004 \001(\004\022E\n\rs" +
+      "tore_flushes\030\005 \003(\0132..hbase.pb.FlushDescr" +
+      "iptor.StoreFlushDescriptor\022\023\n\013region_nam" +
+      "e\030\006 \001(\014\032Y\n\024StoreFlushDescriptor\022\023\n\013famil" +
+      "y_name\030\001 \002(\014\022\026\n\016store_home_dir\030\002 \002(\t\022\024\n\014" +
+      "flush_output\030\003 \003(\t\"S\n\013FlushAction\022\017\n\013STA" +
+      "RT_FLUSH\020\000\022\020\n\014COMMIT_FLUSH\020\001\022\017\n\013ABORT_FL",
+      "USH\020\002\022\020\n\014CANNOT_FLUSH\020\003\"q\n\017StoreDescript" +
+      "or\022\023\n\013family_name\030\001 \002(\014\022\026\n\016store_home_di" +
+      "r\030\002 \002(\t\022\022\n\nstore_file\030\003 \003(\t\022\035\n\025store_fil" +
+      "e_size_bytes\030\004 \001(\004\"\237\001\n\022BulkLoadDescripto" +
+      "r\022\'\n\ntable_name\030\001 \002(\0132\023.hbase.pb.TableNa" +
+      "me\022\033\n\023encoded_region_name\030\002 \002(\014\022)\n\006store" +
+      "s\030\003 \003(\0132\031.hbase.pb.StoreDescriptor\022\030\n\020bu" +
+      "lkload_seq_num\030\004 \002(\003\"\272\002\n\025RegionEventDesc" +
+      "riptor\022=\n\nevent_type\030\001 \002(\0162).hbase.pb.Re" +
+      "gionEventDescriptor.EventType\022\022\n\ntable_n",
+      "ame\030\002 \002(\014\022\033\n\023encoded_region_name\030\003 \002(\014\022\033" +
+      "\n\023log_sequence_number\030\004 \001(\004\022)\n\006stores\030\005 " +
+      "\003(\0132\031.hbase.pb.StoreDescriptor\022$\n\006server" +
+      "\030\006 \001(\0132\024.hbase.pb.ServerName\022\023\n\013region_n" +
+      "ame\030\007 \001(\014\".\n\tEventType\022\017\n\013REGION_OPEN\020\000\022" +
+      "\020\n\014REGION_CLOSE\020\001\"\014\n\nWALTrailer*d\n\tScope" +
+      "Type\022\033\n\027REPLICATION_SCOPE_LOCAL\020\000\022\034\n\030REP" +
+      "LICATION_SCOPE_GLOBAL\020\001\022\034\n\030REPLICATION_S" +
+      "COPE_SERIAL\020\002BF\n1org.apache.hadoop.hbase" +
+      ".shaded.protobuf.generatedB\tWALProtosH\001\210",
+      "\001\000\240\001\001"
     };
     org.apache.hadoop.hbase.shaded.com.google.protobuf.Descriptors.FileDescriptor.InternalDescriptorAssigner assigner =
         new org.apache.hadoop.hbase.shaded.com.google.protobuf.Descriptors.FileDescriptor.    InternalDescriptorAssigner() {
@@ -12246,7 +12334,7 @@ public final class WALProtos {
     internal_static_hbase_pb_WALHeader_fieldAccessorTable = new
       org.apache.hadoop.hbase.shaded.com.google.protobuf.GeneratedMessageV3.FieldAccessorTable(
         internal_static_hbase_pb_WALHeader_descriptor,
-        new java.lang.String[] { "HasCompression", "EncryptionKey", "HasTagCompression", "WriterClsName", "CellCodecClsName", });
+        new java.lang.String[] { "HasCompression", "EncryptionKey", "HasTagCompression", "WriterClsName", "CellCodecClsName", "ValueCompressionAlgorithm", });
     internal_static_hbase_pb_WALKey_descriptor =
       getDescriptor().getMessageTypes().get(1);
     internal_static_hbase_pb_WALKey_fieldAccessorTable = new
@@ -284,6 +284,11 @@ public class HalfStoreFileReader extends StoreFileReader {
         return null;
       }
 
+      @Override
+      public long getDataBlocksRead() {
+        return this.delegate.getDataBlocksRead();
+      }
+
       @Override
       public void close() {
         this.delegate.close();
@@ -26,6 +26,7 @@ import java.lang.management.ManagementFactory;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.classification.InterfaceAudience;
@@ -65,6 +66,13 @@ public class CacheConfig {
   public static final String CACHE_BLOCKS_ON_WRITE_KEY =
       "hbase.rs.cacheblocksonwrite";
 
+  /**
+   * Configuration key to have compactions cache the data blocks they write for the key ranges
+   * whose blocks in the input files were hot in the block cache. See {@link HotKeyRanges}.
+   */
+  public static final String CACHE_HOT_BLOCKS_ON_COMPACTION_KEY =
+      "hbase.rs.cachehotblocksoncompaction";
+
   /**
    * Configuration key to cache leaf and intermediate-level index blocks on
    * write.
@@ -125,12 +133,25 @@ public class CacheConfig {
    */
   public static final String BUCKET_CACHE_BUCKETS_KEY = "hbase.bucketcache.bucket.sizes";
 
+  /**
+   * Capacity in megabytes of a dedicated cache tier for INDEX and BLOOM blocks. When greater
+   * than zero, index and bloom blocks are cached in this tier only and so are never evicted to
+   * make room for data blocks. See {@link IndexBlockTierCache}.
+   */
+  public static final String INDEX_TIER_SIZE_KEY = "hbase.blockcache.index.tier.size";
+
+  /**
+   * The bucket cache ioengine backing the index tier; defaults to 'offheap'.
+   */
+  public static final String INDEX_TIER_IOENGINE_KEY = "hbase.blockcache.index.tier.ioengine";
+
   /**
    * Defaults for Bucket cache
    */
   public static final boolean DEFAULT_BUCKET_CACHE_COMBINED = true;
   public static final int DEFAULT_BUCKET_CACHE_WRITER_THREADS = 3;
   public static final int DEFAULT_BUCKET_CACHE_WRITER_QUEUE = 64;
+  public static final String DEFAULT_INDEX_TIER_IOENGINE = "offheap";
 
  /**
    * Configuration key to prefetch all blocks of a given file into the block cache
@@ -226,6 +247,9 @@ public class CacheConfig {
 
   private final boolean dropBehindCompaction;
 
+  /** Key ranges whose data blocks are cached on write even if cacheDataOnWrite is off */
+  private HotKeyRanges cacheOnWriteKeyRanges;
+
   /**
    * Create a cache configuration using the specified configuration object and
    * family descriptor.
@@ -327,6 +351,7 @@ public class CacheConfig {
         cacheConf.cacheBloomsOnWrite, cacheConf.evictOnClose,
         cacheConf.cacheDataCompressed, cacheConf.prefetchOnOpen,
         cacheConf.cacheDataInL1, cacheConf.dropBehindCompaction);
+    this.cacheOnWriteKeyRanges = cacheConf.cacheOnWriteKeyRanges;
   }
 
   private CacheConfig() {
@@ -399,6 +424,28 @@ public class CacheConfig {
     return isBlockCacheEnabled() && this.cacheDataOnWrite;
   }
 
+  /**
+   * @param firstCell the first cell of a data block being written
+   * @param lastCell the last cell of the block
+   * @return true if the data block should be written to the cache, either because all data
+   *         blocks are or because it overlaps the {@link #setCacheOnWriteKeyRanges(HotKeyRanges)}
+   */
+  public boolean shouldCacheDataBlockOnWrite(Cell firstCell, Cell lastCell) {
+    if (shouldCacheDataOnWrite()) {
+      return true;
+    }
+    return isBlockCacheEnabled() && this.cacheOnWriteKeyRanges != null
+        && this.cacheOnWriteKeyRanges.overlaps(firstCell, lastCell);
+  }
+
+  /**
+   * @param cacheOnWriteKeyRanges key ranges whose data blocks should be written to the cache
+   *          even if data blocks are not cached on write in general, or null for none
+   */
+  public void setCacheOnWriteKeyRanges(HotKeyRanges cacheOnWriteKeyRanges) {
+    this.cacheOnWriteKeyRanges = cacheOnWriteKeyRanges;
+  }
+
   /**
    * Only used for testing.
    * @param cacheDataOnWrite whether data blocks should be written to the cache
@@ -667,6 +714,30 @@ public class CacheConfig {
     return bucketCache;
   }
 
+  /**
+   * @param c Configuration to use.
+   * @return A dedicated bucket cache for index and bloom blocks, or null if no index tier is
+   * configured.
+   */
+  private static BlockCache getIndexTier(final Configuration c) {
+    final long indexTierSize = (long) (c.getFloat(INDEX_TIER_SIZE_KEY, 0F) * 1024 * 1024);
+    if (indexTierSize <= 0) return null;
+    String ioEngineName = c.get(INDEX_TIER_IOENGINE_KEY, DEFAULT_INDEX_TIER_IOENGINE);
+    int blockSize = c.getInt(BLOCKCACHE_BLOCKSIZE_KEY, HConstants.DEFAULT_BLOCKSIZE);
+    int writerThreads = c.getInt(BUCKET_CACHE_WRITER_THREADS_KEY,
+      DEFAULT_BUCKET_CACHE_WRITER_THREADS);
+    int writerQueueLen = c.getInt(BUCKET_CACHE_WRITER_QUEUE_KEY,
+      DEFAULT_BUCKET_CACHE_WRITER_QUEUE);
+    LOG.info("Allocating index block tier size=" + StringUtils.byteDesc(indexTierSize) +
+      ", ioengine=" + ioEngineName);
+    try {
+      return new BucketCache(ioEngineName, indexTierSize, blockSize, null, writerThreads,
+        writerQueueLen, null);
+    } catch (IOException ioex) {
+      LOG.error("Can't instantiate index block tier", ioex); throw new RuntimeException(ioex);
+    }
+  }
+
   /**
    * Returns the block cache or <code>null</code> in case none should be used.
    * Sets GLOBAL_BLOCK_CACHE_INSTANCE
@@ -702,6 +773,10 @@ public class CacheConfig {
       }
       l1.setVictimCache(l2);
     }
+    BlockCache indexTier = getIndexTier(conf);
+    if (indexTier != null) {
+      GLOBAL_BLOCK_CACHE_INSTANCE = new IndexBlockTierCache(GLOBAL_BLOCK_CACHE_INSTANCE, indexTier);
+    }
     return GLOBAL_BLOCK_CACHE_INSTANCE;
   }
 
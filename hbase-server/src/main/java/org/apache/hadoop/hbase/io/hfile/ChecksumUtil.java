@@ -19,12 +19,20 @@ package org.apache.hadoop.hbase.io.hfile;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.fs.ChecksumException;
 import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.nio.MultiByteBuff;
+import org.apache.hadoop.hbase.nio.SingleByteBuff;
 import org.apache.hadoop.hbase.util.ChecksumType;
 import org.apache.hadoop.util.DataChecksum;
 
@@ -47,6 +55,54 @@ public class ChecksumUtil {
    */
   private static boolean generateExceptions = false;
 
+  /**
+   * java.util.zip.CRC32C, an intrinsic like CRC32 that also works on direct buffers, is only in
+   * JDK 9 and later so is looked up reflectively. Null if not there.
+   */
+  private static final Class<?> JDK_CRC32C_CLASS;
+  private static final MethodHandle NEW_JDK_CRC32C;
+  private static final MethodHandle JDK_CRC32C_UPDATE;
+  static {
+    Class<?> crc32cClass = null;
+    MethodHandle newCrc32c = null;
+    MethodHandle update = null;
+    try {
+      crc32cClass = Class.forName("java.util.zip.CRC32C");
+      newCrc32c = MethodHandles.publicLookup()
+          .findConstructor(crc32cClass, MethodType.methodType(void.class))
+          .asType(MethodType.methodType(Checksum.class));
+      update = MethodHandles.publicLookup()
+          .findVirtual(crc32cClass, "update", MethodType.methodType(void.class, ByteBuffer.class))
+          .asType(MethodType.methodType(void.class, Checksum.class, ByteBuffer.class));
+    } catch (ReflectiveOperationException e) {
+      LOG.debug("java.util.zip.CRC32C not available, using Hadoop's CRC32C");
+      crc32cClass = null;
+      newCrc32c = null;
+      update = null;
+    }
+    JDK_CRC32C_CLASS = crc32cClass;
+    NEW_JDK_CRC32C = newCrc32c;
+    JDK_CRC32C_UPDATE = update;
+  }
+
+  private static final ThreadLocal<Checksum> CRC32_CHECKSUM = new ThreadLocal<Checksum>() {
+    @Override
+    protected Checksum initialValue() {
+      return new CRC32();
+    }
+  };
+
+  private static final ThreadLocal<Checksum> CRC32C_CHECKSUM = new ThreadLocal<Checksum>() {
+    @Override
+    protected Checksum initialValue() {
+      try {
+        return (Checksum) NEW_JDK_CRC32C.invokeExact();
+      } catch (Throwable t) {
+        throw new RuntimeException(t);
+      }
+    }
+  };
+
   /**
    * Generates a checksum for all the data in indata. The checksum is
    * written to outdata.
@@ -80,32 +136,29 @@ public class ChecksumUtil {
   /**
    * Validates that the data in the specified HFileBlock matches the checksum. Generates the
    * checksums for the data and then validate that it matches those stored in the end of the data.
-   * @param buffer Contains the data in following order: HFileBlock header, data, checksums.
+   * Works on the {@link ByteBuff} in place, whether single or multiple, heap or direct.
+   * @param buf Contains the data in following order: HFileBlock header, data, checksums.
    * @param pathName Path of the HFile to which the {@code data} belongs. Only used for logging.
    * @param offset offset of the data being validated. Only used for logging.
    * @param hdrSize Size of the block header in {@code data}. Only used for logging.
    * @return True if checksum matches, else false.
    */
-  static boolean validateChecksum(ByteBuffer buffer, String pathName, long offset, int hdrSize)
+  static boolean validateChecksum(ByteBuff buf, String pathName, long offset, int hdrSize)
       throws IOException {
     // A ChecksumType.NULL indicates that the caller is not interested in validating checksums,
     // so we always return true.
     ChecksumType cktype =
-        ChecksumType.codeToType(buffer.get(HFileBlock.Header.CHECKSUM_TYPE_INDEX));
+        ChecksumType.codeToType(buf.get(HFileBlock.Header.CHECKSUM_TYPE_INDEX));
     if (cktype == ChecksumType.NULL) {
       return true; // No checksum validations needed for this block.
     }
 
     // read in the stored value of the checksum size from the header.
-    int bytesPerChecksum = buffer.getInt(HFileBlock.Header.BYTES_PER_CHECKSUM_INDEX);
-
-    DataChecksum dataChecksum = DataChecksum.newDataChecksum(
-        cktype.getDataChecksumType(), bytesPerChecksum);
-    assert dataChecksum != null;
+    int bytesPerChecksum = buf.getInt(HFileBlock.Header.BYTES_PER_CHECKSUM_INDEX);
     int onDiskDataSizeWithHeader =
-        buffer.getInt(HFileBlock.Header.ON_DISK_DATA_SIZE_WITH_HEADER_INDEX);
+        buf.getInt(HFileBlock.Header.ON_DISK_DATA_SIZE_WITH_HEADER_INDEX);
     if (LOG.isTraceEnabled()) {
-      LOG.info("dataLength=" + buffer.capacity()
+      LOG.info("dataLength=" + buf.capacity()
           + ", sizeWithHeader=" + onDiskDataSizeWithHeader
           + ", checksumType=" + cktype.getName()
           + ", file=" + pathName
@@ -113,15 +166,103 @@ public class ChecksumUtil {
           + ", headerSize=" + hdrSize
           + ", bytesPerChecksum=" + bytesPerChecksum);
     }
-    try {
-      ByteBuffer data = (ByteBuffer) buffer.duplicate().position(0).limit(onDiskDataSizeWithHeader);
-      ByteBuffer checksums = (ByteBuffer) buffer.duplicate().position(onDiskDataSizeWithHeader)
-          .limit(buffer.capacity());
-      dataChecksum.verifyChunkedSums(data, checksums, pathName, 0);
-    } catch (ChecksumException e) {
-      return false;
+    Checksum checksum = getJdkChecksum(cktype);
+    if (checksum == null && buf instanceof SingleByteBuff) {
+      // No JDK implementation, let Hadoop verify the whole buffer; it has a native bulk path.
+      ByteBuffer buffer = ((SingleByteBuff) buf).getEnclosingByteBuffer();
+      DataChecksum dataChecksum = DataChecksum.newDataChecksum(
+          cktype.getDataChecksumType(), bytesPerChecksum);
+      assert dataChecksum != null;
+      try {
+        ByteBuffer data = (ByteBuffer) buffer.duplicate().position(0)
+            .limit(onDiskDataSizeWithHeader);
+        ByteBuffer checksums = (ByteBuffer) buffer.duplicate()
+            .position(onDiskDataSizeWithHeader).limit(buf.capacity());
+        dataChecksum.verifyChunkedSums(data, checksums, pathName, 0);
+      } catch (ChecksumException e) {
+        return false;
+      }
+      return true;  // checksum is valid
+    }
+    if (checksum == null) {
+      checksum = DataChecksum.newDataChecksum(cktype.getDataChecksumType(), bytesPerChecksum);
+    }
+    return verifyChunkedSums(checksum, buf, onDiskDataSizeWithHeader, bytesPerChecksum);
+  }
+
+  /**
+   * @return a thread local JDK checksum of the given type, or null if the running JDK does not
+   *         have one. CRC32 is always there, CRC32C only from JDK 9 on.
+   */
+  private static Checksum getJdkChecksum(ChecksumType cktype) {
+    switch (cktype) {
+      case CRC32:
+        return CRC32_CHECKSUM.get();
+      case CRC32C:
+        return NEW_JDK_CRC32C == null ? null : CRC32C_CHECKSUM.get();
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Computes the checksum of every bytesPerChecksum chunk of the first dataSize bytes of buf and
+   * compares it to the stored one following the data. Sweeps the buffer once, handing the JDK
+   * checksum the backing {@link ByteBuffer}s directly; a chunk spanning two buffers of a
+   * {@link MultiByteBuff} is summed in two updates.
+   */
+  private static boolean verifyChunkedSums(Checksum checksum, ByteBuff buf, int dataSize,
+      int bytesPerChecksum) throws IOException {
+    ByteBuffer[] items = buf instanceof MultiByteBuff
+        ? ((MultiByteBuff) buf).getEnclosingByteBuffers()
+        : new ByteBuffer[] { ((SingleByteBuff) buf).getEnclosingByteBuffer() };
+    int itemIndex = 0;
+    int itemBegin = 0;
+    ByteBuffer item = items[0].duplicate();
+    int checksumIndex = dataSize;
+    for (int chunkBegin = 0; chunkBegin < dataSize; chunkBegin += bytesPerChecksum) {
+      int chunkEnd = Math.min(chunkBegin + bytesPerChecksum, dataSize);
+      checksum.reset();
+      int pos = chunkBegin;
+      while (pos < chunkEnd) {
+        while (pos >= itemBegin + items[itemIndex].limit()) {
+          itemBegin += items[itemIndex].limit();
+          itemIndex++;
+          item = items[itemIndex].duplicate();
+        }
+        int end = Math.min(chunkEnd, itemBegin + items[itemIndex].limit());
+        item.clear();
+        item.limit(end - itemBegin);
+        item.position(pos - itemBegin);
+        update(checksum, item);
+        pos = end;
+      }
+      if ((int) checksum.getValue() != buf.getInt(checksumIndex)) {
+        return false;
+      }
+      checksumIndex += HFileBlock.CHECKSUM_SIZE;
+    }
+    return true;
+  }
+
+  private static void update(Checksum checksum, ByteBuffer data) throws IOException {
+    if (checksum instanceof CRC32) {
+      ((CRC32) checksum).update(data);
+    } else if (NEW_JDK_CRC32C != null && checksum.getClass() == JDK_CRC32C_CLASS) {
+      try {
+        JDK_CRC32C_UPDATE.invokeExact(checksum, data);
+      } catch (Throwable t) {
+        throw new IOException(t);
+      }
+    } else if (data.hasArray()) {
+      checksum.update(data.array(), data.arrayOffset() + data.position(), data.remaining());
+      data.position(data.limit());
+    } else {
+      // Hadoop checksums only take arrays.
+      byte[] bytes = new byte[data.remaining()];
+      data.get(bytes);
+      checksum.update(bytes, 0, bytes.length);
     }
-    return true;  // checksum is valid
   }
 
   /**
@@ -1682,4 +1682,21 @@ public class HFileBlockIndex {
   public static int getMinIndexNumEntries(Configuration conf) {
     return conf.getInt(MIN_INDEX_NUM_ENTRIES_KEY, DEFAULT_MIN_INDEX_NUM_ENTRIES);
   }
+
+  /**
+   * @param reader an HFile reader
+   * @return the keys of the root level of the file's data block index, in order; each is the
+   *         first key of the part of the file its entry covers
+   */
+  public static Cell[] getRootDataBlockKeys(HFile.Reader reader) {
+    BlockIndexReader index = reader.getDataBlockIndexReader();
+    if (!(index instanceof CellBasedKeyBlockIndexReader)) {
+      return new Cell[0];
+    }
+    Cell[] keys = new Cell[index.getRootBlockCount()];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = ((CellBasedKeyBlockIndexReader) index).getRootBlockKey(i);
+    }
+    return keys;
+  }
 }
@@ -507,6 +507,8 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
     protected HFileBlock curBlock;
     // Previous blocks that were used in the course of the read
     protected final ArrayList<HFileBlock> prevBlocks = new ArrayList<HFileBlock>();
+    // Data blocks moved to, see getDataBlocksRead()
+    private long dataBlocksRead = 0;
 
     public HFileScannerImpl(final HFile.Reader reader, final boolean cacheBlocks,
         final boolean pread, final boolean isCompaction) {
@@ -525,6 +527,9 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
       if (this.curBlock != null && this.curBlock.usesSharedMemory()) {
         prevBlocks.add(this.curBlock);
       }
+      if (block != null) {
+        dataBlocksRead++;
+      }
       this.curBlock = block;
     }
 
@@ -789,6 +794,11 @@ public class HFileReaderImpl implements HFile.Reader, Configurable {
       return nextIndexedKey;
     }
 
+    @Override
+    public long getDataBlocksRead() {
+      return dataBlocksRead;
+    }
+
     @Override
     public int seekTo(Cell key) throws IOException {
       return seekTo(key, true);
@@ -163,6 +163,12 @@ public interface HFileScanner extends Shipper, Closeable {
    */
   Cell getNextIndexedKey();
 
+  /**
+   * @return the number of data blocks this scanner has moved to since it was created, whether
+   *         they came from the block cache or the file system
+   */
+  long getDataBlocksRead();
+
   /**
    * Close this HFile scanner and do necessary cleanup.
    */
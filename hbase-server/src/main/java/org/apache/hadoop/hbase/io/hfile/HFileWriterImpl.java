@@ -329,7 +329,7 @@ public class HFileWriterImpl implements HFile.Writer {
     dataBlockIndexWriter.addEntry(CellUtil.getCellKeySerializedAsKeyValueKey(indexEntry),
       lastDataBlockOffset, onDiskSize);
     totalUncompressedBytes += blockWriter.getUncompressedSizeWithHeader();
-    if (cacheConf.shouldCacheDataOnWrite()) {
+    if (cacheConf.shouldCacheDataBlockOnWrite(firstCellInBlock, lastCell)) {
       doCacheOnWrite(lastDataBlockOffset);
     }
   }
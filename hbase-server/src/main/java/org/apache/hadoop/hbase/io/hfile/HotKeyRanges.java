@@ -0,0 +1,209 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.io.hfile.BlockType.BlockCategory;
+import org.apache.hadoop.hbase.regionserver.KeyValueScanner;
+
+/**
+ * The key ranges covered by the hot data blocks of a set of HFiles, where a block is hot if it is
+ * in the block cache with a priority above {@link BlockPriority#SINGLE}, i.e. it has been read
+ * again since it was cached or belongs to an in-memory family.
+ * <p>
+ * Compactions collect these for their input files before they start and hand them to the output
+ * writer through {@link CacheConfig#setCacheOnWriteKeyRanges(HotKeyRanges)}. The writer then
+ * caches the output blocks overlapping the ranges as it writes them, so the data that was being
+ * served from the cache is still cached once the input files are closed and evicted.
+ * <p>
+ * A hot block covers the keys from its first key up to the index key of the block after it. The
+ * ranges of all files are merged; the result is immutable.
+ */
+@InterfaceAudience.Private
+public class HotKeyRanges {
+  private static final Log LOG = LogFactory.getLog(HotKeyRanges.class);
+
+  private final CellComparator comparator;
+  /** Sorted, non-overlapping range starts */
+  private final Cell[] starts;
+  /** Exclusive range ends; null means the range runs to the end of the key space */
+  private final Cell[] ends;
+
+  HotKeyRanges(CellComparator comparator, List<Cell[]> ranges) {
+    this.comparator = comparator;
+    List<Cell[]> sorted = new ArrayList<Cell[]>(ranges);
+    Collections.sort(sorted, (a, b) -> comparator.compareKeyIgnoresMvcc(a[0], b[0]));
+    List<Cell[]> merged = new ArrayList<Cell[]>(sorted.size());
+    Cell[] current = null;
+    for (Cell[] range : sorted) {
+      if (current != null
+          && (current[1] == null || comparator.compareKeyIgnoresMvcc(range[0], current[1]) <= 0)) {
+        if (current[1] != null
+            && (range[1] == null || comparator.compareKeyIgnoresMvcc(range[1], current[1]) > 0)) {
+          current[1] = range[1];
+        }
+        continue;
+      }
+      current = new Cell[] { range[0], range[1] };
+      merged.add(current);
+    }
+    this.starts = new Cell[merged.size()];
+    this.ends = new Cell[merged.size()];
+    for (int i = 0; i < merged.size(); i++) {
+      starts[i] = merged.get(i)[0];
+      ends[i] = merged.get(i)[1];
+    }
+  }
+
+  /**
+   * @return the number of disjoint key ranges
+   */
+  public int size() {
+    return starts.length;
+  }
+
+  /**
+   * @param first the first key of a block
+   * @param last the last key of the block
+   * @return true if any key between first and last, inclusive, is in one of the ranges
+   */
+  public boolean overlaps(Cell first, Cell last) {
+    // Find the last range starting at or before the last key; only it can overlap.
+    int low = 0;
+    int high = starts.length - 1;
+    int found = -1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (comparator.compareKeyIgnoresMvcc(starts[mid], last) <= 0) {
+        found = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return found >= 0
+        && (ends[found] == null || comparator.compareKeyIgnoresMvcc(ends[found], first) > 0);
+  }
+
+  /**
+   * Collects the hot key ranges of the given files from the block cache. This walks the whole
+   * block cache and reads the first key of every hot block (normally from the cache itself), so
+   * is meant to be called once per compaction, not per read.
+   * @param blockCache the block cache to look for hot blocks in
+   * @param readers the files whose hot blocks to collect
+   * @return the hot key ranges, or null if none of the files has hot blocks
+   */
+  public static HotKeyRanges fromBlockCache(BlockCache blockCache,
+      Collection<HFile.Reader> readers) throws IOException {
+    if (blockCache == null || readers.isEmpty()) {
+      return null;
+    }
+    Map<String, HFile.Reader> readersByName = new HashMap<String, HFile.Reader>();
+    for (HFile.Reader reader : readers) {
+      readersByName.put(reader.getName(), reader);
+    }
+    Map<String, List<Long>> hotOffsets = new HashMap<String, List<Long>>();
+    for (CachedBlock cb : blockCache) {
+      if (cb.getBlockPriority() == BlockPriority.SINGLE
+          || !readersByName.containsKey(cb.getFilename())) {
+        continue;
+      }
+      BlockType blockType = cb.getBlockType();
+      if (blockType != null && blockType.getCategory() != BlockCategory.DATA) {
+        continue;
+      }
+      List<Long> offsets = hotOffsets.get(cb.getFilename());
+      if (offsets == null) {
+        offsets = new ArrayList<Long>();
+        hotOffsets.put(cb.getFilename(), offsets);
+      }
+      offsets.add(cb.getOffset());
+    }
+    if (hotOffsets.isEmpty()) {
+      return null;
+    }
+    CellComparator comparator = null;
+    List<Cell[]> ranges = new ArrayList<Cell[]>();
+    for (Map.Entry<String, List<Long>> e : hotOffsets.entrySet()) {
+      HFile.Reader reader = readersByName.get(e.getKey());
+      if (!(reader instanceof HFileReaderImpl)) {
+        continue;
+      }
+      comparator = reader.getComparator();
+      addBlockRanges((HFileReaderImpl) reader, e.getValue(), ranges);
+    }
+    if (ranges.isEmpty()) {
+      return null;
+    }
+    HotKeyRanges hotKeyRanges = new HotKeyRanges(comparator, ranges);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Found " + ranges.size() + " hot data blocks in " + hotOffsets.size()
+          + " files making up " + hotKeyRanges.size() + " hot key ranges");
+    }
+    return hotKeyRanges;
+  }
+
+  private static void addBlockRanges(HFileReaderImpl reader, List<Long> offsets,
+      List<Cell[]> ranges) throws IOException {
+    HFileReaderImpl.HFileScannerImpl scanner =
+        (HFileReaderImpl.HFileScannerImpl) reader.getScanner(false, true, false);
+    try {
+      for (long offset : offsets) {
+        HFileBlock block = reader.readBlock(offset, -1, false, true, false, false, null,
+          reader.getEffectiveEncodingInCache(false));
+        try {
+          if (block.getBlockType().getCategory() != BlockCategory.DATA) {
+            continue;
+          }
+          // Copy the keys, they may point into block cache memory.
+          Cell first = KeyValueUtil.toNewKeyCell(scanner.getFirstKeyCellInBlock(block));
+          BlockWithScanInfo withScanInfo = reader.getDataBlockIndexReader()
+              .loadDataBlockWithScanInfo(first, block, false, true, false, null);
+          Cell next = null;
+          if (withScanInfo != null) {
+            if (withScanInfo.getHFileBlock() != block) {
+              reader.returnBlock(withScanInfo.getHFileBlock());
+            }
+            Cell nextIndexedKey = withScanInfo.getNextIndexedKey();
+            if (nextIndexedKey != null && nextIndexedKey != KeyValueScanner.NO_NEXT_INDEXED_KEY) {
+              next = KeyValueUtil.toNewKeyCell(nextIndexedKey);
+            }
+          }
+          ranges.add(new Cell[] { first, next });
+        } finally {
+          reader.returnBlock(block);
+        }
+      }
+    } finally {
+      scanner.close();
+    }
+  }
+}
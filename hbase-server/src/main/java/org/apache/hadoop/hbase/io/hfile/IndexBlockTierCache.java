@@ -0,0 +1,213 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.io.HeapSize;
+import org.apache.hadoop.hbase.io.hfile.BlockType.BlockCategory;
+import org.apache.hadoop.hbase.io.hfile.CombinedBlockCache.CombinedCacheStats;
+
+/**
+ * A {@link BlockCache} that keeps the INDEX and BLOOM blocks in a dedicated, size-bounded tier
+ * of their own and hands everything else to the wrapped block cache. Since the two tiers never
+ * share capacity, a large scan churning through data blocks can not push the leaf/intermediate
+ * index and bloom chunks out of the cache; the index tier only ever evicts to make room for other
+ * index or bloom blocks.
+ * <p>
+ * The index tier is usually an off-heap {@link org.apache.hadoop.hbase.io.hfile.bucket.BucketCache}
+ * configured via {@link CacheConfig#INDEX_TIER_SIZE_KEY}. Stats are the combined stats of both
+ * tiers; use {@link #getIndexTier()} for the index tier alone.
+ */
+@InterfaceAudience.Private
+public class IndexBlockTierCache implements BlockCache, HeapSize {
+  private final BlockCache dataCache;
+  private final BlockCache indexTier;
+  private final CombinedCacheStats combinedCacheStats;
+
+  public IndexBlockTierCache(BlockCache dataCache, BlockCache indexTier) {
+    this.dataCache = dataCache;
+    this.indexTier = indexTier;
+    this.combinedCacheStats = new CombinedCacheStats(dataCache.getStats(), indexTier.getStats());
+  }
+
+  /**
+   * @return true if blocks of this type are held in the index tier
+   */
+  static boolean isIndexTierBlock(BlockType blockType) {
+    if (blockType == null) {
+      return false;
+    }
+    BlockCategory category = blockType.getCategory();
+    return category == BlockCategory.INDEX || category == BlockCategory.BLOOM;
+  }
+
+  @Override
+  public long heapSize() {
+    long size = 0;
+    if (dataCache instanceof HeapSize) {
+      size += ((HeapSize) dataCache).heapSize();
+    }
+    if (indexTier instanceof HeapSize) {
+      size += ((HeapSize) indexTier).heapSize();
+    }
+    return size;
+  }
+
+  @Override
+  public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf, boolean inMemory,
+      boolean cacheDataInL1) {
+    if (isIndexTierBlock(buf.getBlockType())) {
+      indexTier.cacheBlock(cacheKey, buf, inMemory, false);
+    } else {
+      dataCache.cacheBlock(cacheKey, buf, inMemory, cacheDataInL1);
+    }
+  }
+
+  @Override
+  public void cacheBlock(BlockCacheKey cacheKey, Cacheable buf) {
+    cacheBlock(cacheKey, buf, false, false);
+  }
+
+  @Override
+  public Cacheable getBlock(BlockCacheKey cacheKey, boolean caching, boolean repeat,
+      boolean updateCacheMetrics) {
+    BlockType blockType = cacheKey.getBlockType();
+    if (isIndexTierBlock(blockType)) {
+      return indexTier.getBlock(cacheKey, caching, repeat, updateCacheMetrics);
+    }
+    if (blockType == null) {
+      // The caller does not know what it is after; the block could be in either tier. Only
+      // count a miss against the data tier so we do not report two misses for one lookup.
+      Cacheable block = indexTier.getBlock(cacheKey, caching, repeat, false);
+      if (block != null) {
+        return block;
+      }
+    }
+    return dataCache.getBlock(cacheKey, caching, repeat, updateCacheMetrics);
+  }
+
+  @Override
+  public boolean evictBlock(BlockCacheKey cacheKey) {
+    return indexTier.evictBlock(cacheKey) || dataCache.evictBlock(cacheKey);
+  }
+
+  @Override
+  public int evictBlocksByHfileName(String hfileName) {
+    return indexTier.evictBlocksByHfileName(hfileName)
+        + dataCache.evictBlocksByHfileName(hfileName);
+  }
+
+  @Override
+  public CacheStats getStats() {
+    return this.combinedCacheStats;
+  }
+
+  @Override
+  public void shutdown() {
+    indexTier.shutdown();
+    dataCache.shutdown();
+  }
+
+  @Override
+  public long size() {
+    return dataCache.size() + indexTier.size();
+  }
+
+  @Override
+  public long getFreeSize() {
+    return dataCache.getFreeSize() + indexTier.getFreeSize();
+  }
+
+  @Override
+  public long getCurrentSize() {
+    return dataCache.getCurrentSize() + indexTier.getCurrentSize();
+  }
+
+  @Override
+  public long getBlockCount() {
+    return dataCache.getBlockCount() + indexTier.getBlockCount();
+  }
+
+  @Override
+  public Iterator<CachedBlock> iterator() {
+    return new BlockCachesIterator(getBlockCaches());
+  }
+
+  /**
+   * @return The sub caches of the data cache (or the data cache itself if it has none) followed
+   * by the index tier.
+   */
+  @Override
+  public BlockCache[] getBlockCaches() {
+    BlockCache[] dataCaches = dataCache.getBlockCaches();
+    if (dataCaches == null || dataCaches.length == 0) {
+      return new BlockCache[] { this.dataCache, this.indexTier };
+    }
+    BlockCache[] caches = new BlockCache[dataCaches.length + 1];
+    System.arraycopy(dataCaches, 0, caches, 0, dataCaches.length);
+    caches[dataCaches.length] = this.indexTier;
+    return caches;
+  }
+
+  @Override
+  public void returnBlock(BlockCacheKey cacheKey, Cacheable block) {
+    if (isIndexTierBlock(block.getBlockType())) {
+      indexTier.returnBlock(cacheKey, block);
+    } else {
+      dataCache.returnBlock(cacheKey, block);
+    }
+  }
+
+  /**
+   * @return the cache holding the data blocks
+   */
+  public BlockCache getDataCache() {
+    return this.dataCache;
+  }
+
+  /**
+   * @return the dedicated cache holding the INDEX and BLOOM blocks
+   */
+  public BlockCache getIndexTier() {
+    return this.indexTier;
+  }
+
+  /**
+   * Walks the index tier and sums up the cached bytes per hfile. The keys are the hfile names
+   * as used in {@link BlockCacheKey}; callers map them to tables using the open store files.
+   * This iterates the whole index tier so should only be called from periodic chores.
+   * @return cached index and bloom bytes keyed by hfile name
+   */
+  public Map<String, Long> getIndexTierSizeByFile() {
+    Map<String, Long> sizes = new HashMap<String, Long>();
+    for (CachedBlock cb : indexTier) {
+      Long size = sizes.get(cb.getFilename());
+      sizes.put(cb.getFilename(), size == null ? cb.getSize() : size + cb.getSize());
+    }
+    return sizes;
+  }
+
+  @Override
+  public String toString() {
+    return "IndexBlockTierCache [dataCache=" + dataCache + ", indexTier=" + indexTier + "]";
+  }
+}
@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+
+/**
+ * Tracks how a store is read and picks the data block size of the files its compactions write.
+ * <p>
+ * Point reads want small blocks, since every Get that misses the block cache reads and caches a
+ * whole block for a handful of cells. Long scans want large blocks, so they do fewer, larger
+ * reads and carry less index. The store's column family block size is a single static guess; when
+ * enabled, this class instead chooses a size between {@link #ADAPTIVE_BLOCKSIZE_MIN_KEY} and
+ * {@link #ADAPTIVE_BLOCKSIZE_MAX_KEY} by how "scan-like" the reads seen since the last
+ * compactions were: the fraction of reads that were scans, weighted by how many cells those scans
+ * walked on average. The size is interpolated geometrically and rounded to a power of two.
+ * <p>
+ * The counters are halved after every compaction so the choice follows the recent workload
+ * rather than the whole life of the store. Until {@link #ADAPTIVE_BLOCKSIZE_MIN_READS_KEY} reads
+ * have been seen the column family block size is used.
+ */
+@InterfaceAudience.Private
+public class AdaptiveBlockSizeTracker {
+
+  public static final String ADAPTIVE_BLOCKSIZE_ENABLED_KEY =
+      "hbase.hstore.compaction.adaptive.blocksize.enabled";
+  public static final boolean DEFAULT_ADAPTIVE_BLOCKSIZE_ENABLED = false;
+
+  /** Block size used for stores that only see point reads */
+  public static final String ADAPTIVE_BLOCKSIZE_MIN_KEY =
+      "hbase.hstore.compaction.adaptive.blocksize.min";
+  public static final int DEFAULT_ADAPTIVE_BLOCKSIZE_MIN = 8 * 1024;
+
+  /** Block size used for stores that only see long scans */
+  public static final String ADAPTIVE_BLOCKSIZE_MAX_KEY =
+      "hbase.hstore.compaction.adaptive.blocksize.max";
+  public static final int DEFAULT_ADAPTIVE_BLOCKSIZE_MAX = 256 * 1024;
+
+  /** Reads to observe before the block size is adapted at all */
+  public static final String ADAPTIVE_BLOCKSIZE_MIN_READS_KEY =
+      "hbase.hstore.compaction.adaptive.blocksize.min.reads";
+  public static final long DEFAULT_ADAPTIVE_BLOCKSIZE_MIN_READS = 1000;
+
+  /** Cells a scan has to walk on average to count as fully sequential */
+  public static final String ADAPTIVE_BLOCKSIZE_SCAN_CELLS_KEY =
+      "hbase.hstore.compaction.adaptive.blocksize.scan.cells";
+  public static final long DEFAULT_ADAPTIVE_BLOCKSIZE_SCAN_CELLS = 1000;
+
+  private final boolean enabled;
+  private final int minBlockSize;
+  private final int maxBlockSize;
+  private final long minReads;
+  private final long scanCellsSaturation;
+
+  private final LongAdder gets = new LongAdder();
+  private final LongAdder scans = new LongAdder();
+  private final LongAdder scannedCells = new LongAdder();
+
+  public AdaptiveBlockSizeTracker(Configuration conf) {
+    this.enabled = conf.getBoolean(ADAPTIVE_BLOCKSIZE_ENABLED_KEY,
+      DEFAULT_ADAPTIVE_BLOCKSIZE_ENABLED);
+    int min = conf.getInt(ADAPTIVE_BLOCKSIZE_MIN_KEY, DEFAULT_ADAPTIVE_BLOCKSIZE_MIN);
+    int max = conf.getInt(ADAPTIVE_BLOCKSIZE_MAX_KEY, DEFAULT_ADAPTIVE_BLOCKSIZE_MAX);
+    // The bounds are only used when enabled, a stale setting must not keep stores from opening
+    if (enabled && (min <= 0 || max < min)) {
+      throw new IllegalArgumentException(ADAPTIVE_BLOCKSIZE_MIN_KEY + "=" + min + " and "
+          + ADAPTIVE_BLOCKSIZE_MAX_KEY + "=" + max + " must satisfy 0 < min <= max");
+    }
+    this.minBlockSize = min;
+    this.maxBlockSize = max;
+    this.minReads = Math.max(1, conf.getLong(ADAPTIVE_BLOCKSIZE_MIN_READS_KEY,
+      DEFAULT_ADAPTIVE_BLOCKSIZE_MIN_READS));
+    this.scanCellsSaturation = Math.max(1, conf.getLong(ADAPTIVE_BLOCKSIZE_SCAN_CELLS_KEY,
+      DEFAULT_ADAPTIVE_BLOCKSIZE_SCAN_CELLS));
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Records a finished user read of the store.
+   * @param get whether the read was a Get
+   * @param cellsScanned the cells the read walked in this store
+   */
+  public void recordRead(boolean get, long cellsScanned) {
+    if (!enabled) {
+      return;
+    }
+    if (get) {
+      gets.increment();
+    } else {
+      scans.increment();
+      scannedCells.add(cellsScanned);
+    }
+  }
+
+  /**
+   * @param familyBlockSize the block size configured on the column family
+   * @return the data block size compactions of this store should write
+   */
+  public int getCompactionBlockSize(int familyBlockSize) {
+    if (!enabled) {
+      return familyBlockSize;
+    }
+    long getCount = gets.sum();
+    long scanCount = scans.sum();
+    long reads = getCount + scanCount;
+    if (reads < minReads) {
+      return familyBlockSize;
+    }
+    double scanFraction = (double) scanCount / reads;
+    double avgScanCells = scanCount == 0 ? 0 : (double) scannedCells.sum() / scanCount;
+    double scanness = scanFraction * Math.min(1.0, avgScanCells / scanCellsSaturation);
+    return computeBlockSize(scanness);
+  }
+
+  /**
+   * @param scanness 0 for a purely point read workload up to 1 for a purely scan workload
+   * @return the power of two block size for it, within the configured bounds
+   */
+  int computeBlockSize(double scanness) {
+    double size = minBlockSize * Math.pow((double) maxBlockSize / minBlockSize, scanness);
+    long rounded = 1L << Math.round(Math.log(size) / Math.log(2));
+    return (int) Math.max(minBlockSize, Math.min(maxBlockSize, rounded));
+  }
+
+  /**
+   * Halves the read counters so older reads weigh less in the next decision. Called after every
+   * compaction of the store.
+   */
+  public void decay() {
+    if (!enabled) {
+      return;
+    }
+    gets.add(-(gets.sum() / 2));
+    scans.add(-(scans.sum() / 2));
+    scannedCells.add(-(scannedCells.sum() / 2));
+  }
+
+  long getGetCount() {
+    return gets.sum();
+  }
+
+  long getScanCount() {
+    return scans.sum();
+  }
+}
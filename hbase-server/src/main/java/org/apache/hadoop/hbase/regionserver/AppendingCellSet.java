@@ -0,0 +1,205 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+
+import com.google.common.annotations.VisibleForTesting;
+
+/**
+ * A {@link CellSet} for cells that mostly arrive in key order, like those of time series with
+ * increasing row keys. As long as every cell added sorts after the last one, the cells are
+ * appended to a sorted array instead of being inserted into a ConcurrentSkipListMap, and reads
+ * see the array through a {@link CellArrayMap}. The first cell arriving out of order moves all
+ * cells into the skip list, which then serves all reads and writes like a plain CellSet.
+ * <p>
+ * Appends are serialized on the set; only the cell count is published to readers, so a reader
+ * sees a consistent prefix of the array. Cells never move within the array: it is only replaced
+ * by a larger copy when full.
+ */
+@InterfaceAudience.Private
+public class AppendingCellSet extends CellSet {
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final CellComparator comparator;
+  // Written under the lock of this set before count is published
+  private volatile Cell[] cells = new Cell[INITIAL_CAPACITY];
+  private volatile int count = 0;
+  private volatile boolean appending = true;
+
+  AppendingCellSet(final CellComparator c) {
+    super(c);
+    this.comparator = c;
+  }
+
+  /**
+   * @return whether the cells are still kept in the sorted array
+   */
+  public boolean isAppending() {
+    return appending;
+  }
+
+  /**
+   * Moves the cells into the skip list, if not done yet, so they can be modified in place.
+   */
+  public synchronized void stopAppending() {
+    if (!appending) {
+      return;
+    }
+    Cell[] localCells = cells;
+    for (int i = 0; i < count; i++) {
+      super.add(localCells[i]);
+    }
+    appending = false;
+    cells = null;
+  }
+
+  /**
+   * @return the array of the cells, if still appending, as an immutable map
+   */
+  CellArrayMap toCellArrayMap() {
+    int n = count;
+    Cell[] localCells = cells;
+    return localCells == null ? null : new CellArrayMap(comparator, localCells, 0, n, false);
+  }
+
+  private NavigableMap<Cell, Cell> view() {
+    if (appending) {
+      CellArrayMap map = toCellArrayMap();
+      if (map != null) {
+        return map;
+      }
+    }
+    return super.getDelegatee();
+  }
+
+  @Override
+  @VisibleForTesting
+  NavigableMap<Cell, Cell> getDelegatee() {
+    return view();
+  }
+
+  @Override
+  public boolean add(Cell e) {
+    if (appending) {
+      synchronized (this) {
+        if (appending) {
+          int n = count;
+          int cmp = n == 0 ? 1 : comparator.compare(e, cells[n - 1]);
+          if (cmp > 0) {
+            if (n == cells.length) {
+              Cell[] grown = Arrays.copyOf(cells, n * 2);
+              grown[n] = e;
+              cells = grown;
+            } else {
+              cells[n] = e;
+            }
+            count = n + 1;
+            return true;
+          } else if (cmp == 0) {
+            cells[n - 1] = e;
+            return false;
+          }
+          stopAppending();
+        }
+      }
+    }
+    return super.add(e);
+  }
+
+  @Override
+  public Iterator<Cell> descendingIterator() {
+    return view().descendingMap().values().iterator();
+  }
+
+  @Override
+  public NavigableSet<Cell> headSet(final Cell toElement, boolean inclusive) {
+    return new CellSet(view().headMap(toElement, inclusive));
+  }
+
+  @Override
+  public Iterator<Cell> iterator() {
+    return view().values().iterator();
+  }
+
+  @Override
+  public NavigableSet<Cell> tailSet(Cell fromElement, boolean inclusive) {
+    return new CellSet(view().tailMap(fromElement, inclusive));
+  }
+
+  @Override
+  public Cell first() {
+    NavigableMap<Cell, Cell> map = view();
+    if (map.isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return map.get(map.firstKey());
+  }
+
+  @Override
+  public Cell last() {
+    NavigableMap<Cell, Cell> map = view();
+    if (map.isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return map.get(map.lastKey());
+  }
+
+  @Override
+  public synchronized void clear() {
+    if (appending) {
+      cells = new Cell[INITIAL_CAPACITY];
+      count = 0;
+    }
+    super.clear();
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return view().containsKey(o);
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return view().isEmpty();
+  }
+
+  @Override
+  public boolean remove(Object o) {
+    stopAppending();
+    return super.remove(o);
+  }
+
+  @Override
+  public Cell get(Cell kv) {
+    return view().get(kv);
+  }
+
+  @Override
+  public int size() {
+    return view().size();
+  }
+}
@@ -0,0 +1,47 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+
+/**
+ * The active segment of a memstore with the
+ * {@link org.apache.hadoop.hbase.MemoryCompactionPolicy#APPEND} policy, keeping its cells in an
+ * {@link AppendingCellSet}.
+ * <p>
+ * The heap overhead of each cell is accounted as for a skip list entry, which is what the cell
+ * costs once the set falls back to a skip list; flattening the segment in the compaction pipeline
+ * corrects it.
+ */
+@InterfaceAudience.Private
+public class AppendingMutableSegment extends MutableSegment {
+
+  protected AppendingMutableSegment(AppendingCellSet cellSet, CellComparator comparator,
+      MemStoreLAB memStoreLAB) {
+    super(cellSet, comparator, memStoreLAB);
+  }
+
+  @Override
+  public void upsert(Cell cell, long readpoint, MemstoreSize memstoreSize) {
+    // Removing the older versions of the cell needs a set that can be modified in place
+    ((AppendingCellSet) getCellSet()).stopAppending();
+    super.upsert(cell, readpoint, memstoreSize);
+  }
+}
@@ -46,6 +46,9 @@ public abstract class Chunk {
   /** Size of chunk in bytes */
   protected final int size;
 
+  /** Whether the chunk is counted by the {@link MemStoreChunkPool} and goes back to it */
+  volatile boolean fromPool = false;
+
   /**
    * Create an uninitialized chunk. Note that memory is not allocated yet, so this is cheap.
    *
@@ -22,9 +22,12 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
@@ -39,6 +42,7 @@ import org.apache.hadoop.hbase.classification.InterfaceAudience;
 import org.apache.hadoop.hbase.conf.ConfigurationManager;
 import org.apache.hadoop.hbase.conf.PropagatingConfigurationObserver;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionContext;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionRanker;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
 import org.apache.hadoop.hbase.regionserver.throttle.CompactionThroughputControllerFactory;
 import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
@@ -47,6 +51,7 @@ import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.hbase.util.StealJobQueue;
 import org.apache.hadoop.ipc.RemoteException;
+import org.apache.hadoop.util.ReflectionUtils;
 import org.apache.hadoop.util.StringUtils;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -81,6 +86,21 @@ public class CompactSplitThread implements CompactionRequestor, PropagatingConfi
       "hbase.regionserver.regionSplitLimit";
   public static final int DEFAULT_REGION_SERVER_REGION_SPLIT_LIMIT= 1000;
 
+  /**
+   * The {@link CompactionRanker} ordering the compaction queues across regions; unset to order
+   * them by store priority only
+   */
+  public static final String COMPACTION_RANKER = "hbase.regionserver.compaction.ranker.class";
+
+  /**
+   * How many times the rank of a running system compaction a newly queued compaction needs for
+   * the running one to be preempted when all compaction threads are busy; 0 never preempts.
+   * Needs a {@link #COMPACTION_RANKER}.
+   */
+  public static final String COMPACTION_PREEMPT_RATIO =
+      "hbase.regionserver.compaction.preempt.ratio";
+  public static final float DEFAULT_COMPACTION_PREEMPT_RATIO = 0;
+
   private final HRegionServer server;
   private final Configuration conf;
 
@@ -91,6 +111,11 @@ public class CompactSplitThread implements CompactionRequestor, PropagatingConfi
 
   private volatile ThroughputController compactionThroughputController;
 
+  private final CompactionRanker compactionRanker;
+  private final float preemptRatio;
+  private final Set<CompactionRunner> runningCompactions =
+      Collections.newSetFromMap(new ConcurrentHashMap<CompactionRunner, Boolean>());
+
   /**
    * Splitting should not take place if the total number of regions exceed this.
    * This is not a hard limit to the number of regions but it is a guideline to
@@ -163,6 +188,24 @@ public class CompactSplitThread implements CompactionRequestor, PropagatingConfi
     // compaction throughput controller
     this.compactionThroughputController =
         CompactionThroughputControllerFactory.create(server, conf);
+
+    this.compactionRanker = createCompactionRanker(conf);
+    this.preemptRatio = conf.getFloat(COMPACTION_PREEMPT_RATIO, DEFAULT_COMPACTION_PREEMPT_RATIO);
+  }
+
+  private static CompactionRanker createCompactionRanker(Configuration conf) {
+    String className = conf.getTrimmed(COMPACTION_RANKER);
+    if (className == null || className.isEmpty()) {
+      return null;
+    }
+    try {
+      return ReflectionUtils.newInstance(
+        Class.forName(className).asSubclass(CompactionRanker.class), conf);
+    } catch (Exception e) {
+      LOG.warn("Unable to load configured compaction ranker '" + className
+          + "', ordering compactions by store priority only", e);
+      return null;
+    }
   }
 
   @Override
@@ -341,7 +384,9 @@ public class CompactSplitThread implements CompactionRequestor, PropagatingConfi
     // pool; we will do selection there, and move to large pool if necessary.
     ThreadPoolExecutor pool = (selectNow && s.throttleCompaction(compaction.getRequest().getSize()))
       ? longCompactions : shortCompactions;
-    pool.execute(new CompactionRunner(s, r, compaction, pool, user));
+    CompactionRunner runner = new CompactionRunner(s, r, compaction, pool, user);
+    pool.execute(runner);
+    preemptIfWorthwhile(pool, runner);
     if (LOG.isDebugEnabled()) {
       String type = (pool == shortCompactions) ? "Small " : "Large ";
       LOG.debug(type + "Compaction requested: " + (selectNow ? compaction.toString() : "system")
@@ -350,6 +395,31 @@ public class CompactSplitThread implements CompactionRequestor, PropagatingConfi
     return selectNow ? compaction.getRequest() : null;
   }
 
+  /**
+   * Preempts the least valuable running system compaction of the pool if all its threads are busy
+   * and the newly queued compaction is worth {@link #COMPACTION_PREEMPT_RATIO} times as much. The
+   * preempted compaction stops at its next check, discards its output and is queued again.
+   */
+  private void preemptIfWorthwhile(ThreadPoolExecutor pool, CompactionRunner queued) {
+    if (compactionRanker == null || preemptRatio <= 0
+        || pool.getActiveCount() < pool.getMaximumPoolSize()) {
+      return;
+    }
+    CompactionRunner victim = null;
+    for (CompactionRunner running : runningCompactions) {
+      if (running.parent == pool && !running.isUrgent()
+          && !running.compaction.getRequest().isPreempted()
+          && (victim == null || running.rank < victim.rank)) {
+        victim = running;
+      }
+    }
+    if (victim != null && queued.rank > preemptRatio * victim.rank) {
+      LOG.info("Preempting compaction " + victim + " with rank " + victim.rank + " for "
+          + queued + " with rank " + queued.rank);
+      victim.compaction.getRequest().preempt();
+    }
+  }
+
   private CompactionContext selectCompaction(final Region r, final Store s,
       int priority, CompactionRequest request, User user) throws IOException {
     CompactionContext compaction = s.requestCompaction(priority, request, user);
@@ -444,6 +514,7 @@ public class CompactSplitThread implements CompactionRequestor, PropagatingConfi
     private final HRegion region;
     private CompactionContext compaction;
     private int queuedPriority;
+    private volatile double rank;
     private ThreadPoolExecutor parent;
     private User user;
 
@@ -457,6 +528,20 @@ public class CompactSplitThread implements CompactionRequestor, PropagatingConfi
           ? store.getCompactPriority() : compaction.getRequest().getPriority();
       this.parent = parent;
       this.user = user;
+      updateRank();
+    }
+
+    private void updateRank() {
+      this.rank = (compactionRanker == null) ? 0 : compactionRanker.rank(region, store,
+        (compaction == null) ? null : compaction.getRequest());
+    }
+
+    /**
+     * @return whether this is a user requested compaction, or one of a store at its blocking file
+     *         count; these go before all ranked compactions
+     */
+    private boolean isUrgent() {
+      return queuedPriority != Store.NO_PRIORITY && queuedPriority <= Store.PRIORITY_USER;
     }
 
     @Override
@@ -473,6 +558,7 @@ public class CompactSplitThread implements CompactionRequestor, PropagatingConfi
         if (this.queuedPriority > oldPriority) {
           // Store priority decreased while we were in queue (due to some other compaction?),
           // requeue with new priority to avoid blocking potential higher priorities.
+          updateRank();
           this.parent.execute(this);
           return;
         }
@@ -496,6 +582,7 @@ public class CompactSplitThread implements CompactionRequestor, PropagatingConfi
           this.store.cancelRequestedCompaction(this.compaction);
           this.compaction = null;
           this.parent = pool;
+          updateRank();
           this.parent.execute(this);
           return;
         }
@@ -508,12 +595,20 @@ public class CompactSplitThread implements CompactionRequestor, PropagatingConfi
         // Note: please don't put single-compaction logic here;
         //       put it into region/store/etc. This is CST logic.
         long start = EnvironmentEdgeManager.currentTime();
-        boolean completed =
-            region.compact(compaction, store, compactionThroughputController, user);
+        boolean completed;
+        runningCompactions.add(this);
+        try {
+          completed = region.compact(compaction, store, compactionThroughputController, user);
+        } finally {
+          runningCompactions.remove(this);
+        }
         long now = EnvironmentEdgeManager.currentTime();
         LOG.info(((completed) ? "Completed" : "Aborted") + " compaction: " +
               this + "; duration=" + StringUtils.formatTimeDiff(now, start));
-        if (completed) {
+        if (!completed && compaction.getRequest().isPreempted()) {
+          // Give the store another go once the more valuable compactions are done.
+          requestSystemCompaction(region, store, "Preempted");
+        } else if (completed) {
           // degenerate case: blocked regions require recursive enqueues
           if (store.getCompactPriority() <= 0) {
             requestSystemCompaction(region, store, "Recursive enqueue");
@@ -561,6 +656,17 @@ public class CompactSplitThread implements CompactionRequestor, PropagatingConfi
 
     @Override
     public int compareTo(CompactionRunner o) {
+      if (compactionRanker != null) {
+        // Urgent compactions by priority first, then all others by rank, highest first.
+        boolean urgent = isUrgent();
+        if (urgent != o.isUrgent()) {
+          return urgent ? -1 : 1;
+        }
+        if (!urgent) {
+          int compareRank = Double.compare(o.rank, rank);
+          if (compareRank != 0) return compareRank;
+        }
+      }
       // Only compare the underlying request (if any), for queue sorting purposes.
       int compareVal = queuedPriority - o.queuedPriority; // compare priority
       if (compareVal != 0) return compareVal;
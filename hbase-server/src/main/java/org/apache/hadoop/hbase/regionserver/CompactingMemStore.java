@@ -74,6 +74,8 @@ public class CompactingMemStore extends AbstractMemStore {
   @VisibleForTesting
   private final AtomicBoolean allowCompaction = new AtomicBoolean(true);
   private boolean compositeSnapshot = true;
+  // whether the active segment appends cells arriving in order, see MemoryCompactionPolicy.APPEND
+  private boolean appendOptimized;
 
   public static final long DEEP_OVERHEAD = AbstractMemStore.DEEP_OVERHEAD
       + 6 * ClassSize.REFERENCE // Store, RegionServicesForStores, CompactionPipeline,
@@ -90,9 +92,22 @@ public class CompactingMemStore extends AbstractMemStore {
     this.regionServices = regionServices;
     this.pipeline = new CompactionPipeline(getRegionServices());
     this.compactor = new MemStoreCompactor(this, compactionPolicy);
+    this.appendOptimized = compactionPolicy == MemoryCompactionPolicy.APPEND;
+    if (appendOptimized) {
+      resetActive(); // replace the empty segment created before the policy was known
+    }
     initInmemoryFlushSize(conf);
   }
 
+  @Override
+  protected MutableSegment createActiveSegment() {
+    if (appendOptimized) {
+      return SegmentFactory.instance().createAppendingMutableSegment(getConfiguration(),
+        getComparator());
+    }
+    return super.createActiveSegment();
+  }
+
   private void initInmemoryFlushSize(Configuration conf) {
     long memstoreFlushSize = getRegionServices().getMemstoreFlushSize();
     int numStores = getRegionServices().getNumStores();
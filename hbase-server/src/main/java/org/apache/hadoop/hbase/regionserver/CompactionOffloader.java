@@ -0,0 +1,206 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
+import org.apache.hadoop.util.StringUtils;
+
+/**
+ * Runs compactions outside of the region server, so their CPU, heap and garbage collection do
+ * not compete with serving. Each offloaded compaction starts an {@link ExternalCompactionWorker}
+ * process with the files to compact and a fresh directory under the region's temp directory. The
+ * worker writes the output there; once it exits the files are moved to the temp directory and
+ * handed back to the compaction of the {@link HStore}, which commits them exactly as if it had
+ * written them itself.
+ * <p>
+ * The worker is started with {@link #COMPACTION_OFFLOAD_COMMAND_KEY} followed by its arguments.
+ * When that is not set, it is started in a local JVM with the class path of the region server and
+ * {@link #COMPACTION_OFFLOAD_JAVA_OPTS_KEY}. The command can point at another host, e.g. through
+ * ssh, as long as the worker there sees the same file system and configuration.
+ * <p>
+ * Only compactions of the {@link DefaultStoreEngine} of at least
+ * {@link #COMPACTION_OFFLOAD_MIN_SIZE_KEY} bytes are offloaded, since starting the worker costs a
+ * few seconds. Coprocessor hooks around the compaction scanner do not run in the worker; the
+ * hooks around the output files do. The worker is not throttled.
+ */
+@InterfaceAudience.Private
+public class CompactionOffloader {
+  private static final Log LOG = LogFactory.getLog(CompactionOffloader.class);
+
+  public static final String COMPACTION_OFFLOAD_ENABLED_KEY =
+      "hbase.regionserver.compaction.offload.enabled";
+  public static final boolean DEFAULT_COMPACTION_OFFLOAD_ENABLED = false;
+
+  /** Smallest compaction, in bytes of input, to offload */
+  public static final String COMPACTION_OFFLOAD_MIN_SIZE_KEY =
+      "hbase.regionserver.compaction.offload.min.size";
+  public static final long DEFAULT_COMPACTION_OFFLOAD_MIN_SIZE = 128L * 1024 * 1024;
+
+  /** Command starting the worker, its arguments are appended */
+  public static final String COMPACTION_OFFLOAD_COMMAND_KEY =
+      "hbase.regionserver.compaction.offload.command";
+
+  /** JVM options of a local worker */
+  public static final String COMPACTION_OFFLOAD_JAVA_OPTS_KEY =
+      "hbase.regionserver.compaction.offload.java.opts";
+
+  /** How often to check whether the store was closed while the worker runs */
+  private static final long CHECK_INTERVAL_MS = 1000;
+
+  private final long minSize;
+  private final List<String> command;
+
+  CompactionOffloader(Configuration conf) {
+    this.minSize = conf.getLong(COMPACTION_OFFLOAD_MIN_SIZE_KEY,
+      DEFAULT_COMPACTION_OFFLOAD_MIN_SIZE);
+    String offloadCommand = conf.getTrimmed(COMPACTION_OFFLOAD_COMMAND_KEY, "");
+    List<String> cmd = new ArrayList<String>();
+    if (offloadCommand.isEmpty()) {
+      cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+      for (String opt : conf.getTrimmedStrings(COMPACTION_OFFLOAD_JAVA_OPTS_KEY)) {
+        cmd.addAll(Arrays.asList(opt.split("\\s+")));
+      }
+      cmd.add("-cp");
+      cmd.add(System.getProperty("java.class.path"));
+      cmd.add(ExternalCompactionWorker.class.getName());
+    } else {
+      cmd.addAll(Arrays.asList(offloadCommand.split("\\s+")));
+    }
+    this.command = cmd;
+  }
+
+  /**
+   * @return the offloader configured, or null if compactions are not offloaded
+   */
+  static CompactionOffloader create(Configuration conf) {
+    if (!conf.getBoolean(COMPACTION_OFFLOAD_ENABLED_KEY, DEFAULT_COMPACTION_OFFLOAD_ENABLED)) {
+      return null;
+    }
+    return new CompactionOffloader(conf);
+  }
+
+  /**
+   * @return whether to run the compaction in a worker rather than in the region server
+   */
+  boolean shouldOffload(HStore store, CompactionRequest request) {
+    // Other engines carry state of their own in the request the worker could not rebuild.
+    return store.getStoreEngine() instanceof DefaultStoreEngine
+        && request.getClass() == CompactionRequest.class && request.getSize() >= minSize;
+  }
+
+  /**
+   * Runs the compaction in a worker and waits for it.
+   * @return the output files, in the temp directory of the store
+   */
+  List<Path> compact(HStore store, CompactionRequest request) throws IOException {
+    HRegionFileSystem regionFs = store.getRegionFileSystem();
+    FileSystem fs = regionFs.getFileSystem();
+    Path outputDir = regionFs.createTempName();
+    if (!fs.mkdirs(outputDir)) {
+      throw new IOException("Failed creating " + outputDir);
+    }
+    try {
+      runWorker(store, request, outputDir);
+      // Where the store writes its temp files itself
+      Path familyTempDir = new Path(regionFs.getTempDir(), store.getColumnFamilyName());
+      if (!fs.exists(familyTempDir) && !fs.mkdirs(familyTempDir)) {
+        throw new IOException("Failed creating " + familyTempDir);
+      }
+      List<Path> newFiles = new ArrayList<Path>();
+      Path workerTempDir = new Path(outputDir, store.getColumnFamilyName());
+      // A compaction dropping all cells writes no files.
+      FileStatus[] outputs = fs.exists(workerTempDir) ? fs.listStatus(workerTempDir)
+          : new FileStatus[0];
+      for (FileStatus status : outputs) {
+        Path newFile = new Path(familyTempDir, status.getPath().getName());
+        if (!fs.rename(status.getPath(), newFile)) {
+          throw new IOException("Failed moving " + status.getPath() + " to " + newFile);
+        }
+        newFiles.add(newFile);
+      }
+      return newFiles;
+    } finally {
+      if (!fs.delete(outputDir, true)) {
+        LOG.warn("Failed deleting " + outputDir);
+      }
+    }
+  }
+
+  private void runWorker(HStore store, CompactionRequest request, Path outputDir)
+      throws IOException {
+    FileSystem fs = store.getRegionFileSystem().getFileSystem();
+    List<String> cmd = new ArrayList<String>(command);
+    if (request.isMajor()) {
+      cmd.add(ExternalCompactionWorker.OPT_MAJOR);
+    }
+    if (request.isAllFiles()) {
+      cmd.add(ExternalCompactionWorker.OPT_ALL_FILES);
+    }
+    cmd.add(ExternalCompactionWorker.OPT_READ_POINT);
+    cmd.add(Long.toString(store.getSmallestReadPoint()));
+    cmd.add(ExternalCompactionWorker.OPT_OUTPUT);
+    cmd.add(fs.makeQualified(outputDir).toString());
+    cmd.add(fs.makeQualified(store.getRegionFileSystem().getStoreDir(
+      store.getColumnFamilyName())).toString());
+    for (StoreFile sf : request.getFiles()) {
+      cmd.add(sf.getPath().getName());
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Offloading compaction of " + store + ": " + StringUtils.join(" ", cmd));
+    }
+    Process process = new ProcessBuilder(cmd).inheritIO().start();
+    boolean exited = false;
+    try {
+      while (!process.waitFor(CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+        if (!store.areWritesEnabled()) {
+          throw new InterruptedIOException("Aborting compaction of store " + store
+              + " in region " + store.getRegionInfo().getRegionNameAsString()
+              + " because it was interrupted.");
+        }
+      }
+      exited = true;
+    } catch (InterruptedException e) {
+      throw (InterruptedIOException) new InterruptedIOException(
+          "Interrupted waiting for the compaction worker of " + store).initCause(e);
+    } finally {
+      if (!exited) {
+        process.destroyForcibly();
+      }
+    }
+    int exitCode = process.exitValue();
+    if (exitCode != 0) {
+      throw new IOException("Compaction worker of " + store + " in region "
+          + store.getRegionInfo().getRegionNameAsString() + " exited with " + exitCode);
+    }
+  }
+}
@@ -20,10 +20,12 @@ package org.apache.hadoop.hbase.regionserver;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.classification.InterfaceAudience;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
@@ -50,6 +52,12 @@ public class DefaultStoreFlusher extends StoreFlusher {
     int cellsCount = snapshot.getCellsCount();
     if (cellsCount == 0) return result; // don't flush if there are no entries
 
+    List<byte[]> splitRows = getParallelFlushSplitRows(snapshot);
+    if (!splitRows.isEmpty()) {
+      return flushSnapshotInParallel(snapshot, splitRows, cacheFlushId, status,
+        throughputController);
+    }
+
     // Use a store scanner to find which rows to flush.
     long smallestReadPoint = store.getSmallestReadPoint();
     InternalScanner scanner = createScanner(snapshot.getScanner(), smallestReadPoint);
@@ -95,4 +103,56 @@ public class DefaultStoreFlusher extends StoreFlusher {
     result.add(writer.getPath());
     return result;
   }
+
+  /**
+   * Flushes the snapshot into one file per key range, writing the files concurrently.
+   */
+  private List<Path> flushSnapshotInParallel(final MemStoreSnapshot snapshot,
+      List<byte[]> splitRows, final long cacheFlushId, final MonitoredTask status,
+      final ThroughputController throughputController) throws IOException {
+    List<byte[]> startRows = new ArrayList<byte[]>(splitRows.size() + 1);
+    startRows.add(HConstants.EMPTY_START_ROW);
+    startRows.addAll(splitRows);
+    final long cellsPerRange = snapshot.getCellsCount() / startRows.size() + 1;
+    final long smallestReadPoint = store.getSmallestReadPoint();
+    List<Path> result;
+    synchronized (flushLock) {
+      status.setStatus("Flushing " + store + ": writing " + startRows.size() + " files");
+      result = performParallelFlush(snapshot, startRows, smallestReadPoint,
+        (range, scanner, stopRow) -> {
+          StoreFileWriter writer = store.createWriterInTmp(cellsPerRange,
+            store.getFamily().getCompressionType(),
+            /* isCompaction = */ false,
+            /* includeMVCCReadpoint = */ true,
+            /* includesTags = */ snapshot.isTagsPresent(),
+            /* shouldDropBehind = */ false,
+            snapshot.getTimeRangeTracker());
+          boolean success = false;
+          try {
+            performFlush(scanner, writer, smallestReadPoint, throughputController, stopRow);
+            finalizeWriter(writer, cacheFlushId, status);
+            success = true;
+          } finally {
+            if (!success) {
+              // The other ranges delete their files, do not leave the partial one behind.
+              try {
+                writer.close();
+              } catch (IOException e) {
+                LOG.warn("Failed to close the writer of a failed flush", e);
+              }
+              try {
+                store.getFileSystem().delete(writer.getPath(), false);
+              } catch (IOException e) {
+                LOG.error("Failed to delete " + writer.getPath() + " after failed flush", e);
+              }
+            }
+          }
+          return Collections.singletonList(writer.getPath());
+        });
+    }
+    LOG.info("Flushed, sequenceid=" + cacheFlushId + ", memsize="
+        + StringUtils.TraditionalBinaryPrefix.long2String(snapshot.getDataSize(), "", 1)
+        + ", in parallel into tmp files " + result);
+    return result;
+  }
 }
@@ -0,0 +1,154 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionContext;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
+import org.apache.hadoop.hbase.regionserver.throttle.NoLimitThroughputController;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.FSTableDescriptors;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+/**
+ * Runs a single compaction of a store on behalf of a region server, in a process of its own. See
+ * {@link CompactionOffloader}, which starts it with the store directory, the names of the files
+ * to compact and a directory to write the output files to. The files are compacted the way the
+ * region server would compact them, with the table descriptor and the configuration found here,
+ * but the output is left in the output directory: the region server commits it, or deletes it if
+ * this process fails.
+ */
+@InterfaceAudience.Private
+public class ExternalCompactionWorker extends Configured implements Tool {
+  private static final Log LOG = LogFactory.getLog(ExternalCompactionWorker.class);
+
+  static final String OPT_MAJOR = "-major";
+  static final String OPT_ALL_FILES = "-allFiles";
+  static final String OPT_READ_POINT = "-readPoint";
+  static final String OPT_OUTPUT = "-output";
+
+  @Override
+  public int run(String[] args) throws Exception {
+    boolean major = false;
+    boolean allFiles = false;
+    long readPoint = -1;
+    Path outputDir = null;
+    Path familyDir = null;
+    Set<String> fileNames = new HashSet<String>();
+    for (int i = 0; i < args.length; i++) {
+      String opt = args[i];
+      if (opt.equals(OPT_MAJOR)) {
+        major = true;
+      } else if (opt.equals(OPT_ALL_FILES)) {
+        allFiles = true;
+      } else if (opt.equals(OPT_READ_POINT) && i + 1 < args.length) {
+        readPoint = Long.parseLong(args[++i]);
+      } else if (opt.equals(OPT_OUTPUT) && i + 1 < args.length) {
+        outputDir = new Path(args[++i]);
+      } else if (opt.startsWith("-")) {
+        printUsage("Unknown option " + opt);
+        return 1;
+      } else if (familyDir == null) {
+        familyDir = new Path(opt);
+      } else {
+        fileNames.add(opt);
+      }
+    }
+    if (familyDir == null || outputDir == null || readPoint < 0 || fileNames.isEmpty()) {
+      printUsage(null);
+      return 1;
+    }
+    compact(familyDir, fileNames, outputDir, readPoint, major, allFiles);
+    return 0;
+  }
+
+  private void compact(Path familyDir, Set<String> fileNames, final Path outputDir,
+      long readPoint, boolean major, boolean allFiles) throws IOException {
+    Configuration conf = getConf();
+    FileSystem fs = familyDir.getFileSystem(conf);
+    Path regionDir = familyDir.getParent();
+    Path tableDir = regionDir.getParent();
+    HTableDescriptor htd = FSTableDescriptors.getTableDescriptorFromFs(fs, tableDir);
+    HRegionInfo hri = HRegionFileSystem.loadRegionInfoFileContent(fs, regionDir);
+    HColumnDescriptor family = htd.getFamily(Bytes.toBytes(familyDir.getName()));
+    if (family == null) {
+      throw new IOException("No family " + familyDir.getName() + " in " + htd.getTableName());
+    }
+    HRegionFileSystem regionFs = new HRegionFileSystem(conf, fs, tableDir, hri) {
+      @Override
+      Path getTempDir() {
+        return outputDir;
+      }
+    };
+    HRegion region = new HRegion(regionFs, null, conf, htd, null);
+    // Cells the region server may still have to serve by sequence id keep it.
+    region.getMVCC().advanceTo(readPoint);
+    HStore store = new HStore(region, family, conf);
+    try {
+      List<StoreFile> files = new ArrayList<StoreFile>(fileNames.size());
+      for (StoreFile sf : store.getStorefiles()) {
+        if (fileNames.contains(sf.getPath().getName())) {
+          files.add(sf);
+        }
+      }
+      if (files.size() != fileNames.size()) {
+        throw new IOException("Only found " + files + " of " + fileNames + " in " + familyDir);
+      }
+      CompactionRequest request = new CompactionRequest(files);
+      request.setIsMajor(major, allFiles);
+      CompactionContext compaction = store.storeEngine.createCompaction();
+      compaction.forceSelect(request);
+      LOG.info("Compacting " + files.size() + " files of " + store + " of "
+          + hri.getRegionNameAsString() + " into " + outputDir);
+      List<Path> newFiles = compaction.compact(NoLimitThroughputController.INSTANCE, null);
+      LOG.info("Wrote " + newFiles);
+    } finally {
+      store.close();
+    }
+  }
+
+  private void printUsage(final String message) {
+    if (message != null) {
+      System.err.println(message);
+    }
+    System.err.println("Usage: java " + getClass().getName() + " \\");
+    System.err.println("  [-D<property=value>]* [" + OPT_MAJOR + "] [" + OPT_ALL_FILES + "] "
+        + OPT_READ_POINT + " <readPoint> " + OPT_OUTPUT + " <outputDir> <familyDir> files...");
+  }
+
+  public static void main(String[] args) throws Exception {
+    System.exit(ToolRunner.run(HBaseConfiguration.create(), new ExternalCompactionWorker(), args));
+  }
+}
@@ -0,0 +1,150 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hbase.HBaseInterfaceAudience;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+
+/**
+ * A {@link FlushPolicy} that selects stores by the heap a flush of them would give back rather
+ * than by their data size alone.
+ * <p>
+ * For stores of tiny cells, e.g. counters, the skip list entries and cell objects of the memstore
+ * take more heap than the cell data, so the data size understates how much memory they hold and
+ * overstates how much they are worth flushing to a file. This policy counts a store's reclaimable
+ * heap, see {@link RegionServerAccounting#getReclaimableHeapSize(MemstoreSize)}, and its data size,
+ * which is what the flush writes.
+ * <p>
+ * A store is a candidate when either exceeds the per family lower bound of
+ * {@link FlushLargeStoresPolicy}. Stores holding edits that are too old are always flushed.
+ * Candidates are flushed in order of reclaimable heap per flushed byte, until the selection
+ * reclaims {@link #RECLAIM_TARGET_KEY} of the heap of the whole memstore of the region. When no
+ * store is a candidate, the stores holding the most heap are flushed up to the same target rather
+ * than all stores, so small families do not each turn into a small file.
+ */
+@InterfaceAudience.LimitedPrivate(HBaseInterfaceAudience.CONFIG)
+public class FlushReclaimableHeapStoresPolicy extends FlushLargeStoresPolicy {
+
+  private static final Log LOG = LogFactory.getLog(FlushReclaimableHeapStoresPolicy.class);
+
+  /** Fraction of the memstore heap of the region a flush should reclaim */
+  public static final String RECLAIM_TARGET_KEY =
+      "hbase.hregion.flush.reclaimable.heap.target";
+  public static final float DEFAULT_RECLAIM_TARGET = 0.5f;
+
+  private float reclaimTarget;
+
+  @Override
+  protected void configureForRegion(HRegion region) {
+    super.configureForRegion(region);
+    this.flushSizeLowerBound = getFlushSizeLowerBound(region);
+    this.reclaimTarget = getConf().getFloat(RECLAIM_TARGET_KEY, DEFAULT_RECLAIM_TARGET);
+  }
+
+  @Override
+  public Collection<Store> selectStoresToFlush() {
+    Collection<Store> stores = region.stores.values();
+    if (stores.size() <= 1) {
+      return stores;
+    }
+    RegionServerAccounting accounting = region.getRegionServerServices() == null ? null
+        : region.getRegionServerServices().getRegionServerAccounting();
+    long totalHeap = 0;
+    final List<StoreSize> candidates = new ArrayList<StoreSize>();
+    List<StoreSize> others = new ArrayList<StoreSize>();
+    Set<Store> selected = new HashSet<Store>();
+    long reclaimed = 0;
+    for (Store store : stores) {
+      MemstoreSize size = store.getSizeOfMemStore();
+      StoreSize storeSize = new StoreSize(store, size.getDataSize(), accounting == null
+          ? size.getDataSize() + size.getHeapOverhead() : accounting.getReclaimableHeapSize(size));
+      totalHeap += storeSize.heap;
+      if (region.shouldFlushStore(store)) {
+        selected.add(store);
+        reclaimed += storeSize.heap;
+      } else if (storeSize.data > this.flushSizeLowerBound
+          || storeSize.heap > this.flushSizeLowerBound) {
+        candidates.add(storeSize);
+      } else if (storeSize.heap > 0) {
+        others.add(storeSize);
+      }
+    }
+    long target = (long) (totalHeap * reclaimTarget);
+    List<StoreSize> ordered = candidates;
+    if (candidates.isEmpty() && selected.isEmpty()) {
+      ordered = others;
+      Collections.sort(ordered, new Comparator<StoreSize>() {
+        @Override
+        public int compare(StoreSize a, StoreSize b) {
+          return Long.compare(b.heap, a.heap);
+        }
+      });
+    } else {
+      Collections.sort(ordered, new Comparator<StoreSize>() {
+        @Override
+        public int compare(StoreSize a, StoreSize b) {
+          return Double.compare(b.heapPerFlushedByte(), a.heapPerFlushedByte());
+        }
+      });
+    }
+    for (StoreSize storeSize : ordered) {
+      if (reclaimed >= target && !selected.isEmpty()) {
+        break;
+      }
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Flush column family " + storeSize.store.getColumnFamilyName() + " of "
+            + region.getRegionInfo().getEncodedName() + " to reclaim " + storeSize.heap
+            + " bytes of heap writing " + storeSize.data + " bytes");
+      }
+      selected.add(storeSize.store);
+      reclaimed += storeSize.heap;
+    }
+    if (selected.isEmpty()) {
+      return stores;
+    }
+    return selected;
+  }
+
+  private static final class StoreSize {
+    final Store store;
+    /** The bytes of cell data a flush would write */
+    final long data;
+    /** The bytes of heap a flush would reclaim */
+    final long heap;
+
+    StoreSize(Store store, long data, long heap) {
+      this.store = store;
+      this.data = data;
+      this.heap = heap;
+    }
+
+    double heapPerFlushedByte() {
+      return data <= 0 ? Double.MAX_VALUE : (double) heap / data;
+    }
+  }
+}
@@ -201,6 +201,20 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
   public static final String HREGION_MVCC_PRE_ASSIGN = "hbase.hregion.mvcc.preassign";
   public static final boolean DEFAULT_HREGION_MVCC_PRE_ASSIGN = true;
 
+  /**
+   * Config key for replaying recovered edits into the stores of a region in parallel: the edits
+   * are read and decoded on the opening thread as before, and handed in batches to one thread
+   * per store to add to its memstore
+   */
+  public static final String HREGION_EDITS_REPLAY_PARALLEL =
+      "hbase.hregion.edits.replay.parallel";
+  public static final boolean DEFAULT_HREGION_EDITS_REPLAY_PARALLEL = false;
+
+  /** Config key for the number of cells read before a batch is handed to the store threads */
+  public static final String HREGION_EDITS_REPLAY_PARALLEL_BATCH =
+      "hbase.hregion.edits.replay.parallel.batch";
+  public static final int DEFAULT_HREGION_EDITS_REPLAY_PARALLEL_BATCH = 10000;
+
   /**
    * This is the global default value for durability. All tables/mutations not
    * defining a durability or using USE_DEFAULT will default to this value.
@@ -877,6 +891,10 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     long maxSeqId = initializeStores(reporter, status);
     this.mvcc.advanceTo(maxSeqId);
     if (ServerRegionReplicaUtil.shouldReplayRecoveredEdits(this)) {
+      // Load any HFiles split from WALs first; maxSeqIdInStores is left as it is, the
+      // recovered edits below are replayed on top of the stores as they were before.
+      status.setStatus("Loading recovered HFiles");
+      maxSeqId = Math.max(maxSeqId, loadRecoveredHFilesIfAny(this.stores.values()));
       // Recover any edits if available.
       maxSeqId = Math.max(maxSeqId,
         replayRecoveredEditsIfAny(this.fs.getRegionDir(), maxSeqIdInStores, reporter, status));
@@ -4035,6 +4053,50 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
     return size > this.memstoreFlushSize;
   }
 
+  /**
+   * Commits the HFiles the WAL splitting process wrote for this region (see
+   * {@link WALSplitter#SPLIT_WAL_TO_HFILES_KEY}) into their stores, then removes the directory
+   * they were written to. Files still carrying the splitter's temporary suffix are left alone.
+   * @param stores the stores of the region
+   * @return the highest sequence id in the stores after loading, or -1 if nothing was loaded
+   * @throws IOException
+   */
+  private long loadRecoveredHFilesIfAny(Collection<Store> stores) throws IOException {
+    FileSystem fs = this.fs.getFileSystem();
+    Path regionDir = this.fs.getRegionDir();
+    long maxSeqId = -1;
+    boolean leftovers = false;
+    for (Store store : stores) {
+      String familyName = store.getColumnFamilyName();
+      Path familyDir = WALSplitter.getRegionDirRecoveredHFilesDir(regionDir, familyName);
+      FileStatus[] files = FSUtils.listStatus(fs, familyDir);
+      if (files == null) {
+        continue;
+      }
+      for (FileStatus file : files) {
+        Path path = file.getPath();
+        if (WALSplitter.isTmpRecoveredFile(path)) {
+          LOG.warn("Skipping unfinished recovered hfile " + path);
+          leftovers = true;
+          continue;
+        }
+        Path dstPath = this.fs.commitRecoveredStoreFile(familyName, path);
+        ((HStore) store).bulkLoadHFile(new StoreFileInfo(conf, fs, dstPath));
+        maxSeqId = Math.max(maxSeqId, store.getMaxSequenceId());
+      }
+    }
+    if (maxSeqId >= 0 && !leftovers) {
+      Path recoveredHFilesDir = new Path(regionDir, WALSplitter.RECOVERED_HFILES_DIR);
+      if (!fs.delete(recoveredHFilesDir, true)) {
+        LOG.warn("Failed delete of " + recoveredHFilesDir);
+      }
+    }
+    if (maxSeqId >= 0) {
+      LOG.info("Loaded recovered hfiles into " + this + ", max sequence id " + maxSeqId);
+    }
+    return maxSeqId;
+  }
+
   /**
    * Read the edits put under this region by wal splitting process.  Put
    * the recovered edits back up into this region.
@@ -4186,6 +4248,7 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
 
     status.setStatus("Opening recovered edits");
     WAL.Reader reader = null;
+    RecoveredEditsBatch batch = null;
     try {
       reader = WALFactory.createReader(fs, edits, conf);
       long currentEditSeqId = -1;
@@ -4198,6 +4261,13 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       HStore store = null;
       boolean reported_once = false;
       ServerNonceManager ng = this.rsServices == null ? null : this.rsServices.getNonceManager();
+      if (stores.size() > 1 && conf.getBoolean(HREGION_EDITS_REPLAY_PARALLEL,
+          DEFAULT_HREGION_EDITS_REPLAY_PARALLEL)) {
+        batch = new RecoveredEditsBatch(getStoreOpenAndCloseThreadPool("RecoveredEditsReplayer-"
+            + this.getRegionInfo().getShortNameToLog()), conf.getInt(
+              HREGION_EDITS_REPLAY_PARALLEL_BATCH, DEFAULT_HREGION_EDITS_REPLAY_PARALLEL_BATCH));
+        LOG.debug("Replaying edits into " + stores.size() + " stores in parallel");
+      }
 
       try {
         // How many edits seen before we check elapsed time
@@ -4283,6 +4353,10 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
                 //this is a special edit, we should handle it
                 CompactionDescriptor compaction = WALEdit.getCompaction(cell);
                 if (compaction != null) {
+                  if (batch != null) {
+                    // The edits before the compaction go in first
+                    applyRecoveredEdits(batch, status);
+                  }
                   //replay the compaction
                   replayWALCompactionMarker(compaction, false, true, Long.MAX_VALUE);
                 }
@@ -4315,9 +4389,20 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
             }
             CellUtil.setSequenceId(cell, currentReplaySeqId);
 
-            restoreEdit(store, cell, memstoreSize);
+            if (batch != null) {
+              batch.add(store, cell);
+            } else {
+              restoreEdit(store, cell, memstoreSize);
+            }
             editsCount++;
           }
+          if (batch != null) {
+            batch.addEntry(entry);
+            if (batch.isFull()) {
+              applyRecoveredEdits(batch, status);
+            }
+            continue;
+          }
           if (this.rsAccounting != null) {
             rsAccounting.addRegionReplayEditsSize(getRegionInfo().getRegionName(),
                 memstoreSize);
@@ -4332,10 +4417,17 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
           }
         }
 
+        if (batch != null) {
+          applyRecoveredEdits(batch, status);
+        }
         if (coprocessorHost != null) {
           coprocessorHost.postReplayWALs(this.getRegionInfo(), edits);
         }
       } catch (EOFException eof) {
+        if (batch != null) {
+          // What was read before the truncation is good, as in a sequential replay
+          applyRecoveredEdits(batch, status);
+        }
         Path p = WALSplitter.moveAsideBadEditsFile(fs, edits);
         msg = "EnLongAddered EOF. Most likely due to Master failure during " +
             "wal splitting, so we have this data in another edit.  " +
@@ -4346,6 +4438,9 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
         // If the IOE resulted from bad file format,
         // then this problem is idempotent and retrying won't help
         if (ioe.getCause() instanceof ParseException) {
+          if (batch != null) {
+            applyRecoveredEdits(batch, status);
+          }
           Path p = WALSplitter.moveAsideBadEditsFile(fs, edits);
           msg = "File corruption enLongAddered!  " +
               "Continuing, but renaming " + edits + " as " + p;
@@ -4369,12 +4464,111 @@ public class HRegion implements HeapSize, PropagatingConfigurationObserver, Regi
       return currentEditSeqId;
     } finally {
       status.cleanup();
+      if (batch != null) {
+        batch.pool.shutdownNow();
+      }
       if (reader != null) {
          reader.close();
       }
     }
   }
 
+  /**
+   * Adds the cells of a batch of recovered edits to their stores, flushes if the memstore is
+   * full, and runs the post restore hooks for the edits, as
+   * {@link #replayRecoveredEdits(Path, Map, CancelableProgressable)} does for every edit when
+   * replaying sequentially.
+   */
+  private void applyRecoveredEdits(RecoveredEditsBatch batch, MonitoredTask status)
+      throws IOException {
+    if (batch.entries.isEmpty()) {
+      return;
+    }
+    MemstoreSize memstoreSize = new MemstoreSize();
+    batch.apply(memstoreSize);
+    if (this.rsAccounting != null) {
+      rsAccounting.addRegionReplayEditsSize(getRegionInfo().getRegionName(), memstoreSize);
+    }
+    if (isFlushSize(this.addAndGetMemstoreSize(memstoreSize))) {
+      internalFlushcache(null, batch.lastSeqId, stores.values(), status, false);
+    }
+    if (coprocessorHost != null) {
+      for (WAL.Entry entry : batch.entries) {
+        coprocessorHost.postWALRestore(this.getRegionInfo(), entry.getKey(), entry.getEdit());
+      }
+    }
+    batch.clear();
+  }
+
+  /**
+   * Recovered edits read but not applied yet, with their cells grouped by store. Each store adds
+   * its cells to its memstore on a thread of its own, in the order they were read.
+   */
+  private final class RecoveredEditsBatch {
+    private final ThreadPoolExecutor pool;
+    private final int maxCells;
+    private final Map<HStore, List<Cell>> cells = new HashMap<HStore, List<Cell>>();
+    private final List<WAL.Entry> entries = new ArrayList<WAL.Entry>();
+    private int cellCount = 0;
+    private long lastSeqId = -1;
+
+    RecoveredEditsBatch(ThreadPoolExecutor pool, int maxCells) {
+      this.pool = pool;
+      this.maxCells = maxCells;
+    }
+
+    void add(HStore store, Cell cell) {
+      List<Cell> storeCells = cells.get(store);
+      if (storeCells == null) {
+        storeCells = new ArrayList<Cell>();
+        cells.put(store, storeCells);
+      }
+      storeCells.add(cell);
+      cellCount++;
+    }
+
+    void addEntry(WAL.Entry entry) {
+      entries.add(entry);
+      lastSeqId = entry.getKey().getLogSeqNum();
+    }
+
+    boolean isFull() {
+      return cellCount >= maxCells;
+    }
+
+    void apply(MemstoreSize memstoreSize) throws IOException {
+      CompletionService<MemstoreSize> completionService =
+          new ExecutorCompletionService<MemstoreSize>(pool);
+      for (final Map.Entry<HStore, List<Cell>> e : cells.entrySet()) {
+        completionService.submit(new Callable<MemstoreSize>() {
+          @Override
+          public MemstoreSize call() {
+            MemstoreSize storeSize = new MemstoreSize();
+            for (Cell cell : e.getValue()) {
+              restoreEdit(e.getKey(), cell, storeSize);
+            }
+            return storeSize;
+          }
+        });
+      }
+      try {
+        for (int i = 0; i < cells.size(); i++) {
+          memstoreSize.incMemstoreSize(completionService.take().get());
+        }
+      } catch (InterruptedException e) {
+        throw (InterruptedIOException) new InterruptedIOException().initCause(e);
+      } catch (ExecutionException e) {
+        throw new IOException(e.getCause());
+      }
+    }
+
+    void clear() {
+      cells.clear();
+      entries.clear();
+      cellCount = 0;
+    }
+  }
+
   /**
    * Call to complete a compaction. Its for the case where we find in the WAL a compaction
    * that was not finished.  We could find one recovering a WAL after a regionserver crash.
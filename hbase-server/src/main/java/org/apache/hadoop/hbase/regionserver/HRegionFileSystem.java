@@ -434,6 +434,20 @@ public class HRegionFileSystem {
     return commitStoreFile(buildPath, dstPath);
   }
 
+  /**
+   * Move a file the WAL splitter wrote for the family into the family store directory under a
+   * new unique name.
+   * @param familyName Family that will gain the file
+   * @param buildPath {@link Path} to the file to commit.
+   * @return The new {@link Path} of the committed file
+   * @throws IOException
+   */
+  Path commitRecoveredStoreFile(final String familyName, final Path buildPath)
+      throws IOException {
+    Path dstPath = preCommitStoreFile(familyName, buildPath, -1, true);
+    return commitStoreFile(buildPath, dstPath);
+  }
+
   /**
    * Generate the filename in the main family store directory for moving the file from a build/temp
    *  location.
@@ -122,6 +122,7 @@ import org.apache.hadoop.hbase.regionserver.handler.CloseMetaHandler;
 import org.apache.hadoop.hbase.regionserver.handler.CloseRegionHandler;
 import org.apache.hadoop.hbase.regionserver.handler.RegionReplicaFlushHandler;
 import org.apache.hadoop.hbase.regionserver.throttle.FlushThroughputControllerFactory;
+import org.apache.hadoop.hbase.regionserver.throttle.ThroughputBudget;
 import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
 import org.apache.hadoop.hbase.regionserver.wal.MetricsWAL;
 import org.apache.hadoop.hbase.regionserver.wal.WALActionsListener;
@@ -507,6 +508,8 @@ public class HRegionServer extends HasThread implements
 
   private volatile ThroughputController flushThroughputController;
 
+  private final ThroughputBudget throughputBudget;
+
   protected SecureBulkLoadManager secureBulkLoadManager;
 
   /**
@@ -620,6 +623,7 @@ public class HRegionServer extends HasThread implements
     putUpWebUI();
     this.walRoller = new LogRoller(this, this);
     this.choreService = new ChoreService(getServerName().toString(), true);
+    this.throughputBudget = ThroughputBudget.create(conf);
     this.flushThroughputController = FlushThroughputControllerFactory.create(this, conf);
 
     if (!SystemUtils.IS_OS_WINDOWS) {
@@ -1507,8 +1511,10 @@ public class HRegionServer extends HasThread implements
       float initialCountPercentage = conf.getFloat(MemStoreLAB.CHUNK_POOL_INITIALSIZE_KEY,
           MemStoreLAB.POOL_INITIAL_SIZE_DEFAULT);
       int chunkSize = conf.getInt(MemStoreLAB.CHUNK_SIZE_KEY, MemStoreLAB.CHUNK_SIZE_DEFAULT);
+      float offheapOverflowPercentage = conf.getFloat(MemStoreLAB.CHUNK_POOL_OFFHEAP_OVERFLOW_KEY,
+          MemStoreLAB.POOL_OFFHEAP_OVERFLOW_DEFAULT);
       MemStoreChunkPool pool = MemStoreChunkPool.initialize(globalMemStoreSize, poolSizePercentage,
-          initialCountPercentage, chunkSize, offheap);
+          initialCountPercentage, chunkSize, offheap, offheapOverflowPercentage);
       if (pool != null && this.hMemManager != null) {
         // Register with Heap Memory manager
         this.hMemManager.registerTuneObserver(pool);
@@ -2669,6 +2675,29 @@ public class HRegionServer extends HasThread implements
     return sortedRegions;
   }
 
+  /**
+   * @return A new Map of online regions sorted by the heap their memstores would give back when
+   *         flushed, see {@link RegionServerAccounting#getReclaimableHeapSize(MemstoreSize)}.
+   *         The biggest is first.
+   */
+  SortedMap<Long, Region> getCopyOfOnlineRegionsSortedByReclaimableHeap() {
+    SortedMap<Long, Region> sortedRegions = new TreeMap<Long, Region>(
+        new Comparator<Long>() {
+          @Override
+          public int compare(Long a, Long b) {
+            return -1 * a.compareTo(b);
+          }
+        });
+    for (Region region : this.onlineRegions.values()) {
+      long heap = 0;
+      for (Store store : region.getStores()) {
+        heap += regionServerAccounting.getReclaimableHeapSize(store.getSizeOfMemStore());
+      }
+      sortedRegions.put(heap, region);
+    }
+    return sortedRegions;
+  }
+
   /**
    * @return time stamp in millis of when this region server was started
    */
@@ -3615,6 +3644,11 @@ public class HRegionServer extends HasThread implements
     return flushThroughputController;
   }
 
+  @Override
+  public ThroughputBudget getThroughputBudget() {
+    return throughputBudget;
+  }
+
   @Override
   public double getFlushPressure() {
     if (getRegionServerAccounting() == null || cacheFlusher == null) {
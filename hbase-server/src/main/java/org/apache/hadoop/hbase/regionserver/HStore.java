@@ -67,6 +67,7 @@ import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
 import org.apache.hadoop.hbase.io.hfile.HFileDataBlockEncoder;
 import org.apache.hadoop.hbase.io.hfile.HFileDataBlockEncoderImpl;
 import org.apache.hadoop.hbase.io.hfile.HFileScanner;
+import org.apache.hadoop.hbase.io.hfile.HotKeyRanges;
 import org.apache.hadoop.hbase.io.hfile.InvalidHFileException;
 import org.apache.hadoop.hbase.monitoring.MonitoredTask;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionContext;
@@ -166,6 +167,10 @@ public class HStore implements Store {
     Collections.newSetFromMap(new ConcurrentHashMap<ChangedReadersObserver, Boolean>());
 
   protected final int blocksize;
+  private final AdaptiveBlockSizeTracker blockSizeTracker;
+  private final StoreAmplificationTracker amplificationTracker = new StoreAmplificationTracker();
+  /** Runs compactions in a separate process, null if they run in the region server */
+  private final CompactionOffloader compactionOffloader;
   private HFileDataBlockEncoder dataBlockEncoder;
 
   /** Checksum configuration */
@@ -222,6 +227,8 @@ public class HStore implements Store {
       .addStringMap(family.getConfiguration())
       .addBytesMap(family.getValues());
     this.blocksize = family.getBlocksize();
+    this.blockSizeTracker = new AdaptiveBlockSizeTracker(conf);
+    this.compactionOffloader = CompactionOffloader.create(conf);
 
     // set block storage policy for store directory
     String policyName = family.getStoragePolicy();
@@ -254,6 +261,7 @@ public class HStore implements Store {
     switch (inMemoryCompaction) {
       case BASIC :
       case EAGER :
+      case APPEND :
         className = CompactingMemStore.class.getName();
         this.memstore = new CompactingMemStore(conf, this.comparator, this,
             this.getHRegion().getRegionServicesForStores(), inMemoryCompaction);
@@ -1033,18 +1041,38 @@ public class HStore implements Store {
    * @param includesTag - includesTag or not
    * @return Writer for a new StoreFile in the tmp dir.
    */
+  @Override
+  public StoreFileWriter createWriterInTmp(long maxKeyCount, Compression.Algorithm compression,
+      boolean isCompaction, boolean includeMVCCReadpoint, boolean includesTag,
+      boolean shouldDropBehind, final TimeRangeTracker trt)
+  throws IOException {
+    return createWriterInTmp(maxKeyCount, compression, isCompaction, includeMVCCReadpoint,
+        includesTag, shouldDropBehind, trt, null);
+  }
+
+  /*
+   * @param maxKeyCount
+   * @param compression Compression algorithm to use
+   * @param isCompaction whether we are creating a new file in a compaction
+   * @param includesMVCCReadPoint - whether to include MVCC or not
+   * @param includesTag - includesTag or not
+   * @param cacheOnWriteKeyRanges key ranges whose data blocks to cache on write, or null
+   * @return Writer for a new StoreFile in the tmp dir.
+   */
   // TODO : allow the Writer factory to create Writers of ShipperListener type only in case of
   // compaction
   @Override
   public StoreFileWriter createWriterInTmp(long maxKeyCount, Compression.Algorithm compression,
       boolean isCompaction, boolean includeMVCCReadpoint, boolean includesTag,
-      boolean shouldDropBehind, final TimeRangeTracker trt)
+      boolean shouldDropBehind, final TimeRangeTracker trt,
+      HotKeyRanges cacheOnWriteKeyRanges)
   throws IOException {
     final CacheConfig writerCacheConf;
     if (isCompaction) {
-      // Don't cache data on write on compactions.
+      // Don't cache data on write on compactions, other than the ranges asked for.
       writerCacheConf = new CacheConfig(cacheConf);
       writerCacheConf.setCacheDataOnWrite(false);
+      writerCacheConf.setCacheOnWriteKeyRanges(cacheOnWriteKeyRanges);
     } else {
       writerCacheConf = cacheConf;
     }
@@ -1053,8 +1081,10 @@ public class HStore implements Store {
       favoredNodes = region.getRegionServerServices().getFavoredNodesForRegion(
           region.getRegionInfo().getEncodedName());
     }
+    int writerBlockSize = isCompaction ? blockSizeTracker.getCompactionBlockSize(blocksize)
+        : blocksize;
     HFileContext hFileContext = createFileContext(compression, includeMVCCReadpoint, includesTag,
-      cryptoContext);
+      cryptoContext, writerBlockSize);
     Path familyTempDir = new Path(fs.getTempDir(), family.getNameAsString());
     StoreFileWriter.Builder builder = new StoreFileWriter.Builder(conf, writerCacheConf,
         this.getFileSystem())
@@ -1068,11 +1098,16 @@ public class HStore implements Store {
     if (trt != null) {
       builder.withTimeRangeTracker(trt);
     }
-    return builder.build();
+    StoreFileWriter writer = builder.build();
+    if (isCompaction && blockSizeTracker.isEnabled()) {
+      writer.appendFileInfo(StoreFile.DATA_BLOCK_SIZE_KEY, Bytes.toBytes(writerBlockSize));
+    }
+    return writer;
   }
 
   private HFileContext createFileContext(Compression.Algorithm compression,
-      boolean includeMVCCReadpoint, boolean includesTag, Encryption.Context cryptoContext) {
+      boolean includeMVCCReadpoint, boolean includesTag, Encryption.Context cryptoContext,
+      int blockSize) {
     if (compression == null) {
       compression = HFile.DEFAULT_COMPRESSION_ALGORITHM;
     }
@@ -1083,7 +1118,7 @@ public class HStore implements Store {
                                 .withCompressTags(family.isCompressTags())
                                 .withChecksumType(checksumType)
                                 .withBytesPerCheckSum(bytesPerChecksum)
-                                .withBlockSize(blocksize)
+                                .withBlockSize(blockSize)
                                 .withHBaseCheckSum(true)
                                 .withDataBlockEncoding(family.getDataBlockEncoding())
                                 .withEncryptionContext(cryptoContext)
@@ -1290,7 +1325,10 @@ public class HStore implements Store {
           + TraditionalBinaryPrefix.long2String(cr.getSize(), "", 1));
 
       // Commence the compaction.
-      List<Path> newFiles = compaction.compact(throughputController, user);
+      boolean offloaded =
+          compactionOffloader != null && compactionOffloader.shouldOffload(this, cr);
+      List<Path> newFiles = offloaded ? compactionOffloader.compact(this, cr)
+          : compaction.compact(throughputController, user);
 
       long outputBytes = 0L;
       // TODO: get rid of this!
@@ -1311,7 +1349,10 @@ public class HStore implements Store {
       sfs = moveCompatedFilesIntoPlace(cr, newFiles, user);
       writeCompactionWalRecord(filesToCompact, sfs);
       replaceStoreFiles(filesToCompact, sfs);
-      if (cr.isMajor()) {
+      // The worker of an offloaded compaction does not report its progress back.
+      if (offloaded) {
+        LOG.debug("Not counting the cells of offloaded compaction of " + this);
+      } else if (cr.isMajor()) {
         majorCompactedCellsCount += getCompactionProgress().totalCompactingKVs;
         majorCompactedCellsSize += getCompactionProgress().totalCompactedSize;
       } else {
@@ -1322,9 +1363,11 @@ public class HStore implements Store {
       for (StoreFile sf : sfs) {
         outputBytes += sf.getReader().length();
       }
+      amplificationTracker.recordCompaction(outputBytes);
 
       // At this point the store will use new files for all new scanners.
       completeCompaction(filesToCompact); // update store size.
+      blockSizeTracker.decay();
 
       long now = EnvironmentEdgeManager.currentTime();
       if (region.getRegionServerServices() != null
@@ -1664,6 +1707,8 @@ public class HStore implements Store {
         request = compaction.getRequest();
         final Collection<StoreFile> selectedFiles = request.getFiles();
         if (selectedFiles.isEmpty()) {
+          // A major compaction can find that it would not change any file; then it is done.
+          this.forceMajor = this.forceMajor && !request.isMajor();
           return null;
         }
 
@@ -2272,7 +2317,7 @@ public class HStore implements Store {
   }
 
   public static final long FIXED_OVERHEAD =
-      ClassSize.align(ClassSize.OBJECT + (17 * ClassSize.REFERENCE) + (11 * Bytes.SIZEOF_LONG)
+      ClassSize.align(ClassSize.OBJECT + (20 * ClassSize.REFERENCE) + (11 * Bytes.SIZEOF_LONG)
               + (5 * Bytes.SIZEOF_INT) + (2 * Bytes.SIZEOF_BOOLEAN));
 
   public static final long DEEP_OVERHEAD = ClassSize.align(FIXED_OVERHEAD
@@ -2292,6 +2337,20 @@ public class HStore implements Store {
     return comparator;
   }
 
+  /**
+   * @return the tracker of this store's read pattern used to size compaction output blocks
+   */
+  AdaptiveBlockSizeTracker getBlockSizeTracker() {
+    return blockSizeTracker;
+  }
+
+  /**
+   * @return the read and write amplification counters of this store
+   */
+  StoreAmplificationTracker getAmplificationTracker() {
+    return amplificationTracker;
+  }
+
   @Override
   public ScanInfo getScanInfo() {
     return scanInfo;
@@ -2307,7 +2366,10 @@ public class HStore implements Store {
 
   @Override
   public boolean hasTooManyStoreFiles() {
-    return getStorefilesCount() > this.blockingFileCount;
+    // Asks the store file manager rather than counting files; a leveled store has many files by
+    // design, but reads only touch a few of them. For other stores this is the same as having
+    // more than blockingFileCount files.
+    return this.storeEngine.getStoreFileManager().getStoreCompactionPriority() < 0;
   }
 
   @Override
@@ -2345,6 +2407,31 @@ public class HStore implements Store {
     return majorCompactedCellsSize;
   }
 
+  @Override
+  public long getCompactedOutputFileSize() {
+    return amplificationTracker.getCompactedOutputFileSize();
+  }
+
+  @Override
+  public long getGetCount() {
+    return amplificationTracker.getGetCount();
+  }
+
+  @Override
+  public long getGetStoreFilesReadCount() {
+    return amplificationTracker.getGetStoreFilesReadCount();
+  }
+
+  @Override
+  public long getScanRowCount() {
+    return amplificationTracker.getScanRowCount();
+  }
+
+  @Override
+  public long getScanBlocksReadCount() {
+    return amplificationTracker.getScanBlocksReadCount();
+  }
+
   /**
    * Returns the StoreEngine that is backing this concrete implementation of Store.
    * @return Returns the {@link StoreEngine} object used internally inside this HStore object.
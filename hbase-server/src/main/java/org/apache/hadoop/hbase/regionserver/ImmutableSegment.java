@@ -246,6 +246,14 @@ public class ImmutableSegment extends Segment {
   // Create CellSet based on CellArrayMap from current ConcurrentSkipListMap based CellSet
   // (without compacting iterator)
   private CellSet recreateCellArrayMapSet(int numOfCells) {
+    CellSet cellSet = getCellSet();
+    if (cellSet instanceof AppendingCellSet) {
+      // The cells of an appending set that never fell back are already in a sorted array
+      CellArrayMap cam = ((AppendingCellSet) cellSet).toCellArrayMap();
+      if (cam != null && ((AppendingCellSet) cellSet).isAppending()) {
+        return new CellSet(cam);
+      }
+    }
 
     Cell[] cells = new Cell[numOfCells];   // build the Cell Array
     Cell curCell;
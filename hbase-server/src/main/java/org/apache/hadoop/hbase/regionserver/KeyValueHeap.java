@@ -68,6 +68,15 @@ public class KeyValueHeap extends NonReversedNonLazyKeyValueScanner
 
   protected KVScannerComparator comparator;
 
+  /**
+   * Enforces the pending real seeks of several scanners at once, e.g. in parallel.
+   */
+  interface SeekEnforcer {
+    void enforceSeeks(List<KeyValueScanner> scanners) throws IOException;
+  }
+
+  private SeekEnforcer seekEnforcer = null;
+
   /**
    * Constructor.  This KeyValueHeap will handle closing of passed in
    * KeyValueScanners.
@@ -309,6 +318,7 @@ public class KeyValueHeap extends NonReversedNonLazyKeyValueScanner
           // keys.
           heap.add(scanner);
           scanner = null;
+          enforcePendingSeeks();
           current = pollRealKV();
           return current != null;
         }
@@ -347,6 +357,48 @@ public class KeyValueHeap extends NonReversedNonLazyKeyValueScanner
     return false;
   }
 
+  /**
+   * Have the pending lazy seeks of the scanners in this heap enforced all at once by the given
+   * enforcer after a seek, instead of one by one as each scanner reaches the top of the heap.
+   */
+  void setSeekEnforcer(SeekEnforcer seekEnforcer) {
+    this.seekEnforcer = seekEnforcer;
+  }
+
+  /**
+   * Hands all scanners in the heap that still owe a real seek to the {@link SeekEnforcer}. The
+   * scanners are taken out of the heap while they seek as their position in it changes.
+   */
+  private void enforcePendingSeeks() throws IOException {
+    if (seekEnforcer == null || heap.size() < 2) {
+      return;
+    }
+    List<KeyValueScanner> pending = new ArrayList<KeyValueScanner>(heap.size());
+    for (KeyValueScanner scanner : heap) {
+      if (!scanner.realSeekDone() && scanner.peek() != null) {
+        pending.add(scanner);
+      }
+    }
+    if (pending.size() < 2) {
+      return;
+    }
+    heap.removeAll(pending);
+    try {
+      seekEnforcer.enforceSeeks(pending);
+    } catch (IOException ioe) {
+      // Add the items to delayed close set in case they leak from close
+      this.scannersForDelayedClose.addAll(pending);
+      throw ioe;
+    }
+    for (KeyValueScanner scanner : pending) {
+      if (scanner.peek() != null) {
+        heap.add(scanner);
+      } else {
+        this.scannersForDelayedClose.add(scanner);
+      }
+    }
+  }
+
   /**
    * Fetches the top sub-scanner from the priority queue, ensuring that a real
    * seek has been done on it. Works by fetching the top sub-scanner, and if it
@@ -0,0 +1,100 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Cell sink for leveled compactions. Starts a new file at the first row boundary after the current
+ * file has reached the target size, so the files of a level never share a row, and records the
+ * output level in every file, see {@link LeveledStoreFileManager#LEVEL_KEY}.
+ */
+@InterfaceAudience.Private
+public class LeveledMultiFileWriter extends AbstractMultiFileWriter {
+  private static final Log LOG = LogFactory.getLog(LeveledMultiFileWriter.class);
+
+  private final int level;
+  private final long targetFileSize;
+  private final boolean needEmptyFile;
+
+  private final List<StoreFileWriter> existingWriters = new ArrayList<StoreFileWriter>();
+  private StoreFileWriter currentWriter;
+  private long bytesInCurrentWriter;
+  /** Set once the current writer is full; the next row goes to a new writer. */
+  private byte[] lastRowInCurrentWriter;
+
+  /**
+   * @param level the level the files are written to; 0 writes no level, like a flush
+   * @param targetFileSize the uncompressed size at which to start a new file
+   * @param needEmptyFile whether need to create an empty store file if we haven't written out
+   *          anything.
+   */
+  public LeveledMultiFileWriter(int level, long targetFileSize, boolean needEmptyFile) {
+    this.level = level;
+    this.targetFileSize = targetFileSize;
+    this.needEmptyFile = needEmptyFile;
+  }
+
+  @Override
+  public void append(Cell cell) throws IOException {
+    if (currentWriter == null || (lastRowInCurrentWriter != null && !CellUtil.matchingRow(cell,
+      lastRowInCurrentWriter, 0, lastRowInCurrentWriter.length))) {
+      if (LOG.isDebugEnabled() && currentWriter != null) {
+        LOG.debug("Stopping to use a writer after [" + Bytes.toString(lastRowInCurrentWriter)
+            + "] row; wrote out " + bytesInCurrentWriter + " bytes");
+      }
+      currentWriter = writerFactory.createWriter();
+      existingWriters.add(currentWriter);
+      bytesInCurrentWriter = 0;
+      lastRowInCurrentWriter = null;
+    }
+    currentWriter.append(cell);
+    bytesInCurrentWriter += CellUtil.estimatedSerializedSizeOf(cell);
+    if (lastRowInCurrentWriter == null && bytesInCurrentWriter >= targetFileSize) {
+      lastRowInCurrentWriter = CellUtil.cloneRow(cell); // make a copy
+    }
+  }
+
+  @Override
+  protected Collection<StoreFileWriter> writers() {
+    return existingWriters;
+  }
+
+  @Override
+  protected void preCommitWriters() throws IOException {
+    if (existingWriters.isEmpty() && needEmptyFile) {
+      // we haven't written out any data, create an empty file to retain metadata
+      existingWriters.add(writerFactory.createWriter());
+    }
+    if (level > 0) {
+      for (StoreFileWriter writer : existingWriters) {
+        writer.appendFileInfo(LeveledStoreFileManager.LEVEL_KEY, Bytes.toBytes(level));
+      }
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.HBaseInterfaceAudience;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionContext;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
+import org.apache.hadoop.hbase.regionserver.compactions.LeveledCompactionPolicy;
+import org.apache.hadoop.hbase.regionserver.compactions.LeveledCompactionPolicy.LeveledCompactionRequest;
+import org.apache.hadoop.hbase.regionserver.compactions.LeveledCompactor;
+import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
+import org.apache.hadoop.hbase.security.User;
+
+/**
+ * The storage engine that implements leveled compaction: flushed files go to level 0, and
+ * compactions move data down through levels of files with disjoint row ranges, each level some
+ * multiple of the size of the level before it. See {@link LeveledCompactionPolicy}.
+ * <p>
+ * Compared to the default engine this bounds the number of files a Get has to look at to the
+ * level 0 files plus one per level, at the price of rewriting data once per level it moves
+ * through. It suits random read heavy tables. Since a store holds many files, each of about
+ * {@link LeveledCompactionPolicy#TARGET_FILE_SIZE_KEY}, flushes are blocked by the number of level
+ * 0 files and levels rather than the number of files, see
+ * {@link LeveledStoreFileManager#getStoreCompactionPriority()}.
+ */
+@InterfaceAudience.LimitedPrivate(HBaseInterfaceAudience.CONFIG)
+public class LeveledStoreEngine extends StoreEngine<DefaultStoreFlusher,
+  LeveledCompactionPolicy, LeveledCompactor, LeveledStoreFileManager> {
+  private static final Log LOG = LogFactory.getLog(LeveledStoreEngine.class);
+
+  @Override
+  public boolean needsCompaction(List<StoreFile> filesCompacting) {
+    return compactionPolicy.needsCompaction(storeFileManager.getLevels(), filesCompacting);
+  }
+
+  @Override
+  public CompactionContext createCompaction() throws IOException {
+    return new LeveledCompaction();
+  }
+
+  @Override
+  protected void createComponents(Configuration conf, Store store, CellComparator kvComparator)
+      throws IOException {
+    this.compactionPolicy = new LeveledCompactionPolicy(conf, store, kvComparator);
+    this.storeFileManager =
+        new LeveledStoreFileManager(kvComparator, conf, compactionPolicy.getConf());
+    this.storeFlusher = new DefaultStoreFlusher(conf, store);
+    this.compactor = new LeveledCompactor(conf, store);
+  }
+
+  private final class LeveledCompaction extends CompactionContext {
+    private int outputLevel = 0;
+    private long targetFileSize = compactionPolicy.getTargetFileSize();
+
+    @Override
+    public List<StoreFile> preSelect(List<StoreFile> filesCompacting) {
+      List<StoreFile> candidates = new ArrayList<StoreFile>(storeFileManager.getStorefiles());
+      candidates.removeAll(filesCompacting);
+      return candidates;
+    }
+
+    @Override
+    public boolean select(List<StoreFile> filesCompacting, boolean isUserCompaction,
+        boolean mayUseOffPeak, boolean forceMajor) throws IOException {
+      LeveledCompactionRequest leveledRequest = compactionPolicy.selectCompaction(
+        storeFileManager.getLevels(), filesCompacting, forceMajor);
+      if (leveledRequest == null) {
+        request = new CompactionRequest(new ArrayList<StoreFile>());
+        return false;
+      }
+      request = leveledRequest;
+      outputLevel = leveledRequest.getOutputLevel();
+      targetFileSize = leveledRequest.getTargetFileSize();
+      return true;
+    }
+
+    @Override
+    public void forceSelect(CompactionRequest request) {
+      if (!hasSelection()) {
+        // Files that did not come from the policy may overlap anything, so keep them in level 0.
+        LOG.warn("Leveled store is forced to take an arbitrary file list and compact it"
+            + " into level 0.");
+      }
+      super.forceSelect(request);
+    }
+
+    @Override
+    public List<Path> compact(ThroughputController throughputController, User user)
+        throws IOException {
+      return compactor.compact(request, outputLevel, targetFileSize, throughputController, user);
+    }
+  }
+}
@@ -0,0 +1,371 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.regionserver.compactions.CompactionConfiguration;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Store file manager for the leveled store engine. Files are kept in levels: level 0 holds the
+ * flushed and bulk loaded files, whose key ranges may overlap, while every level above it holds
+ * files with disjoint row ranges. The level of a file is recorded in its file info under
+ * {@link #LEVEL_KEY} by the compaction that wrote it; files without it are in level 0.
+ * <p>
+ * A Get only needs the level 0 files and at most one file of every other level. Should a level
+ * ever hold files with overlapping rows (e.g. files bulk loaded from another leveled store), the
+ * newer of them are treated as level 0 files so this always holds.
+ * <p>
+ * Not thread-safe, like {@link DefaultStoreFileManager} which keeps the actual file lists.
+ */
+@InterfaceAudience.Private
+public class LeveledStoreFileManager implements StoreFileManager {
+  private static final Log LOG = LogFactory.getLog(LeveledStoreFileManager.class);
+
+  /** The file info key under which the level of a file is stored */
+  public static final byte[] LEVEL_KEY = Bytes.toBytes("LEVEL");
+
+  private final CellComparator kvComparator;
+  private final CompactionConfiguration comConf;
+  private final int blockingFileCount;
+  private final DefaultStoreFileManager files;
+
+  /**
+   * The store files by level. Level 0 is sorted by seqNum, the other levels by row. This is an
+   * immutable list that is atomically replaced when the files change.
+   */
+  private volatile List<List<StoreFile>> levels = Collections.emptyList();
+
+  public LeveledStoreFileManager(CellComparator kvComparator, Configuration conf,
+      CompactionConfiguration comConf) {
+    this.kvComparator = kvComparator;
+    this.comConf = comConf;
+    this.blockingFileCount =
+        conf.getInt(HStore.BLOCKING_STOREFILES_KEY, HStore.DEFAULT_BLOCKING_STOREFILE_COUNT);
+    this.files =
+        new DefaultStoreFileManager(kvComparator, StoreFile.Comparators.SEQ_ID, conf, comConf);
+  }
+
+  /**
+   * @return the level the file was written to, 0 if it was not written by a leveled compaction
+   */
+  public static int getLevel(StoreFile sf) {
+    byte[] level = sf.getMetadataValue(LEVEL_KEY);
+    return level == null ? 0 : Bytes.toInt(level);
+  }
+
+  /**
+   * @return the store files by level; level 0 is sorted by seqNum, the others by row
+   */
+  public List<List<StoreFile>> getLevels() {
+    return levels;
+  }
+
+  @Override
+  public void loadFiles(List<StoreFile> storeFiles) {
+    files.loadFiles(storeFiles);
+    updateLevels();
+  }
+
+  @Override
+  public Collection<StoreFile> getStorefiles() {
+    return files.getStorefiles();
+  }
+
+  @Override
+  public Collection<StoreFile> getCompactedfiles() {
+    return files.getCompactedfiles();
+  }
+
+  @Override
+  public void insertNewFiles(Collection<StoreFile> sfs) throws IOException {
+    files.insertNewFiles(sfs);
+    updateLevels();
+  }
+
+  @Override
+  public ImmutableCollection<StoreFile> clearFiles() {
+    ImmutableCollection<StoreFile> result = files.clearFiles();
+    updateLevels();
+    return result;
+  }
+
+  @Override
+  public Collection<StoreFile> clearCompactedFiles() {
+    return files.clearCompactedFiles();
+  }
+
+  @Override
+  public int getStorefileCount() {
+    return files.getStorefileCount();
+  }
+
+  @Override
+  public void addCompactionResults(Collection<StoreFile> newCompactedfiles,
+      Collection<StoreFile> results) throws IOException {
+    files.addCompactionResults(newCompactedfiles, results);
+    updateLevels();
+  }
+
+  @Override
+  public void removeCompactedFiles(Collection<StoreFile> compactedFiles) throws IOException {
+    files.removeCompactedFiles(compactedFiles);
+  }
+
+  @Override
+  public Iterator<StoreFile> getCandidateFilesForRowKeyBefore(KeyValue targetKey) {
+    return files.getCandidateFilesForRowKeyBefore(targetKey);
+  }
+
+  @Override
+  public Iterator<StoreFile> updateCandidateFilesForRowKeyBefore(
+      Iterator<StoreFile> candidateFiles, KeyValue targetKey, Cell candidate) {
+    return files.updateCandidateFilesForRowKeyBefore(candidateFiles, targetKey, candidate);
+  }
+
+  /**
+   * Splits at a file boundary near the middle of the largest level, so both daughters get about
+   * half of it and their files need not be rewritten to stay disjoint.
+   */
+  @Override
+  public byte[] getSplitPoint() throws IOException {
+    List<List<StoreFile>> levels = this.levels;
+    List<StoreFile> largest = null;
+    long largestSize = 0;
+    for (int i = 1; i < levels.size(); i++) {
+      long size = getTotalSize(levels.get(i));
+      if (size > largestSize) {
+        largest = levels.get(i);
+        largestSize = size;
+      }
+    }
+    if (largest == null) {
+      return files.getSplitPoint();
+    }
+    long size = 0;
+    for (int i = 0; i < largest.size(); i++) {
+      StoreFile sf = largest.get(i);
+      size += sf.getReader().length();
+      if (size * 2 >= largestSize) {
+        return i == 0 ? sf.getFileSplitPoint(kvComparator)
+            : CellUtil.cloneRow(sf.getFirstKey());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Single row reads only get the level 0 files and the file of every other level whose range
+   * holds the row. Other scans get all the files; the scanners skip the files outside the scan
+   * range themselves, see {@link StoreFileScanner#shouldUseScanner}, which knows about reversed
+   * scans.
+   */
+  @Override
+  public Collection<StoreFile> getFilesForScan(byte[] startRow, boolean includeStartRow,
+      byte[] stopRow, boolean includeStopRow) {
+    List<List<StoreFile>> levels = this.levels;
+    if (levels.size() <= 1 || startRow == null || startRow.length == 0
+        || !Bytes.equals(startRow, stopRow)) {
+      return files.getStorefiles();
+    }
+    List<StoreFile> result = new ArrayList<StoreFile>(levels.get(0));
+    for (int i = 1; i < levels.size(); i++) {
+      StoreFile sf = findFileForRow(levels.get(i), startRow);
+      if (sf != null) {
+        result.add(sf);
+      }
+    }
+    Collections.sort(result, getStoreFileComparator());
+    return result;
+  }
+
+  private StoreFile findFileForRow(List<StoreFile> level, byte[] row) {
+    int low = 0;
+    int high = level.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      StoreFile sf = level.get(mid);
+      if (kvComparator.compareRows(sf.getLastKey(), row, 0, row.length) < 0) {
+        low = mid + 1;
+      } else if (kvComparator.compareRows(sf.getFirstKey(), row, 0, row.length) > 0) {
+        high = mid - 1;
+      } else {
+        return sf;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Reads have to merge every level 0 file and one file of every other level, so the priority
+   * follows that count rather than the number of files.
+   */
+  @Override
+  public int getStoreCompactionPriority() {
+    int priority = blockingFileCount - getSortedRunCount();
+    return (priority == HStore.PRIORITY_USER) ? priority + 1 : priority;
+  }
+
+  /**
+   * The expired files of every level; the files left in a level stay disjoint without them. As
+   * in {@link DefaultStoreFileManager}, the file with the highest sequence id of the store is
+   * never one of them.
+   */
+  @Override
+  public Collection<StoreFile> getUnneededFiles(long maxTs, List<StoreFile> filesCompacting) {
+    List<List<StoreFile>> levels = this.levels;
+    StoreFile newest = null;
+    for (StoreFile sf : files.getStorefiles()) {
+      newest = sf;
+    }
+    Collection<StoreFile> expiredStoreFiles = null;
+    for (List<StoreFile> level : levels) {
+      for (StoreFile sf : level) {
+        if (sf == newest) {
+          continue;
+        }
+        long fileTs = sf.getReader().getMaxTimestamp();
+        if (fileTs < maxTs && !filesCompacting.contains(sf)) {
+          LOG.info("Found an expired store file: " + sf.getPath() + " of level "
+              + getLevel(sf) + " whose maxTimeStamp is " + fileTs + ", which is below " + maxTs);
+          if (expiredStoreFiles == null) {
+            expiredStoreFiles = new ArrayList<StoreFile>();
+          }
+          expiredStoreFiles.add(sf);
+        }
+      }
+    }
+    return expiredStoreFiles;
+  }
+
+  @Override
+  public double getCompactionPressure() {
+    int sortedRuns = getSortedRunCount();
+    int minFilesToCompact = comConf.getMinFilesToCompact();
+    if (sortedRuns <= minFilesToCompact) {
+      return 0.0;
+    }
+    return (double) (sortedRuns - minFilesToCompact) / (blockingFileCount - minFilesToCompact);
+  }
+
+  @Override
+  public Comparator<StoreFile> getStoreFileComparator() {
+    return files.getStoreFileComparator();
+  }
+
+  /**
+   * @return the number of level 0 files plus the number of non-empty higher levels
+   */
+  private int getSortedRunCount() {
+    List<List<StoreFile>> levels = this.levels;
+    int count = levels.isEmpty() ? 0 : levels.get(0).size();
+    for (int i = 1; i < levels.size(); i++) {
+      if (!levels.get(i).isEmpty()) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private void updateLevels() {
+    this.levels = groupByLevel(kvComparator, files.getStorefiles());
+  }
+
+  /**
+   * Groups the files by level. Files without any cells, and files that overlap an older file of
+   * their level, go to level 0.
+   * @param storeFiles the files, sorted by seqNum
+   */
+  static List<List<StoreFile>> groupByLevel(final CellComparator comparator,
+      Collection<StoreFile> storeFiles) {
+    List<List<StoreFile>> levels = new ArrayList<List<StoreFile>>();
+    levels.add(new ArrayList<StoreFile>());
+    for (StoreFile sf : storeFiles) {
+      int level = sf.getFirstKey() == null ? 0 : getLevel(sf);
+      while (levels.size() <= level) {
+        levels.add(new ArrayList<StoreFile>());
+      }
+      levels.get(level).add(sf);
+    }
+    List<StoreFile> level0 = levels.get(0);
+    boolean demoted = false;
+    Comparator<StoreFile> byRow = new Comparator<StoreFile>() {
+      @Override
+      public int compare(StoreFile a, StoreFile b) {
+        return comparator.compareRows(a.getFirstKey(), b.getFirstKey());
+      }
+    };
+    for (int i = 1; i < levels.size(); i++) {
+      List<StoreFile> level = levels.get(i);
+      Collections.sort(level, byRow);
+      List<StoreFile> kept = new ArrayList<StoreFile>(level.size());
+      for (StoreFile sf : level) {
+        StoreFile last = kept.isEmpty() ? null : kept.get(kept.size() - 1);
+        if (last == null || comparator.compareRows(sf.getFirstKey(), last.getLastKey()) > 0) {
+          kept.add(sf);
+          continue;
+        }
+        // Of two overlapping files the older one keeps its level.
+        StoreFile newer = sf;
+        if (StoreFile.Comparators.SEQ_ID.compare(sf, last) < 0) {
+          kept.set(kept.size() - 1, sf);
+          newer = last;
+        }
+        LOG.warn("Moving " + newer + " to level 0, it overlaps another file of level " + i);
+        level0.add(newer);
+        demoted = true;
+      }
+      levels.set(i, ImmutableList.copyOf(kept));
+    }
+    if (demoted) {
+      Collections.sort(level0, StoreFile.Comparators.SEQ_ID);
+    }
+    levels.set(0, ImmutableList.copyOf(level0));
+    // Drop empty top levels.
+    while (levels.size() > 1 && levels.get(levels.size() - 1).isEmpty()) {
+      levels.remove(levels.size() - 1);
+    }
+    return Collections.unmodifiableList(levels);
+  }
+
+  private static long getTotalSize(List<StoreFile> files) {
+    long size = 0;
+    for (StoreFile sf : files) {
+      size += sf.getReader().length();
+    }
+    return size;
+  }
+}
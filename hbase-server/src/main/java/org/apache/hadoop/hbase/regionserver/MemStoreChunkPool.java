@@ -24,6 +24,7 @@ import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -47,6 +48,18 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
  * {@link MemStoreChunkPool#getChunk()} is called when MemStoreLAB allocating
  * bytes, and {@link MemStoreChunkPool#putbackChunks(BlockingQueue)} is called
  * when MemStore clearing snapshot for flush
+ *
+ * The pool is the allocator of all MSLAB chunks of the region server. It creates chunks on demand
+ * until it has created max count of them, so its size follows the memstore use instead of the
+ * size it started with. Chunks it does not take back because it is full are dropped and stop
+ * counting against the max count, so their capacity can be created again.
+ * When off heap, the max count covers the whole off heap global memstore size. Chunks made beyond
+ * it once the pool is exhausted, see {@link #makeOverflowChunk()}, are never pooled. They are off
+ * heap too up to a max overflow count of them in use, and on heap beyond it, so the direct memory
+ * the memstore takes stays bounded.
+ *
+ * The pool tracks the bytes allocated out of the chunks it handed out, to report how much of the
+ * chunk memory in use holds no cell data, see {@link #getFragmentation()}.
  */
 @SuppressWarnings("javadoc")
 @InterfaceAudience.Private
@@ -71,11 +84,21 @@ public class MemStoreChunkPool implements HeapMemoryTuneObserver {
   private static final int statThreadPeriod = 60 * 5;
   private final AtomicLong chunkCount = new AtomicLong();
   private final AtomicLong reusedChunkCount = new AtomicLong();
+  /** Chunks handed out and not yet given back */
+  private final AtomicLong inUseChunkCount = new AtomicLong();
+  /** Bytes allocated out of the chunks in use */
+  private final LongAdder inUseBytes = new LongAdder();
+  /** Chunks MemStoreLABs had to make on their own because the pool was exhausted */
+  private final AtomicLong overflowChunkCount = new AtomicLong();
+  /** Off heap chunks made because the pool was exhausted and not yet released */
+  private final AtomicLong offheapOverflowChunkCount = new AtomicLong();
+  private final int maxOffheapOverflowCount;
   private final boolean offheap;
 
   MemStoreChunkPool(int chunkSize, int maxCount, int initialCount, float poolSizePercentage,
-      boolean offheap) {
+      boolean offheap, int maxOffheapOverflowCount) {
     this.maxCount = maxCount;
+    this.maxOffheapOverflowCount = maxOffheapOverflowCount;
     this.chunkSize = chunkSize;
     this.poolSizePercentage = poolSizePercentage;
     this.offheap = offheap;
@@ -122,6 +145,10 @@ public class MemStoreChunkPool implements HeapMemoryTuneObserver {
         }
       }
     }
+    if (chunk != null) {
+      chunk.fromPool = true;
+      inUseChunkCount.incrementAndGet();
+    }
     return chunk;
   }
 
@@ -131,11 +158,9 @@ public class MemStoreChunkPool implements HeapMemoryTuneObserver {
    * @param chunks
    */
   synchronized void putbackChunks(BlockingQueue<Chunk> chunks) {
-    int toAdd = Math.min(chunks.size(), this.maxCount - reclaimedChunks.size());
     Chunk chunk = null;
-    while ((chunk = chunks.poll()) != null && toAdd > 0) {
-      reclaimedChunks.add(chunk);
-      toAdd--;
+    while ((chunk = chunks.poll()) != null) {
+      putbackChunk(chunk);
     }
   }
 
@@ -146,10 +171,106 @@ public class MemStoreChunkPool implements HeapMemoryTuneObserver {
    */
   synchronized void putbackChunk(Chunk chunk) {
     if (reclaimedChunks.size() < this.maxCount) {
+      if (chunk.fromPool) {
+        returnChunk(chunk);
+      }
       reclaimedChunks.add(chunk);
+    } else {
+      releaseChunk(chunk);
     }
   }
 
+  /**
+   * Stops counting a chunk handed out by this pool that is dropped rather than put back. Its
+   * capacity can be created again.
+   */
+  private void releaseChunk(Chunk chunk) {
+    if (chunk.fromPool) {
+      returnChunk(chunk);
+      chunk.fromPool = false;
+      chunkCount.decrementAndGet();
+    }
+  }
+
+  private void returnChunk(Chunk chunk) {
+    inUseBytes.add(-Math.max(0, chunk.getNextFreeOffset()));
+    inUseChunkCount.decrementAndGet();
+  }
+
+  /**
+   * Records an allocation out of a chunk handed out by this pool.
+   * @param size the bytes allocated
+   */
+  void recordAllocation(int size) {
+    inUseBytes.add(size);
+  }
+
+  /**
+   * Makes a chunk for a MemStoreLAB when this pool has none to give. The chunk is never pooled.
+   * It is off heap if the pool is, as long as fewer than the max overflow count of off heap ones
+   * are in use, and on heap otherwise.
+   * @return an uninitialized chunk, to be given to {@link #releaseOverflowChunk(Chunk)} once the
+   *         MemStoreLAB is done with it
+   */
+  Chunk makeOverflowChunk() {
+    overflowChunkCount.incrementAndGet();
+    if (this.offheap) {
+      while (true) {
+        long made = offheapOverflowChunkCount.get();
+        if (made >= maxOffheapOverflowCount) {
+          break;
+        }
+        if (offheapOverflowChunkCount.compareAndSet(made, made + 1)) {
+          return new OffheapChunk(this.chunkSize);
+        }
+      }
+    }
+    return new OnheapChunk(this.chunkSize);
+  }
+
+  /**
+   * Stops counting a chunk from {@link #makeOverflowChunk()} against the max overflow count.
+   */
+  void releaseOverflowChunk(Chunk chunk) {
+    if (chunk instanceof OffheapChunk) {
+      offheapOverflowChunkCount.decrementAndGet();
+    }
+  }
+
+  /**
+   * @return the number of chunks handed out and not yet put back
+   */
+  long getInUseChunkCount() {
+    return inUseChunkCount.get();
+  }
+
+  /**
+   * @return the number of chunks made outside of the pool because it was exhausted
+   */
+  long getOverflowChunkCount() {
+    return overflowChunkCount.get();
+  }
+
+  /**
+   * @return the number of off heap chunks made outside of the pool and still in use
+   */
+  long getOffheapOverflowChunkCount() {
+    return offheapOverflowChunkCount.get();
+  }
+
+  /**
+   * @return the fraction, between 0 and 1, of the memory of the chunks in use that holds no cell
+   *         data, i.e. the unused tails of retired chunks and the free space of current ones
+   */
+  float getFragmentation() {
+    long inUse = inUseChunkCount.get();
+    if (inUse <= 0) {
+      return 0;
+    }
+    float used = (float) inUseBytes.sum() / ((float) inUse * chunkSize);
+    return Math.max(0, Math.min(1, 1 - used));
+  }
+
   int getPoolSize() {
     return this.reclaimedChunks.size();
   }
@@ -181,7 +302,11 @@ public class MemStoreChunkPool implements HeapMemoryTuneObserver {
           + ",created chunk count=" + created
           + ",reused chunk count=" + reused
           + ",reuseRatio=" + (total == 0 ? "0" : StringUtils.formatPercent(
-              (float) reused / (float) total, 2)));
+              (float) reused / (float) total, 2))
+          + ",in use chunk count=" + inUseChunkCount.get()
+          + ",fragmentation=" + StringUtils.formatPercent(getFragmentation(), 2)
+          + ",overflow chunk count=" + overflowChunkCount.get()
+          + ",off heap overflow chunks in use=" + offheapOverflowChunkCount.get());
     }
   }
 
@@ -191,7 +316,8 @@ public class MemStoreChunkPool implements HeapMemoryTuneObserver {
   @edu.umd.cs.findbugs.annotations.SuppressWarnings(value = "LI_LAZY_INIT_STATIC",
       justification = "Method is called by single thread at the starting of RS")
   static MemStoreChunkPool initialize(long globalMemStoreSize, float poolSizePercentage,
-      float initialCountPercentage, int chunkSize, boolean offheap) {
+      float initialCountPercentage, int chunkSize, boolean offheap,
+      float offheapOverflowPercentage) {
     if (GLOBAL_INSTANCE != null) return GLOBAL_INSTANCE;
     if (chunkPoolDisabled) return null;
 
@@ -209,10 +335,16 @@ public class MemStoreChunkPool implements HeapMemoryTuneObserver {
           MemStoreLAB.CHUNK_POOL_INITIALSIZE_KEY + " must be between 0.0 and 1.0");
     }
     int initialCount = (int) (initialCountPercentage * maxCount);
+    if (offheapOverflowPercentage < 0) {
+      throw new IllegalArgumentException(
+          MemStoreLAB.CHUNK_POOL_OFFHEAP_OVERFLOW_KEY + " must not be negative");
+    }
+    int maxOffheapOverflowCount = offheap ? (int) (offheapOverflowPercentage * maxCount) : 0;
     LOG.info("Allocating MemStoreChunkPool with chunk size " + StringUtils.byteDesc(chunkSize)
-        + ", max count " + maxCount + ", initial count " + initialCount);
+        + ", max count " + maxCount + ", initial count " + initialCount
+        + (offheap ? ", max off heap overflow count " + maxOffheapOverflowCount : ""));
     GLOBAL_INSTANCE = new MemStoreChunkPool(chunkSize, maxCount, initialCount, poolSizePercentage,
-        offheap);
+        offheap, maxOffheapOverflowCount);
     return GLOBAL_INSTANCE;
   }
 
@@ -255,7 +387,9 @@ public class MemStoreChunkPool implements HeapMemoryTuneObserver {
         if (this.reclaimedChunks.size() > newMaxCount) {
           synchronized (this) {
             while (this.reclaimedChunks.size() > newMaxCount) {
-              this.reclaimedChunks.poll();
+              if (this.reclaimedChunks.poll() != null) {
+                this.chunkCount.decrementAndGet();
+              }
             }
           }
         }
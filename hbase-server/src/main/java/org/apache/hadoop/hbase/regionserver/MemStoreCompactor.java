@@ -159,7 +159,8 @@ public class MemStoreCompactor {
     }
 
     // compaction shouldn't happen or doesn't worth it
-    // limit the number of the segments in the pipeline
+    // limit the number of the segments in the pipeline, also for segments of appended cells,
+    // which are otherwise only flattened
     int numOfSegments = versionedList.getNumOfSegments();
     if (numOfSegments > THRESHOLD_PIPELINE_SEGMENTS) {
       LOG.debug("In-Memory Compaction Pipeline for store " + compactingMemStore.getFamilyName()
@@ -197,13 +198,13 @@ public class MemStoreCompactor {
       // Create one segment representing all segments in the compaction pipeline,
       // either by compaction or by merge
       if (!isInterrupted.get()) {
-        result = createSubstitution();
+        result = createSubstitution(nextStep);
       }
 
       // Substitute the pipeline with one segment
       if (!isInterrupted.get()) {
         if (resultSwapped = compactingMemStore.swapCompactedSegments(
-            versionedList, result, (action==Action.MERGE))) {
+            versionedList, result, (nextStep==Action.MERGE))) {
           // update the wal so it can be truncated and not get too long
           compactingMemStore.updateLowestUnflushedSequenceIdInWAL(true); // only if greater
         }
@@ -231,12 +232,12 @@ public class MemStoreCompactor {
    * Creation of the ImmutableSegment either by merge or copy-compact of the segments of the
    * pipeline, based on the Compactor Iterator. The new ImmutableSegment is returned.
    */
-  private ImmutableSegment createSubstitution() throws IOException {
+  private ImmutableSegment createSubstitution(Action nextStep) throws IOException {
 
     ImmutableSegment result = null;
     MemStoreSegmentsIterator iterator = null;
 
-    switch (action) {
+    switch (nextStep) {
     case COMPACT:
       iterator =
           new MemStoreCompactorSegmentsIterator(versionedList.getStoreSegments(),
@@ -260,7 +261,7 @@ public class MemStoreCompactor {
           versionedList.getStoreSegments());
       iterator.close();
       break;
-    default: throw new RuntimeException("Unknown action " + action); // sanity check
+    default: throw new RuntimeException("Unknown action " + nextStep); // sanity check
     }
 
     return result;
@@ -279,6 +280,8 @@ public class MemStoreCompactor {
       break;
     case EAGER: action = Action.COMPACT;
       break;
+    case APPEND: action = Action.FLATTEN;
+      break;
     default:
       throw new RuntimeException("Unknown memstore type " + compType); // sanity check
     }
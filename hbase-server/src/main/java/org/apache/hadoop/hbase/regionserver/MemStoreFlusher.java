@@ -127,10 +127,13 @@ class MemStoreFlusher implements FlushRequester {
    * The memstore across all regions has exceeded the low water mark. Pick
    * one region to flush and flush it synchronously (this is called from the
    * flush thread)
+   * @param type the water mark that was breached
    * @return true if successful
    */
-  private boolean flushOneForGlobalPressure() {
-    SortedMap<Long, Region> regionsBySize = server.getCopyOfOnlineRegionsSortedBySize();
+  private boolean flushOneForGlobalPressure(FlushType type) {
+    SortedMap<Long, Region> regionsBySize = type == FlushType.ABOVE_ONHEAP_LOWER_MARK
+        ? server.getCopyOfOnlineRegionsSortedByReclaimableHeap()
+        : server.getCopyOfOnlineRegionsSortedBySize();
     Set<Region> excludedRegions = new HashSet<Region>();
 
     double secondaryMultiplier
@@ -236,11 +239,10 @@ class MemStoreFlusher implements FlushRequester {
               LOG.debug("Flush thread woke up because memory above low water="
                   + TraditionalBinaryPrefix.long2String(
                     server.getRegionServerAccounting().getGlobalMemstoreLimitLowMark(), "", 1));
-              // For offheap memstore, even if the lower water mark was breached due to heap overhead
-              // we still select the regions based on the region's memstore data size.
-              // TODO : If we want to decide based on heap over head it can be done without tracking
-              // it per region.
-              if (!flushOneForGlobalPressure()) {
+              // When the lower water mark was breached on heap, select the regions based on the
+              // heap their memstores would give back, so regions of tiny cells, whose heap overhead
+              // dwarfs their data, are not passed over.
+              if (!flushOneForGlobalPressure(type)) {
                 // Wasn't able to flush any region, but we're above low water mark
                 // This is unlikely to happen, but might happen when closing the
                 // entire server - another thread is flushing regions. We'll just
@@ -61,6 +61,12 @@ public interface MemStoreLAB {
   String CHUNK_POOL_INITIALSIZE_KEY = "hbase.hregion.memstore.chunkpool.initialsize";
   float POOL_MAX_SIZE_DEFAULT = 1.0f;
   float POOL_INITIAL_SIZE_DEFAULT = 0.0f;
+  /**
+   * How many off heap chunks, as a fraction of the max count of an off heap pool, MemStoreLABs may
+   * make on their own once the pool is exhausted. Beyond that they make on heap chunks.
+   */
+  String CHUNK_POOL_OFFHEAP_OVERFLOW_KEY = "hbase.hregion.memstore.chunkpool.offheap.overflow";
+  float POOL_OFFHEAP_OVERFLOW_DEFAULT = 0.1f;
 
   /**
    * Allocates slice in this LAB and copy the passed Cell into this area. Returns new Cell instance
@@ -56,9 +56,10 @@ import com.google.common.base.Preconditions;
  * Bytes.toLong/Bytes.toInt calls in KeyValue, but some of those are cached
  * anyway.
  * The chunks created by this MemStoreLAB can get pooled at {@link MemStoreChunkPool}.
- * When the Chunk comes pool, it can be either an on heap or an off heap backed chunk. The chunks,
- * which this MemStoreLAB creates on its own (when no chunk available from pool), those will be
- * always on heap backed.
+ * When the Chunk comes pool, it can be either an on heap or an off heap backed chunk. The chunks
+ * this MemStoreLAB uses when no chunk is available from the pool come from
+ * {@link MemStoreChunkPool#makeOverflowChunk()}, which keeps an off heap memstore off heap while
+ * it bounds the direct memory of such chunks. They are released along with the pooled chunks.
  */
 @InterfaceAudience.Private
 public class MemStoreLABImpl implements MemStoreLAB {
@@ -71,6 +72,8 @@ public class MemStoreLABImpl implements MemStoreLAB {
   // as FIFO order is not so important here
   @VisibleForTesting
   BlockingQueue<Chunk> pooledChunkQueue = null;
+  // The chunks made by the pool when it was exhausted, released with the pooled ones
+  private BlockingQueue<Chunk> overflowChunkQueue = null;
   private final int chunkSize;
   private final int maxAlloc;
   private final MemStoreChunkPool chunkPool;
@@ -98,6 +101,7 @@ public class MemStoreLABImpl implements MemStoreLAB {
       // set queue length to chunk pool max count to avoid keeping reference of
       // too many non-reclaimable chunks
       pooledChunkQueue = new LinkedBlockingQueue<>(chunkPool.getMaxCount());
+      overflowChunkQueue = new LinkedBlockingQueue<>();
     }
 
     // if we don't exclude allocations >CHUNK_SIZE, we'd infiniteloop on one!
@@ -130,6 +134,9 @@ public class MemStoreLABImpl implements MemStoreLAB {
       // try to retire this chunk
       tryRetireChunk(c);
     }
+    if (c.fromPool) {
+      chunkPool.recordAllocation(size);
+    }
     return CellUtil.copyCellTo(cell, c.getData(), allocOffset, size);
   }
 
@@ -144,7 +151,15 @@ public class MemStoreLABImpl implements MemStoreLAB {
     // opening scanner which will read their data
     if (chunkPool != null && openScannerCount.get() == 0
         && reclaimed.compareAndSet(false, true)) {
-      chunkPool.putbackChunks(this.pooledChunkQueue);
+      reclaimChunks();
+    }
+  }
+
+  private void reclaimChunks() {
+    chunkPool.putbackChunks(this.pooledChunkQueue);
+    Chunk chunk;
+    while ((chunk = this.overflowChunkQueue.poll()) != null) {
+      chunkPool.releaseOverflowChunk(chunk);
     }
   }
 
@@ -164,7 +179,7 @@ public class MemStoreLABImpl implements MemStoreLAB {
     int count = this.openScannerCount.decrementAndGet();
     if (this.closed && chunkPool != null && count == 0
         && reclaimed.compareAndSet(false, true)) {
-      chunkPool.putbackChunks(this.pooledChunkQueue);
+      reclaimChunks();
     }
   }
 
@@ -205,26 +220,39 @@ public class MemStoreLABImpl implements MemStoreLAB {
       }
       boolean pooledChunk = false;
       if (c != null) {
-        // This is chunk from pool
-        pooledChunk = true;
-      } else {
-        c = new OnheapChunk(chunkSize);// When chunk is not from pool, always make it as on heap.
+        // This is chunk from pool. Queue it before using it, so that a chunk in use always goes
+        // back to the pool with the others of this MemStoreLAB.
+        if (!this.closed && this.pooledChunkQueue.offer(c)) {
+          pooledChunk = true;
+        } else {
+          if (LOG.isTraceEnabled()) {
+            LOG.trace("Chunk queue is full, won't reuse this new chunk. Current queue size: "
+                + pooledChunkQueue.size());
+          }
+          chunkPool.putbackChunk(c);
+          c = null;
+        }
+      }
+      if (c == null) {
+        c = chunkPool != null ? chunkPool.makeOverflowChunk() : new OnheapChunk(chunkSize);
       }
       if (curChunk.compareAndSet(null, c)) {
         // we won race - now we need to actually do the expensive
         // allocation step
         c.init();
-        if (pooledChunk) {
-          if (!this.closed && !this.pooledChunkQueue.offer(c)) {
-            if (LOG.isTraceEnabled()) {
-              LOG.trace("Chunk queue is full, won't reuse this new chunk. Current queue size: "
-                  + pooledChunkQueue.size());
-            }
+        if (!pooledChunk && chunkPool != null) {
+          this.overflowChunkQueue.add(c);
+          if (this.reclaimed.get() && this.overflowChunkQueue.remove(c)) {
+            // Made after the chunks were reclaimed, nothing else would release it.
+            chunkPool.releaseOverflowChunk(c);
           }
         }
         return c;
       } else if (pooledChunk) {
+        this.pooledChunkQueue.remove(c);
         chunkPool.putbackChunk(c);
+      } else if (chunkPool != null) {
+        chunkPool.releaseOverflowChunk(c);
       }
       // someone else won race - that's fine, we'll try to grab theirs
       // in the next iteration of the loop.
@@ -33,6 +33,7 @@ public class MemStoreSnapshot {
   private final TimeRangeTracker timeRangeTracker;
   private final KeyValueScanner scanner;
   private final boolean tagsPresent;
+  private final ImmutableSegment segment;
 
   public MemStoreSnapshot(long id, ImmutableSegment snapshot) {
     this.id = id;
@@ -42,6 +43,7 @@ public class MemStoreSnapshot {
     this.timeRangeTracker = snapshot.getTimeRangeTracker();
     this.scanner = snapshot.getSnapshotScanner();
     this.tagsPresent = snapshot.isTagsPresent();
+    this.segment = snapshot;
   }
 
   /**
@@ -83,6 +85,14 @@ public class MemStoreSnapshot {
     return this.scanner;
   }
 
+  /**
+   * @return a new {@link KeyValueScanner} over the whole snapshot, independent of the one returned
+   *         by {@link #getScanner()}. The caller has to close it.
+   */
+  public KeyValueScanner createScanner() {
+    return this.segment.getSnapshotScanner();
+  }
+
   /**
    * @return true if tags are present in this snapshot
    */
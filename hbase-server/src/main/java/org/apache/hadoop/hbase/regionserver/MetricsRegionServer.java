@@ -118,6 +118,10 @@ public class MetricsRegionServer {
     serverSource.updateScanTime(t);
   }
 
+  public void updateStoreFilesReadPerGet(long storeFiles) {
+    serverSource.updateStoreFilesReadPerGet(storeFiles);
+  }
+
   public void updateSplitTime(long t) {
     serverSource.updateSplitTime(t);
   }
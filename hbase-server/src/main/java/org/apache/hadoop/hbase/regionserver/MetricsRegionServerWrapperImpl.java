@@ -35,6 +35,7 @@ import org.apache.hadoop.hbase.classification.InterfaceAudience;
 import org.apache.hadoop.hbase.io.hfile.BlockCache;
 import org.apache.hadoop.hbase.io.hfile.CacheConfig;
 import org.apache.hadoop.hbase.io.hfile.CacheStats;
+import org.apache.hadoop.hbase.io.hfile.IndexBlockTierCache;
 import org.apache.hadoop.hbase.mob.MobCacheConfig;
 import org.apache.hadoop.hbase.mob.MobFileCache;
 import org.apache.hadoop.hbase.regionserver.wal.MetricsWALSource;
@@ -58,6 +59,7 @@ class MetricsRegionServerWrapperImpl
   private final MetricsWALSource metricsWALSource;
 
   private BlockCache blockCache;
+  private BlockCache indexTier;
   private MobFileCache mobFileCache;
 
   private volatile long numStores = 0;
@@ -155,6 +157,10 @@ class MetricsRegionServerWrapperImpl
     if (this.blockCache != null && this.cacheStats == null) {
       this.cacheStats = blockCache.getStats();
     }
+
+    if (this.blockCache instanceof IndexBlockTierCache && this.indexTier == null) {
+      this.indexTier = ((IndexBlockTierCache) this.blockCache).getIndexTier();
+    }
   }
 
   /**
@@ -368,6 +374,54 @@ class MetricsRegionServerWrapperImpl
     return this.cacheStats.getFailedInserts();
   }
 
+  @Override
+  public long getBlockCacheIndexTierSize() {
+    if (this.indexTier == null) {
+      return 0;
+    }
+    return this.indexTier.getCurrentSize();
+  }
+
+  @Override
+  public long getBlockCacheIndexTierFreeSize() {
+    if (this.indexTier == null) {
+      return 0;
+    }
+    return this.indexTier.getFreeSize();
+  }
+
+  @Override
+  public long getBlockCacheIndexTierCount() {
+    if (this.indexTier == null) {
+      return 0;
+    }
+    return this.indexTier.getBlockCount();
+  }
+
+  @Override
+  public long getBlockCacheIndexTierHitCount() {
+    if (this.indexTier == null) {
+      return 0;
+    }
+    return this.indexTier.getStats().getHitCount();
+  }
+
+  @Override
+  public long getBlockCacheIndexTierMissCount() {
+    if (this.indexTier == null) {
+      return 0;
+    }
+    return this.indexTier.getStats().getMissCount();
+  }
+
+  @Override
+  public long getBlockCacheIndexTierEvictedCount() {
+    if (this.indexTier == null) {
+      return 0;
+    }
+    return this.indexTier.getStats().getEvictedCount();
+  }
+
   @Override public void forceRecompute() {
     this.runnable.run();
   }
@@ -422,6 +476,24 @@ class MetricsRegionServerWrapperImpl
     return memstoreSize;
   }
 
+  @Override
+  public long getMemStoreChunksInUse() {
+    MemStoreChunkPool pool = MemStoreChunkPool.getPool();
+    return pool == null ? 0 : pool.getInUseChunkCount();
+  }
+
+  @Override
+  public double getMemStoreChunkFragmentationPercent() {
+    MemStoreChunkPool pool = MemStoreChunkPool.getPool();
+    return pool == null ? 0 : pool.getFragmentation() * 100;
+  }
+
+  @Override
+  public long getMemStoreOverflowChunkCount() {
+    MemStoreChunkPool pool = MemStoreChunkPool.getPool();
+    return pool == null ? 0 : pool.getOverflowChunkCount();
+  }
+
   @Override
   public long getStoreFileSize() {
     return storeFileSize;
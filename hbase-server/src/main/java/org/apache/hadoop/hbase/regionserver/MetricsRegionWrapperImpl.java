@@ -52,6 +52,9 @@ public class MetricsRegionWrapperImpl implements MetricsRegionWrapper, Closeable
   private long minStoreFileAge;
   private long avgStoreFileAge;
   private long numReferenceFiles;
+  private double storeFilesReadPerGet;
+  private double blocksReadPerScanRow;
+  private double compactionWriteAmplification;
 
   private ScheduledFuture<?> regionMetricsUpdateTask;
 
@@ -182,6 +185,21 @@ public class MetricsRegionWrapperImpl implements MetricsRegionWrapper, Closeable
     return numReferenceFiles;
   }
 
+  @Override
+  public double getStoreFilesReadPerGet() {
+    return storeFilesReadPerGet;
+  }
+
+  @Override
+  public double getBlocksReadPerScanRow() {
+    return blocksReadPerScanRow;
+  }
+
+  @Override
+  public double getCompactionWriteAmplification() {
+    return compactionWriteAmplification;
+  }
+
   @Override
   public int getRegionHashCode() {
     return this.region.hashCode();
@@ -197,6 +215,12 @@ public class MetricsRegionWrapperImpl implements MetricsRegionWrapper, Closeable
       long tempMaxStoreFileAge = 0;
       long tempMinStoreFileAge = Long.MAX_VALUE;
       long tempNumReferenceFiles = 0;
+      long tempGets = 0;
+      long tempGetStoreFilesRead = 0;
+      long tempScanRows = 0;
+      long tempScanBlocksRead = 0;
+      long tempFlushedOutputFileSize = 0;
+      long tempCompactedOutputFileSize = 0;
 
       long avgAgeNumerator = 0;
       long numHFiles = 0;
@@ -218,6 +242,13 @@ public class MetricsRegionWrapperImpl implements MetricsRegionWrapper, Closeable
           avgAgeNumerator += store.getAvgStoreFileAge() * storeHFiles;
           numHFiles += storeHFiles;
           tempNumReferenceFiles += store.getNumReferenceFiles();
+
+          tempGets += store.getGetCount();
+          tempGetStoreFilesRead += store.getGetStoreFilesReadCount();
+          tempScanRows += store.getScanRowCount();
+          tempScanBlocksRead += store.getScanBlocksReadCount();
+          tempFlushedOutputFileSize += store.getFlushedOutputFileSize();
+          tempCompactedOutputFileSize += store.getCompactedOutputFileSize();
         }
       }
 
@@ -234,6 +265,10 @@ public class MetricsRegionWrapperImpl implements MetricsRegionWrapper, Closeable
       }
 
       numReferenceFiles = tempNumReferenceFiles;
+      storeFilesReadPerGet = StoreAmplificationTracker.ratio(tempGetStoreFilesRead, tempGets);
+      blocksReadPerScanRow = StoreAmplificationTracker.ratio(tempScanBlocksRead, tempScanRows);
+      compactionWriteAmplification = StoreAmplificationTracker.writeAmplification(
+        tempFlushedOutputFileSize, tempCompactedOutputFileSize);
     }
   }
 
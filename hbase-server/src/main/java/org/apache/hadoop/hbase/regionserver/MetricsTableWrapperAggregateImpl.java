@@ -21,6 +21,7 @@ package org.apache.hadoop.hbase.regionserver;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -32,6 +33,8 @@ import org.apache.hadoop.hbase.CompatibilitySingletonFactory;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.io.hfile.BlockCache;
+import org.apache.hadoop.hbase.io.hfile.IndexBlockTierCache;
 import org.apache.hadoop.metrics2.MetricsExecutor;
 
 import com.google.common.collect.Sets;
@@ -60,6 +63,9 @@ public class MetricsTableWrapperAggregateImpl implements MetricsTableWrapperAggr
     @Override
     public void run() {
       Map<TableName, MetricsTableValues> localMetricsTableMap = new HashMap<>();
+      Map<String, Long> indexTierSizes = getIndexTierSizeByFile();
+      // A parent hfile may be referenced by both daughters of a split; only count it once.
+      Set<String> countedFiles = new HashSet<>();
 
       for (Region r : regionServer.getOnlineRegionsLocalContext()) {
         TableName tbl= r.getTableDesc().getTableName();
@@ -69,9 +75,21 @@ public class MetricsTableWrapperAggregateImpl implements MetricsTableWrapperAggr
           localMetricsTableMap.put(tbl, metricsTable);
         }
         long tempStorefilesSize = 0;
+        long tempIndexTierCacheSize = 0;
         for (Store store : r.getStores()) {
           tempStorefilesSize += store.getStorefilesSize();
+          if (indexTierSizes != null) {
+            tempIndexTierCacheSize += getIndexTierCacheSize(store, indexTierSizes, countedFiles);
+          }
+          metricsTable.gets += store.getGetCount();
+          metricsTable.getStoreFilesRead += store.getGetStoreFilesReadCount();
+          metricsTable.scanRows += store.getScanRowCount();
+          metricsTable.scanBlocksRead += store.getScanBlocksReadCount();
+          metricsTable.flushedOutputFileSize += store.getFlushedOutputFileSize();
+          metricsTable.compactedOutputFileSize += store.getCompactedOutputFileSize();
         }
+        metricsTable.setIndexTierCacheSize(metricsTable.getIndexTierCacheSize()
+            + tempIndexTierCacheSize);
         metricsTable.setMemstoresSize(metricsTable.getMemstoresSize() + r.getMemstoreSize());
         metricsTable.setStoreFilesSize(metricsTable.getStoreFilesSize() + tempStorefilesSize);
         metricsTable.setTableSize(metricsTable.getMemstoresSize() + metricsTable.getStoreFilesSize());
@@ -105,6 +123,38 @@ public class MetricsTableWrapperAggregateImpl implements MetricsTableWrapperAggr
     }
   }
 
+  /**
+   * @return the bytes cached in the index block tier keyed by hfile name, or null if the block
+   * cache has no index tier
+   */
+  private Map<String, Long> getIndexTierSizeByFile() {
+    if (regionServer.cacheConfig == null) {
+      return null;
+    }
+    BlockCache blockCache = regionServer.cacheConfig.getBlockCache();
+    if (!(blockCache instanceof IndexBlockTierCache)) {
+      return null;
+    }
+    return ((IndexBlockTierCache) blockCache).getIndexTierSizeByFile();
+  }
+
+  private static long getIndexTierCacheSize(Store store, Map<String, Long> indexTierSizes,
+      Set<String> countedFiles) {
+    long size = 0;
+    for (StoreFile sf : store.getStorefiles()) {
+      StoreFileReader reader = sf.getReader();
+      if (reader == null) {
+        continue;
+      }
+      String hfileName = reader.getHFileReader().getName();
+      Long cached = indexTierSizes.get(hfileName);
+      if (cached != null && countedFiles.add(hfileName)) {
+        size += cached;
+      }
+    }
+    return size;
+  }
+
   @Override
   public long getReadRequestsCount(String table) {
     MetricsTableValues metricsTable = metricsTableMap.get(TableName.valueOf(table));
@@ -159,6 +209,43 @@ public class MetricsTableWrapperAggregateImpl implements MetricsTableWrapperAggr
       return metricsTable.getTableSize();
   }
 
+  @Override
+  public long getIndexTierCacheSize(String table) {
+    MetricsTableValues metricsTable = metricsTableMap.get(TableName.valueOf(table));
+    if (metricsTable == null)
+      return 0;
+    else
+      return metricsTable.getIndexTierCacheSize();
+  }
+
+  @Override
+  public double getStoreFilesReadPerGet(String table) {
+    MetricsTableValues metricsTable = metricsTableMap.get(TableName.valueOf(table));
+    if (metricsTable == null)
+      return 0;
+    else
+      return StoreAmplificationTracker.ratio(metricsTable.getStoreFilesRead, metricsTable.gets);
+  }
+
+  @Override
+  public double getBlocksReadPerScanRow(String table) {
+    MetricsTableValues metricsTable = metricsTableMap.get(TableName.valueOf(table));
+    if (metricsTable == null)
+      return 0;
+    else
+      return StoreAmplificationTracker.ratio(metricsTable.scanBlocksRead, metricsTable.scanRows);
+  }
+
+  @Override
+  public double getCompactionWriteAmplification(String table) {
+    MetricsTableValues metricsTable = metricsTableMap.get(TableName.valueOf(table));
+    if (metricsTable == null)
+      return 0;
+    else
+      return StoreAmplificationTracker.writeAmplification(metricsTable.flushedOutputFileSize,
+        metricsTable.compactedOutputFileSize);
+  }
+
   @Override
   public void close() throws IOException {
     tableMetricsUpdateTask.cancel(true);
@@ -172,6 +259,14 @@ public class MetricsTableWrapperAggregateImpl implements MetricsTableWrapperAggr
     private long memstoresSize;
     private long storeFilesSize;
     private long tableSize;
+    private long indexTierCacheSize;
+    // Summed store counters the amplification ratios are computed from
+    private long gets;
+    private long getStoreFilesRead;
+    private long scanRows;
+    private long scanBlocksRead;
+    private long flushedOutputFileSize;
+    private long compactedOutputFileSize;
 
     public long getTotalRequestsCount() {
       return totalRequestsCount;
@@ -220,6 +315,14 @@ public class MetricsTableWrapperAggregateImpl implements MetricsTableWrapperAggr
     public void setTableSize(long tableSize) {
       this.tableSize = tableSize;
     }
+
+    public long getIndexTierCacheSize() {
+      return indexTierCacheSize;
+    }
+
+    public void setIndexTierCacheSize(long indexTierCacheSize) {
+      this.indexTierCacheSize = indexTierCacheSize;
+    }
   }
 
 }
@@ -104,6 +104,18 @@ public class RegionServerAccounting {
     return this.memType == MemoryType.NON_HEAP;
   }
 
+  /**
+   * @param memStoreSize the size of a memstore, or of a part of it
+   * @return the heap a flush of it gives back: its data and heap overhead for an onheap memstore,
+   *         only its heap overhead for an offheap memstore
+   */
+  public long getReclaimableHeapSize(MemstoreSize memStoreSize) {
+    if (isOffheap()) {
+      return memStoreSize.getHeapOverhead();
+    }
+    return memStoreSize.getDataSize() + memStoreSize.getHeapOverhead();
+  }
+
   public long getGlobalMemstoreLimitLowMark() {
     return this.globalMemStoreLimitLowMark;
   }
@@ -36,6 +36,7 @@ import org.apache.hadoop.hbase.executor.ExecutorService;
 import org.apache.hadoop.hbase.ipc.RpcServerInterface;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.RegionServerStatusProtos.RegionStateTransition.TransitionCode;
 import org.apache.hadoop.hbase.quotas.RegionServerQuotaManager;
+import org.apache.hadoop.hbase.regionserver.throttle.ThroughputBudget;
 import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
 import org.apache.hadoop.hbase.wal.WAL;
 import org.apache.zookeeper.KeeperException;
@@ -263,6 +264,12 @@ public interface RegionServerServices extends OnlineRegions, FavoredNodesForRegi
   @Deprecated
   double getFlushPressure();
 
+  /**
+   * @return the budget for the bytes flushes and compactions write together, or null if there is
+   *         none
+   */
+  ThroughputBudget getThroughputBudget();
+
   /**
    * @return the metrics tracker for the region server
    */
@@ -48,11 +48,12 @@ public class ScanInfo {
   private boolean usePread;
   private long cellsPerTimeoutCheck;
   private boolean parallelSeekEnabled;
+  private boolean parallelGetSeekEnabled;
   private final Configuration conf;
 
   public static final long FIXED_OVERHEAD = ClassSize.align(ClassSize.OBJECT
       + (2 * ClassSize.REFERENCE) + (2 * Bytes.SIZEOF_INT)
-      + (4 * Bytes.SIZEOF_LONG) + (3 * Bytes.SIZEOF_BOOLEAN));
+      + (4 * Bytes.SIZEOF_LONG) + (4 * Bytes.SIZEOF_BOOLEAN));
 
   /**
    * @param conf
@@ -99,6 +100,8 @@ public class ScanInfo {
         perHeartbeat: StoreScanner.DEFAULT_HBASE_CELLS_SCANNED_PER_HEARTBEAT_CHECK;
     this.parallelSeekEnabled =
       conf.getBoolean(StoreScanner.STORESCANNER_PARALLEL_SEEK_ENABLE, false);
+    this.parallelGetSeekEnabled = this.parallelSeekEnabled
+        && conf.getBoolean(StoreScanner.STORESCANNER_PARALLEL_GET_SEEK_ENABLE, false);
     this.conf = conf;
   }
 
@@ -122,6 +125,10 @@ public class ScanInfo {
     return this.parallelSeekEnabled;
   }
 
+  boolean isParallelGetSeekEnabled() {
+    return this.parallelGetSeekEnabled;
+  }
+
   public byte[] getFamily() {
     return family;
   }
@@ -85,6 +85,13 @@ public final class SegmentFactory {
     return generateMutableSegment(conf, comparator, memStoreLAB);
   }
 
+  // create mutable segment appending cells that arrive in order to an array
+  public MutableSegment createAppendingMutableSegment(final Configuration conf,
+      CellComparator comparator) {
+    MemStoreLAB memStoreLAB = MemStoreLAB.newInstance(conf);
+    return new AppendingMutableSegment(new AppendingCellSet(comparator), comparator, memStoreLAB);
+  }
+
   // create new flat immutable segment from merging old immutable segments
   public ImmutableSegment createImmutableSegmentByMerge(final Configuration conf,
       final CellComparator comparator, MemStoreSegmentsIterator iterator, int numOfCells,
@@ -71,7 +71,7 @@ public class SnapshotScanner extends SegmentScanner {
 
   @Override
   protected Iterator<Cell> getIterator(Cell cell) {
-    return segment.iterator();
+    return segment.tailSet(cell).iterator();
   }
 
   @Override
@@ -36,6 +36,7 @@ import org.apache.hadoop.hbase.io.HeapSize;
 import org.apache.hadoop.hbase.io.compress.Compression;
 import org.apache.hadoop.hbase.io.hfile.CacheConfig;
 import org.apache.hadoop.hbase.io.hfile.HFileDataBlockEncoder;
+import org.apache.hadoop.hbase.io.hfile.HotKeyRanges;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionContext;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionProgress;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
@@ -219,6 +220,28 @@ public interface Store extends HeapSize, StoreConfigInformation, PropagatingConf
     final TimeRangeTracker trt
   ) throws IOException;
 
+  /**
+   * @param maxKeyCount
+   * @param compression Compression algorithm to use
+   * @param isCompaction whether we are creating a new file in a compaction
+   * @param includeMVCCReadpoint whether we should out the MVCC readpoint
+   * @param shouldDropBehind should the writer drop caches behind writes
+   * @param trt Ready-made timetracker to use.
+   * @param cacheOnWriteKeyRanges key ranges whose data blocks to cache as they are written,
+   *          or null.
+   * @return Writer for a new StoreFile in the tmp dir.
+   */
+  StoreFileWriter createWriterInTmp(
+    long maxKeyCount,
+    Compression.Algorithm compression,
+    boolean isCompaction,
+    boolean includeMVCCReadpoint,
+    boolean includesTags,
+    boolean shouldDropBehind,
+    final TimeRangeTracker trt,
+    HotKeyRanges cacheOnWriteKeyRanges
+  ) throws IOException;
+
   // Compaction oriented methods
 
   boolean throttleCompaction(long compactionSize);
@@ -475,6 +498,31 @@ public interface Store extends HeapSize, StoreConfigInformation, PropagatingConf
    */
   long getMajorCompactedCellsSize();
 
+  /**
+   * @return The total size of the output files of compactions on disk, in bytes
+   */
+  long getCompactedOutputFileSize();
+
+  /**
+   * @return The number of Gets that read this store
+   */
+  long getGetCount();
+
+  /**
+   * @return The number of store files Gets read data blocks from, summed over all Gets
+   */
+  long getGetStoreFilesReadCount();
+
+  /**
+   * @return The number of rows scans walked in this store
+   */
+  long getScanRowCount();
+
+  /**
+   * @return The number of data blocks scans read from the store files
+   */
+  long getScanBlocksReadCount();
+
   /*
    * @param o Observer who wants to know about changes in set of Readers
    */
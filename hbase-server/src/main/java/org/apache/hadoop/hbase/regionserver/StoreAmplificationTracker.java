@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+
+/**
+ * Counts how much work reads and compactions of a store do relative to the data they serve or
+ * take in, i.e. the read and write amplification of the store.
+ * <p>
+ * For reads it counts the store files every Get had to read data blocks from, and the data blocks
+ * scans read per row they walked. A Get whose store files are filtered out by time range, key
+ * range or Bloom filter does not count them. For writes it counts the bytes compactions wrote, so
+ * that together with the bytes flushes wrote the store can tell how many times each flushed byte
+ * was rewritten.
+ * <p>
+ * The counters are cumulative over the life of the store and are exported per region and per
+ * table, see {@link MetricsRegionWrapper} and {@link MetricsTableWrapperAggregate}.
+ */
+@InterfaceAudience.Private
+public class StoreAmplificationTracker {
+
+  private final LongAdder gets = new LongAdder();
+  private final LongAdder getStoreFilesRead = new LongAdder();
+  private final LongAdder scanRows = new LongAdder();
+  private final LongAdder scanBlocksRead = new LongAdder();
+  private final LongAdder compactedOutputBytes = new LongAdder();
+
+  /**
+   * Records a finished Get of the store.
+   * @param storeFilesRead the store files the Get read data blocks from
+   */
+  public void recordGet(long storeFilesRead) {
+    gets.increment();
+    getStoreFilesRead.add(storeFilesRead);
+  }
+
+  /**
+   * Records a finished scan of the store.
+   * @param rows the rows the scan walked in this store
+   * @param blocksRead the data blocks the scan read from the store files
+   */
+  public void recordScan(long rows, long blocksRead) {
+    scanRows.add(rows);
+    scanBlocksRead.add(blocksRead);
+  }
+
+  /**
+   * Records a finished compaction of the store.
+   * @param outputBytes the total size of the files the compaction wrote
+   */
+  public void recordCompaction(long outputBytes) {
+    compactedOutputBytes.add(outputBytes);
+  }
+
+  public long getGetCount() {
+    return gets.sum();
+  }
+
+  public long getGetStoreFilesReadCount() {
+    return getStoreFilesRead.sum();
+  }
+
+  public long getScanRowCount() {
+    return scanRows.sum();
+  }
+
+  public long getScanBlocksReadCount() {
+    return scanBlocksRead.sum();
+  }
+
+  public long getCompactedOutputFileSize() {
+    return compactedOutputBytes.sum();
+  }
+
+  /**
+   * @return numerator / denominator, or 0 if the denominator is 0
+   */
+  public static double ratio(long numerator, long denominator) {
+    return denominator == 0 ? 0 : (double) numerator / denominator;
+  }
+
+  /**
+   * @param flushedBytes the bytes flushes wrote
+   * @param compactedBytes the bytes compactions wrote
+   * @return the bytes written to store files per byte flushed, or 0 if nothing was flushed
+   */
+  public static double writeAmplification(long flushedBytes, long compactedBytes) {
+    return ratio(flushedBytes + compactedBytes, flushedBytes);
+  }
+}
@@ -18,6 +18,7 @@
  */
 package org.apache.hadoop.hbase.regionserver;
 
+import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.classification.InterfaceAudience;
 import org.apache.hadoop.hbase.classification.InterfaceStability;
 
@@ -53,4 +54,9 @@ public interface StoreConfigInformation {
    * The number of files required before flushes for this store will be blocked.
    */
   long getBlockingFileCount();
+
+  /**
+   * @return the column family settings of the store
+   */
+  HColumnDescriptor getFamily();
 }
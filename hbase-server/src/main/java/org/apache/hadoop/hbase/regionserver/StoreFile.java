@@ -85,6 +85,12 @@ public class StoreFile {
   public static final byte[] DELETE_FAMILY_COUNT =
       Bytes.toBytes("DELETE_FAMILY_COUNT");
 
+  /** Count of delete markers of any type in FileInfo */
+  public static final byte[] DELETE_COUNT = Bytes.toBytes("DELETE_COUNT");
+
+  /** Most versions any single column has in the file, in FileInfo */
+  public static final byte[] MAX_VERSIONS_KEY = Bytes.toBytes("MAX_VERSIONS");
+
   /** Last Bloom filter key in FileInfo */
   public static final byte[] LAST_BLOOM_KEY = Bytes.toBytes("LAST_BLOOM_KEY");
 
@@ -97,6 +103,9 @@ public class StoreFile {
   /** Key for the number of mob cells in metadata*/
   public static final byte[] MOB_CELLS_COUNT = Bytes.toBytes("MOB_CELLS_COUNT");
 
+  /** Key for the data block size an adaptively sized compaction chose, in metadata */
+  public static final byte[] DATA_BLOCK_SIZE_KEY = Bytes.toBytes("DATA_BLOCK_SIZE");
+
   private final StoreFileInfo fileInfo;
   private final FileSystem fs;
 
@@ -428,6 +428,14 @@ public class StoreFileScanner implements KeyValueScanner {
     return true;
   }
 
+  /**
+   * @return the number of data blocks this scanner has read, see
+   *         {@link HFileScanner#getDataBlocksRead()}
+   */
+  long getDataBlocksRead() {
+    return hfs.getDataBlocksRead();
+  }
+
   // Test methods
   static final long getSeekCount() {
     return seekCount.sum();
@@ -32,6 +32,7 @@ import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.KeyValueUtil;
 import org.apache.hadoop.hbase.classification.InterfaceAudience;
 import org.apache.hadoop.hbase.fs.HFileSystem;
 import org.apache.hadoop.hbase.io.hfile.CacheConfig;
@@ -62,6 +63,11 @@ public class StoreFileWriter implements CellSink, ShipperListener {
   private final BloomType bloomType;
   private long earliestPutTs = HConstants.LATEST_TIMESTAMP;
   private long deleteFamilyCnt = 0;
+  private long deleteCnt = 0;
+  /** The last put appended, to count the versions of its column */
+  private Cell lastPutCell = null;
+  private int versionsOfLastPut = 0;
+  private int maxVersions = 0;
   private BloomContext bloomContext = null;
   private BloomContext deleteFamilyBloomContext = null;
 
@@ -255,12 +261,33 @@ public class StoreFileWriter implements CellSink, ShipperListener {
     }
   }
 
+  /**
+   * Counts the delete markers and the versions per column, so compactions can tell which files
+   * they would not change, see {@link StoreFile#DELETE_COUNT} and
+   * {@link StoreFile#MAX_VERSIONS_KEY}.
+   */
+  private void trackDeletesAndVersions(final Cell cell) {
+    if (CellUtil.isDelete(cell)) {
+      deleteCnt++;
+      return;
+    }
+    // The versions of a column are adjacent, with only its delete markers between them.
+    if (lastPutCell != null && CellUtil.matchingRowColumn(cell, lastPutCell)) {
+      versionsOfLastPut++;
+    } else {
+      versionsOfLastPut = 1;
+    }
+    maxVersions = Math.max(maxVersions, versionsOfLastPut);
+    lastPutCell = cell;
+  }
+
   @Override
   public void append(final Cell cell) throws IOException {
     appendGeneralBloomfilter(cell);
     appendDeleteFamilyBloomFilter(cell);
     writer.append(cell);
     trackTimestamps(cell);
+    trackDeletesAndVersions(cell);
   }
 
   @Override
@@ -274,6 +301,10 @@ public class StoreFileWriter implements CellSink, ShipperListener {
     if (deleteFamilyBloomFilterWriter != null) {
       deleteFamilyBloomFilterWriter.beforeShipped();
     }
+    if (lastPutCell != null) {
+      // The cell may point into a block that is about to be released.
+      lastPutCell = KeyValueUtil.toNewKeyCell(lastPutCell);
+    }
   }
 
   public Path getPath() {
@@ -326,6 +357,8 @@ public class StoreFileWriter implements CellSink, ShipperListener {
     // even if there is no delete family Bloom.
     writer.appendFileInfo(StoreFile.DELETE_FAMILY_COUNT,
         Bytes.toBytes(this.deleteFamilyCnt));
+    writer.appendFileInfo(StoreFile.DELETE_COUNT, Bytes.toBytes(this.deleteCnt));
+    writer.appendFileInfo(StoreFile.MAX_VERSIONS_KEY, Bytes.toBytes(this.maxVersions));
 
     return hasDeleteFamilyBloom;
   }
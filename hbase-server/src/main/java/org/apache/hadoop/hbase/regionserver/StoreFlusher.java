@@ -23,10 +23,17 @@ import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValueUtil;
 import org.apache.hadoop.hbase.classification.InterfaceAudience;
@@ -34,6 +41,7 @@ import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.monitoring.MonitoredTask;
 import org.apache.hadoop.hbase.regionserver.throttle.ThroughputControlUtil;
 import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
+import org.apache.hadoop.hbase.util.Threads;
 
 /**
  * Store flusher interface. Turns a snapshot of memstore into a set of store files (usually one).
@@ -41,12 +49,35 @@ import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
  */
 @InterfaceAudience.Private
 abstract class StoreFlusher {
+  private static final Log LOG = LogFactory.getLog(StoreFlusher.class);
+
+  /**
+   * The maximum number of files a single flush of a store writes concurrently. A large snapshot
+   * is split into key ranges of about the same number of cells, and each range is written to its
+   * own files by its own thread. 1 disables parallel flushes.
+   */
+  public static final String PARALLEL_FLUSH_WRITERS_KEY = "hbase.hstore.flush.parallel.writers";
+  public static final int DEFAULT_PARALLEL_FLUSH_WRITERS = 1;
+
+  /**
+   * The minimum data size of each key range of a parallel flush; snapshots smaller than twice
+   * this are flushed by a single writer.
+   */
+  public static final String PARALLEL_FLUSH_PART_SIZE_KEY = "hbase.hstore.flush.parallel.part.size";
+  public static final long DEFAULT_PARALLEL_FLUSH_PART_SIZE = 128L * 1024 * 1024;
+
   protected Configuration conf;
   protected Store store;
+  private final int parallelFlushWriters;
+  private final long parallelFlushPartSize;
 
   public StoreFlusher(Configuration conf, Store store) {
     this.conf = conf;
     this.store = store;
+    this.parallelFlushWriters = conf.getInt(PARALLEL_FLUSH_WRITERS_KEY,
+      DEFAULT_PARALLEL_FLUSH_WRITERS);
+    this.parallelFlushPartSize = Math.max(1, conf.getLong(PARALLEL_FLUSH_PART_SIZE_KEY,
+      DEFAULT_PARALLEL_FLUSH_PART_SIZE));
   }
 
   /**
@@ -113,6 +144,20 @@ abstract class StoreFlusher {
    */
   protected void performFlush(InternalScanner scanner, CellSink sink,
       long smallestReadPoint, ThroughputController throughputController) throws IOException {
+    performFlush(scanner, sink, smallestReadPoint, throughputController, null);
+  }
+
+  /**
+   * Performs memstore flush, writing data from scanner into sink up to a stop row.
+   * @param scanner Scanner to get data from.
+   * @param sink Sink to write data to. Could be StoreFile.Writer.
+   * @param smallestReadPoint Smallest read point used for the flush.
+   * @param throughputController A controller to avoid flush too fast
+   * @param stopRow The row to stop at, exclusive; null to write all the data of the scanner.
+   */
+  protected void performFlush(InternalScanner scanner, CellSink sink,
+      long smallestReadPoint, ThroughputController throughputController, byte[] stopRow)
+      throws IOException {
     int compactionKVMax =
       conf.getInt(HConstants.COMPACTION_KV_MAX, HConstants.COMPACTION_KV_MAX_DEFAULT);
 
@@ -132,6 +177,11 @@ abstract class StoreFlusher {
         hasMore = scanner.next(kvs, scannerContext);
         if (!kvs.isEmpty()) {
           for (Cell c : kvs) {
+            if (stopRow != null
+                && store.getComparator().compareRows(c, stopRow, 0, stopRow.length) >= 0) {
+              hasMore = false;
+              break;
+            }
             // If we know that this KV is going to be included always, then let us
             // set its memstoreTS to 0. This will help us save space when writing to
             // disk.
@@ -153,4 +203,125 @@ abstract class StoreFlusher {
       }
     }
   }
+
+  /**
+   * Chooses the rows at which a snapshot is split for a parallel flush, see
+   * {@link #PARALLEL_FLUSH_WRITERS_KEY}. The snapshot is split into as many parts as there are
+   * writers, as long as each part holds at least {@link #PARALLEL_FLUSH_PART_SIZE_KEY} bytes. The
+   * split rows are found by walking the cells of the snapshot, so the parts hold about the same
+   * number of cells and no row is split between parts.
+   * <p>
+   * Coprocessors see a flush as a single scanner, so snapshots of stores with coprocessors are
+   * never split.
+   * @return the split rows in ascending order; empty if the snapshot should not be split
+   */
+  protected List<byte[]> getParallelFlushSplitRows(MemStoreSnapshot snapshot)
+      throws IOException {
+    long parts = Math.min(parallelFlushWriters, snapshot.getDataSize() / parallelFlushPartSize);
+    if (parts < 2 || (store.getCoprocessorHost() != null
+        && !store.getCoprocessorHost().getCoprocessors().isEmpty())) {
+      return Collections.emptyList();
+    }
+    long cellsPerPart = snapshot.getCellsCount() / parts;
+    List<byte[]> splitRows = new ArrayList<byte[]>((int) parts - 1);
+    KeyValueScanner scanner = snapshot.createScanner();
+    try {
+      long cells = 0;
+      Cell previous = null;
+      for (Cell cell = scanner.next(); cell != null; cell = scanner.next()) {
+        if (cells >= cellsPerPart * (splitRows.size() + 1) && previous != null
+            && !CellUtil.matchingRows(previous, cell)) {
+          splitRows.add(CellUtil.cloneRow(cell));
+          if (splitRows.size() == parts - 1) {
+            break;
+          }
+        }
+        previous = cell;
+        cells++;
+      }
+    } finally {
+      scanner.close();
+    }
+    return splitRows;
+  }
+
+  /** Writes the cells of one key range of a parallel flush to new files. */
+  protected interface FlushRangeWriter {
+    /**
+     * @param range the index of the key range
+     * @param scanner the flush scanner, positioned at the start of the range
+     * @param stopRow the end of the range, exclusive; null for the last range
+     * @return the files written, closed and ready to be committed
+     */
+    List<Path> write(int range, InternalScanner scanner, byte[] stopRow) throws IOException;
+  }
+
+  /**
+   * Flushes the key ranges of a snapshot concurrently, each by its own thread and writer.
+   * If any range fails the files written for the other ranges are deleted.
+   * @param snapshot the memstore snapshot
+   * @param startRows the first row of every range; the first range has to start with an empty row
+   * @param smallestReadPoint smallest read point used for the flush
+   * @param rangeWriter writes the files of a range
+   * @return the files of all the ranges, in key order
+   */
+  protected List<Path> performParallelFlush(final MemStoreSnapshot snapshot,
+      final List<byte[]> startRows, final long smallestReadPoint,
+      final FlushRangeWriter rangeWriter) throws IOException {
+    ThreadPoolExecutor pool = Threads.getBoundedCachedThreadPool(startRows.size(), 30L,
+      TimeUnit.SECONDS, Threads.newDaemonThreadFactory("StoreFlusher-"
+        + store.getRegionInfo().getEncodedName() + "-" + store.getColumnFamilyName()));
+    List<Future<List<Path>>> futures = new ArrayList<Future<List<Path>>>(startRows.size());
+    // Every range reads its own scanner, so the flush can be retried after a failed range
+    // without the consumed shared scanner of the snapshot.
+    snapshot.getScanner().close();
+    try {
+      for (int i = 0; i < startRows.size(); i++) {
+        final int range = i;
+        final byte[] startRow = startRows.get(i);
+        final byte[] stopRow = i + 1 < startRows.size() ? startRows.get(i + 1) : null;
+        futures.add(pool.submit(() -> {
+          KeyValueScanner snapshotScanner = snapshot.createScanner();
+          InternalScanner scanner = createScanner(snapshotScanner, smallestReadPoint);
+          try {
+            if (startRow.length > 0) {
+              ((StoreScanner) scanner).seek(KeyValueUtil.createFirstOnRow(startRow));
+            }
+            return rangeWriter.write(range, scanner, stopRow);
+          } finally {
+            scanner.close();
+          }
+        }));
+      }
+    } finally {
+      pool.shutdown();
+    }
+    List<Path> result = new ArrayList<Path>();
+    IOException failure = null;
+    for (Future<List<Path>> future : futures) {
+      try {
+        result.addAll(future.get());
+      } catch (InterruptedException e) {
+        if (failure == null) {
+          failure = (InterruptedIOException) new InterruptedIOException().initCause(e);
+        }
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          Throwable cause = e.getCause();
+          failure = cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+      }
+    }
+    if (failure != null) {
+      for (Path path : result) {
+        try {
+          store.getFileSystem().delete(path, false);
+        } catch (IOException e) {
+          LOG.error("Failed to delete " + path + " after failed flush", e);
+        }
+      }
+      throw failure;
+    }
+    return result;
+  }
 }
@@ -81,6 +81,10 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
    * A flag that enables StoreFileScanner parallel-seeking
    */
   protected boolean parallelSeekEnabled = false;
+  /**
+   * A flag that enables enforcing the lazy seeks of a Get in parallel
+   */
+  protected boolean parallelGetSeekEnabled = false;
   protected ExecutorService executor;
   protected final Scan scan;
   protected final NavigableSet<byte[]> columns;
@@ -99,6 +103,10 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
    * KVs skipped via seeking to next row/column. TODO: estimate them?
    */
   private long kvsScanned = 0;
+  /** The rows started, store files read from and data blocks read, for read amplification */
+  private long rowsScanned = 0;
+  private long storeFilesRead = 0;
+  private long dataBlocksRead = 0;
   private Cell prevCell = null;
 
   /** We don't ever expect to change this, the constant is just for clarity. */
@@ -106,6 +114,15 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
   public static final String STORESCANNER_PARALLEL_SEEK_ENABLE =
       "hbase.storescanner.parallel.seek.enable";
 
+  /**
+   * If parallel seeking is enabled, also seek the store files of a Get in parallel. Gets that
+   * name columns are normally lazily seeked, with each store file read only once it bubbles up
+   * to the top of the heap; with this enabled the real seeks of all store files that pass the
+   * bloom filters are issued concurrently instead.
+   */
+  public static final String STORESCANNER_PARALLEL_GET_SEEK_ENABLE =
+      "hbase.storescanner.parallel.seek.get.enable";
+
   /** Used during unit testing to ensure that lazy seek does save seek ops */
   protected static boolean lazySeekEnabledGlobally =
       LAZY_SEEK_ENABLED_BY_DEFAULT;
@@ -189,6 +206,7 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
        RegionServerServices rsService = ((HStore)store).getHRegion().getRegionServerServices();
        if (rsService != null && scanInfo.isParallelSeekEnabled()) {
          this.parallelSeekEnabled = true;
+         this.parallelGetSeekEnabled = get && scanInfo.isParallelGetSeekEnabled();
          this.executor = rsService.getExecutorService();
        }
      }
@@ -385,6 +403,9 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
       for (KeyValueScanner scanner : scanners) {
         scanner.requestSeek(seekKey, false, true);
       }
+      if (isParallelSeek && parallelGetSeekEnabled) {
+        parallelEnforceSeek(scanners);
+      }
     } else {
       if (!isParallelSeek) {
         long totalScannersSoughtBytes = 0;
@@ -409,6 +430,9 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
       CellComparator comparator) throws IOException {
     // Combine all seeked scanners with a heap
     heap = new KeyValueHeap(scanners, comparator);
+    if (parallelGetSeekEnabled) {
+      heap.setSeekEnforcer(this::parallelEnforceSeek);
+    }
   }
 
   /**
@@ -484,19 +508,60 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
       this.heapsForDelayedClose.clear();
       if (this.heap != null) {
         this.heap.close();
+        collectReadStats();
         this.currentScanners.clear();
         this.heap = null; // CLOSED!
       }
     } else {
       if (this.heap != null) {
         this.heapsForDelayedClose.add(this.heap);
+        collectReadStats();
         this.currentScanners.clear();
         this.heap = null;
       }
     }
+    if (withHeapClose && this.store instanceof HStore && matcher != null
+        && matcher.isUserScan()) {
+      ((HStore) this.store).getBlockSizeTracker().recordRead(get, kvsScanned);
+      StoreAmplificationTracker tracker = ((HStore) this.store).getAmplificationTracker();
+      if (get) {
+        tracker.recordGet(storeFilesRead);
+        RegionServerServices rsServices = ((HStore) this.store).getHRegion()
+            .getRegionServerServices();
+        if (rsServices != null && rsServices.getMetrics() != null) {
+          rsServices.getMetrics().updateStoreFilesReadPerGet(storeFilesRead);
+        }
+      } else {
+        tracker.recordScan(rowsScanned, dataBlocksRead);
+      }
+    }
     this.lastTop = null; // If both are null, we are closed.
   }
 
+  /**
+   * Adds the store files and data blocks read by the current scanners to the totals of this
+   * scanner. Called before the current scanners are dropped.
+   */
+  private void collectReadStats() {
+    for (KeyValueScanner scanner : this.currentScanners) {
+      collectReadStats(scanner);
+    }
+  }
+
+  /**
+   * Adds the store file and data blocks read by the given scanner to the totals of this scanner.
+   * Called for every scanner before it is removed from the current scanners.
+   */
+  private void collectReadStats(KeyValueScanner scanner) {
+    if (scanner instanceof StoreFileScanner) {
+      long blocksRead = ((StoreFileScanner) scanner).getDataBlocksRead();
+      if (blocksRead > 0) {
+        storeFilesRead++;
+        dataBlocksRead += blocksRead;
+      }
+    }
+  }
+
   @Override
   public boolean seek(Cell key) throws IOException {
     boolean flushed = checkFlushed();
@@ -548,6 +613,7 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
     // comparison.
     if (!scannerContext.hasAnyLimit(LimitScope.BETWEEN_CELLS) || matcher.currentRow() == null) {
       this.countPerRow = 0;
+      this.rowsScanned++;
       matcher.setToNewRow(cell);
     }
 
@@ -831,10 +897,11 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
 
     // Seek the new scanners to the last key
     seekScanners(scanners, lastTopKey, false, parallelSeekEnabled);
-    // remove the older memstore scanner
+    // remove the older memstore scanner, counting what it read before it is dropped. The file
+    // scanners stay in the current scanners and are counted on close.
     for (int i = 0; i < currentScanners.size(); i++) {
       if (!currentScanners.get(i).isFileScanner()) {
-        currentScanners.remove(i);
+        collectReadStats(currentScanners.remove(i));
         break;
       }
     }
@@ -953,6 +1020,40 @@ public class StoreScanner extends NonReversedNonLazyKeyValueScanner
       }
     }
 
+    awaitSeekHandlers(latch, handlers);
+  }
+
+  /**
+   * Enforce the pending lazy seeks of the given scanners in parallel. The lazy seek has already
+   * consulted the bloom filters, so only store files that may hold the requested row/column are
+   * read, but they are read concurrently rather than one after the other as they come up in the
+   * heap. Used both for the initial seek and, through the {@link KeyValueHeap}, for the seeks to
+   * the following columns of a Get.
+   * @param scanners the list {@link KeyValueScanner}s a lazy seek was requested on
+   * @throws IOException
+   */
+  private void parallelEnforceSeek(final List<? extends KeyValueScanner> scanners)
+      throws IOException {
+    List<KeyValueScanner> pending = new ArrayList<KeyValueScanner>(scanners.size());
+    for (KeyValueScanner scanner : scanners) {
+      if (scanner.isFileScanner() && !scanner.realSeekDone()) {
+        pending.add(scanner);
+      }
+    }
+    // Nothing to gain from handing a single seek to another thread.
+    if (pending.size() < 2) return;
+    CountDownLatch latch = new CountDownLatch(pending.size());
+    List<ParallelSeekHandler> handlers = new ArrayList<ParallelSeekHandler>(pending.size());
+    for (KeyValueScanner scanner : pending) {
+      ParallelSeekHandler seekHandler = new ParallelSeekHandler(scanner, this.readPt, latch);
+      executor.submit(seekHandler);
+      handlers.add(seekHandler);
+    }
+    awaitSeekHandlers(latch, handlers);
+  }
+
+  private void awaitSeekHandlers(CountDownLatch latch, List<ParallelSeekHandler> handlers)
+      throws IOException {
     try {
       latch.await();
     } catch (InterruptedException ie) {
@@ -33,6 +33,7 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.monitoring.MonitoredTask;
 import org.apache.hadoop.hbase.regionserver.compactions.StripeCompactionPolicy;
 import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
+import org.apache.hadoop.hbase.util.Bytes;
 
 import com.google.common.annotations.VisibleForTesting;
 
@@ -61,16 +62,26 @@ public class StripeStoreFlusher extends StoreFlusher {
     int cellsCount = snapshot.getCellsCount();
     if (cellsCount == 0) return result; // don't flush if there are no entries
 
+    // Let policy select flush method.
+    StripeFlushRequest req = this.policy.selectFlush(store.getComparator(), this.stripes,
+      cellsCount);
+    if (req instanceof BoundaryStripeFlushRequest) {
+      // Flushes into existing stripes can write groups of stripes concurrently.
+      List<byte[]> boundaries = ((BoundaryStripeFlushRequest) req).targetBoundaries;
+      List<Integer> startBoundaries =
+          getParallelFlushStartBoundaries(boundaries, getParallelFlushSplitRows(snapshot));
+      if (startBoundaries.size() > 1) {
+        return flushSnapshotInParallel(snapshot, boundaries, startBoundaries, cacheFlushSeqNum,
+          throughputController);
+      }
+    }
+
     long smallestReadPoint = store.getSmallestReadPoint();
     InternalScanner scanner = createScanner(snapshot.getScanner(), smallestReadPoint);
     if (scanner == null) {
       return result; // NULL scanner returned from coprocessor hooks means skip normal processing
     }
 
-    // Let policy select flush method.
-    StripeFlushRequest req = this.policy.selectFlush(store.getComparator(), this.stripes,
-      cellsCount);
-
     boolean success = false;
     StripeMultiFileWriter mw = null;
     try {
@@ -104,6 +115,77 @@ public class StripeStoreFlusher extends StoreFlusher {
     return result;
   }
 
+  /**
+   * Maps the split rows of a parallel flush to the stripes they fall into, so every range of the
+   * flush covers whole stripes.
+   * @return the indexes of the stripe boundaries the ranges start at, the first always being 0
+   */
+  private static List<Integer> getParallelFlushStartBoundaries(List<byte[]> boundaries,
+      List<byte[]> splitRows) {
+    List<Integer> startBoundaries = new ArrayList<Integer>();
+    startBoundaries.add(0);
+    int boundary = 1;
+    for (byte[] splitRow : splitRows) {
+      // The last boundary is the open end of the last stripe.
+      while (boundary < boundaries.size() - 1
+          && Bytes.compareTo(boundaries.get(boundary), splitRow) < 0) {
+        boundary++;
+      }
+      if (boundary == boundaries.size() - 1) {
+        break;
+      }
+      if (startBoundaries.get(startBoundaries.size() - 1) != boundary) {
+        startBoundaries.add(boundary);
+      }
+    }
+    return startBoundaries;
+  }
+
+  /**
+   * Flushes the snapshot into the existing stripes, writing the stripes of every key range
+   * concurrently.
+   */
+  private List<Path> flushSnapshotInParallel(MemStoreSnapshot snapshot,
+      final List<byte[]> boundaries, final List<Integer> startBoundaries,
+      final long cacheFlushSeqNum, final ThroughputController throughputController)
+      throws IOException {
+    final StripeMultiFileWriter.WriterFactory factory = createWriterFactory(
+      snapshot.getTimeRangeTracker(), snapshot.getCellsCount() / startBoundaries.size() + 1);
+    final long smallestReadPoint = store.getSmallestReadPoint();
+    List<byte[]> startRows = new ArrayList<byte[]>(startBoundaries.size());
+    for (int boundary : startBoundaries) {
+      startRows.add(boundaries.get(boundary));
+    }
+    synchronized (flushLock) {
+      return performParallelFlush(snapshot, startRows, smallestReadPoint,
+        (range, scanner, stopRow) -> {
+          int to = range + 1 < startBoundaries.size() ? startBoundaries.get(range + 1)
+              : boundaries.size() - 1;
+          StripeMultiFileWriter mw = new StripeMultiFileWriter.BoundaryMultiWriter(
+              store.getComparator(), boundaries.subList(startBoundaries.get(range), to + 1),
+              null, null);
+          mw.init((StoreScanner) scanner, factory);
+          boolean success = false;
+          try {
+            performFlush(scanner, mw, smallestReadPoint, throughputController, stopRow);
+            List<Path> files = mw.commitWriters(cacheFlushSeqNum, false);
+            success = true;
+            return files;
+          } finally {
+            if (!success) {
+              for (Path leftoverFile : mw.abortWriters()) {
+                try {
+                  store.getFileSystem().delete(leftoverFile, false);
+                } catch (Exception e) {
+                  LOG.error("Failed to delete a file after failed flush: " + e);
+                }
+              }
+            }
+          }
+        });
+    }
+  }
+
   private StripeMultiFileWriter.WriterFactory createWriterFactory(
       final TimeRangeTracker tracker, final long kvCount) {
     return new StripeMultiFileWriter.WriterFactory() {
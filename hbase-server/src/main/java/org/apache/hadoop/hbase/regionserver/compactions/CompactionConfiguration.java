@@ -64,6 +64,13 @@ public class CompactionConfiguration {
   public static final String HBASE_HSTORE_MIN_LOCALITY_TO_SKIP_MAJOR_COMPACT =
       "hbase.hstore.min.locality.to.skip.major.compact";
 
+  /**
+   * Whether compactions of all files leave out the files they would not change, see
+   * {@link UnchangedFileFilter}
+   */
+  public static final String HBASE_HSTORE_COMPACTION_SKIP_UNCHANGED_FILES_KEY =
+      "hbase.hstore.compaction.skip.unchanged.files";
+
   public static final String HBASE_HFILE_COMPACTION_DISCHARGER_THREAD_COUNT =
       "hbase.hfile.compaction.discharger.thread.count";
 
@@ -104,6 +111,7 @@ public class CompactionConfiguration {
   private final long majorCompactionPeriod;
   private final float majorCompactionJitter;
   private final float minLocalityToForceCompact;
+  private final boolean skipUnchangedFiles;
   private final long dateTieredMaxStoreFileAgeMillis;
   private final int dateTieredIncomingWindowMin;
   private final String compactionPolicyForDateTieredWindow;
@@ -131,6 +139,7 @@ public class CompactionConfiguration {
     // Make it 0.5 so jitter has us fall evenly either side of when the compaction should run
     majorCompactionJitter = conf.getFloat("hbase.hregion.majorcompaction.jitter", 0.50F);
     minLocalityToForceCompact = conf.getFloat(HBASE_HSTORE_MIN_LOCALITY_TO_SKIP_MAJOR_COMPACT, 0f);
+    skipUnchangedFiles = conf.getBoolean(HBASE_HSTORE_COMPACTION_SKIP_UNCHANGED_FILES_KEY, false);
 
     dateTieredMaxStoreFileAgeMillis = conf.getLong(DATE_TIERED_MAX_AGE_MILLIS_KEY, Long.MAX_VALUE);
     dateTieredIncomingWindowMin = conf.getInt(DATE_TIERED_INCOMING_WINDOW_MIN_KEY, 6);
@@ -149,7 +158,7 @@ public class CompactionConfiguration {
   public String toString() {
     return String.format(
       "size [%d, %d, %d); files [%d, %d); ratio %f; off-peak ratio %f; throttle point %d;"
-      + " major period %d, major jitter %f, min locality to compact %f;"
+      + " major period %d, major jitter %f, min locality to compact %f, skip unchanged files %b;"
       + " tiered compaction: max_age %d, incoming window min %d,"
       + " compaction policy for tiered window %s, single output for minor %b,"
       + " compaction window factory %s",
@@ -164,6 +173,7 @@ public class CompactionConfiguration {
       majorCompactionPeriod,
       majorCompactionJitter,
       minLocalityToForceCompact,
+      skipUnchangedFiles,
       dateTieredMaxStoreFileAgeMillis,
       dateTieredIncomingWindowMin,
       compactionPolicyForDateTieredWindow,
@@ -254,6 +264,13 @@ public class CompactionConfiguration {
     return minLocalityToForceCompact;
   }
 
+  /**
+   * @return whether compactions of all files leave out the files they would not change
+   */
+  public boolean isSkipUnchangedFiles() {
+    return skipUnchangedFiles;
+  }
+
   public long getOffPeakMaxCompactSize() {
     return offPeakMaxCompactSize;
   }
@@ -40,11 +40,24 @@ public class CompactionProgress {
   /** the total size of data processed by the currently running compaction, in bytes */
   public long totalCompactedSize = 0;
 
+  private volatile boolean stopRequested = false;
+  /** the progress of the whole compaction this is a part of, if any */
+  private final CompactionProgress parent;
+
   /** Constructor
    * @param totalCompactingKVs the total Key/Value pairs to be compacted
    */
   public CompactionProgress(long totalCompactingKVs) {
+    this(totalCompactingKVs, null);
+  }
+
+  /**
+   * @param totalCompactingKVs the total Key/Value pairs to be compacted
+   * @param parent the progress of the compaction this is a part of; stopping it stops this
+   */
+  CompactionProgress(long totalCompactingKVs, CompactionProgress parent) {
     this.totalCompactingKVs = totalCompactingKVs;
+    this.parent = parent;
   }
 
   /** getter for calculated percent complete
@@ -54,6 +67,20 @@ public class CompactionProgress {
     return (float)currentCompactedKVs / totalCompactingKVs;
   }
 
+  /**
+   * Asks the compaction to stop at its next check.
+   */
+  void requestStop() {
+    this.stopRequested = true;
+  }
+
+  /**
+   * @return whether the compaction was asked to stop
+   */
+  boolean isStopRequested() {
+    return stopRequested || (parent != null && parent.isStopRequested());
+  }
+
   /**
    * Cancels the compaction progress, setting things to 0.
    */
@@ -0,0 +1,42 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.hadoop.hbase.regionserver.Store;
+
+/**
+ * Ranks queued compactions across all regions of a region server by how much running them is
+ * worth. The compaction queues run the requests with the highest rank first; user requested
+ * compactions and compactions of stores at their blocking file count still go before all others.
+ * Configured with {@link org.apache.hadoop.hbase.regionserver.CompactSplitThread#COMPACTION_RANKER}.
+ */
+@InterfaceAudience.Private
+public interface CompactionRanker {
+
+  /**
+   * Called once when a compaction is queued, and again if it is queued anew. Must be thread safe.
+   * @param region the region of the store
+   * @param store the store to compact
+   * @param request the files selected, or null if the files are only selected once the
+   *          compaction runs
+   * @return the value of the compaction, 0 or more; higher runs first
+   */
+  double rank(Region region, Store store, CompactionRequest request);
+}
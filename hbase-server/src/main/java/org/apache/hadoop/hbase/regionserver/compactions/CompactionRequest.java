@@ -58,6 +58,9 @@ public class CompactionRequest implements Comparable<CompactionRequest> {
   private String regionName = "";
   private String storeName = "";
   private long totalSize = -1L;
+  // set to stop the running compaction early, so a more valuable one gets to run
+  private volatile boolean preempted = false;
+  private volatile CompactionProgress progress;
 
   /**
    * This ctor should be used by coprocessors that want to subclass CompactionRequest.
@@ -76,6 +79,7 @@ public class CompactionRequest implements Comparable<CompactionRequest> {
 
   public void updateFiles(Collection<StoreFile> files) {
     this.filesToCompact = files;
+    recalculateSize();
   }
 
   /**
@@ -182,6 +186,32 @@ public class CompactionRequest implements Comparable<CompactionRequest> {
     this.priority = p;
   }
 
+  /**
+   * Asks the compaction to stop at its next check, discarding its output. Used to let a more
+   * valuable compaction run in its place.
+   */
+  public void preempt() {
+    this.preempted = true;
+    CompactionProgress progress = this.progress;
+    if (progress != null) {
+      progress.requestStop();
+    }
+  }
+
+  public boolean isPreempted() {
+    return this.preempted;
+  }
+
+  /**
+   * Sets the progress of the running compaction, which is stopped if the request is preempted.
+   */
+  void setProgress(CompactionProgress progress) {
+    this.progress = progress;
+    if (this.preempted) {
+      progress.requestStop();
+    }
+  }
+
   public boolean isOffPeak() {
     return this.isOffPeak;
   }
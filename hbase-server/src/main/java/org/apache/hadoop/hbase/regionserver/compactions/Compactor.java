@@ -36,14 +36,16 @@ import org.apache.hadoop.hbase.KeyValueUtil;
 import org.apache.hadoop.hbase.classification.InterfaceAudience;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
 import org.apache.hadoop.hbase.io.hfile.HFile;
 import org.apache.hadoop.hbase.io.hfile.HFile.FileInfo;
+import org.apache.hadoop.hbase.io.hfile.HotKeyRanges;
 import org.apache.hadoop.hbase.regionserver.CellSink;
 import org.apache.hadoop.hbase.regionserver.HStore;
 import org.apache.hadoop.hbase.regionserver.InternalScanner;
-import org.apache.hadoop.hbase.regionserver.KeyValueScanner;
 import org.apache.hadoop.hbase.regionserver.ScanType;
 import org.apache.hadoop.hbase.regionserver.ScannerContext;
+import org.apache.hadoop.hbase.regionserver.Shipper;
 import org.apache.hadoop.hbase.regionserver.ShipperListener;
 import org.apache.hadoop.hbase.regionserver.Store;
 import org.apache.hadoop.hbase.regionserver.StoreFile;
@@ -79,6 +81,9 @@ public abstract class Compactor<T extends CellSink> {
   /** specify how many days to keep MVCC values during major compaction **/ 
   protected int keepSeqIdPeriod;
 
+  /** Whether to cache the output blocks of the key ranges that are hot in the input files */
+  protected final boolean cacheHotBlocksOnCompaction;
+
   //TODO: depending on Store is not good but, realistically, all compactors currently do.
   Compactor(final Configuration conf, final Store store) {
     this.conf = conf;
@@ -89,6 +94,8 @@ public abstract class Compactor<T extends CellSink> {
         Compression.Algorithm.NONE : this.store.getFamily().getCompactionCompressionType();
     this.keepSeqIdPeriod = Math.max(this.conf.getInt(HConstants.KEEP_SEQID_PERIOD, 
       HConstants.MIN_KEEP_SEQID_PERIOD), HConstants.MIN_KEEP_SEQID_PERIOD);
+    this.cacheHotBlocksOnCompaction =
+      this.conf.getBoolean(CacheConfig.CACHE_HOT_BLOCKS_ON_COMPACTION_KEY, false);
   }
 
   protected interface CellSinkFactory<S> {
@@ -116,6 +123,8 @@ public abstract class Compactor<T extends CellSink> {
     public int maxTagsLength = 0;
     /** Min SeqId to keep during a major compaction **/
     public long minSeqIdToKeep = 0;
+    /** Key ranges hot in the block cache, whose output blocks are cached on write **/
+    public HotKeyRanges hotKeyRanges = null;
   }
 
   /**
@@ -195,9 +204,39 @@ public abstract class Compactor<T extends CellSink> {
           (allFiles ? ", earliestPutTs=" + earliestPutTs: ""));
       }
     }
+    if (cacheHotBlocksOnCompaction) {
+      fd.hotKeyRanges = getHotKeyRanges(filesToCompact);
+    }
     return fd;
   }
 
+  /**
+   * Finds the key ranges whose blocks in the files to compact are hot in the block cache, so the
+   * new file can be cached for them as it is written instead of starting out cold.
+   * @param filesToCompact Files.
+   * @return The hot key ranges, or null if there are none.
+   */
+  private HotKeyRanges getHotKeyRanges(Collection<StoreFile> filesToCompact) {
+    CacheConfig cacheConf = store.getCacheConfig();
+    if (cacheConf == null || !cacheConf.isBlockCacheEnabled()) {
+      return null;
+    }
+    List<HFile.Reader> readers = new ArrayList<HFile.Reader>(filesToCompact.size());
+    for (StoreFile file : filesToCompact) {
+      StoreFileReader r = file.getReader();
+      if (r != null) {
+        readers.add(r.getHFileReader());
+      }
+    }
+    try {
+      return HotKeyRanges.fromBlockCache(cacheConf.getBlockCache(), readers);
+    } catch (IOException e) {
+      // Only costs us the cache warmth, go on with the compaction.
+      LOG.warn("Failed to collect the hot key ranges of " + store, e);
+      return null;
+    }
+  }
+
   /**
    * Creates file scanners for compaction.
    * @param filesToCompact Files.
@@ -256,7 +295,8 @@ public abstract class Compactor<T extends CellSink> {
     return store.createWriterInTmp(fd.maxKeyCount, this.compactionCompression,
     /* isCompaction = */true,
     /* includeMVCCReadpoint = */fd.maxMVCCReadpoint > 0,
-    /* includesTags = */fd.maxTagsLength > 0, shouldDropBehind);
+    /* includesTags = */fd.maxTagsLength > 0, shouldDropBehind,
+    /* trt = */null, fd.hotKeyRanges);
   }
 
   protected List<Path> compact(final CompactionRequest request,
@@ -264,31 +304,17 @@ public abstract class Compactor<T extends CellSink> {
       ThroughputController throughputController, User user) throws IOException {
     FileDetails fd = getFileDetails(request.getFiles(), request.isAllFiles());
     this.progress = new CompactionProgress(fd.maxKeyCount);
+    request.setProgress(progress);
 
     // Find the smallest read point across all the Scanners.
     long smallestReadPoint = getSmallestReadPoint();
 
     List<StoreFileScanner> scanners;
-    Collection<StoreFile> readersToClose;
+    Collection<StoreFile> filesToRead = getFilesToRead(request);
+    Collection<StoreFile> readersToClose = createPrivateReaders(filesToRead);
     T writer = null;
-    if (this.conf.getBoolean("hbase.regionserver.compaction.private.readers", true)) {
-      // clone all StoreFiles, so we'll do the compaction on a independent copy of StoreFiles,
-      // HFiles, and their readers
-      readersToClose = new ArrayList<StoreFile>(request.getFiles().size());
-      for (StoreFile f : request.getFiles()) {
-        StoreFile clonedStoreFile = f.cloneForReader();
-        // create the reader after the store file is cloned in case
-        // the sequence id is used for sorting in scanners
-        clonedStoreFile.createReader();
-        readersToClose.add(clonedStoreFile);
-      }
-      scanners = createFileScanners(readersToClose, smallestReadPoint,
-        store.throttleCompaction(request.getSize()));
-    } else {
-      readersToClose = Collections.emptyList();
-      scanners = createFileScanners(request.getFiles(), smallestReadPoint,
-        store.throttleCompaction(request.getSize()));
-    }
+    scanners = createFileScanners(readersToClose.isEmpty() ? filesToRead : readersToClose,
+      smallestReadPoint, store.throttleCompaction(request.getSize()));
     InternalScanner scanner = null;
     boolean finished = false;
     try {
@@ -318,13 +344,7 @@ public abstract class Compactor<T extends CellSink> {
       }
     } finally {
       Closeables.close(scanner, true);
-      for (StoreFile f : readersToClose) {
-        try {
-          f.closeReader(true);
-        } catch (IOException e) {
-          LOG.warn("Exception closing " + f, e);
-        }
-      }
+      closePrivateReaders(readersToClose);
       if (!finished && writer != null) {
         abortWriter(writer);
       }
@@ -334,6 +354,66 @@ public abstract class Compactor<T extends CellSink> {
     return commitWriter(writer, fd, request);
   }
 
+  /**
+   * Leaves out the files all of whose cells have expired. The compaction would drop every cell
+   * of them anyway, and delete markers in them can only mask cells that have expired as well, so
+   * they are removed along with the other files without being read.
+   * @return the files of the request the compaction has to read
+   */
+  protected Collection<StoreFile> getFilesToRead(CompactionRequest request) {
+    long ttl = store.getStoreFileTtl();
+    if (ttl == Long.MAX_VALUE) {
+      return request.getFiles();
+    }
+    long expiredBefore = EnvironmentEdgeManager.currentTime() - ttl;
+    List<StoreFile> filesToRead = new ArrayList<StoreFile>(request.getFiles().size());
+    for (StoreFile sf : request.getFiles()) {
+      StoreFileReader reader = sf.getReader();
+      if (reader != null && reader.getMaxTimestamp() < expiredBefore) {
+        if (LOG.isDebugEnabled()) {
+          LOG.debug("Not reading " + sf + ", all its cells have expired");
+        }
+        continue;
+      }
+      filesToRead.add(sf);
+    }
+    return filesToRead;
+  }
+
+  /**
+   * Clones the files to compact, so the compaction is done on an independent copy of the
+   * StoreFiles, HFiles and their readers, unless hbase.regionserver.compaction.private.readers is
+   * turned off.
+   * @param filesToCompact Files.
+   * @return The cloned files, whose readers are to be closed with
+   *         {@link #closePrivateReaders(Collection)}; empty if the files are read as they are.
+   */
+  protected Collection<StoreFile> createPrivateReaders(Collection<StoreFile> filesToCompact)
+      throws IOException {
+    if (!this.conf.getBoolean("hbase.regionserver.compaction.private.readers", true)) {
+      return Collections.emptyList();
+    }
+    List<StoreFile> clonedFiles = new ArrayList<StoreFile>(filesToCompact.size());
+    for (StoreFile f : filesToCompact) {
+      StoreFile clonedStoreFile = f.cloneForReader();
+      // create the reader after the store file is cloned in case
+      // the sequence id is used for sorting in scanners
+      clonedStoreFile.createReader();
+      clonedFiles.add(clonedStoreFile);
+    }
+    return clonedFiles;
+  }
+
+  protected void closePrivateReaders(Collection<StoreFile> readersToClose) {
+    for (StoreFile f : readersToClose) {
+      try {
+        f.closeReader(true);
+      } catch (IOException e) {
+        LOG.warn("Exception closing " + f, e);
+      }
+    }
+  }
+
   protected abstract List<Path> commitWriter(T writer, FileDetails fd, CompactionRequest request)
       throws IOException;
 
@@ -389,6 +469,18 @@ public abstract class Compactor<T extends CellSink> {
   protected boolean performCompaction(FileDetails fd, InternalScanner scanner, CellSink writer,
       long smallestReadPoint, boolean cleanSeqId, ThroughputController throughputController,
       boolean major, int numofFilesToCompact) throws IOException {
+    return performCompaction(fd, scanner, writer, smallestReadPoint, cleanSeqId,
+      throughputController, major, numofFilesToCompact, progress);
+  }
+
+  /**
+   * Performs the compaction, tracking it in the given progress rather than the compactor's.
+   * @see #performCompaction(FileDetails, InternalScanner, CellSink, long, boolean,
+   *      ThroughputController, boolean, int)
+   */
+  protected boolean performCompaction(FileDetails fd, InternalScanner scanner, CellSink writer,
+      long smallestReadPoint, boolean cleanSeqId, ThroughputController throughputController,
+      boolean major, int numofFilesToCompact, CompactionProgress progress) throws IOException {
     assert writer instanceof ShipperListener;
     long bytesWrittenProgressForCloseCheck = 0;
     long bytesWrittenProgressForLog = 0;
@@ -408,7 +500,7 @@ public abstract class Compactor<T extends CellSink> {
         ScannerContext.newBuilder().setBatchLimit(compactionKVMax).build();
 
     throughputController.start(compactionName);
-    KeyValueScanner kvs = (scanner instanceof KeyValueScanner)? (KeyValueScanner)scanner : null;
+    Shipper kvs = (scanner instanceof Shipper)? (Shipper)scanner : null;
     long shippedCallSizeLimit = (long) numofFilesToCompact * this.store.getFamily().getBlocksize();
     try {
       do {
@@ -442,7 +534,7 @@ public abstract class Compactor<T extends CellSink> {
             bytesWrittenProgressForCloseCheck += len;
             if (bytesWrittenProgressForCloseCheck > closeCheckSizeLimit) {
               bytesWrittenProgressForCloseCheck = 0;
-              if (!store.areWritesEnabled()) {
+              if (!store.areWritesEnabled() || progress.isStopRequested()) {
                 progress.cancel();
                 return false;
               }
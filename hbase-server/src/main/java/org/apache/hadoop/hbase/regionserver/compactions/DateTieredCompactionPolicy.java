@@ -39,7 +39,6 @@ import org.apache.hadoop.hbase.classification.InterfaceAudience;
 import org.apache.hadoop.hbase.regionserver.RSRpcServices;
 import org.apache.hadoop.hbase.regionserver.StoreConfigInformation;
 import org.apache.hadoop.hbase.regionserver.StoreFile;
-import org.apache.hadoop.hbase.regionserver.StoreUtils;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.hbase.util.ReflectionUtils;
@@ -118,8 +117,7 @@ public class DateTieredCompactionPolicy extends SortedCompactionPolicy {
       return false;
     }
 
-    // TODO: Use better method for determining stamp of last major (HBASE-2990)
-    long lowTimestamp = StoreUtils.getLowestTimestamp(filesToCompact);
+    long lowTimestamp = getLastMajorCompactionTime(filesToCompact);
     long now = EnvironmentEdgeManager.currentTime();
     if (lowTimestamp <= 0L || lowTimestamp >= (now - mcTime)) {
       if (LOG.isDebugEnabled()) {
@@ -18,34 +18,73 @@
 package org.apache.hadoop.hbase.regionserver.compactions;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.io.hfile.HFileBlockIndex;
 import org.apache.hadoop.hbase.regionserver.InternalScanner;
+import org.apache.hadoop.hbase.regionserver.ScanType;
 import org.apache.hadoop.hbase.regionserver.Store;
 import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.regionserver.StoreFileReader;
+import org.apache.hadoop.hbase.regionserver.StoreFileScanner;
 import org.apache.hadoop.hbase.regionserver.StoreFileWriter;
 import org.apache.hadoop.hbase.regionserver.throttle.NoLimitThroughputController;
 import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
 import org.apache.hadoop.hbase.security.User;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Threads;
 
 import com.google.common.collect.Lists;
 
 /**
  * Compact passed set of files. Create an instance and then call
  * {@link #compact(CompactionRequest, ThroughputController, User)}
+ * <p>
+ * Large compactions can be split into key range subtasks that are compacted concurrently into a
+ * file each, see {@link #PARALLEL_SUBTASKS_KEY}. The files are committed together as the result
+ * of the one compaction. Only compactions of all files are split, and their files are excluded
+ * from minor compactions: they are about the same size, so the ratio based policies would
+ * otherwise pick them again right away and rewrite the store over and over. The next major
+ * compaction includes them again.
  */
 @InterfaceAudience.Private
 public class DefaultCompactor extends Compactor<StoreFileWriter> {
   private static final Log LOG = LogFactory.getLog(DefaultCompactor.class);
 
+  /** The number of key ranges to compact concurrently; 1 compacts the files in one pass */
+  public static final String PARALLEL_SUBTASKS_KEY = "hbase.hstore.compaction.parallel.subtasks";
+  public static final int DEFAULT_PARALLEL_SUBTASKS = 1;
+
+  /** Compactions of fewer bytes than this are never split into subtasks */
+  public static final String PARALLEL_MIN_SIZE_KEY = "hbase.hstore.compaction.parallel.min.size";
+  public static final long DEFAULT_PARALLEL_MIN_SIZE = 1024L * 1024 * 1024;
+
+  private final int parallelSubtasks;
+  private final long parallelMinSize;
+
   public DefaultCompactor(final Configuration conf, final Store store) {
     super(conf, store);
+    this.parallelSubtasks = Math.max(1, conf.getInt(PARALLEL_SUBTASKS_KEY,
+      DEFAULT_PARALLEL_SUBTASKS));
+    this.parallelMinSize = conf.getLong(PARALLEL_MIN_SIZE_KEY, DEFAULT_PARALLEL_MIN_SIZE);
   }
 
   private final CellSinkFactory<StoreFileWriter> writerFactory =
@@ -63,9 +102,222 @@ public class DefaultCompactor extends Compactor<StoreFileWriter> {
    */
   public List<Path> compact(final CompactionRequest request,
       ThroughputController throughputController, User user) throws IOException {
+    if (parallelSubtasks > 1 && request.isAllFiles() && request.getSize() >= parallelMinSize) {
+      List<byte[]> boundaries = getSubtaskBoundaries(request.getFiles(), parallelSubtasks);
+      if (!boundaries.isEmpty()) {
+        return compactInParallel(request, boundaries, throughputController, user);
+      }
+    }
     return compact(request, defaultScannerFactory, writerFactory, throughputController, user);
   }
 
+  /**
+   * Splits the key space of the files to compact into row ranges of about the same size. The
+   * split points are taken from the root level of the files' data block indexes, every root entry
+   * weighing its file's size divided by the number of entries, so no data blocks are read.
+   * @param filesToCompact Files.
+   * @param subtasks The number of ranges wanted.
+   * @return The sorted rows to split at, fewer than subtasks - 1 if the files have too few blocks;
+   *         empty if the files cannot be split.
+   */
+  List<byte[]> getSubtaskBoundaries(Collection<StoreFile> filesToCompact, int subtasks) {
+    final CellComparator comparator = store.getComparator();
+    List<Cell> keys = new ArrayList<Cell>();
+    List<Double> weights = new ArrayList<Double>();
+    double totalWeight = 0;
+    for (StoreFile file : filesToCompact) {
+      StoreFileReader r = file.getReader();
+      if (r == null) {
+        continue;
+      }
+      Cell[] rootKeys = HFileBlockIndex.getRootDataBlockKeys(r.getHFileReader());
+      if (rootKeys.length == 0) {
+        continue;
+      }
+      double weight = (double) r.length() / rootKeys.length;
+      for (Cell rootKey : rootKeys) {
+        keys.add(rootKey);
+        weights.add(weight);
+      }
+      totalWeight += r.length();
+    }
+    if (keys.isEmpty()) {
+      return Collections.emptyList();
+    }
+    Integer[] order = new Integer[keys.size()];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> comparator.compare(keys.get(a), keys.get(b)));
+    List<byte[]> boundaries = new ArrayList<byte[]>(subtasks - 1);
+    // The first row has no data before it, never split there.
+    byte[] lastRow = CellUtil.cloneRow(keys.get(order[0]));
+    double cumulativeWeight = 0;
+    for (int i = 0; i < order.length && boundaries.size() < subtasks - 1; i++) {
+      Cell key = keys.get(order[i]);
+      if (cumulativeWeight >= totalWeight * (boundaries.size() + 1) / subtasks
+          && comparator.compareRows(key, lastRow, 0, lastRow.length) > 0) {
+        lastRow = CellUtil.cloneRow(key);
+        boundaries.add(lastRow);
+      }
+      cumulativeWeight += weights.get(order[i]);
+    }
+    return boundaries;
+  }
+
+  /**
+   * Compacts the row ranges between the given boundaries concurrently, each into a file of its
+   * own. Coprocessors see every range as a compaction of its own. The files are only committed if
+   * all ranges compact successfully; otherwise, or if a coprocessor skips any range, they are all
+   * discarded.
+   */
+  private List<Path> compactInParallel(final CompactionRequest request, List<byte[]> boundaries,
+      final ThroughputController throughputController, final User user) throws IOException {
+    final FileDetails fd = getFileDetails(request.getFiles(), request.isAllFiles());
+    this.progress = new CompactionProgress(fd.maxKeyCount);
+    request.setProgress(progress);
+    final long smallestReadPoint = getSmallestReadPoint();
+    final boolean cleanSeqId = fd.minSeqIdToKeep > 0;
+    final long cleanSeqIdReadPoint = cleanSeqId ? Math.min(fd.minSeqIdToKeep, smallestReadPoint)
+        : smallestReadPoint;
+    final boolean dropBehind = store.throttleCompaction(request.getSize());
+    final ScanType scanType = defaultScannerFactory.getScanType(request);
+    final int numSubtasks = boundaries.size() + 1;
+    final StoreFileWriter[] writers = new StoreFileWriter[numSubtasks];
+    final CompactionProgress[] progresses = new CompactionProgress[numSubtasks];
+
+    Collection<StoreFile> unexpiredFiles = getFilesToRead(request);
+    Collection<StoreFile> readersToClose = createPrivateReaders(unexpiredFiles);
+    final Collection<StoreFile> filesToRead =
+        readersToClose.isEmpty() ? unexpiredFiles : readersToClose;
+    LOG.info("Compacting " + request.getFiles().size() + " files of " + store + " in "
+        + numSubtasks + " key ranges split at " + boundariesToString(boundaries));
+    ExecutorService pool = Executors.newFixedThreadPool(numSubtasks,
+      Threads.newDaemonThreadFactory("compaction-" + store.getRegionInfo().getEncodedName() + "-"
+          + store.getColumnFamilyName()));
+    boolean finished = false;
+    boolean skipped = false;
+    try {
+      List<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(numSubtasks);
+      for (int i = 0; i < numSubtasks; i++) {
+        final int subtask = i;
+        final byte[] startRow = i == 0 ? null : boundaries.get(i - 1);
+        final byte[] stopRow = i == numSubtasks - 1 ? null : boundaries.get(i);
+        progresses[i] = new CompactionProgress(fd.maxKeyCount / numSubtasks, progress);
+        // Returns whether the range was compacted, false if interrupted, null if skipped.
+        futures.add(pool.submit(() -> {
+          // Every range reads the files through scanners of its own, with pread since they read
+          // the same files concurrently.
+          List<StoreFileScanner> scanners = StoreFileScanner.getScannersForStoreFiles(
+            filesToRead, /* cache blocks = */ false, /* use pread = */ true,
+            /* is compaction */ true, dropBehind, smallestReadPoint);
+          InternalScanner scanner = null;
+          try {
+            scanner = preCreateCoprocScanner(request, scanType, fd.earliestPutTs, scanners, user,
+              smallestReadPoint);
+            if (scanner == null) {
+              scanner = defaultScannerFactory.createScanner(scanners, scanType, fd,
+                smallestReadPoint);
+            }
+            scanner = new RowRangeScanner(scanner, store.getComparator(), startRow, stopRow);
+            InternalScanner cpScanner = postCreateCoprocScanner(request, scanType, scanner, user);
+            if (cpScanner == null) {
+              return null;
+            }
+            scanner = cpScanner;
+            writers[subtask] = createTmpWriter(fd, dropBehind);
+            return performCompaction(fd, scanner, writers[subtask], cleanSeqIdReadPoint,
+              cleanSeqId, throughputController, request.isAllFiles(), request.getFiles().size(),
+              progresses[subtask]);
+          } finally {
+            if (scanner != null) {
+              scanner.close();
+            } else {
+              for (StoreFileScanner s : scanners) {
+                s.close();
+              }
+            }
+          }
+        }));
+      }
+      for (Future<Boolean> future : futures) {
+        Boolean result = future.get();
+        if (result == null) {
+          // NULL scanner returned from coprocessor hooks means skip normal processing.
+          skipped = true;
+        } else if (!result) {
+          throw new InterruptedIOException("Aborting compaction of store " + store
+              + " in region " + store.getRegionInfo().getRegionNameAsString()
+              + " because it was interrupted.");
+        }
+      }
+      finished = true;
+    } catch (InterruptedException e) {
+      throw (InterruptedIOException) new InterruptedIOException("Interrupted while compacting "
+          + store).initCause(e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      throw new IOException(cause);
+    } finally {
+      // Stops the other ranges if one failed, and waits for them before touching their writers.
+      pool.shutdownNow();
+      try {
+        while (!pool.awaitTermination(60, TimeUnit.SECONDS)) {
+          LOG.warn("Waiting for the key range compactions of " + store + " to stop");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      closePrivateReaders(readersToClose);
+      for (CompactionProgress subtaskProgress : progresses) {
+        if (subtaskProgress != null) {
+          progress.currentCompactedKVs += subtaskProgress.currentCompactedKVs;
+          progress.totalCompactedSize += subtaskProgress.totalCompactedSize;
+        }
+      }
+      if (!finished || skipped) {
+        for (StoreFileWriter writer : writers) {
+          if (writer != null) {
+            abortWriter(writer);
+          }
+        }
+      }
+    }
+    if (skipped) {
+      return new ArrayList<Path>();
+    }
+    progress.complete();
+    List<Path> newFiles = new ArrayList<Path>(numSubtasks);
+    for (int i = 0; i < numSubtasks; i++) {
+      // Ranges left empty, e.g. because everything in them was deleted, get no file unless all
+      // are empty, as the compaction has to leave a file carrying its max sequence id behind.
+      if (progresses[i].currentCompactedKVs == 0
+          && (!newFiles.isEmpty() || i < numSubtasks - 1)) {
+        abortWriter(writers[i]);
+      } else {
+        // Keep minor compactions from merging the ranges again, see the class comment.
+        writers[i].appendFileInfo(StoreFile.EXCLUDE_FROM_MINOR_COMPACTION_KEY,
+          Bytes.toBytes(true));
+        newFiles.addAll(commitWriter(writers[i], fd, request));
+      }
+    }
+    return newFiles;
+  }
+
+  private static String boundariesToString(List<byte[]> boundaries) {
+    StringBuilder sb = new StringBuilder("[");
+    for (byte[] boundary : boundaries) {
+      if (sb.length() > 1) {
+        sb.append(", ");
+      }
+      sb.append(Bytes.toStringBinary(boundary));
+    }
+    return sb.append("]").toString();
+  }
+
   /**
    * Compact a list of files for testing. Creates a fake {@link CompactionRequest} to pass to
    * {@link #compact(CompactionRequest, ThroughputController, User)};
@@ -0,0 +1,411 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.regionserver.StoreConfigInformation;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+
+/**
+ * Leveled compaction policy. Level 0 holds the flushed files; every level above it holds files
+ * with disjoint row ranges and may grow to {@link #LEVEL_SIZE_MULTIPLIER_KEY} times the size of
+ * the level before it, starting from {@link #LEVEL1_MAX_SIZE_KEY}. Compactions pick, in order:
+ * <ol>
+ * <li>a reference file above level 0, which is rewritten in place;</li>
+ * <li>all level 0 files, once there are {@link #LEVEL0_COMPACTION_TRIGGER_KEY} of them, merged
+ * with the level 1 files they overlap into level 1;</li>
+ * <li>one file of the level furthest over its maximum size, merged with the files of the next
+ * level it overlaps into that level. The file overlapping the fewest bytes relative to its own
+ * size is chosen, which keeps the write amplification of the move low. The files of its level
+ * that overlap those files of the next level go along.</li>
+ * </ol>
+ * So only the overlapping files of a level are ever rewritten, and a read merges the level 0
+ * files and one file per level. Delete markers are dropped when no deeper level has files in the
+ * range compacted, since then all older data of the range is in the compaction.
+ */
+@InterfaceAudience.Private
+public class LeveledCompactionPolicy extends CompactionPolicy {
+  private static final Log LOG = LogFactory.getLog(LeveledCompactionPolicy.class);
+
+  /** Number of level 0 files that triggers their compaction into level 1 */
+  public static final String LEVEL0_COMPACTION_TRIGGER_KEY =
+      "hbase.hstore.leveled.level0.compaction.trigger";
+  public static final int DEFAULT_LEVEL0_COMPACTION_TRIGGER = 4;
+
+  /** Maximum size of level 1 */
+  public static final String LEVEL1_MAX_SIZE_KEY = "hbase.hstore.leveled.level1.max.size";
+  public static final long DEFAULT_LEVEL1_MAX_SIZE = 256L * 1024 * 1024;
+
+  /** Size ratio between the maximum sizes of adjacent levels */
+  public static final String LEVEL_SIZE_MULTIPLIER_KEY =
+      "hbase.hstore.leveled.level.size.multiplier";
+  public static final double DEFAULT_LEVEL_SIZE_MULTIPLIER = 10.0;
+
+  /** Deepest level; it has no maximum size */
+  public static final String MAX_LEVEL_KEY = "hbase.hstore.leveled.max.level";
+  public static final int DEFAULT_MAX_LEVEL = 6;
+
+  /** Uncompressed size of the files written by leveled compactions */
+  public static final String TARGET_FILE_SIZE_KEY = "hbase.hstore.leveled.target.file.size";
+  public static final long DEFAULT_TARGET_FILE_SIZE = 64L * 1024 * 1024;
+
+  private final CellComparator comparator;
+  private int level0CompactionTrigger;
+  private long level1MaxSize;
+  private double levelSizeMultiplier;
+  private int maxLevel;
+  private long targetFileSize;
+
+  public LeveledCompactionPolicy(Configuration conf, StoreConfigInformation storeConfigInfo,
+      CellComparator comparator) {
+    super(conf, storeConfigInfo);
+    this.comparator = comparator;
+    loadConf(conf);
+  }
+
+  @Override
+  public void setConf(Configuration conf) {
+    super.setConf(conf);
+    loadConf(conf);
+  }
+
+  private void loadConf(Configuration conf) {
+    this.level0CompactionTrigger = Math.max(1,
+      conf.getInt(LEVEL0_COMPACTION_TRIGGER_KEY, DEFAULT_LEVEL0_COMPACTION_TRIGGER));
+    this.level1MaxSize = conf.getLong(LEVEL1_MAX_SIZE_KEY, DEFAULT_LEVEL1_MAX_SIZE);
+    this.levelSizeMultiplier = Math.max(1.0,
+      conf.getDouble(LEVEL_SIZE_MULTIPLIER_KEY, DEFAULT_LEVEL_SIZE_MULTIPLIER));
+    this.maxLevel = Math.max(1, conf.getInt(MAX_LEVEL_KEY, DEFAULT_MAX_LEVEL));
+    this.targetFileSize = conf.getLong(TARGET_FILE_SIZE_KEY, DEFAULT_TARGET_FILE_SIZE);
+  }
+
+  public long getTargetFileSize() {
+    return targetFileSize;
+  }
+
+  /**
+   * @return the size above which the level is compacted into the next one
+   */
+  public long getMaxLevelSize(int level) {
+    return (long) (level1MaxSize * Math.pow(levelSizeMultiplier, level - 1));
+  }
+
+  @Override
+  public boolean shouldPerformMajorCompaction(Collection<StoreFile> filesToCompact)
+      throws IOException {
+    return false; // levels are compacted as they fill up, there is no periodic major compaction
+  }
+
+  @Override
+  public boolean throttleCompaction(long compactionSize) {
+    return compactionSize > comConf.getThrottlePoint();
+  }
+
+  /**
+   * @param levels the store files by level, see {@code LeveledStoreFileManager#getLevels()}
+   * @param filesCompacting files currently compacting
+   * @return whether a compaction can be selected
+   */
+  public boolean needsCompaction(List<List<StoreFile>> levels, List<StoreFile> filesCompacting) {
+    return selectCompaction(levels, filesCompacting, false) != null;
+  }
+
+  /**
+   * @param levels the store files by level, see {@code LeveledStoreFileManager#getLevels()}
+   * @param filesCompacting files currently compacting
+   * @param forceMajor whether to compact all files into the deepest level
+   * @return the compaction to run, or null if there is none
+   */
+  public LeveledCompactionRequest selectCompaction(List<List<StoreFile>> levels,
+      List<StoreFile> filesCompacting, boolean forceMajor) {
+    if (forceMajor) {
+      return selectAllFiles(levels, filesCompacting);
+    }
+    LeveledCompactionRequest request = selectReference(levels, filesCompacting);
+    if (request == null) {
+      request = selectLevel0(levels, filesCompacting);
+    }
+    if (request == null) {
+      request = selectOversizedLevel(levels, filesCompacting);
+    }
+    return request;
+  }
+
+  private LeveledCompactionRequest selectAllFiles(List<List<StoreFile>> levels,
+      List<StoreFile> filesCompacting) {
+    if (!filesCompacting.isEmpty()) {
+      return null;
+    }
+    List<StoreFile> files = new ArrayList<StoreFile>();
+    for (List<StoreFile> level : levels) {
+      files.addAll(level);
+    }
+    if (files.isEmpty()) {
+      return null;
+    }
+    int outputLevel = Math.min(maxLevel, Math.max(1, levels.size() - 1));
+    return new LeveledCompactionRequest(files, outputLevel, targetFileSize, true, true);
+  }
+
+  private LeveledCompactionRequest selectReference(List<List<StoreFile>> levels,
+      List<StoreFile> filesCompacting) {
+    // Level 0 references go with the rest of level 0.
+    for (int i = 1; i < levels.size(); i++) {
+      for (StoreFile sf : levels.get(i)) {
+        if (sf.isReference() && !filesCompacting.contains(sf)) {
+          List<StoreFile> files = new ArrayList<StoreFile>(1);
+          files.add(sf);
+          return new LeveledCompactionRequest(files, i, targetFileSize, false, false);
+        }
+      }
+    }
+    return null;
+  }
+
+  private LeveledCompactionRequest selectLevel0(List<List<StoreFile>> levels,
+      List<StoreFile> filesCompacting) {
+    List<StoreFile> level0 = levels.isEmpty() ? new ArrayList<StoreFile>() : levels.get(0);
+    if (level0.isEmpty() || (level0.size() < level0CompactionTrigger && !hasReference(level0))) {
+      return null;
+    }
+    // All of level 0 goes at once; its files overlap each other so none may stay behind.
+    Cell first = null;
+    Cell last = null;
+    for (StoreFile sf : level0) {
+      if (filesCompacting.contains(sf)) {
+        return null;
+      }
+      if (sf.getFirstKey() == null) {
+        continue;
+      }
+      if (first == null || comparator.compareRows(sf.getFirstKey(), first) < 0) {
+        first = sf.getFirstKey();
+      }
+      if (last == null || comparator.compareRows(sf.getLastKey(), last) > 0) {
+        last = sf.getLastKey();
+      }
+    }
+    List<StoreFile> files = new ArrayList<StoreFile>(level0);
+    if (first != null && levels.size() > 1) {
+      List<StoreFile> overlapping = getOverlapping(levels.get(1), first, last);
+      if (containsAny(filesCompacting, overlapping)) {
+        return null;
+      }
+      files.addAll(overlapping);
+    }
+    boolean dropDeletes = first == null || !overlapsLevels(levels, 2, first, last);
+    return new LeveledCompactionRequest(files, 1, targetFileSize, false, dropDeletes);
+  }
+
+  private LeveledCompactionRequest selectOversizedLevel(List<List<StoreFile>> levels,
+      List<StoreFile> filesCompacting) {
+    while (true) {
+      // Pick the level furthest over its maximum size that still has a file to move.
+      int level = -1;
+      double maxScore = 1.0;
+      for (int i = 1; i < Math.min(levels.size(), maxLevel); i++) {
+        double score = (double) getTotalSize(levels.get(i)) / getMaxLevelSize(i);
+        if (score > maxScore) {
+          level = i;
+          maxScore = score;
+        }
+      }
+      if (level < 0) {
+        return null;
+      }
+      LeveledCompactionRequest request = selectFromLevel(levels, level, filesCompacting);
+      if (request != null) {
+        return request;
+      }
+      // Every file of the level is busy; look at the other levels.
+      levels = new ArrayList<List<StoreFile>>(levels);
+      levels.set(level, new ArrayList<StoreFile>());
+    }
+  }
+
+  private LeveledCompactionRequest selectFromLevel(List<List<StoreFile>> levels, int level,
+      List<StoreFile> filesCompacting) {
+    List<StoreFile> next =
+        level + 1 < levels.size() ? levels.get(level + 1) : new ArrayList<StoreFile>();
+    List<StoreFile> best = null;
+    List<StoreFile> bestOverlapping = null;
+    double bestRatio = Double.MAX_VALUE;
+    for (StoreFile sf : levels.get(level)) {
+      if (filesCompacting.contains(sf)) {
+        continue;
+      }
+      // The output takes the highest sequence id of the files merged and covers the rows of
+      // the files of the next level too. A file of this level left out in those rows would hold
+      // newer data than the output but rank below it, so every such file is taken along, and
+      // then the files of the next level they overlap, until the rows covered stop growing.
+      List<StoreFile> moving = Collections.singletonList(sf);
+      List<StoreFile> overlapping;
+      while (true) {
+        overlapping = getOverlapping(next, moving.get(0).getFirstKey(),
+          moving.get(moving.size() - 1).getLastKey());
+        if (overlapping.isEmpty()) {
+          break;
+        }
+        List<StoreFile> widened = getOverlapping(levels.get(level),
+          min(moving.get(0).getFirstKey(), overlapping.get(0).getFirstKey()),
+          max(moving.get(moving.size() - 1).getLastKey(),
+            overlapping.get(overlapping.size() - 1).getLastKey()));
+        if (widened.size() == moving.size()) {
+          break;
+        }
+        moving = widened;
+      }
+      if (containsAny(filesCompacting, moving) || containsAny(filesCompacting, overlapping)) {
+        continue;
+      }
+      double ratio =
+          (double) getTotalSize(overlapping) / Math.max(1, getTotalSize(moving));
+      if (ratio < bestRatio) {
+        best = moving;
+        bestOverlapping = overlapping;
+        bestRatio = ratio;
+      }
+    }
+    if (best == null) {
+      return null;
+    }
+    List<StoreFile> files = new ArrayList<StoreFile>(best.size() + bestOverlapping.size());
+    files.addAll(best);
+    files.addAll(bestOverlapping);
+    Cell first = best.get(0).getFirstKey();
+    Cell last = best.get(best.size() - 1).getLastKey();
+    if (!bestOverlapping.isEmpty()) {
+      first = min(first, bestOverlapping.get(0).getFirstKey());
+      last = max(last, bestOverlapping.get(bestOverlapping.size() - 1).getLastKey());
+    }
+    boolean dropDeletes = !overlapsLevels(levels, level + 2, first, last);
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Level " + level + " is over its maximum size of " + getMaxLevelSize(level)
+          + ", moving " + best + " and " + bestOverlapping.size() + " overlapping files");
+    }
+    return new LeveledCompactionRequest(files, level + 1, targetFileSize, false, dropDeletes);
+  }
+
+  /**
+   * @param level files with disjoint row ranges, sorted by row
+   * @return the files of the level whose rows overlap the rows of first to last
+   */
+  private List<StoreFile> getOverlapping(List<StoreFile> level, Cell first, Cell last) {
+    List<StoreFile> overlapping = new ArrayList<StoreFile>();
+    for (StoreFile sf : level) {
+      if (comparator.compareRows(sf.getFirstKey(), last) > 0) {
+        break;
+      }
+      if (comparator.compareRows(sf.getLastKey(), first) >= 0) {
+        overlapping.add(sf);
+      }
+    }
+    return overlapping;
+  }
+
+  private boolean overlapsLevels(List<List<StoreFile>> levels, int from, Cell first, Cell last) {
+    for (int i = from; i < levels.size(); i++) {
+      if (!getOverlapping(levels.get(i), first, last).isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private Cell min(Cell a, Cell b) {
+    return comparator.compareRows(a, b) <= 0 ? a : b;
+  }
+
+  private Cell max(Cell a, Cell b) {
+    return comparator.compareRows(a, b) >= 0 ? a : b;
+  }
+
+  private static boolean hasReference(List<StoreFile> files) {
+    for (StoreFile sf : files) {
+      if (sf.isReference()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean containsAny(List<StoreFile> filesCompacting, List<StoreFile> files) {
+    for (StoreFile sf : files) {
+      if (filesCompacting.contains(sf)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static long getSize(StoreFile sf) {
+    return sf.getReader().length();
+  }
+
+  private static long getTotalSize(List<StoreFile> files) {
+    long size = 0;
+    for (StoreFile sf : files) {
+      size += getSize(sf);
+    }
+    return size;
+  }
+
+  /**
+   * A compaction into one level.
+   */
+  public static class LeveledCompactionRequest extends CompactionRequest {
+    private final int outputLevel;
+    private final long targetFileSize;
+
+    /**
+     * @param dropDeletes whether all older data of the compacted range is in the files, so the
+     *          delete markers can go; such a compaction is run as one of all files
+     */
+    public LeveledCompactionRequest(Collection<StoreFile> files, int outputLevel,
+        long targetFileSize, boolean isMajor, boolean dropDeletes) {
+      super(files);
+      this.outputLevel = outputLevel;
+      this.targetFileSize = targetFileSize;
+      setIsMajor(isMajor, dropDeletes);
+    }
+
+    public int getOutputLevel() {
+      return outputLevel;
+    }
+
+    public long getTargetFileSize() {
+      return targetFileSize;
+    }
+
+    @Override
+    public String toString() {
+      return super.toString() + ", outputLevel=" + outputLevel;
+    }
+  }
+}
@@ -31,7 +31,6 @@ import org.apache.hadoop.hbase.classification.InterfaceAudience;
 import org.apache.hadoop.hbase.regionserver.RSRpcServices;
 import org.apache.hadoop.hbase.regionserver.StoreConfigInformation;
 import org.apache.hadoop.hbase.regionserver.StoreFile;
-import org.apache.hadoop.hbase.regionserver.StoreUtils;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 
 /**
@@ -60,8 +59,7 @@ public class RatioBasedCompactionPolicy extends SortedCompactionPolicy {
     if (filesToCompact == null || filesToCompact.isEmpty() || mcTime == 0) {
       return result;
     }
-    // TODO: Use better method for determining stamp of last major (HBASE-2990)
-    long lowTimestamp = StoreUtils.getLowestTimestamp(filesToCompact);
+    long lowTimestamp = getLastMajorCompactionTime(filesToCompact);
     long now = EnvironmentEdgeManager.currentTime();
     if (lowTimestamp > 0L && lowTimestamp < (now - mcTime)) {
       // Major compaction time has elapsed.
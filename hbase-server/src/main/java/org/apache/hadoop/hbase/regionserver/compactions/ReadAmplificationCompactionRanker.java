@@ -0,0 +1,126 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.hadoop.hbase.regionserver.Store;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+
+/**
+ * Ranks compactions by the read amplification they remove per byte they write.
+ * <p>
+ * Compacting n files into one saves every read of the store up to n - 1 file seeks, so the
+ * benefit of a compaction is taken as (n - 1) times the read rate of its region, and its cost as
+ * the bytes it rewrites. Every store gets a base read rate of 1 per second, so the compactions of
+ * idle regions are still ranked by the files they remove per byte. A hot region with many small
+ * files therefore runs before a cold region's large compaction.
+ * <p>
+ * The read rate of a region is measured between the times its compactions are ranked, so it is
+ * only known from the second compaction a region queues on this server.
+ */
+@InterfaceAudience.Private
+public class ReadAmplificationCompactionRanker implements CompactionRanker {
+
+  /** Compactions smaller than this are costed as this large */
+  private static final long MIN_COST = 1024 * 1024;
+  /** Read rates are measured over at least this long */
+  private static final long MIN_RATE_INTERVAL_MS = 1000;
+  /** Regions not ranked for this long are forgotten */
+  private static final long RATE_EXPIRY_MS = 60 * 60 * 1000;
+
+  private static final class ReadRate {
+    private long lastCount;
+    private long lastTime;
+    private double rate;
+
+    ReadRate(long count, long time) {
+      this.lastCount = count;
+      this.lastTime = time;
+    }
+  }
+
+  private final ConcurrentMap<String, ReadRate> readRates =
+      new ConcurrentHashMap<String, ReadRate>();
+  private volatile long lastExpiry = EnvironmentEdgeManager.currentTime();
+
+  @Override
+  public double rank(Region region, Store store, CompactionRequest request) {
+    int files;
+    long size;
+    if (request != null) {
+      files = request.getFiles().size();
+      size = request.getSize();
+    } else {
+      files = store.getStorefilesCount();
+      size = store.getStorefilesSize();
+    }
+    if (files < 2) {
+      return 0;
+    }
+    double readRate = getReadRate(region);
+    return (files - 1) * (1 + readRate) * MIN_COST / Math.max(size, MIN_COST);
+  }
+
+  /**
+   * @return the reads per second of the region since it was last ranked
+   */
+  double getReadRate(Region region) {
+    long now = EnvironmentEdgeManager.currentTime();
+    long count = region.getReadRequestsCount();
+    String name = region.getRegionInfo().getEncodedName();
+    ReadRate readRate = readRates.get(name);
+    if (readRate == null) {
+      ReadRate existing = readRates.putIfAbsent(name, readRate = new ReadRate(count, now));
+      if (existing != null) {
+        readRate = existing;
+      }
+    }
+    double rate;
+    synchronized (readRate) {
+      long elapsed = now - readRate.lastTime;
+      if (elapsed >= MIN_RATE_INTERVAL_MS) {
+        readRate.rate = (double) Math.max(0, count - readRate.lastCount) / elapsed * 1000;
+        readRate.lastCount = count;
+        readRate.lastTime = now;
+      }
+      rate = readRate.rate;
+    }
+    expire(now);
+    return rate;
+  }
+
+  private void expire(long now) {
+    if (now - lastExpiry < RATE_EXPIRY_MS / 6) {
+      return;
+    }
+    lastExpiry = now;
+    for (Iterator<ReadRate> it = readRates.values().iterator(); it.hasNext();) {
+      ReadRate readRate = it.next();
+      synchronized (readRate) {
+        if (now - readRate.lastTime > RATE_EXPIRY_MS) {
+          it.remove();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.regionserver.InternalScanner;
+import org.apache.hadoop.hbase.regionserver.KeyValueScanner;
+import org.apache.hadoop.hbase.regionserver.ScannerContext;
+import org.apache.hadoop.hbase.regionserver.Shipper;
+
+/**
+ * Restricts a compaction scanner to the rows from a start row, inclusive, up to a stop row,
+ * exclusive. Used to compact the key ranges of a compaction concurrently, see
+ * {@link DefaultCompactor#PARALLEL_SUBTASKS_KEY}.
+ * <p>
+ * A delegate that is a {@link KeyValueScanner}, like the default {@link
+ * org.apache.hadoop.hbase.regionserver.StoreScanner}, is seeked to the start row; cells before it
+ * that a coprocessor provided scanner returns are skipped. Deletes only ever cover cells of their
+ * own row, so compacting ranges split at row boundaries gives the same cells as compacting the
+ * whole key space at once.
+ */
+@InterfaceAudience.Private
+class RowRangeScanner implements InternalScanner, Shipper {
+  private final InternalScanner delegate;
+  private final CellComparator comparator;
+  private final byte[] startRow;
+  private final byte[] stopRow;
+  private boolean pastStartRow;
+
+  /**
+   * @param delegate the scanner over the whole key space
+   * @param comparator the store's comparator
+   * @param startRow the first row to return; null to start at the first row
+   * @param stopRow the row to stop at; null to scan to the last row
+   */
+  RowRangeScanner(InternalScanner delegate, CellComparator comparator, byte[] startRow,
+      byte[] stopRow) throws IOException {
+    this.delegate = delegate;
+    this.comparator = comparator;
+    this.startRow = startRow;
+    this.stopRow = stopRow;
+    this.pastStartRow = startRow == null;
+    if (startRow != null && delegate instanceof KeyValueScanner) {
+      ((KeyValueScanner) delegate).seek(CellUtil.createFirstOnRow(startRow));
+    }
+  }
+
+  @Override
+  public boolean next(List<Cell> results) throws IOException {
+    return next(results, ScannerContext.newBuilder().build());
+  }
+
+  @Override
+  public boolean next(List<Cell> results, ScannerContext scannerContext) throws IOException {
+    int from = results.size();
+    boolean moreRows = delegate.next(results, scannerContext);
+    if (!pastStartRow) {
+      int skip = from;
+      while (skip < results.size()
+          && comparator.compareRows(results.get(skip), startRow, 0, startRow.length) < 0) {
+        skip++;
+      }
+      results.subList(from, skip).clear();
+      pastStartRow = results.size() > from;
+    }
+    if (stopRow != null) {
+      for (int i = from; i < results.size(); i++) {
+        if (comparator.compareRows(results.get(i), stopRow, 0, stopRow.length) >= 0) {
+          results.subList(i, results.size()).clear();
+          return false;
+        }
+      }
+    }
+    return moreRows;
+  }
+
+  @Override
+  public void shipped() throws IOException {
+    if (delegate instanceof Shipper) {
+      ((Shipper) delegate).shipped();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    delegate.close();
+  }
+}
@@ -28,6 +28,7 @@ import org.apache.hadoop.hbase.classification.InterfaceAudience;
 import org.apache.hadoop.hbase.regionserver.StoreConfigInformation;
 import org.apache.hadoop.hbase.regionserver.StoreFile;
 import org.apache.hadoop.hbase.regionserver.StoreUtils;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 
 /**
  * An abstract compaction policy that select files on seq id order.
@@ -37,6 +38,10 @@ public abstract class SortedCompactionPolicy extends CompactionPolicy {
 
   private static final Log LOG = LogFactory.getLog(SortedCompactionPolicy.class);
 
+  // When the last major compaction that left unchanged files out of it was selected. The files
+  // left out keep their age, which would otherwise have every selection try a major again.
+  private volatile long lastFilteredMajorCompactionTime = 0;
+
   public SortedCompactionPolicy(Configuration conf, StoreConfigInformation storeConfigInfo) {
     super(conf, storeConfigInfo);
   }
@@ -84,6 +89,34 @@ public abstract class SortedCompactionPolicy extends CompactionPolicy {
     // Or, if there are any references among the candidates.
     boolean isAfterSplit = StoreUtils.hasReferences(candidateSelection);
 
+    CompactionRequest result = createCompactionRequest(candidateFiles,
+      new ArrayList<StoreFile>(candidateSelection), isTryingMajor, isAfterSplit,
+      isUserCompaction, mayUseOffPeak, mayBeStuck);
+    if (result.isMajor() && comConf.isSkipUnchangedFiles()) {
+      // Still a compaction of all files, as far as dropping deletes goes. Minor compactions are
+      // there to bring the number of files down, so they are never filtered; neither is a major
+      // compaction of a store with too many files if too few files would be left.
+      long now = EnvironmentEdgeManager.currentTime();
+      List<StoreFile> filesToRewrite = new UnchangedFileFilter(storeConfigInfo.getFamily())
+          .getFilesToRewrite(result.getFiles(), now);
+      if (filesToRewrite.isEmpty() && !forceMajor) {
+        // Nothing to major compact; unless asked for, the files still need minor compactions
+        lastFilteredMajorCompactionTime = now;
+        result = createCompactionRequest(candidateFiles, candidateSelection, false, false,
+          isUserCompaction, mayUseOffPeak, mayBeStuck);
+      } else if (filesToRewrite.size() < result.getFiles().size()
+          && (!mayBeStuck || filesToRewrite.size() >= comConf.getMinFilesToCompact())) {
+        lastFilteredMajorCompactionTime = now;
+        result.updateFiles(filesToRewrite);
+      }
+    }
+
+    return result;
+  }
+
+  private CompactionRequest createCompactionRequest(Collection<StoreFile> candidateFiles,
+      ArrayList<StoreFile> candidateSelection, boolean isTryingMajor, boolean isAfterSplit,
+      boolean isUserCompaction, boolean mayUseOffPeak, boolean mayBeStuck) throws IOException {
     CompactionRequest result = createCompactionRequest(candidateSelection,
       isTryingMajor || isAfterSplit, mayUseOffPeak, mayBeStuck);
 
@@ -91,13 +124,25 @@ public abstract class SortedCompactionPolicy extends CompactionPolicy {
     removeExcessFiles(filesToCompact, isUserCompaction, isTryingMajor);
     result.updateFiles(filesToCompact);
 
-    isAllFiles = (candidateFiles.size() == filesToCompact.size());
+    boolean isAllFiles = (candidateFiles.size() == filesToCompact.size());
     result.setOffPeak(!filesToCompact.isEmpty() && !isAllFiles && mayUseOffPeak);
     result.setIsMajor(isTryingMajor && isAllFiles, isAllFiles);
-
     return result;
   }
 
+  /**
+   * @param filesToCompact the files of the store
+   * @return the time the store was last major compacted at, as far as it can be told: the lowest
+   *         timestamp of its files, or later if the last major compaction left files out of it
+   */
+  protected long getLastMajorCompactionTime(Collection<StoreFile> filesToCompact)
+      throws IOException {
+    // TODO: Use better method for determining stamp of last major (HBASE-2990)
+    long lowTimestamp = StoreUtils.getLowestTimestamp(filesToCompact);
+    return lowTimestamp > 0L ? Math.max(lowTimestamp, lastFilteredMajorCompactionTime)
+        : lowTimestamp;
+  }
+
   protected abstract CompactionRequest createCompactionRequest(ArrayList<StoreFile>
     candidateSelection, boolean tryingMajor, boolean mayUseOffPeak, boolean mayBeStuck)
     throws IOException;
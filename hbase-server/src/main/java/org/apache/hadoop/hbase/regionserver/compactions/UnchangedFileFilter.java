@@ -0,0 +1,145 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.regionserver.StoreFileReader;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Finds the files a compaction of all the files of a store would write out unchanged, so it can
+ * leave them be. Rewriting a file changes it only if the file has delete markers to drop, cells
+ * that are expired, deleted or beyond the maximum versions, or was written with other settings
+ * than the family has now. The first two are told from the {@link StoreFile#DELETE_COUNT} and
+ * {@link StoreFile#MAX_VERSIONS_KEY} every file records when written, and from the time ranges and
+ * row ranges of the files:
+ * <ul>
+ * <li>a delete marker only masks cells that are not newer than itself, so only the delete markers
+ * of files whose rows and time range reach the file matter;</li>
+ * <li>the file keeps all its cells, and does not leave the compaction of the files it is left out
+ * of with too many versions, if it and all the files whose rows reach it have at most the maximum
+ * versions of any column between them; older files count as well as newer ones, as the versions
+ * over the maximum may be in either.</li>
+ * </ul>
+ * Files written before these counts were recorded are always rewritten.
+ * <p>
+ * Leaving out such files keeps the compaction safe to drop delete markers: none of the delete
+ * markers it reads masks a cell of a file left out.
+ */
+@InterfaceAudience.Private
+public class UnchangedFileFilter {
+  private static final Log LOG = LogFactory.getLog(UnchangedFileFilter.class);
+
+  private final HColumnDescriptor family;
+
+  public UnchangedFileFilter(HColumnDescriptor family) {
+    this.family = family;
+  }
+
+  /**
+   * @param files all the files of the store
+   * @param now the current time
+   * @return the files a compaction of all of them would change
+   */
+  public List<StoreFile> getFilesToRewrite(Collection<StoreFile> files, long now) {
+    List<StoreFile> toRewrite = new ArrayList<StoreFile>(files.size());
+    for (StoreFile sf : files) {
+      if (!isUnchanged(sf, files, now)) {
+        toRewrite.add(sf);
+      }
+    }
+    if (toRewrite.size() < files.size() && LOG.isDebugEnabled()) {
+      LOG.debug("Leaving " + (files.size() - toRewrite.size()) + " of " + files.size()
+          + " files out of compaction, rewriting them would not change them");
+    }
+    return toRewrite;
+  }
+
+  boolean isUnchanged(StoreFile sf, Collection<StoreFile> files, long now) {
+    StoreFileReader reader = sf.getReader();
+    if (reader == null || sf.isReference() || sf.getFirstKey() == null
+        || !hasFamilySettings(reader)) {
+      return false;
+    }
+    Long minTimestamp = sf.getMinimumTimestamp();
+    long deletes = getLong(sf, StoreFile.DELETE_COUNT);
+    long versions = getInt(sf, StoreFile.MAX_VERSIONS_KEY);
+    if (minTimestamp == null || deletes != 0 || versions > family.getMaxVersions()) {
+      return false;
+    }
+    int ttl = family.getTimeToLive();
+    if (ttl != HConstants.FOREVER && minTimestamp < now - ttl * 1000L) {
+      return false;
+    }
+    CellComparator comparator = reader.getComparator();
+    for (StoreFile other : files) {
+      if (other == sf || other.getFirstKey() == null
+          || comparator.compareRows(other.getFirstKey(), sf.getLastKey()) > 0
+          || comparator.compareRows(sf.getFirstKey(), other.getLastKey()) > 0) {
+        continue;
+      }
+      Long otherMaxTimestamp = other.getMaximumTimestamp();
+      boolean mayBeNewer = otherMaxTimestamp == null || otherMaxTimestamp >= minTimestamp;
+      if (mayBeNewer && getLong(other, StoreFile.DELETE_COUNT) != 0) {
+        return false;
+      }
+      versions += getInt(other, StoreFile.MAX_VERSIONS_KEY);
+      if (versions > family.getMaxVersions()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean hasFamilySettings(StoreFileReader reader) {
+    if (family.getEncryptionType() != null) {
+      return false; // keys get rotated by rewriting
+    }
+    HFileContext context = reader.getHFileReader().getFileContext();
+    return context.getCompression() == family.getCompactionCompressionType()
+        && context.getDataBlockEncoding() == family.getDataBlockEncoding()
+        && reader.getBloomFilterType() == family.getBloomFilterType();
+  }
+
+  /**
+   * @return the value, or Long.MAX_VALUE if the file does not have it
+   */
+  private static long getLong(StoreFile sf, byte[] key) {
+    byte[] value = sf.getMetadataValue(key);
+    return value == null ? Long.MAX_VALUE : Bytes.toLong(value);
+  }
+
+  /**
+   * @return the value, or Integer.MAX_VALUE if the file does not have it
+   */
+  private static int getInt(StoreFile sf, byte[] key) {
+    byte[] value = sf.getMetadataValue(key);
+    return value == null ? Integer.MAX_VALUE : Bytes.toInt(value);
+  }
+}
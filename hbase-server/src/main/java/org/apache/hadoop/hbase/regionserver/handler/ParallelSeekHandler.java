@@ -30,7 +30,8 @@ import org.apache.hadoop.hbase.executor.EventType;
 import org.apache.hadoop.hbase.regionserver.KeyValueScanner;
 
 /**
- * Handler to seek storefiles in parallel.
+ * Handler to seek storefiles in parallel. If no key is given, the handler enforces the real
+ * seek of a scanner that previously had a lazy seek requested on it.
  */
 @InterfaceAudience.Private
 public class ParallelSeekHandler extends EventHandler {
@@ -50,10 +51,22 @@ public class ParallelSeekHandler extends EventHandler {
     this.latch = latch;
   }
 
+  /**
+   * Create a handler that enforces a seek previously requested on the scanner with
+   * {@link KeyValueScanner#requestSeek(Cell, boolean, boolean)}.
+   */
+  public ParallelSeekHandler(KeyValueScanner scanner, long readPoint, CountDownLatch latch) {
+    this(scanner, null, readPoint, latch);
+  }
+
   @Override
   public void process() {
     try {
-      scanner.seek(keyValue);
+      if (keyValue == null) {
+        scanner.enforceSeek();
+      } else {
+        scanner.seek(keyValue);
+      }
     } catch (IOException e) {
       LOG.error("", e);
       setErr(e);
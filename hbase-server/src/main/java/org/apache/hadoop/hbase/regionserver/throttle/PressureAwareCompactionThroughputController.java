@@ -75,6 +75,7 @@ public class PressureAwareCompactionThroughputController extends PressureAwareTh
 
   @Override
   public void setup(final RegionServerServices server) {
+    setThroughputBudget(server.getThroughputBudget(), false);
     server.getChoreService().scheduleChore(
       new ScheduledChore("CompactionThroughputTuner", this, tuningPeriod) {
 
@@ -68,6 +68,7 @@ public class PressureAwareFlushThroughputController extends PressureAwareThrough
 
   @Override
   public void setup(final RegionServerServices server) {
+    setThroughputBudget(server.getThroughputBudget(), true);
     server.getChoreService().scheduleChore(
       new ScheduledChore("FlushThroughputTuner", this, tuningPeriod, this.tuningPeriod) {
 
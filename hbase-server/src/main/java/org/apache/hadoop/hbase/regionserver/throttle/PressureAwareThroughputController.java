@@ -79,6 +79,10 @@ public abstract class PressureAwareThroughputController extends Configured imple
   protected final ConcurrentMap<String, ActiveOperation> activeOperations =
       new ConcurrentHashMap<String, ActiveOperation>();
 
+  /** The region server wide budget shared with the other kind of operation, if any */
+  private volatile ThroughputBudget budget;
+  private boolean budgetForFlushes;
+
   @Override
   public abstract void setup(final RegionServerServices server);
 
@@ -94,10 +98,25 @@ public abstract class PressureAwareThroughputController extends Configured imple
     }
   }
 
+  /**
+   * Makes the operations controlled also share the given budget with the other kind of
+   * operation. Called from {@link #setup(RegionServerServices)}.
+   * @param budget the region server's budget; null if there is none
+   * @param forFlushes whether this controller controls flushes rather than compactions
+   */
+  protected void setThroughputBudget(ThroughputBudget budget, boolean forFlushes) {
+    this.budgetForFlushes = forFlushes;
+    this.budget = budget;
+  }
+
   @Override
   public void start(String opName) {
     activeOperations.put(opName, new ActiveOperation());
     maxThroughputPerOperation = getMaxThroughput() / activeOperations.size();
+    ThroughputBudget budget = this.budget;
+    if (budget != null) {
+      budget.start(budgetForFlushes);
+    }
   }
 
   @Override
@@ -109,7 +128,19 @@ public abstract class PressureAwareThroughputController extends Configured imple
       return 0;
     }
     long now = EnvironmentEdgeManager.currentTime();
-    long minTimeAllowed = (long) (deltaSize / maxThroughputPerOperation * 1000); // ms
+    double maxThroughputAllowed = maxThroughputPerOperation;
+    ThroughputBudget budget = this.budget;
+    if (budget != null) {
+      if (budgetForFlushes) {
+        budget.recordFlush(deltaSize);
+      }
+      // An unlimited controller means there is pressure to catch up, ignore the budget then.
+      if (getMaxThroughput() < Double.MAX_VALUE) {
+        maxThroughputAllowed = Math.min(maxThroughputAllowed,
+          budget.getMaxThroughputPerOperation(budgetForFlushes, maxThroughputLowerBound));
+      }
+    }
+    long minTimeAllowed = (long) (deltaSize / maxThroughputAllowed * 1000); // ms
     long elapsedTime = now - operation.lastControlTime;
     operation.lastControlSize = operation.totalSize;
     if (elapsedTime >= minTimeAllowed) {
@@ -124,7 +155,7 @@ public abstract class PressureAwareThroughputController extends Configured imple
         LOG.debug("deltaSize: " + deltaSize + " bytes; elapseTime: " + elapsedTime + " ns");
         LOG.debug(opName + " sleep " + sleepTime + " ms because current throughput is "
             + throughputDesc(deltaSize, elapsedTime) + ", max allowed is "
-            + throughputDesc(maxThroughputPerOperation) + ", already slept "
+            + throughputDesc(maxThroughputAllowed) + ", already slept "
             + operation.numberOfSleeps + " time(s) and total slept time is "
             + operation.totalSleepTime + " ms till now.");
         operation.lastLogTime = now;
@@ -149,6 +180,10 @@ public abstract class PressureAwareThroughputController extends Configured imple
   public void finish(String opName) {
     ActiveOperation operation = activeOperations.remove(opName);
     maxThroughputPerOperation = getMaxThroughput() / activeOperations.size();
+    ThroughputBudget budget = this.budget;
+    if (budget != null) {
+      budget.finish(budgetForFlushes);
+    }
     long elapsedTime = EnvironmentEdgeManager.currentTime() - operation.startTime;
     LOG.info(opName + " average throughput is "
         + throughputDesc(operation.totalSize, elapsedTime) + ", slept "
@@ -0,0 +1,120 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.throttle;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+
+/**
+ * A region server wide budget for the bytes per second that flushes and compactions write
+ * together, shared by the {@link PressureAwareFlushThroughputController} and the
+ * {@link PressureAwareCompactionThroughputController} of a region server.
+ * <p>
+ * Flushes may use the whole budget, since writes block once the memstores are full. Compactions
+ * share what the flushes of the last second have left of it, but never get less than the lower
+ * bound of the compaction controller. Either controller going unlimited because of pressure, i.e.
+ * stores at their blocking file count or memstores at their limit, lifts the budget for it.
+ */
+@InterfaceAudience.Private
+public class ThroughputBudget {
+
+  /** Bytes per second flushes and compactions may write together; 0 or less for no budget */
+  public static final String THROUGHPUT_BUDGET_KEY = "hbase.regionserver.throughput.budget";
+  public static final long DEFAULT_THROUGHPUT_BUDGET = 0;
+
+  private static final long RATE_WINDOW_MS = 1000;
+
+  private final double bound;
+  private final AtomicInteger activeFlushes = new AtomicInteger();
+  private final AtomicInteger activeCompactions = new AtomicInteger();
+
+  private long windowStart = EnvironmentEdgeManager.currentTime();
+  private long windowFlushBytes;
+  private volatile double flushRate;
+
+  ThroughputBudget(double bound) {
+    this.bound = bound;
+  }
+
+  /**
+   * @return the budget configured, or null if there is none
+   */
+  public static ThroughputBudget create(Configuration conf) {
+    long bound = conf.getLong(THROUGHPUT_BUDGET_KEY, DEFAULT_THROUGHPUT_BUDGET);
+    return bound > 0 ? new ThroughputBudget(bound) : null;
+  }
+
+  void start(boolean flush) {
+    (flush ? activeFlushes : activeCompactions).incrementAndGet();
+  }
+
+  void finish(boolean flush) {
+    (flush ? activeFlushes : activeCompactions).decrementAndGet();
+  }
+
+  /**
+   * Accounts bytes written by a flush.
+   */
+  synchronized void recordFlush(long size) {
+    windowFlushBytes += size;
+    rollWindow(EnvironmentEdgeManager.currentTime());
+  }
+
+  private synchronized void rollWindow(long now) {
+    long elapsed = now - windowStart;
+    if (elapsed >= RATE_WINDOW_MS) {
+      flushRate = (double) windowFlushBytes / elapsed * 1000;
+      windowFlushBytes = 0;
+      windowStart = now;
+    }
+  }
+
+  /**
+   * @return the bytes per second flushes wrote recently
+   */
+  double getFlushRate() {
+    rollWindow(EnvironmentEdgeManager.currentTime());
+    return flushRate;
+  }
+
+  /**
+   * @param flush whether asking for a flush or a compaction
+   * @param lowerBound the least throughput all operations of the kind together get
+   * @return the bytes per second a single running operation of the kind may write
+   */
+  double getMaxThroughputPerOperation(boolean flush, double lowerBound) {
+    if (flush) {
+      return bound / Math.max(1, activeFlushes.get());
+    }
+    double left = Math.max(bound - getFlushRate(), lowerBound);
+    return left / Math.max(1, activeCompactions.get());
+  }
+
+  public double getBound() {
+    return bound;
+  }
+
+  @Override
+  public String toString() {
+    return "ThroughputBudget [bound=" + bound + ", activeFlushes=" + activeFlushes
+        + ", activeCompactions=" + activeCompactions + ", flushRate=" + flushRate + "]";
+  }
+}
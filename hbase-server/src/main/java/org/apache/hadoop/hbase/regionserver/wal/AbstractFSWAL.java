@@ -218,6 +218,9 @@ public abstract class AbstractFSWAL<W> implements WAL {
    */
   volatile W writer;
 
+  // The file the current writer writes to, set along with it
+  volatile Path writerPath;
+
   protected volatile boolean closed = false;
 
   protected final AtomicBoolean shutdown = new AtomicBoolean(false);
@@ -556,6 +559,23 @@ public abstract class AbstractFSWAL<W> implements WAL {
     return walFile2Props.size();
   }
 
+  // public only until class moves to o.a.h.h.wal
+  /**
+   * @return the bytes written so far to the given WAL file if it is the one being written to, -1
+   *         otherwise. Unlike the length the NameNode reports, this includes the last block.
+   */
+  public long getWrittenLength(Path path) {
+    W currentWriter = this.writer;
+    Path currentPath = this.writerPath;
+    if (currentWriter == null || currentPath == null
+        || !currentPath.getName().equals(path.getName())) {
+      return -1;
+    }
+    long length = getWriterLength(currentWriter);
+    // The writer may have been rolled meanwhile
+    return currentWriter == this.writer ? length : -1;
+  }
+
   // public only until class moves to o.a.h.h.wal
   /** @return the number of log files in use */
   public int getNumLogFiles() {
@@ -905,6 +925,7 @@ public abstract class AbstractFSWAL<W> implements WAL {
         i.visitLogEntryBeforeWrite(entry.getKey(), entry.getEdit());
       }
     }
+    long startPosition = getWriterLength(writer);
     doAppend(writer, entry);
     assert highestUnsyncedTxid < entry.getTxid();
     highestUnsyncedTxid = entry.getTxid();
@@ -913,6 +934,7 @@ public abstract class AbstractFSWAL<W> implements WAL {
     coprocessorHost.postWALWrite(entry.getHRegionInfo(), entry.getKey(), entry.getEdit());
     // Update metrics.
     postAppend(entry, EnvironmentEdgeManager.currentTime() - start);
+    postWrite(startPosition, getWriterLength(writer), entry);
     numEntries.incrementAndGet();
     return true;
   }
@@ -930,6 +952,15 @@ public abstract class AbstractFSWAL<W> implements WAL {
     return len;
   }
 
+  private void postWrite(final long startPosition, final long endPosition,
+      final FSWALEntry entry) {
+    if (!listeners.isEmpty()) {
+      for (WALActionsListener listener : listeners) {
+        listener.postWrite(this, writerPath, startPosition, endPosition, entry.getTxid(), entry);
+      }
+    }
+  }
+
   protected void postSync(final long timeInNanos, final int handlerSyncs) {
     if (timeInNanos > this.slowSyncNs) {
       String msg = new StringBuilder().append("Slow sync cost: ").append(timeInNanos / 1000000)
@@ -941,6 +972,10 @@ public abstract class AbstractFSWAL<W> implements WAL {
       for (WALActionsListener listener : listeners) {
         listener.postSync(timeInNanos, handlerSyncs);
       }
+      long syncedTxid = highestSyncedTxid.get();
+      for (WALActionsListener listener : listeners) {
+        listener.postSynced(this, syncedTxid);
+      }
     }
   }
 
@@ -990,6 +1025,11 @@ public abstract class AbstractFSWAL<W> implements WAL {
 
   protected abstract void doAppend(W writer, FSWALEntry entry) throws IOException;
 
+  /**
+   * @return the length of the file the writer has written so far, synced or not
+   */
+  protected abstract long getWriterLength(W writer);
+
   protected abstract W createWriterInstance(Path path) throws IOException;
 
   /**
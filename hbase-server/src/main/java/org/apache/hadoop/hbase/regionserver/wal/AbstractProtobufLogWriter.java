@@ -37,6 +37,7 @@ import org.apache.hadoop.hbase.HBaseInterfaceAudience;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.classification.InterfaceAudience;
 import org.apache.hadoop.hbase.codec.Codec;
+import org.apache.hadoop.hbase.io.compress.Compression;
 import org.apache.hadoop.hbase.io.crypto.Cipher;
 import org.apache.hadoop.hbase.io.crypto.Encryption;
 import org.apache.hadoop.hbase.io.crypto.Encryptor;
@@ -138,13 +139,29 @@ public abstract class AbstractProtobufLogWriter {
     return getClass().getSimpleName();
   }
 
+  /**
+   * @return the algorithm to compress cell values with, or null if values are not compressed.
+   *         Values are only compressed along with the rest of the WAL.
+   */
+  private static Compression.Algorithm getValueCompressionAlgorithm(Configuration conf) {
+    if (conf.getBoolean(HConstants.ENABLE_WAL_COMPRESSION, false)
+        && conf.getBoolean(CompressionContext.ENABLE_WAL_VALUE_COMPRESSION, false)) {
+      Compression.Algorithm algorithm = Compression.getCompressionAlgorithmByName(
+        conf.get(CompressionContext.WAL_VALUE_COMPRESSION_TYPE,
+          CompressionContext.DEFAULT_WAL_VALUE_COMPRESSION_TYPE));
+      return algorithm == Compression.Algorithm.NONE ? null : algorithm;
+    }
+    return null;
+  }
+
   private boolean initializeCompressionContext(Configuration conf, Path path) throws IOException {
     boolean doCompress = conf.getBoolean(HConstants.ENABLE_WAL_COMPRESSION, false);
     if (doCompress) {
       try {
         this.compressionContext = new CompressionContext(LRUDictionary.class,
             FSUtils.isRecoveredEdits(path),
-            conf.getBoolean(CompressionContext.ENABLE_WAL_TAGS_COMPRESSION, true));
+            conf.getBoolean(CompressionContext.ENABLE_WAL_TAGS_COMPRESSION, true),
+            getValueCompressionAlgorithm(conf));
       } catch (Exception e) {
         throw new IOException("Failed to initiate CompressionContext", e);
       }
@@ -167,15 +184,22 @@ public abstract class AbstractProtobufLogWriter {
 
     boolean doTagCompress = doCompress
         && conf.getBoolean(CompressionContext.ENABLE_WAL_TAGS_COMPRESSION, true);
-    length.set(writeMagicAndWALHeader(ProtobufLogReader.PB_WAL_MAGIC, buildWALHeader(conf,
-      WALHeader.newBuilder().setHasCompression(doCompress).setHasTagCompression(doTagCompress))));
+    WALHeader.Builder headerBuilder =
+        WALHeader.newBuilder().setHasCompression(doCompress).setHasTagCompression(doTagCompress);
+    Compression.Algorithm valueCompressionType = getValueCompressionAlgorithm(conf);
+    if (valueCompressionType != null) {
+      headerBuilder.setValueCompressionAlgorithm(valueCompressionType.ordinal());
+    }
+    length.set(writeMagicAndWALHeader(ProtobufLogReader.PB_WAL_MAGIC,
+      buildWALHeader(conf, headerBuilder)));
 
     initAfterHeader(doCompress);
 
     // instantiate trailer to default value.
     trailer = WALTrailer.newBuilder().build();
     if (LOG.isTraceEnabled()) {
-      LOG.trace("Initialized protobuf WAL=" + path + ", compression=" + doCompress);
+      LOG.trace("Initialized protobuf WAL=" + path + ", compression=" + doCompress
+          + ", valueCompression=" + valueCompressionType);
     }
   }
 
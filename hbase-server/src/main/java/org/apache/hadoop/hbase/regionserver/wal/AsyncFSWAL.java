@@ -661,6 +661,7 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
     waitForSafePoint();
     final AsyncWriter oldWriter = this.writer;
     this.writer = nextWriter;
+    this.writerPath = newPath;
     if (nextWriter != null && nextWriter instanceof AsyncProtobufLogWriter) {
       this.fsOut = ((AsyncProtobufLogWriter) nextWriter).getOutput();
     }
@@ -703,6 +704,11 @@ public class AsyncFSWAL extends AbstractFSWAL<AsyncWriter> {
     writer.append(entry);
   }
 
+  @Override
+  protected long getWriterLength(AsyncWriter writer) {
+    return writer.getLength();
+  }
+
   @Override
   DatanodeInfo[] getPipeline() {
     AsyncFSOutput output = this.fsOut;
@@ -139,6 +139,10 @@ public class AsyncProtobufLogWriter extends AbstractProtobufLogWriter
     } catch (Exception e) {
       LOG.warn("normal close failed, try recover", e);
       output.recoverAndClose(null);
+    } finally {
+      if (compressionContext != null) {
+        compressionContext.close();
+      }
     }
     this.output = null;
   }
@@ -18,13 +18,22 @@
 
 package org.apache.hadoop.hbase.regionserver.wal;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
 import org.apache.hadoop.hbase.classification.InterfaceAudience;
 import org.apache.hadoop.hbase.io.TagCompressionContext;
+import org.apache.hadoop.hbase.io.compress.Compression;
 import org.apache.hadoop.hbase.io.util.Dictionary;
+import org.apache.hadoop.io.IOUtils;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
+import org.apache.hadoop.io.compress.Compressor;
+import org.apache.hadoop.io.compress.Decompressor;
 
 /**
  * Context that holds the various dictionaries for compression in WAL.
@@ -35,6 +44,14 @@ public class CompressionContext {
   static final String ENABLE_WAL_TAGS_COMPRESSION =
       "hbase.regionserver.wal.tags.enablecompression";
 
+  static final String ENABLE_WAL_VALUE_COMPRESSION =
+      "hbase.regionserver.wal.value.enablecompression";
+
+  static final String WAL_VALUE_COMPRESSION_TYPE =
+      "hbase.regionserver.wal.value.compression.type";
+
+  static final String DEFAULT_WAL_VALUE_COMPRESSION_TYPE = Compression.Algorithm.GZ.getName();
+
   // visible only for WALKey, until we move everything into o.a.h.h.wal
   public final Dictionary regionDict;
   public final Dictionary tableDict;
@@ -43,10 +60,23 @@ public class CompressionContext {
   final Dictionary rowDict;
   // Context used for compressing tags
   TagCompressionContext tagCompressionContext = null;
+  // Compressor for cell values, null if values are written as is
+  ValueCompressor valueCompressor = null;
 
   public CompressionContext(Class<? extends Dictionary> dictType, boolean recoveredEdits,
       boolean hasTagCompression) throws SecurityException, NoSuchMethodException,
       InstantiationException, IllegalAccessException, InvocationTargetException {
+    this(dictType, recoveredEdits, hasTagCompression, null);
+  }
+
+  /**
+   * @param valueCompressionType the algorithm to compress cell values with, or null to write
+   *          values uncompressed
+   */
+  public CompressionContext(Class<? extends Dictionary> dictType, boolean recoveredEdits,
+      boolean hasTagCompression, Compression.Algorithm valueCompressionType)
+      throws SecurityException, NoSuchMethodException, InstantiationException,
+      IllegalAccessException, InvocationTargetException {
     Constructor<? extends Dictionary> dictConstructor =
         dictType.getConstructor();
     regionDict = dictConstructor.newInstance();
@@ -68,6 +98,109 @@ public class CompressionContext {
     if (hasTagCompression) {
       tagCompressionContext = new TagCompressionContext(dictType, Short.MAX_VALUE);
     }
+    if (valueCompressionType != null && valueCompressionType != Compression.Algorithm.NONE) {
+      valueCompressor = new ValueCompressor(valueCompressionType);
+    }
+  }
+
+  /**
+   * @return the algorithm cell values are compressed with, or null if they are not compressed
+   */
+  public Compression.Algorithm getValueCompressionType() {
+    return valueCompressor == null ? null : valueCompressor.algorithm;
+  }
+
+  /**
+   * Compresses cell values one at a time with a block compression algorithm. Every value is
+   * compressed into a frame of its own, so unlike the dictionaries there is no state carried from
+   * one value to the next: a reader can decompress any value without having seen the ones before
+   * it, and a reader that is reset to re-read an open WAL needs nothing rebuilt for values.
+   * <p>
+   * Values shorter than {@link #MIN_COMPRESSED_VALUE_SIZE}, and values that do not get smaller,
+   * are stored as is.
+   */
+  static class ValueCompressor {
+    /** Values shorter than this rarely shrink enough to pay for a frame */
+    static final int MIN_COMPRESSED_VALUE_SIZE = 64;
+
+    final Compression.Algorithm algorithm;
+    private Compressor compressor;
+    private ByteArrayOutputStream compressedByteStream;
+    private CompressionOutputStream compressionStream;
+    private Decompressor decompressor;
+
+    ValueCompressor(Compression.Algorithm algorithm) {
+      this.algorithm = algorithm;
+    }
+
+    /**
+     * @return the compressed value, or null if the value should be stored uncompressed
+     */
+    byte[] compress(byte[] value, int offset, int length) throws IOException {
+      if (length < MIN_COMPRESSED_VALUE_SIZE) {
+        return null;
+      }
+      if (compressionStream == null) {
+        compressor = algorithm.getCompressor();
+        compressedByteStream = new ByteArrayOutputStream();
+        compressionStream = algorithm.createPlainCompressionStream(compressedByteStream,
+          compressor);
+      }
+      compressedByteStream.reset();
+      compressionStream.resetState();
+      compressionStream.write(value, offset, length);
+      compressionStream.flush();
+      compressionStream.finish();
+      if (compressedByteStream.size() >= length) {
+        return null;
+      }
+      return compressedByteStream.toByteArray();
+    }
+
+    /**
+     * Reads a compressed value of compressedLength bytes from the stream and decompresses it into
+     * the given array.
+     */
+    void decompress(InputStream in, int compressedLength, byte[] to, int offset, int length)
+        throws IOException {
+      byte[] compressed = new byte[compressedLength];
+      IOUtils.readFully(in, compressed, 0, compressedLength);
+      if (decompressor == null) {
+        decompressor = algorithm.getDecompressor();
+      } else {
+        decompressor.reset();
+      }
+      InputStream is = algorithm.createDecompressionStream(
+        new ByteArrayInputStream(compressed), decompressor, 0);
+      IOUtils.readFully(is, to, offset, length);
+    }
+
+    /**
+     * Returns the codecs to the pool of the algorithm. They are taken again if the compressor is
+     * used afterwards.
+     */
+    void release() {
+      if (compressor != null) {
+        algorithm.returnCompressor(compressor);
+        compressor = null;
+        compressedByteStream = null;
+        compressionStream = null;
+      }
+      if (decompressor != null) {
+        algorithm.returnDecompressor(decompressor);
+        decompressor = null;
+      }
+    }
+  }
+
+  /**
+   * Releases the resources held for value compression. Called when the WAL writer or reader
+   * using this context is closed.
+   */
+  void close() {
+    if (valueCompressor != null) {
+      valueCompressor.release();
+    }
   }
 
   void clear() {
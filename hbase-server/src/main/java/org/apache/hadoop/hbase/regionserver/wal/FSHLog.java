@@ -303,6 +303,11 @@ public class FSHLog extends AbstractFSWAL<Writer> {
     writer.append(entry);
   }
 
+  @Override
+  protected long getWriterLength(Writer writer) {
+    return writer.getLength();
+  }
+
   @Override
   protected long doReplaceWriter(Path oldPath, Path newPath, Writer nextWriter) throws IOException {
     // Ask the ring buffer writer to pause at a safe point. Once we do this, the writer
@@ -370,6 +375,7 @@ public class FSHLog extends AbstractFSWAL<Writer> {
         }
       }
       this.writer = nextWriter;
+      this.writerPath = newPath;
       if (nextWriter != null && nextWriter instanceof ProtobufLogWriter) {
         this.hdfs_out = ((ProtobufLogWriter) nextWriter).getStream();
       } else {
@@ -33,8 +33,10 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.hdfs.client.HdfsDataInputStream;
 import org.apache.hadoop.hbase.codec.Codec;
 import org.apache.hadoop.hbase.io.LimitInputStream;
+import org.apache.hadoop.hbase.io.compress.Compression;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
 import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos;
@@ -80,6 +82,7 @@ public class ProtobufLogReader extends ReaderBase {
   protected WALCellCodec.ByteStringUncompressor byteStringUncompressor;
   protected boolean hasCompression = false;
   protected boolean hasTagCompression = false;
+  protected Compression.Algorithm valueCompressionType = null;
   // walEditsStopOffset is the position of the last byte to read. After reading the last WALEdit
   // entry in the wal, the inputstream's position is equal to walEditsStopOffset.
   private long walEditsStopOffset;
@@ -145,6 +148,9 @@ public class ProtobufLogReader extends ReaderBase {
       this.inputStream.close();
       this.inputStream = null;
     }
+    if (this.compressionContext != null) {
+      this.compressionContext.close();
+    }
   }
 
   @Override
@@ -152,6 +158,17 @@ public class ProtobufLogReader extends ReaderBase {
     return inputStream.getPos();
   }
 
+  /**
+   * @return the length of the file as far as this reader can see, including the last block of a
+   *         file still being written to, or -1 if the stream does not tell
+   */
+  public long getVisibleLength() throws IOException {
+    if (inputStream instanceof HdfsDataInputStream) {
+      return ((HdfsDataInputStream) inputStream).getVisibleLength();
+    }
+    return -1;
+  }
+
   @Override
   public void reset() throws IOException {
     String clsName = initInternal(null, false);
@@ -224,6 +241,13 @@ public class ProtobufLogReader extends ReaderBase {
       WALProtos.WALHeader header = builder.build();
       this.hasCompression = header.hasHasCompression() && header.getHasCompression();
       this.hasTagCompression = header.hasHasTagCompression() && header.getHasTagCompression();
+      if (header.hasValueCompressionAlgorithm()) {
+        int ordinal = header.getValueCompressionAlgorithm();
+        if (ordinal < 0 || ordinal >= Compression.Algorithm.values().length) {
+          throw new IOException("Unknown WAL value compression algorithm: " + ordinal);
+        }
+        this.valueCompressionType = Compression.Algorithm.values()[ordinal];
+      }
     }
     this.inputStream = stream;
     this.walEditsStopOffset = this.fileLength;
@@ -322,6 +346,11 @@ public class ProtobufLogReader extends ReaderBase {
     return this.hasTagCompression;
   }
 
+  @Override
+  protected Compression.Algorithm getValueCompressionAlgorithm() {
+    return this.valueCompressionType;
+  }
+
   @Override
   protected boolean readNext(Entry entry) throws IOException {
     while (true) {
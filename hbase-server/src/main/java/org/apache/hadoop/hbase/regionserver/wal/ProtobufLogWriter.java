@@ -66,6 +66,10 @@ public class ProtobufLogWriter extends AbstractProtobufLogWriter
       } catch (NullPointerException npe) {
         // Can get a NPE coming up from down in DFSClient$DFSOutputStream#close
         LOG.warn(npe);
+      } finally {
+        if (compressionContext != null) {
+          compressionContext.close();
+        }
       }
       this.output = null;
     }
@@ -30,6 +30,7 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.io.compress.Compression;
 import org.apache.hadoop.hbase.io.util.LRUDictionary;
 import org.apache.hadoop.hbase.util.FSUtils;
 import org.apache.hadoop.hbase.wal.AbstractFSWALProvider;
@@ -71,7 +72,8 @@ public abstract class ReaderBase implements AbstractFSWALProvider.Reader {
       try {
         if (compressionContext == null) {
           compressionContext = new CompressionContext(LRUDictionary.class,
-              FSUtils.isRecoveredEdits(path), hasTagCompression());
+              FSUtils.isRecoveredEdits(path), hasTagCompression(),
+              getValueCompressionAlgorithm());
         } else {
           compressionContext.clear();
         }
@@ -156,6 +158,13 @@ public abstract class ReaderBase implements AbstractFSWALProvider.Reader {
    */
   protected abstract boolean hasTagCompression();
 
+  /**
+   * @return The algorithm cell values of this log are compressed with, null if they are not.
+   */
+  protected Compression.Algorithm getValueCompressionAlgorithm() {
+    return null;
+  }
+
   /**
    * Read next entry.
    * @param e The entry to read into.
@@ -24,6 +24,7 @@ import org.apache.hadoop.hbase.classification.InterfaceAudience;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HRegionInfo;
 
+import org.apache.hadoop.hbase.wal.WAL;
 import org.apache.hadoop.hbase.wal.WALKey;
 
 /**
@@ -113,6 +114,27 @@ public interface WALActionsListener {
    */
   void postSync(final long timeInNanos, final int handlerSyncs);
 
+  /**
+   * For notification post append to the writer, with where in the WAL file the entry went. The
+   * entry is neither durable nor visible to readers of the file until
+   * {@link #postSynced(WAL, long)} reports its txid as synced.
+   * @param wal the WAL appended to
+   * @param path the WAL file the entry was written to
+   * @param startPosition the offset of the entry in the file
+   * @param endPosition the offset of the entry after it
+   * @param txid the txid of the append
+   * @param entry the entry; it is owned by the WAL, copy what needs to outlive the call
+   */
+  void postWrite(WAL wal, Path path, long startPosition, long endPosition, long txid,
+      WAL.Entry entry);
+
+  /**
+   * For notification post writer sync, with how far the WAL is synced.
+   * @param wal the WAL synced
+   * @param syncedTxid all appends up to this txid are synced
+   */
+  void postSynced(WAL wal, long syncedTxid);
+
   static class Base implements WALActionsListener {
     @Override
     public void preLogRoll(Path oldPath, Path newPath) throws IOException {}
@@ -146,5 +168,12 @@ public interface WALActionsListener {
 
     @Override
     public void postSync(final long timeInNanos, final int handlerSyncs) {}
+
+    @Override
+    public void postWrite(WAL wal, Path path, long startPosition, long endPosition, long txid,
+        WAL.Entry entry) {}
+
+    @Override
+    public void postSynced(WAL wal, long syncedTxid) {}
   }
 }
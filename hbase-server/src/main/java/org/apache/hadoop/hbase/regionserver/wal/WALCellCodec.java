@@ -23,6 +23,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.ByteBufferCell;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
@@ -211,10 +212,14 @@ public class WALCellCodec implements Codec {
       CellUtil.compressRow(out, cell, compression.rowDict);
       CellUtil.compressFamily(out, cell, compression.familyDict);
       CellUtil.compressQualifier(out, cell, compression.qualifierDict);
-      // Write timestamp, type and value as uncompressed.
+      // Write timestamp and type as uncompressed.
       StreamUtils.writeLong(out, cell.getTimestamp());
       out.write(cell.getTypeByte());
-      CellUtil.writeValue(out, cell, cell.getValueLength());
+      if (compression.valueCompressor != null) {
+        writeCompressedValue(cell);
+      } else {
+        CellUtil.writeValue(out, cell, cell.getValueLength());
+      }
       if (tagsLength > 0) {
         if (compression.tagCompressionContext != null) {
           // Write tags using Dictionary compression
@@ -226,6 +231,34 @@ public class WALCellCodec implements Codec {
         }
       }
     }
+
+    /**
+     * Writes the length of the compressed value followed by the compressed bytes, or a zero
+     * length followed by the value as is when it is not worth compressing.
+     */
+    private void writeCompressedValue(Cell cell) throws IOException {
+      int valueLength = cell.getValueLength();
+      if (valueLength == 0) {
+        return;
+      }
+      byte[] value;
+      int valueOffset;
+      if (cell instanceof ByteBufferCell) {
+        value = CellUtil.cloneValue(cell);
+        valueOffset = 0;
+      } else {
+        value = cell.getValueArray();
+        valueOffset = cell.getValueOffset();
+      }
+      byte[] compressed = compression.valueCompressor.compress(value, valueOffset, valueLength);
+      if (compressed == null) {
+        StreamUtils.writeRawVInt32(out, 0);
+        out.write(value, valueOffset, valueLength);
+      } else {
+        StreamUtils.writeRawVInt32(out, compressed.length);
+        out.write(compressed);
+      }
+    }
   }
 
   static class CompressedKvDecoder extends BaseDecoder {
@@ -274,7 +307,12 @@ public class WALCellCodec implements Codec {
       if (tagsLength > 0) {
         tsTypeValLen = tsTypeValLen - tagsLength - KeyValue.TAGS_LENGTH_SIZE;
       }
-      IOUtils.readFully(in, backingArray, pos, tsTypeValLen);
+      if (compression.valueCompressor != null) {
+        IOUtils.readFully(in, backingArray, pos, KeyValue.TIMESTAMP_TYPE_SIZE);
+        readValue(backingArray, pos + KeyValue.TIMESTAMP_TYPE_SIZE, vlength);
+      } else {
+        IOUtils.readFully(in, backingArray, pos, tsTypeValLen);
+      }
       pos += tsTypeValLen;
 
       // tags
@@ -289,6 +327,18 @@ public class WALCellCodec implements Codec {
       return new KeyValue(backingArray, 0, length);
     }
 
+    private void readValue(byte[] to, int offset, int vlength) throws IOException {
+      if (vlength == 0) {
+        return;
+      }
+      int compressedLength = StreamUtils.readRawVarint32(in);
+      if (compressedLength == 0) {
+        IOUtils.readFully(in, to, offset, vlength);
+      } else {
+        compression.valueCompressor.decompress(in, compressedLength, to, offset, vlength);
+      }
+    }
+
     private int readIntoArray(byte[] to, int offset, Dictionary dict) throws IOException {
       byte status = (byte)in.read();
       if (status == Dictionary.NOT_IN_DICTIONARY) {
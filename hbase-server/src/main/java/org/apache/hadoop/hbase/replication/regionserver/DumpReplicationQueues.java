@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.TreeMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -52,6 +53,7 @@ import org.apache.hadoop.hbase.replication.ReplicationQueues;
 import org.apache.hadoop.hbase.replication.ReplicationQueuesClient;
 import org.apache.hadoop.hbase.replication.ReplicationQueuesClientArguments;
 import org.apache.hadoop.hbase.replication.ReplicationTracker;
+import org.apache.hadoop.hbase.wal.AbstractFSWALProvider;
 import org.apache.hadoop.hbase.zookeeper.ZKUtil;
 import org.apache.hadoop.hbase.zookeeper.ZooKeeperWatcher;
 import org.apache.hadoop.util.Tool;
@@ -66,6 +68,7 @@ import com.google.common.util.concurrent.AtomicLongMap;
  * Usage: hbase org.apache.hadoop.hbase.replication.regionserver.DumpReplicationQueues [args]
  * Arguments: --distributed    Polls each RS to dump information about the queue
  *            --hdfs           Reports HDFS usage by the replication queues (note: can be overestimated).
+ *                             Also reports, per WAL group, the bytes of WAL left to replicate.
  */
 
 public class DumpReplicationQueues extends Configured implements Tool {
@@ -372,24 +375,35 @@ public class DumpReplicationQueues extends Configured implements Tool {
     sb.append("    Number of WALs in replication queue: " + wals.size() + "\n");
     peersQueueSize.addAndGet(queueInfo.getPeerId(), wals.size());
 
+    Map<String, Long> positions = new HashMap<String, Long>();
     for (String wal : wals) {
       long position = replicationQueues.getLogPosition(queueInfo.getPeerId(), wal);
+      positions.put(wal, position);
       sb.append("    Replication position for " + wal + ": " + (position > 0 ? position : "0"
           + " (not started or nothing to replicate)") + "\n");
     }
 
     if (hdfs) {
       FileSystem fs = FileSystem.get(getConf());
+      Map<String, Long> walGroupSizes = new TreeMap<String, Long>();
       sb.append("    Total size of WALs on HDFS for this queue: "
-          + StringUtils.humanSize(getTotalWALSize(fs, wals, regionserver)) + "\n");
+          + StringUtils.humanSize(getTotalWALSize(fs, wals, regionserver, positions,
+            walGroupSizes)) + "\n");
+      for (Map.Entry<String, Long> entry : walGroupSizes.entrySet()) {
+        sb.append("    Size of WALs left to replicate for WAL group " + entry.getKey() + ": "
+            + StringUtils.humanSize(entry.getValue()) + "\n");
+      }
     }
     return sb.toString();
   }
   /**
    *  return total size in bytes from a list of WALs
+   *  @param positions the replication position in each of the WALs
+   *  @param walGroupSizes gets the bytes past those positions, by WAL group
    */
-  private long getTotalWALSize(FileSystem fs, List<String> wals, String server) throws IOException {
-    int size = 0;
+  private long getTotalWALSize(FileSystem fs, List<String> wals, String server,
+      Map<String, Long> positions, Map<String, Long> walGroupSizes) throws IOException {
+    long size = 0;
     FileStatus fileStatus;
 
     for (String wal : wals) {
@@ -405,6 +419,11 @@ public class DumpReplicationQueues extends Configured implements Tool {
         continue;
       }
       size += fileStatus.getLen();
+      String walGroup = AbstractFSWALProvider.getWALPrefixFromWALName(wal);
+      Long position = positions.get(wal);
+      long left = fileStatus.getLen() - (position == null ? 0 : Math.max(0, position));
+      Long groupSize = walGroupSizes.get(walGroup);
+      walGroupSizes.put(walGroup, (groupSize == null ? 0 : groupSize) + Math.max(0, left));
     }
 
     totalSizeOfWALs += size;
@@ -92,16 +92,11 @@ public class HFileReplicator {
       String sourceBaseNamespaceDirPath, String sourceHFileArchiveDirPath,
       Map<String, List<Pair<byte[], List<String>>>> tableQueueMap, Configuration conf,
       Connection connection) throws IOException {
+    this(conf, connection);
     this.sourceClusterConf = sourceClusterConf;
     this.sourceBaseNamespaceDirPath = sourceBaseNamespaceDirPath;
     this.sourceHFileArchiveDirPath = sourceHFileArchiveDirPath;
     this.bulkLoadHFileMap = tableQueueMap;
-    this.conf = conf;
-    this.connection = connection;
-
-    userProvider = UserProvider.instantiate(conf);
-    fsDelegationToken = new FsDelegationToken(userProvider, "renewer");
-    this.hbaseStagingDir = new Path(FSUtils.getRootDir(conf), HConstants.BULKLOAD_STAGING_DIR_NAME);
     this.maxCopyThreads =
         this.conf.getInt(REPLICATION_BULKLOAD_COPY_MAXTHREADS_KEY,
           REPLICATION_BULKLOAD_COPY_MAXTHREADS_DEFAULT);
@@ -114,7 +109,19 @@ public class HFileReplicator {
     this.copiesPerThread =
         conf.getInt(REPLICATION_BULKLOAD_COPY_HFILES_PERTHREAD_KEY,
           REPLICATION_BULKLOAD_COPY_HFILES_PERTHREAD_DEFAULT);
+  }
+
+  /**
+   * Creates a replicator that only loads HFiles written to its staging directories on this
+   * cluster, see {@link #createStagingDir(TableName)} and {@link #loadStagingDir(TableName, Path)}.
+   */
+  HFileReplicator(Configuration conf, Connection connection) throws IOException {
+    this.conf = conf;
+    this.connection = connection;
 
+    userProvider = UserProvider.instantiate(conf);
+    fsDelegationToken = new FsDelegationToken(userProvider, "renewer");
+    this.hbaseStagingDir = new Path(FSUtils.getRootDir(conf), HConstants.BULKLOAD_STAGING_DIR_NAME);
     sinkFs = FileSystem.get(conf);
   }
 
@@ -122,51 +129,68 @@ public class HFileReplicator {
     // Copy all the hfiles to the local file system
     Map<String, Path> tableStagingDirsMap = copyHFilesToStagingDir();
 
-    int maxRetries = conf.getInt(HConstants.BULKLOAD_MAX_RETRIES_NUMBER, 10);
-
     for (Entry<String, Path> tableStagingDir : tableStagingDirsMap.entrySet()) {
-      String tableNameString = tableStagingDir.getKey();
-      Path stagingDir = tableStagingDir.getValue();
-
-      LoadIncrementalHFiles loadHFiles = null;
-      try {
-        loadHFiles = new LoadIncrementalHFiles(conf);
-      } catch (Exception e) {
-        LOG.error("Failed to initialize LoadIncrementalHFiles for replicating bulk loaded"
-            + " data.", e);
-        throw new IOException(e);
+      if (!loadStagingDir(TableName.valueOf(tableStagingDir.getKey()),
+        tableStagingDir.getValue())) {
+        return null;
       }
-      Configuration newConf = HBaseConfiguration.create(conf);
-      newConf.set(LoadIncrementalHFiles.CREATE_TABLE_CONF_KEY, "no");
-      loadHFiles.setConf(newConf);
+    }
+    return null;
+  }
 
-      TableName tableName = TableName.valueOf(tableNameString);
-      Table table = this.connection.getTable(tableName);
+  /**
+   * @return a new staging directory for HFiles of the table, to be filled with one directory per
+   *         family and passed to {@link #loadStagingDir(TableName, Path)}
+   */
+  Path createStagingDir(TableName tableName) throws IOException {
+    return createStagingDir(hbaseStagingDir, userProvider.getCurrent(), tableName);
+  }
 
-      // Prepare collection of queue of hfiles to be loaded(replicated)
-      Deque<LoadQueueItem> queue = new LinkedList<LoadQueueItem>();
-      loadHFiles.prepareHFileQueue(stagingDir, table, queue, false);
+  /**
+   * Bulk loads the HFiles in the family directories of the staging directory into the table, then
+   * deletes the staging directory.
+   * @return false if the staging directory held no HFiles
+   */
+  boolean loadStagingDir(TableName tableName, Path stagingDir) throws IOException {
+    int maxRetries = conf.getInt(HConstants.BULKLOAD_MAX_RETRIES_NUMBER, 10);
 
-      if (queue.isEmpty()) {
-        LOG.warn("Replication process did not find any files to replicate in directory "
-            + stagingDir.toUri());
-        return null;
-      }
+    LoadIncrementalHFiles loadHFiles = null;
+    try {
+      loadHFiles = new LoadIncrementalHFiles(conf);
+    } catch (Exception e) {
+      LOG.error("Failed to initialize LoadIncrementalHFiles for replicating bulk loaded"
+          + " data.", e);
+      throw new IOException(e);
+    }
+    Configuration newConf = HBaseConfiguration.create(conf);
+    newConf.set(LoadIncrementalHFiles.CREATE_TABLE_CONF_KEY, "no");
+    loadHFiles.setConf(newConf);
 
-      try (RegionLocator locator = connection.getRegionLocator(tableName)) {
+    Table table = this.connection.getTable(tableName);
 
-        fsDelegationToken.acquireDelegationToken(sinkFs);
+    // Prepare collection of queue of hfiles to be loaded(replicated)
+    Deque<LoadQueueItem> queue = new LinkedList<LoadQueueItem>();
+    loadHFiles.prepareHFileQueue(stagingDir, table, queue, false);
 
-        // Set the staging directory which will be used by LoadIncrementalHFiles for loading the
-        // data
-        loadHFiles.setBulkToken(stagingDir.toString());
+    if (queue.isEmpty()) {
+      LOG.warn("Replication process did not find any files to replicate in directory "
+          + stagingDir.toUri());
+      return false;
+    }
 
-        doBulkLoad(loadHFiles, table, queue, locator, maxRetries);
-      } finally {
-        cleanup(stagingDir.toString(), table);
-      }
+    try (RegionLocator locator = connection.getRegionLocator(tableName)) {
+
+      fsDelegationToken.acquireDelegationToken(sinkFs);
+
+      // Set the staging directory which will be used by LoadIncrementalHFiles for loading the
+      // data
+      loadHFiles.setBulkToken(stagingDir.toString());
+
+      doBulkLoad(loadHFiles, table, queue, locator, maxRetries);
+    } finally {
+      cleanup(stagingDir.toString(), table);
     }
-    return null;
+    return true;
   }
 
   private void doBulkLoad(LoadIncrementalHFiles loadHFiles, Table table,
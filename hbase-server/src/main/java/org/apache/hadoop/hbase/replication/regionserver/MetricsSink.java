@@ -82,6 +82,15 @@ public class MetricsSink {
     mss.incrAppliedHFiles(hfileSize);
   }
 
+  /**
+   * Count the replicated cells that were bulk loaded rather than applied as mutations.
+   *
+   * @param cells number of cells bulk loaded
+   */
+  public void incrBulkLoadedCells(long cells) {
+    mss.incrBulkLoadedCells(cells);
+  }
+
   /**
    * Get the Age of Last Applied Op
    * @return ageOfLastAppliedOp
@@ -18,14 +18,18 @@
 
 package org.apache.hadoop.hbase.replication.regionserver;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.hbase.classification.InterfaceAudience;
 import org.apache.hadoop.hbase.CompatibilitySingletonFactory;
 import org.apache.hadoop.hbase.HBaseInterfaceAudience;
+import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.metrics.BaseSource;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 
@@ -43,6 +47,11 @@ public class MetricsSource implements BaseSource {
   private int lastQueueSize = 0;
   private long lastHFileRefsQueueSize = 0;
   private String id;
+  // bytes of WAL left to replicate for each wal group
+  private final Map<String, Long> walGroupQueueSizes = new ConcurrentHashMap<String, Long>();
+  // the per wal group and per table metrics registered on the single source, to remove on clear
+  private final Set<String> dynamicMetrics =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
   private final MetricsReplicationSourceSource singleSourceSource;
   private final MetricsReplicationSourceSource globalSourceSource;
@@ -83,6 +92,7 @@ public class MetricsSource implements BaseSource {
     long age = EnvironmentEdgeManager.currentTime() - timestamp;
     singleSourceSource.setLastShippedAge(age);
     globalSourceSource.setLastShippedAge(age);
+    setWALGroupGauge(walGroup, "ageOfLastShippedOp", age);
     this.lastTimeStamps.put(walGroup, timestamp);
   }
 
@@ -179,11 +189,121 @@ public class MetricsSource implements BaseSource {
     globalSourceSource.incrLogReadInBytes(readInBytes);
   }
 
+  /**
+   * Record the time it took to read a batch of entries from the WAL.
+   * @param walGroup the wal group the entries were read from
+   * @param time the time in milliseconds
+   */
+  public void updateWALReadTime(String walGroup, long time) {
+    singleSourceSource.updateWALReadTime(time);
+    globalSourceSource.updateWALReadTime(time);
+    updateWALGroupHistogram(walGroup, "walReadTime", time);
+  }
+
+  /**
+   * Record the time spent filtering a batch of entries read from the WAL.
+   * @param walGroup the wal group the entries were read from
+   * @param time the time in milliseconds
+   */
+  public void updateFilterTime(String walGroup, long time) {
+    singleSourceSource.updateFilterTime(time);
+    globalSourceSource.updateFilterTime(time);
+    updateWALGroupHistogram(walGroup, "filterTime", time);
+  }
+
+  /**
+   * Record the time the peer took to replicate and acknowledge a batch.
+   * @param walGroup the wal group the batch was read from
+   * @param time the time in milliseconds
+   */
+  public void updateShipTime(String walGroup, long time) {
+    singleSourceSource.updateShipTime(time);
+    globalSourceSource.updateShipTime(time);
+    updateWALGroupHistogram(walGroup, "shipTime", time);
+  }
+
+  /**
+   * Record the size of a shipped batch.
+   * @param walGroup the wal group the batch was read from
+   * @param sizeInBytes the size of the batch
+   */
+  public void updateShippedBatchSize(String walGroup, long sizeInBytes) {
+    singleSourceSource.updateShippedBatchSize(sizeInBytes);
+    globalSourceSource.updateShippedBatchSize(sizeInBytes);
+    updateWALGroupHistogram(walGroup, "shippedBatchSize", sizeInBytes);
+  }
+
+  /**
+   * Set the number of bytes of WAL a wal group still has to replicate.
+   * @param walGroup the wal group
+   * @param sizeInBytes the bytes left in the current WAL and all the queued ones
+   */
+  public void setSizeOfLogQueueInBytes(String walGroup, long sizeInBytes) {
+    Long previous = walGroupQueueSizes.put(walGroup, sizeInBytes);
+    long delta = sizeInBytes - (previous == null ? 0 : previous);
+    if (delta > 0) {
+      singleSourceSource.incrSizeOfLogQueueInBytes(delta);
+      globalSourceSource.incrSizeOfLogQueueInBytes(delta);
+    } else if (delta < 0) {
+      singleSourceSource.decrSizeOfLogQueueInBytes(-delta);
+      globalSourceSource.decrSizeOfLogQueueInBytes(-delta);
+    }
+    setWALGroupGauge(walGroup, "sizeOfLogQueueInBytes", sizeInBytes);
+  }
+
+  /**
+   * Convenience method to apply changes to the metrics of a table due to shipping its edits.
+   * @param table the table the edits belong to
+   * @param edits the number of WAL entries of the table that were shipped
+   * @param sizeInBytes the size of those entries
+   * @param lastWriteTime the write time of the newest of those entries
+   */
+  public void shipTableEdits(TableName table, long edits, long sizeInBytes, long lastWriteTime) {
+    String prefix = MetricsReplicationSourceSource.TABLE_PREFIX + table.getNamespaceAsString()
+        + "_" + table.getQualifierAsString() + ".";
+    incDynamicCounter(prefix + "shippedEdits", edits);
+    incDynamicCounter(prefix + "shippedBytes", sizeInBytes);
+    String ageName = prefix + "ageOfLastShippedOp";
+    dynamicMetrics.add(ageName);
+    singleSourceSource.setGauge(ageName, EnvironmentEdgeManager.currentTime() - lastWriteTime);
+  }
+
+  private static String walGroupMetric(String walGroup, String name) {
+    return MetricsReplicationSourceSource.WAL_GROUP_PREFIX + walGroup + "." + name;
+  }
+
+  private void updateWALGroupHistogram(String walGroup, String name, long value) {
+    String metric = walGroupMetric(walGroup, name);
+    dynamicMetrics.add(metric);
+    singleSourceSource.updateHistogram(metric, value);
+  }
+
+  private void setWALGroupGauge(String walGroup, String name, long value) {
+    String metric = walGroupMetric(walGroup, name);
+    dynamicMetrics.add(metric);
+    singleSourceSource.setGauge(metric, value);
+  }
+
+  private void incDynamicCounter(String name, long delta) {
+    dynamicMetrics.add(name);
+    singleSourceSource.incCounters(name, delta);
+  }
+
   /** Removes all metrics about this Source. */
   public void clear() {
     singleSourceSource.clear();
+    for (String metric : dynamicMetrics) {
+      singleSourceSource.removeMetric(metric);
+    }
+    dynamicMetrics.clear();
     globalSourceSource.decrSizeOfLogQueue(lastQueueSize);
     globalSourceSource.decrSizeOfHFileRefsQueue(lastHFileRefsQueueSize);
+    long queueSizeInBytes = 0;
+    for (long size : walGroupQueueSizes.values()) {
+      queueSizeInBytes += size;
+    }
+    globalSourceSource.decrSizeOfLogQueueInBytes(queueSizeInBytes);
+    walGroupQueueSizes.clear();
     lastTimeStamps.clear();
     lastQueueSize = 0;
     lastHFileRefsQueueSize = 0;
@@ -205,6 +325,16 @@ public class MetricsSource implements BaseSource {
     return singleSourceSource.getSizeOfLogQueue();
   }
 
+  /**
+   * Get the number of bytes of WAL left to replicate by a wal group
+   * @param walGroup the wal group
+   * @return sizeOfLogQueueInBytes of the group, 0 if not known yet
+   */
+  public long getSizeOfLogQueueInBytes(String walGroup) {
+    Long size = walGroupQueueSizes.get(walGroup);
+    return size == null ? 0 : size;
+  }
+
   /**
    * Get the timeStampsOfLastShippedOp, if there are multiple groups, return the latest one
    * @return lastTimestampForAge
@@ -57,6 +57,7 @@ import org.apache.hadoop.hbase.regionserver.wal.WALActionsListener;
 import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
 import org.apache.hadoop.hbase.replication.master.ReplicationHFileCleaner;
 import org.apache.hadoop.hbase.replication.master.ReplicationLogCleaner;
+import org.apache.hadoop.hbase.wal.WAL;
 import org.apache.hadoop.hbase.wal.WALKey;
 import org.apache.hadoop.hbase.zookeeper.ZKClusterId;
 import org.apache.zookeeper.KeeperException;
@@ -216,7 +217,7 @@ public class Replication extends WALActionsListener.Base implements
     } catch (ReplicationException e) {
       throw new IOException(e);
     }
-    this.replicationSink = new ReplicationSink(this.conf, this.server);
+    this.replicationSink = new ReplicationSink(this.conf, this.server, this.replicationPeers);
     this.scheduleThreadPool.scheduleAtFixedRate(
       new ReplicationStatisticsThread(this.replicationSink, this.replicationManager),
       statsThreadPeriod, statsThreadPeriod, TimeUnit.SECONDS);
@@ -289,6 +290,17 @@ public class Replication extends WALActionsListener.Base implements
     getReplicationManager().postLogRoll(newPath);
   }
 
+  @Override
+  public void postWrite(WAL wal, Path path, long startPosition, long endPosition, long txid,
+      WAL.Entry entry) {
+    getReplicationManager().postWrite(wal, path, startPosition, endPosition, txid, entry);
+  }
+
+  @Override
+  public void postSynced(WAL wal, long syncedTxid) {
+    getReplicationManager().postSynced(wal, syncedTxid);
+  }
+
   /**
    * This method modifies the master's configuration in order to inject replication-related features
    * @param conf
@@ -0,0 +1,203 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.replication.regionserver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.Threads;
+import org.apache.hadoop.hbase.wal.WAL;
+
+/**
+ * Keeps several batches of WAL entries in flight to the replication endpoint at once, so a source
+ * is not limited to one batch per round trip to the peer cluster.
+ * <p>
+ * Every batch is split into lanes by encoded region name and each lane ships its part of the
+ * batches one after the other, in the order they were submitted. The entries of a region therefore
+ * always travel through the same lane and reach the peer in WAL order, while the lanes of
+ * different regions, and the batches behind them, proceed independently. A batch is acknowledged
+ * once all of its lanes have shipped it, which can happen out of order; {@link #awaitAcked(int)}
+ * only hands batches back in submission order, so the caller can record a WAL position once every
+ * earlier batch has reached the peer too.
+ */
+@InterfaceAudience.Private
+class ReplicationBatchPipeline {
+
+  /**
+   * Ships the entries of one lane of a batch, retrying until they are acknowledged.
+   */
+  interface LaneShipper {
+    /**
+     * @param entries the entries of one lane of a batch, in WAL order
+     * @param size the heap size of the entries
+     * @return true once shipped, false if shipping was abandoned because the source is stopping
+     */
+    boolean ship(List<WAL.Entry> entries, int size);
+  }
+
+  /**
+   * A batch of entries read from a WAL together with the position to record once it is shipped.
+   */
+  static class Batch {
+    final List<WAL.Entry> entries;
+    final Path path;
+    final long position;
+    final boolean currentWALisBeingWrittenTo;
+    final int size;
+    final int nbOperations;
+    final long nbHFiles;
+    // guarded by the pipeline
+    private int pendingLanes;
+    private boolean failed;
+
+    Batch(List<WAL.Entry> entries, Path path, long position, boolean currentWALisBeingWrittenTo,
+        int size, int nbOperations, long nbHFiles) {
+      this.entries = entries;
+      this.path = path;
+      this.position = position;
+      this.currentWALisBeingWrittenTo = currentWALisBeingWrittenTo;
+      this.size = size;
+      this.nbOperations = nbOperations;
+      this.nbHFiles = nbHFiles;
+    }
+  }
+
+  private final ExecutorService[] lanes;
+  private final LaneShipper shipper;
+  // Submitted batches that have not been handed back yet, oldest first. Guarded by this.
+  private final Deque<Batch> inFlight = new ArrayDeque<>();
+
+  ReplicationBatchPipeline(String name, int numLanes, LaneShipper shipper) {
+    this.shipper = shipper;
+    this.lanes = new ExecutorService[numLanes];
+    for (int i = 0; i < numLanes; i++) {
+      lanes[i] = Executors.newSingleThreadExecutor(Threads.newDaemonThreadFactory(name + ".lane"));
+    }
+  }
+
+  static int getLane(WAL.Entry entry, int numLanes) {
+    return Math.abs(Bytes.hashCode(entry.getKey().getEncodedRegionName()) % numLanes);
+  }
+
+  int getLaneCount() {
+    return lanes.length;
+  }
+
+  /**
+   * Splits the batch into its lanes and queues them for shipping behind the batches submitted
+   * before it.
+   */
+  void submit(final Batch batch) {
+    List<List<WAL.Entry>> laneEntries = new ArrayList<>(lanes.length);
+    int[] laneSizes = new int[lanes.length];
+    for (int i = 0; i < lanes.length; i++) {
+      laneEntries.add(new ArrayList<WAL.Entry>());
+    }
+    for (WAL.Entry entry : batch.entries) {
+      int lane = getLane(entry, lanes.length);
+      laneEntries.get(lane).add(entry);
+      laneSizes[lane] += (int) entry.getEdit().heapSize();
+    }
+    int pending = 0;
+    for (List<WAL.Entry> entries : laneEntries) {
+      if (!entries.isEmpty()) {
+        pending++;
+      }
+    }
+    synchronized (this) {
+      batch.pendingLanes = pending;
+      inFlight.addLast(batch);
+    }
+    for (int i = 0; i < lanes.length; i++) {
+      final List<WAL.Entry> entries = laneEntries.get(i);
+      final int size = laneSizes[i];
+      if (entries.isEmpty()) {
+        continue;
+      }
+      lanes[i].execute(new Runnable() {
+        @Override
+        public void run() {
+          boolean shipped = false;
+          try {
+            shipped = shipper.ship(entries, size);
+          } finally {
+            laneDone(batch, shipped);
+          }
+        }
+      });
+    }
+  }
+
+  private synchronized void laneDone(Batch batch, boolean shipped) {
+    if (!shipped) {
+      batch.failed = true;
+    }
+    batch.pendingLanes--;
+    notifyAll();
+  }
+
+  /**
+   * @return the number of batches submitted and not handed back yet
+   */
+  synchronized int getInFlightCount() {
+    return inFlight.size();
+  }
+
+  /**
+   * Waits until no more than the given number of batches is in flight and hands back the batches
+   * that have been shipped, together with every batch submitted before them, oldest first. Returns
+   * early if a batch failed to ship; it and the batches after it are never handed back.
+   * @param maxInFlight the number of batches that may still be in flight on return
+   * @return the acknowledged batches, in submission order
+   */
+  synchronized List<Batch> awaitAcked(int maxInFlight) throws InterruptedException {
+    List<Batch> acked = new ArrayList<>();
+    while (true) {
+      while (!inFlight.isEmpty() && inFlight.peekFirst().pendingLanes == 0) {
+        if (inFlight.peekFirst().failed) {
+          return acked;
+        }
+        acked.add(inFlight.pollFirst());
+      }
+      if (inFlight.size() <= maxInFlight) {
+        return acked;
+      }
+      wait();
+    }
+  }
+
+  /**
+   * Stops the lanes, interrupting the shipping in progress.
+   * @return the batches that were not handed back
+   */
+  synchronized List<Batch> close() {
+    for (ExecutorService lane : lanes) {
+      lane.shutdownNow();
+    }
+    List<Batch> remaining = new ArrayList<>(inFlight);
+    inFlight.clear();
+    return remaining;
+  }
+}
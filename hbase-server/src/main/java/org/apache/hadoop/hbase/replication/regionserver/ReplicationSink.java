@@ -26,7 +26,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -50,12 +52,16 @@ import org.apache.hadoop.hbase.client.Mutation;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Row;
 import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.replication.ReplicationPeers;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.AdminProtos.WALEntry;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.HBaseProtos;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos.BulkLoadDescriptor;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos.FamilyScope;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos.ScopeType;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos.StoreDescriptor;
 import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
 import org.apache.hadoop.hbase.util.Pair;
 
 /**
@@ -77,6 +83,19 @@ import org.apache.hadoop.hbase.util.Pair;
 public class ReplicationSink {
 
   private static final Log LOG = LogFactory.getLog(ReplicationSink.class);
+
+  /**
+   * Age, in milliseconds, of the replicated edits from which the sink bulk loads large batches
+   * rather than applying them through the client write path. 0 disables bulk loading.
+   */
+  public static final String REPLICATION_SINK_BULKLOAD_LAG_KEY =
+      "hbase.replication.sink.bulkload.lag";
+  public static final long DEFAULT_REPLICATION_SINK_BULKLOAD_LAG = 0;
+  /** Minimum size of the edits of a table in one batch for them to be bulk loaded */
+  public static final String REPLICATION_SINK_BULKLOAD_MIN_SIZE_KEY =
+      "hbase.replication.sink.bulkload.min.size";
+  public static final long DEFAULT_REPLICATION_SINK_BULKLOAD_MIN_SIZE = 16 * 1024 * 1024;
+
   private final Configuration conf;
   // Volatile because of note in here -- look for double-checked locking:
   // http://www.oracle.com/technetwork/articles/javase/bloch-effective-08-qa-140880.html
@@ -87,6 +106,10 @@ public class ReplicationSink {
   // Number of hfiles that we successfully replicated
   private long hfilesReplicated = 0;
   private SourceFSConfigurationProvider provider;
+  private final long bulkLoadLag;
+  private final long bulkLoadMinSize;
+  // The peers this cluster replicates to, null if not known
+  private final ReplicationPeers replicationPeers;
 
   /**
    * Create a sink for replication
@@ -97,7 +120,22 @@ public class ReplicationSink {
    */
   public ReplicationSink(Configuration conf, Stoppable stopper)
       throws IOException {
+    this(conf, stopper, null);
+  }
+
+  /**
+   * Create a sink for replication
+   *
+   * @param conf                conf object
+   * @param stopper             boolean to tell this thread to stop
+   * @param replicationPeers    the peers this cluster replicates to; the sink does not bulk load
+   *                            while there are any, as bulk loaded edits are not replicated
+   * @throws IOException thrown when HDFS goes bad or bad file name
+   */
+  public ReplicationSink(Configuration conf, Stoppable stopper, ReplicationPeers replicationPeers)
+      throws IOException {
     this.conf = HBaseConfiguration.create(conf);
+    this.replicationPeers = replicationPeers;
     decorateConf();
     this.metrics = new MetricsSink();
 
@@ -112,6 +150,18 @@ public class ReplicationSink {
       throw new IllegalArgumentException("Configured source fs configuration provider class "
           + className + " throws error.", e);
     }
+    long lag = conf.getLong(REPLICATION_SINK_BULKLOAD_LAG_KEY,
+      DEFAULT_REPLICATION_SINK_BULKLOAD_LAG);
+    if (lag > 0 && conf.getBoolean(HConstants.REPLICATION_BULKLOAD_ENABLE_KEY,
+      HConstants.REPLICATION_BULKLOAD_ENABLE_DEFAULT)) {
+      // Bulk loads are replicated onwards without the ids of the clusters the edits came from
+      LOG.warn("Not bulk loading replicated edits, " + HConstants.REPLICATION_BULKLOAD_ENABLE_KEY
+          + " is set");
+      lag = 0;
+    }
+    this.bulkLoadLag = lag;
+    this.bulkLoadMinSize = conf.getLong(REPLICATION_SINK_BULKLOAD_MIN_SIZE_KEY,
+      DEFAULT_REPLICATION_SINK_BULKLOAD_MIN_SIZE);
   }
 
   /**
@@ -155,12 +205,23 @@ public class ReplicationSink {
       Map<TableName, Map<List<UUID>, List<Row>>> rowMap =
           new TreeMap<TableName, Map<List<UUID>, List<Row>>>();
 
+      // Map of table => Rows of the entries with a serial replication scope, kept in WAL order
+      Map<TableName, SerialBatches> serialRowMap = null;
+
+      // Map of table => Cells of the other entries, kept in case they are bulk loaded
+      Map<TableName, List<Cell>> bulkLoadCellMap = null;
+      if (bulkLoadLag > 0 && EnvironmentEdgeManager.currentTime()
+          - entries.get(entries.size() - 1).getKey().getWriteTime() >= bulkLoadLag) {
+        bulkLoadCellMap = new TreeMap<TableName, List<Cell>>();
+      }
+
       // Map of table name Vs list of pair of family and list of hfile paths from its namespace
       Map<String, List<Pair<byte[], List<String>>>> bulkLoadHFileMap = null;
 
       for (WALEntry entry : entries) {
         TableName table =
             TableName.valueOf(entry.getKey().getTableName().toByteArray());
+        boolean serial = hasSerialReplicationScope(entry);
         Cell previousCell = null;
         Mutation m = null;
         int count = entry.getAssociatedCellCount();
@@ -189,19 +250,43 @@ public class ReplicationSink {
                 clusterIds.add(toUUID(clusterId));
               }
               m.setClusterIds(clusterIds);
-              addToHashMultiMap(rowMap, table, clusterIds, m);
+              if (serial) {
+                if (serialRowMap == null) {
+                  serialRowMap = new TreeMap<TableName, SerialBatches>();
+                }
+                SerialBatches batches = serialRowMap.get(table);
+                if (batches == null) {
+                  batches = new SerialBatches();
+                  serialRowMap.put(table, batches);
+                }
+                batches.add(m);
+              } else {
+                addToHashMultiMap(rowMap, table, clusterIds, m);
+              }
             }
             if (CellUtil.isDelete(cell)) {
               ((Delete) m).addDeleteMarker(cell);
             } else {
               ((Put) m).add(cell);
             }
+            if (bulkLoadCellMap != null && !serial) {
+              List<Cell> tableCells = bulkLoadCellMap.get(table);
+              if (tableCells == null) {
+                tableCells = new ArrayList<Cell>();
+                bulkLoadCellMap.put(table, tableCells);
+              }
+              tableCells.add(cell);
+            }
             previousCell = cell;
           }
         }
         totalReplicated++;
       }
 
+      if (bulkLoadCellMap != null) {
+        bulkLoad(bulkLoadCellMap, rowMap);
+      }
+
       // TODO Replicating mutations and bulk loaded data can be made parallel
       if (!rowMap.isEmpty()) {
         LOG.debug("Started replicating mutations.");
@@ -211,6 +296,14 @@ public class ReplicationSink {
         LOG.debug("Finished replicating mutations.");
       }
 
+      if (serialRowMap != null) {
+        LOG.debug("Started replicating serial mutations.");
+        for (Entry<TableName, SerialBatches> entry : serialRowMap.entrySet()) {
+          batch(entry.getKey(), entry.getValue().batches);
+        }
+        LOG.debug("Finished replicating serial mutations.");
+      }
+
       if (bulkLoadHFileMap != null && !bulkLoadHFileMap.isEmpty()) {
         LOG.debug("Started replicating bulk loaded data.");
         HFileReplicator hFileReplicator =
@@ -231,6 +324,36 @@ public class ReplicationSink {
     }
   }
 
+  /**
+   * Bulk loads the cells of every table that has enough of them, instead of applying its rows.
+   * @param bulkLoadCellMap the cells to consider, by table
+   * @param rowMap the rows to apply, the tables bulk loaded are removed from it
+   */
+  private void bulkLoad(Map<TableName, List<Cell>> bulkLoadCellMap,
+      Map<TableName, Map<List<UUID>, List<Row>>> rowMap) throws IOException {
+    if (replicationPeers != null && !replicationPeers.getConnectedPeerIds().isEmpty()) {
+      // Bulk loaded edits skip the WAL, they would not be replicated on to the peers
+      return;
+    }
+    ReplicationSinkBulkLoader bulkLoader = null;
+    for (Entry<TableName, List<Cell>> entry : bulkLoadCellMap.entrySet()) {
+      long size = 0;
+      for (Cell cell : entry.getValue()) {
+        size += CellUtil.estimatedSerializedSizeOf(cell);
+      }
+      if (size < bulkLoadMinSize) {
+        continue;
+      }
+      if (bulkLoader == null) {
+        bulkLoader = new ReplicationSinkBulkLoader(conf, getConnection());
+      }
+      if (bulkLoader.bulkLoad(entry.getKey(), entry.getValue())) {
+        rowMap.remove(entry.getKey());
+        this.metrics.incrBulkLoadedCells(entry.getValue().size());
+      }
+    }
+  }
+
   private void buildBulkLoadHFileMap(
       final Map<String, List<Pair<byte[], List<String>>>> bulkLoadHFileMap, TableName table,
       Cell cell) throws IOException {
@@ -311,6 +434,36 @@ public class ReplicationSink {
         !CellUtil.matchingRow(previousCell, cell);
   }
 
+  private static boolean hasSerialReplicationScope(WALEntry entry) {
+    for (FamilyScope scope : entry.getKey().getScopesList()) {
+      if (scope.getScopeType() == ScopeType.REPLICATION_SCOPE_SERIAL) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * The mutations of a table's entries with a serial replication scope, split into batches that
+   * are applied one after the other. A client batch gives no guarantee on the order in which
+   * mutations of the same row are applied, so a new batch is started whenever the current one
+   * already holds a mutation of the row. Together with the source waiting on the replication
+   * barriers of a region, this applies the edits of every row in the order they were written.
+   */
+  static class SerialBatches {
+    final List<List<Row>> batches = new ArrayList<List<Row>>();
+    private final Set<byte[]> currentRows = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
+
+    void add(Mutation m) {
+      if (batches.isEmpty() || !currentRows.add(m.getRow())) {
+        batches.add(new ArrayList<Row>());
+        currentRows.clear();
+        currentRows.add(m.getRow());
+      }
+      batches.get(batches.size() - 1).add(m);
+    }
+  }
+
   private java.util.UUID toUUID(final HBaseProtos.UUID uuid) {
     return new java.util.UUID(uuid.getMostSigBits(), uuid.getLeastSigBits());
   }
@@ -0,0 +1,205 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.replication.regionserver;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.client.Connection;
+import org.apache.hadoop.hbase.client.RegionLocator;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
+import org.apache.hadoop.hbase.regionserver.HStore;
+import org.apache.hadoop.hbase.regionserver.StoreFileWriter;
+import org.apache.hadoop.hbase.util.Bytes;
+
+/**
+ * Applies replicated edits by writing them into HFiles and bulk loading those, instead of going
+ * through the client write path. Used by {@link ReplicationSink} for large batches of edits of a
+ * peer that is far behind, so catching up does not pay for a WAL append, memstore insert and
+ * flush of every edit on this cluster.
+ * <p>
+ * The cells of a table are sorted per family and cut into one HFile per region, so the bulk load
+ * does not have to split them. Of several cells with the same key the last one replicated wins,
+ * as it would have through the client write path.
+ */
+@InterfaceAudience.Private
+class ReplicationSinkBulkLoader {
+  private static final Log LOG = LogFactory.getLog(ReplicationSinkBulkLoader.class);
+
+  private final Configuration conf;
+  private final Connection connection;
+
+  ReplicationSinkBulkLoader(Configuration conf, Connection connection) {
+    this.conf = conf;
+    this.connection = connection;
+  }
+
+  /**
+   * Bulk loads the given cells into the table, unless the table is replicated itself.
+   * @param tableName the table to load into
+   * @param cells the cells to load, in the order they were replicated
+   * @return false if the cells were not loaded because a family of the table has a replication
+   *         scope; bulk loaded edits skip the WAL and would not be replicated any further
+   */
+  boolean bulkLoad(TableName tableName, List<Cell> cells) throws IOException {
+    HTableDescriptor htd;
+    byte[][] startKeys;
+    try (Table table = connection.getTable(tableName);
+        RegionLocator locator = connection.getRegionLocator(tableName)) {
+      htd = table.getTableDescriptor();
+      startKeys = locator.getStartKeys();
+    }
+    for (HColumnDescriptor family : htd.getColumnFamilies()) {
+      if (family.getScope() != HConstants.REPLICATION_SCOPE_LOCAL) {
+        return false;
+      }
+    }
+    Arrays.sort(startKeys, Bytes.BYTES_COMPARATOR);
+    Map<byte[], List<Cell>> familyCells = new TreeMap<byte[], List<Cell>>(Bytes.BYTES_COMPARATOR);
+    for (Cell cell : cells) {
+      byte[] family = CellUtil.cloneFamily(cell);
+      List<Cell> list = familyCells.get(family);
+      if (list == null) {
+        list = new ArrayList<Cell>();
+        familyCells.put(family, list);
+      }
+      list.add(cell);
+    }
+    HFileReplicator replicator = new HFileReplicator(conf, connection);
+    Path stagingDir = replicator.createStagingDir(tableName);
+    FileSystem fs = stagingDir.getFileSystem(conf);
+    int files = 0;
+    try {
+      for (Map.Entry<byte[], List<Cell>> entry : familyCells.entrySet()) {
+        HColumnDescriptor family = htd.getFamily(entry.getKey());
+        if (family == null) {
+          throw new IOException("Unknown family " + Bytes.toString(entry.getKey()) + " of table "
+              + tableName);
+        }
+        files += writeFamily(fs, new Path(stagingDir, family.getNameAsString()), family,
+          entry.getValue(), startKeys);
+      }
+      replicator.loadStagingDir(tableName, stagingDir);
+    } finally {
+      // loadStagingDir deletes it once it loaded the files, not when writing them failed
+      try {
+        fs.delete(stagingDir, true);
+      } catch (IOException e) {
+        LOG.warn("Failed to delete the staging directory " + stagingDir, e);
+      }
+    }
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("Bulk loaded " + cells.size() + " replicated cells into " + tableName + " from "
+          + files + " HFiles");
+    }
+    return true;
+  }
+
+  /**
+   * Writes the cells of a family, one HFile per region they fall into.
+   * @return the number of HFiles written
+   */
+  private int writeFamily(FileSystem fs, Path familyDir, HColumnDescriptor family,
+      List<Cell> cells, byte[][] startKeys) throws IOException {
+    // A stable sort keeps cells with the same key in replication order
+    Collections.sort(cells, CellComparator.COMPARATOR);
+    HFileContext context = new HFileContextBuilder()
+        .withCompression(family.getCompressionType())
+        .withChecksumType(HStore.getChecksumType(conf))
+        .withBytesPerCheckSum(HStore.getBytesPerChecksum(conf))
+        .withBlockSize(family.getBlocksize())
+        .withDataBlockEncoding(family.getDataBlockEncoding())
+        .withIncludesTags(true)
+        .build();
+    CacheConfig cacheConf = new CacheConfig(conf);
+    int files = 0;
+    int region = -1;
+    StoreFileWriter writer = null;
+    try {
+      for (int i = 0; i < cells.size(); i++) {
+        Cell cell = cells.get(i);
+        if (i + 1 < cells.size()
+            && CellComparator.COMPARATOR.compare(cell, cells.get(i + 1)) == 0) {
+          // Overwritten by a later edit
+          continue;
+        }
+        int cellRegion = getRegion(startKeys, cell);
+        if (writer == null || cellRegion != region) {
+          if (writer != null) {
+            writer.close();
+          }
+          region = cellRegion;
+          writer = new StoreFileWriter.Builder(conf, cacheConf, fs)
+              .withFilePath(new Path(familyDir, UUID.randomUUID().toString().replaceAll("-", "")))
+              .withBloomType(family.getBloomFilterType())
+              .withFileContext(context)
+              .build();
+          files++;
+        }
+        writer.append(cell);
+      }
+    } finally {
+      if (writer != null) {
+        writer.close();
+      }
+    }
+    return files;
+  }
+
+  /**
+   * @return the index of the region, by sorted start keys, the row of the cell falls into
+   */
+  static int getRegion(byte[][] startKeys, Cell cell) {
+    int low = 0;
+    int high = startKeys.length - 1;
+    int found = 0;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      if (Bytes.compareTo(startKeys[mid], 0, startKeys[mid].length, cell.getRowArray(),
+        cell.getRowOffset(), cell.getRowLength()) <= 0) {
+        found = mid;
+        low = mid + 1;
+      } else {
+        high = mid - 1;
+      }
+    }
+    return found;
+  }
+}
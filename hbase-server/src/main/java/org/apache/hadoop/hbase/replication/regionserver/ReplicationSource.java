@@ -30,10 +30,13 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.PriorityBlockingQueue;
@@ -96,6 +99,17 @@ public class ReplicationSource extends Thread
     implements ReplicationSourceInterface {
 
   private static final Log LOG = LogFactory.getLog(ReplicationSource.class);
+
+  /**
+   * Number of batches a worker keeps in flight to the peer, see {@link ReplicationBatchPipeline}.
+   * With 1, a batch is shipped and acknowledged before the next one is read.
+   */
+  public static final String PIPELINE_BATCHES_KEY = "hbase.replication.source.pipeline.batches";
+  public static final int DEFAULT_PIPELINE_BATCHES = 1;
+  /** Number of lanes the in flight batches of a worker are split into by region */
+  public static final String PIPELINE_LANES_KEY = "hbase.replication.source.pipeline.lanes";
+  public static final int DEFAULT_PIPELINE_LANES = 4;
+
   // Queues of logs to process, entry in format of walGroupId->queue,
   // each presents a queue for one wal group
   private Map<String, PriorityBlockingQueue<Path>> queues =
@@ -153,6 +167,9 @@ public class ReplicationSource extends Thread
 
   private AtomicLong totalBufferUsed;
   private long totalBufferQuota;
+  // Batches in flight per worker, and the lanes they ship in, when pipelining
+  private int pipelineBatches;
+  private int pipelineLanes;
 
   /**
    * Instantiation method used by region servers
@@ -208,10 +225,13 @@ public class ReplicationSource extends Thread
     this.totalBufferUsed = manager.getTotalBufferUsed();
     this.totalBufferQuota = conf.getLong(HConstants.REPLICATION_SOURCE_TOTAL_BUFFER_KEY,
         HConstants.REPLICATION_SOURCE_TOTAL_BUFFER_DFAULT);
+    this.pipelineBatches = Math.max(1, this.conf.getInt(PIPELINE_BATCHES_KEY,
+      DEFAULT_PIPELINE_BATCHES));
+    this.pipelineLanes = Math.max(1, this.conf.getInt(PIPELINE_LANES_KEY, DEFAULT_PIPELINE_LANES));
     LOG.info("peerClusterZnode=" + peerClusterZnode + ", ReplicationSource : " + peerId
         + " inited, replicationQueueSizeCapacity=" + replicationQueueSizeCapacity
         + ", replicationQueueNbCapacity=" + replicationQueueNbCapacity + ", curerntBandwidth="
-        + this.currentBandwidth);
+        + this.currentBandwidth + ", pipelineBatches=" + pipelineBatches);
   }
 
   private void decorateConf() {
@@ -496,6 +516,8 @@ public class ReplicationSource extends Thread
       long position = worker.getCurrentPosition();
       Path currentPath = worker.getCurrentPath();
       sb.append("walGroup [").append(walGroupId).append("]: ");
+      sb.append("size of log queue: ").append(metrics.getSizeOfLogQueueInBytes(walGroupId))
+          .append(" bytes, ");
       if (currentPath != null) {
         sb.append("currently replicating from: ").append(currentPath).append(" at position: ")
             .append(position).append("\n");
@@ -543,7 +565,12 @@ public class ReplicationSource extends Thread
     // Current number of hfiles that we need to replicate
     private long currentNbHFiles = 0;
     List<WAL.Entry> entries;
+    // Ships several batches at once when pipelining is enabled, null otherwise
+    private ReplicationBatchPipeline pipeline;
     // Use guava cache to set ttl for each key
+    // Lengths of the WALs of this group known to be closed, by name
+    private final Map<String, Long> closedWALLengths = new HashMap<String, Long>();
+    private long lastQueueSizeRefresh = 0;
     private LoadingCache<String, Boolean> canSkipWaitingSet = CacheBuilder.newBuilder()
         .expireAfterAccess(1, TimeUnit.DAYS).build(
         new CacheLoader<String, Boolean>() {
@@ -563,6 +590,16 @@ public class ReplicationSource extends Thread
       this.repLogReader = new ReplicationWALReaderManager(fs, conf);
       this.source = source;
       this.entries = new ArrayList<>();
+      if (pipelineBatches > 1) {
+        this.pipeline = new ReplicationBatchPipeline(
+            "replicationSource." + walGroupId + "," + peerClusterZnode,
+            pipelineLanes, new ReplicationBatchPipeline.LaneShipper() {
+              @Override
+              public boolean ship(List<WAL.Entry> laneEntries, int size) {
+                return replicateLane(laneEntries, size);
+              }
+            });
+      }
     }
 
     @Override
@@ -594,6 +631,10 @@ public class ReplicationSource extends Thread
         Path oldPath = getCurrentPath(); //note that in the current scenario,
                                          //oldPath will be null when a log roll
                                          //happens.
+        if (oldPath == null) {
+          // Moving to the next log cleans up the queue before it, finish the batches read from it
+          drainPipeline();
+        }
         // Get a new path
         boolean hasCurrentPath = getNextPath();
         if (getCurrentPath() != null && oldPath == null) {
@@ -632,6 +673,8 @@ public class ReplicationSource extends Thread
           continue;
         }
 
+        refreshSizeOfLogQueueInBytes();
+
         boolean gotIOE = false;
         currentNbOperations = 0;
         currentNbHFiles = 0;
@@ -691,6 +734,10 @@ public class ReplicationSource extends Thread
         for(Map.Entry<String, Long> entry: lastPositionsForSerialScope.entrySet()) {
           waitingUntilCanPush(entry);
         }
+        if (gotIOE || entries.isEmpty() || !lastPositionsForSerialScope.isEmpty()) {
+          // The position is about to be recorded past all of the batches in flight
+          drainPipeline();
+        }
         // If we didn't get anything to replicate, or if we hit a IOE,
         // wait a bit and retry.
         // But if we need to stop, don't bother sleeping
@@ -721,14 +768,24 @@ public class ReplicationSource extends Thread
             // set "ageOfLastShippedOp" to <now> to indicate that we're current
             metrics.setAgeOfLastShippedOp(EnvironmentEdgeManager.currentTime(), walGroupId);
           }
-          if (sleepForRetries("Nothing to replicate", sleepMultiplier)) {
+          if (!gotIOE && currentWALisBeingWrittenTo && manager.isWALTailEnabled()) {
+            // The WAL hands its entries to the cache as they are synced, wake up for the next one
+            if (!awaitNextEntry(sleepMultiplier) && sleepMultiplier < maxRetriesMultiplier) {
+              sleepMultiplier++;
+            }
+          } else if (sleepForRetries("Nothing to replicate", sleepMultiplier)) {
             sleepMultiplier++;
           }
           continue;
         }
+        if (pipeline != null && lastPositionsForSerialScope.isEmpty()) {
+          pipelineEdits(currentWALisBeingWrittenTo);
+          continue;
+        }
         shipEdits(currentWALisBeingWrittenTo, entries, lastPositionsForSerialScope);
         releaseBufferQuota();
       }
+      closePipeline();
       if (replicationQueueInfo.isQueueRecovered()) {
         // use synchronize to make sure one last thread will clean the queue
         synchronized (workerThreads) {
@@ -773,6 +830,22 @@ public class ReplicationSource extends Thread
       }
     }
 
+    /**
+     * Waits, as long as {@link #sleepForRetries(String, int)} would sleep, for the entry after the
+     * current position of the WAL being written to to be published to the entry cache.
+     * @return true if the entry is there
+     */
+    private boolean awaitNextEntry(int sleepMultiplier) {
+      try {
+        return manager.getWALEntryCache().awaitEntry(this.currentPath.getName(),
+          this.repLogReader.getPosition(), sleepForRetries * sleepMultiplier);
+      } catch (InterruptedException e) {
+        LOG.debug("Interrupted while waiting for new entries");
+        Thread.currentThread().interrupt();
+        return false;
+      }
+    }
+
     /**
      * Read all the entries from the current log files and retain those that need to be replicated.
      * Else, process the end of the current file.
@@ -790,9 +863,15 @@ public class ReplicationSource extends Thread
         LOG.trace("Seeking in " + this.currentPath + " at position "
             + this.repLogReader.getPosition());
       }
+      // Only the first of the peers' sources to read an entry decodes it
+      this.repLogReader.setEntryCache(manager.getWALEntryCache());
+      long readTimeNs = 0;
+      long filterTimeNs = 0;
+      long startNs = System.nanoTime();
       this.repLogReader.seek();
       long positionBeforeRead = this.repLogReader.getPosition();
       WAL.Entry entry = this.repLogReader.readNextAndSetPosition();
+      readTimeNs += System.nanoTime() - startNs;
       while (entry != null) {
         metrics.incrLogEditsRead();
         seenEntries++;
@@ -822,7 +901,9 @@ public class ReplicationSource extends Thread
         if (replicationEndpoint.canReplicateToSameCluster()
             || !entry.getKey().getClusterIds().contains(peerClusterId)) {
           // Remove all KVs that should not be replicated
+          startNs = System.nanoTime();
           entry = walEntryFilter.filter(entry);
+          filterTimeNs += System.nanoTime() - startNs;
           WALEdit edit = null;
           WALKey logKey = null;
           if (entry != null) {
@@ -850,13 +931,19 @@ public class ReplicationSource extends Thread
         }
 
         try {
+          startNs = System.nanoTime();
           entry = this.repLogReader.readNextAndSetPosition();
+          readTimeNs += System.nanoTime() - startNs;
         } catch (IOException ie) {
           LOG.debug("Break on IOE: " + ie.getMessage());
           break;
         }
       }
       metrics.incrLogReadInBytes(this.repLogReader.getPosition() - positionBeforeRead);
+      if (seenEntries > 0) {
+        metrics.updateWALReadTime(walGroupId, TimeUnit.NANOSECONDS.toMillis(readTimeNs));
+        metrics.updateFilterTime(walGroupId, TimeUnit.NANOSECONDS.toMillis(filterTimeNs));
+      }
       if (currentWALisBeingWrittenTo) {
         return false;
       }
@@ -1140,25 +1227,10 @@ public class ReplicationSource extends Thread
       }
       while (isWorkerActive()) {
         try {
-          checkBandwidthChangeAndResetThrottler();
-          if (throttler.isEnabled()) {
-            long sleepTicks = throttler.getNextSleepInterval(currentSize);
-            if (sleepTicks > 0) {
-              try {
-                if (LOG.isTraceEnabled()) {
-                  LOG.trace("To sleep " + sleepTicks + "ms for throttling control");
-                }
-                Thread.sleep(sleepTicks);
-              } catch (InterruptedException e) {
-                LOG.debug("Interrupted while sleeping for throttling control");
-                Thread.currentThread().interrupt();
-                // current thread might be interrupted to terminate
-                // directly go back to while() for confirm this
-                continue;
-              }
-              // reset throttler's cycle start tick when sleep for throttling occurs
-              throttler.resetStartTick();
-            }
+          if (!throttle(currentSize)) {
+            // current thread might be interrupted to terminate
+            // directly go back to while() for confirm this
+            continue;
           }
           // create replicateContext here, so the entries can be GC'd upon return from this call
           // stack
@@ -1177,38 +1249,15 @@ public class ReplicationSource extends Thread
           } else {
             sleepMultiplier = Math.max(sleepMultiplier - 1, 0);
           }
+          metrics.updateShipTime(walGroupId,
+            TimeUnit.NANOSECONDS.toMillis(endTimeNs - startTimeNs));
 
-          if (this.lastLoggedPosition != this.repLogReader.getPosition()) {
-            //Clean up hfile references
-            int size = entries.size();
-            for (int i = 0; i < size; i++) {
-              cleanUpHFileRefs(entries.get(i).getEdit());
-            }
-
-            // Save positions to meta table before zk.
-            try {
-              MetaTableAccessor.updateReplicationPositions(manager.getConnection(), actualPeerId,
-                  lastPositionsForSerialScope);
-            } catch (IOException e) {
-              LOG.error("updateReplicationPositions fail", e);
-              stopper.stop("updateReplicationPositions fail");
-            }
-
-            //Log and clean up WAL logs
-            manager.logPositionAndCleanOldLogs(this.currentPath, peerClusterZnode,
-              this.repLogReader.getPosition(), this.replicationQueueInfo.isQueueRecovered(),
-              currentWALisBeingWrittenTo);
-            this.lastLoggedPosition = this.repLogReader.getPosition();
-          }
+          logShippedEdits(this.currentPath, this.repLogReader.getPosition(),
+            currentWALisBeingWrittenTo, entries, currentSize, currentNbOperations, currentNbHFiles,
+            lastPositionsForSerialScope);
           if (throttler.isEnabled()) {
             throttler.addPushSize(currentSize);
           }
-          totalReplicatedEdits.addAndGet(entries.size());
-          totalReplicatedOperations.addAndGet(currentNbOperations);
-          // FIXME check relationship between wal group and overall
-          metrics.shipBatch(currentNbOperations, currentSize, currentNbHFiles);
-          metrics.setAgeOfLastShippedOp(entries.get(entries.size() - 1).getKey().getWriteTime(),
-            walGroupId);
           if (LOG.isTraceEnabled()) {
             LOG.trace("Replicated " + totalReplicatedEdits + " entries in total, or "
                 + totalReplicatedOperations + " operations in "
@@ -1225,6 +1274,261 @@ public class ReplicationSource extends Thread
       }
     }
 
+    /**
+     * Records that the given edits have been shipped: moves the WAL position past them and updates
+     * the metrics.
+     */
+    private void logShippedEdits(Path path, long position, boolean currentWALisBeingWrittenTo,
+        List<WAL.Entry> entries, int size, int nbOperations, long nbHFiles,
+        Map<String, Long> lastPositionsForSerialScope) throws IOException {
+      if (this.lastLoggedPosition != position) {
+        //Clean up hfile references
+        int numEntries = entries.size();
+        for (int i = 0; i < numEntries; i++) {
+          cleanUpHFileRefs(entries.get(i).getEdit());
+        }
+
+        // Save positions to meta table before zk.
+        try {
+          MetaTableAccessor.updateReplicationPositions(manager.getConnection(), actualPeerId,
+              lastPositionsForSerialScope);
+        } catch (IOException e) {
+          LOG.error("updateReplicationPositions fail", e);
+          stopper.stop("updateReplicationPositions fail");
+        }
+
+        //Log and clean up WAL logs
+        manager.logPositionAndCleanOldLogs(path, peerClusterZnode, position,
+          this.replicationQueueInfo.isQueueRecovered(), currentWALisBeingWrittenTo);
+        this.lastLoggedPosition = position;
+      }
+      totalReplicatedEdits.addAndGet(entries.size());
+      totalReplicatedOperations.addAndGet(nbOperations);
+      // FIXME check relationship between wal group and overall
+      metrics.shipBatch(nbOperations, size, nbHFiles);
+      metrics.updateShippedBatchSize(walGroupId, size);
+      metrics.setAgeOfLastShippedOp(entries.get(entries.size() - 1).getKey().getWriteTime(),
+        walGroupId);
+      // The entries of a batch usually belong to a few tables, add them up before updating those
+      Map<TableName, long[]> tableStats = new HashMap<TableName, long[]>();
+      for (WAL.Entry entry : entries) {
+        TableName table = entry.getKey().getTablename();
+        long[] stats = tableStats.get(table);
+        if (stats == null) {
+          stats = new long[3];
+          tableStats.put(table, stats);
+        }
+        stats[0]++;
+        stats[1] += entry.getEdit().heapSize();
+        stats[2] = Math.max(stats[2], entry.getKey().getWriteTime());
+      }
+      for (Map.Entry<TableName, long[]> entry : tableStats.entrySet()) {
+        long[] stats = entry.getValue();
+        metrics.shipTableEdits(entry.getKey(), stats[0], stats[1], stats[2]);
+      }
+    }
+
+    /**
+     * Updates the number of bytes of WAL this group has left to replicate: the rest of the current
+     * WAL plus all of the queued ones. The length of a closed WAL is only looked up once, the WAL
+     * still being written to is asked of its writer again on every refresh. Refreshes at most once
+     * every sleepForRetries.
+     */
+    private void refreshSizeOfLogQueueInBytes() {
+      long now = EnvironmentEdgeManager.currentTime();
+      if (now - lastQueueSizeRefresh < sleepForRetries) {
+        return;
+      }
+      lastQueueSizeRefresh = now;
+      Path current = this.currentPath;
+      List<Path> paths = new ArrayList<Path>(queue);
+      if (current != null) {
+        paths.add(current);
+      }
+      long size = 0;
+      Set<String> names = new HashSet<String>();
+      if (!paths.isEmpty()) {
+        // Only the newest WAL of a group we own can still be written to
+        Path newest = Collections.max(paths, queue.comparator());
+        try {
+          for (Path path : paths) {
+            names.add(path.getName());
+            long length = getWALLength(path,
+              this.replicationQueueInfo.isQueueRecovered() || path != newest);
+            size += path == current ? Math.max(0, length - this.repLogReader.getPosition())
+                : length;
+          }
+        } catch (IOException e) {
+          LOG.debug("Failed to get the size of the WALs of wal group " + walGroupId, e);
+          return;
+        }
+      }
+      closedWALLengths.keySet().retainAll(names);
+      metrics.setSizeOfLogQueueInBytes(walGroupId, size);
+    }
+
+    /**
+     * @return the length of the WAL, looked up in the archive if it was moved there, or 0 if it
+     *         can't be found in either place
+     */
+    private long getWALLength(Path path, boolean closed) throws IOException {
+      Long length = closedWALLengths.get(path.getName());
+      if (length != null) {
+        return length;
+      }
+      if (!closed) {
+        // The NameNode leaves the block being written to out of the length of an open file
+        long written = manager.getWrittenLength(path);
+        if (written >= 0) {
+          return written;
+        }
+      }
+      FileStatus status;
+      try {
+        status = fs.getFileStatus(path);
+      } catch (FileNotFoundException fnfe) {
+        try {
+          status = fs.getFileStatus(new Path(manager.getOldLogDir(), path.getName()));
+        } catch (FileNotFoundException e) {
+          return 0;
+        }
+      }
+      if (closed) {
+        closedWALLengths.put(path.getName(), status.getLen());
+        return status.getLen();
+      }
+      // Not written to by this server any more, or not yet known to be closed
+      return path == this.currentPath
+          ? Math.max(status.getLen(), this.repLogReader.getVisibleLength()) : status.getLen();
+    }
+
+    /**
+     * @param size the size of the edits about to be shipped
+     * @return false if interrupted while sleeping for throttling control
+     */
+    private boolean throttle(int size) {
+      checkBandwidthChangeAndResetThrottler();
+      if (throttler.isEnabled()) {
+        long sleepTicks = throttler.getNextSleepInterval(size);
+        if (sleepTicks > 0) {
+          try {
+            if (LOG.isTraceEnabled()) {
+              LOG.trace("To sleep " + sleepTicks + "ms for throttling control");
+            }
+            Thread.sleep(sleepTicks);
+          } catch (InterruptedException e) {
+            LOG.debug("Interrupted while sleeping for throttling control");
+            Thread.currentThread().interrupt();
+            return false;
+          }
+          // reset throttler's cycle start tick when sleep for throttling occurs
+          throttler.resetStartTick();
+        }
+      }
+      return true;
+    }
+
+    /**
+     * Hands the edits read to the pipeline instead of shipping them in place, then records the
+     * position of the batches acknowledged in the meantime. Only waits for the peer once as many
+     * batches as allowed are in flight.
+     */
+    private void pipelineEdits(boolean currentWALisBeingWrittenTo) {
+      // Throttle on submission, the lanes ship concurrently
+      while (!throttle(currentSize)) {
+        if (!isWorkerActive()) {
+          releaseBufferQuota();
+          return;
+        }
+      }
+      if (throttler.isEnabled()) {
+        throttler.addPushSize(currentSize);
+      }
+      pipeline.submit(new ReplicationBatchPipeline.Batch(entries, this.currentPath,
+          this.repLogReader.getPosition(), currentWALisBeingWrittenTo, currentSize,
+          currentNbOperations, currentNbHFiles));
+      // The batch owns the entries and their buffer quota until it is acknowledged
+      entries = new ArrayList<>();
+      currentSize = 0;
+      awaitPipeline(pipelineBatches - 1);
+    }
+
+    /**
+     * Waits until all batches in flight are acknowledged and records their positions.
+     */
+    private void drainPipeline() {
+      if (pipeline != null && pipeline.getInFlightCount() > 0) {
+        awaitPipeline(0);
+      }
+    }
+
+    private void awaitPipeline(int maxInFlight) {
+      List<ReplicationBatchPipeline.Batch> acked;
+      try {
+        acked = pipeline.awaitAcked(maxInFlight);
+      } catch (InterruptedException e) {
+        LOG.debug("Interrupted while waiting for batches in flight");
+        Thread.currentThread().interrupt();
+        return;
+      }
+      for (ReplicationBatchPipeline.Batch batch : acked) {
+        try {
+          logShippedEdits(batch.path, batch.position, batch.currentWALisBeingWrittenTo,
+            batch.entries, batch.size, batch.nbOperations, batch.nbHFiles,
+            Collections.<String, Long> emptyMap());
+        } catch (IOException e) {
+          LOG.warn("Failed to clean up hfile references of a shipped batch", e);
+        } finally {
+          totalBufferUsed.addAndGet(-batch.size);
+        }
+      }
+    }
+
+    /**
+     * Finishes the batches in flight if the worker is done with its queue rather than stopped,
+     * then stops the pipeline.
+     */
+    private void closePipeline() {
+      if (pipeline == null) {
+        return;
+      }
+      if (!stopper.isStopped() && !isInterrupted()) {
+        drainPipeline();
+      }
+      for (ReplicationBatchPipeline.Batch batch : pipeline.close()) {
+        totalBufferUsed.addAndGet(-batch.size);
+      }
+    }
+
+    /**
+     * Ships the entries of one lane of a pipelined batch. Called from the lane threads.
+     * @return true once shipped, false if the worker was stopped first
+     */
+    private boolean replicateLane(List<WAL.Entry> laneEntries, int size) {
+      int sleepMultiplier = 0;
+      while (!stopper.isStopped() && !isInterrupted() && !Thread.currentThread().isInterrupted()) {
+        try {
+          ReplicationEndpoint.ReplicateContext replicateContext =
+              new ReplicationEndpoint.ReplicateContext();
+          replicateContext.setEntries(laneEntries).setSize(size);
+          replicateContext.setWalGroupId(walGroupId);
+          long startTimeNs = System.nanoTime();
+          if (replicationEndpoint.replicate(replicateContext)) {
+            metrics.updateShipTime(walGroupId,
+              TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTimeNs));
+            return true;
+          }
+        } catch (Exception ex) {
+          LOG.warn(replicationEndpoint.getClass().getName() + " threw unknown exception:"
+              + org.apache.hadoop.util.StringUtils.stringifyException(ex));
+          if (sleepForRetries("ReplicationEndpoint threw exception", sleepMultiplier)) {
+            sleepMultiplier++;
+          }
+        }
+      }
+      return false;
+    }
+
     /**
      * If the queue isn't empty, switch to the next one Else if this is a recovered queue, it means
      * we're done! Else we'll just continue to try reading the log file
@@ -50,6 +50,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.MetaTableAccessor;
 import org.apache.hadoop.hbase.Server;
 import org.apache.hadoop.hbase.TableDescriptors;
@@ -58,7 +59,9 @@ import org.apache.hadoop.hbase.classification.InterfaceAudience;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
 import org.apache.hadoop.hbase.regionserver.HRegionServer;
+import org.apache.hadoop.hbase.regionserver.Region;
 import org.apache.hadoop.hbase.regionserver.RegionServerCoprocessorHost;
+import org.apache.hadoop.hbase.regionserver.wal.AbstractFSWAL;
 import org.apache.hadoop.hbase.replication.ReplicationEndpoint;
 import org.apache.hadoop.hbase.replication.ReplicationException;
 import org.apache.hadoop.hbase.replication.ReplicationListener;
@@ -70,7 +73,10 @@ import org.apache.hadoop.hbase.replication.ReplicationQueues;
 import org.apache.hadoop.hbase.replication.ReplicationTracker;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.ServerRegionReplicaUtil;
 import org.apache.hadoop.hbase.wal.AbstractFSWALProvider;
+import org.apache.hadoop.hbase.wal.WAL;
+import org.apache.hadoop.hbase.wal.WAL.Entry;
 
 /**
  * This class is responsible to manage all the replication
@@ -129,6 +135,11 @@ public class ReplicationSourceManager implements ReplicationListener {
 
   private AtomicLong totalBufferUsed = new AtomicLong();
 
+  // Decoded WAL entries shared by the sources, null if disabled
+  private final ReplicationWALEntryCache walEntryCache;
+  // Whether the WALs publish their entries to the cache as they are synced
+  private final boolean walTailEnabled;
+
   /**
    * Creates a replication manager and sets the watch on all the other registered region servers
    * @param replicationQueues the interface for manipulating replication queues
@@ -183,6 +194,9 @@ public class ReplicationSourceManager implements ReplicationListener {
           HConstants.REPLICATION_BULKLOAD_ENABLE_DEFAULT);
     this.replicationWaitTime = conf.getLong(HConstants.REPLICATION_SERIALLY_WAITING_KEY,
           HConstants.REPLICATION_SERIALLY_WAITING_DEFAULT);
+    this.walEntryCache = ReplicationWALEntryCache.create(conf);
+    this.walTailEnabled = walEntryCache != null
+        && ServerRegionReplicaUtil.isRegionReplicaWALTailEnabled(conf);
     connection = ConnectionFactory.createConnection(conf);
   }
 
@@ -322,6 +336,9 @@ public class ReplicationSourceManager implements ReplicationListener {
    */
   public void join() {
     this.executor.shutdown();
+    if (this.walEntryCache != null) {
+      this.walEntryCache.close();
+    }
     for (ReplicationSourceInterface source : this.sources) {
       source.terminate("Region server is closing");
     }
@@ -443,6 +460,95 @@ public class ReplicationSourceManager implements ReplicationListener {
     return totalBufferUsed;
   }
 
+  /**
+   * @return the cache the sources share the WAL entries they decode through, or null if it is
+   *         disabled or there is only one source to read the WALs and the WALs do not publish
+   *         their entries to it
+   */
+  ReplicationWALEntryCache getWALEntryCache() {
+    return walTailEnabled || sources.size() + oldsources.size() > 1 ? walEntryCache : null;
+  }
+
+  /**
+   * @return whether the WALs publish the entries they append to the entry cache
+   */
+  boolean isWALTailEnabled() {
+    return walTailEnabled;
+  }
+
+  /**
+   * Publishes an entry just appended to a WAL of this server to the entry cache, see
+   * {@link ReplicationWALEntryCache#append(WAL, String, long, long, long, Entry)}. Entries no
+   * source will ship are not copied, only their position is published. This runs on the thread
+   * that appends to the WAL, so it only looks up in-memory state and leaves copying the entry to
+   * the cache's own thread.
+   */
+  void postWrite(WAL wal, Path path, long startPosition, long endPosition, long txid,
+      Entry entry) {
+    if (walTailEnabled && path != null) {
+      if (isReplicated(entry)) {
+        walEntryCache.append(wal, path.getName(), startPosition, endPosition, txid, entry);
+      } else {
+        walEntryCache.appendUnreplicated(wal, path.getName(), startPosition, endPosition, txid);
+      }
+    }
+  }
+
+  /**
+   * @return false if the entry is neither scoped for replication to peers nor sent to the region
+   *         replicas of its table, true if it is or that is not known
+   */
+  @VisibleForTesting
+  boolean isReplicated(Entry entry) {
+    Map<byte[], Integer> scopes = entry.getKey().getReplicationScopes();
+    if (scopes != null && !scopes.isEmpty()) {
+      return true;
+    }
+    if (!(server instanceof HRegionServer)) {
+      return true;
+    }
+    // The descriptor the region is open with, rather than one read from the file system.
+    Region region = ((HRegionServer) server).getFromOnlineRegions(
+      Bytes.toString(entry.getKey().getEncodedRegionName()));
+    if (region == null) {
+      // Opening or closing, its open and close markers go to the replicas.
+      return true;
+    }
+    HTableDescriptor htd = region.getTableDesc();
+    // A table with REGION_REPLICATION=1 has no replicas to send anything to. Flushes, compactions
+    // and region events go to the replicas even when the memstore edits do not.
+    return htd.getRegionReplication() > 1
+        && (htd.hasRegionMemstoreReplication() || entry.getEdit().isMetaEdit());
+  }
+
+  /**
+   * @return the bytes written so far to the WAL file at the given path if this server is writing
+   *         to it, -1 otherwise
+   */
+  long getWrittenLength(Path path) throws IOException {
+    if (!(server instanceof HRegionServer)) {
+      return -1;
+    }
+    for (WAL wal : ((HRegionServer) server).getWALs()) {
+      if (wal instanceof AbstractFSWAL) {
+        long length = ((AbstractFSWAL<?>) wal).getWrittenLength(path);
+        if (length >= 0) {
+          return length;
+        }
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Hands out the entries of the WAL the entry cache holds back up to the synced txid.
+   */
+  void postSynced(WAL wal, long syncedTxid) {
+    if (walTailEnabled) {
+      walEntryCache.synced(wal, syncedTxid);
+    }
+  }
+
   /**
    * Factory method to create a replication source
    * @param conf the configuration to use
@@ -843,6 +949,9 @@ public class ReplicationSourceManager implements ReplicationListener {
       stats.append("Recovered source for cluster/machine(s) " + oldSource.getPeerClusterId()+": ");
       stats.append(oldSource.getStats()+ "\n");
     }
+    if (walEntryCache != null) {
+      stats.append(walEntryCache).append("\n");
+    }
     return stats.toString();
   }
 
@@ -0,0 +1,475 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.replication.regionserver;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.wal.WAL;
+import org.apache.hadoop.hbase.wal.WAL.Entry;
+import org.apache.hadoop.hbase.wal.WALKey;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Decoded WAL entries shared by the replication sources of a region server, so that a WAL
+ * replicated to several peers is read and decoded once rather than once per peer.
+ * <p>
+ * The sources of all peers tail the same WAL groups. The first one to read an entry publishes it
+ * here, keyed by WAL file name and the offset the entry starts at; the others, usually just
+ * behind it, find the entry at their current position and skip their reader past it instead of
+ * decoding it again. Every source still keeps, logs and recovers its own position, so a peer
+ * that falls too far behind, or a recovered queue, simply reads the WAL itself.
+ * <p>
+ * The cache holds at most {@link #CACHE_SIZE_KEY} bytes of edits, evicting the entries that were
+ * published first. Sources mutate the entries they ship (filters drop cells, the cluster id is
+ * added to the key), so the cache stores and hands out copies of key and edit; the cells
+ * themselves are shared. It is not used with WAL compression, where a reader cannot skip
+ * entries without losing its dictionary.
+ * <p>
+ * The WALs can also publish their entries here as they append them, see
+ * {@link #append(WAL, String, long, long, long, Entry)}, so that the sources find what was just
+ * written without reading it back from the file system at all. Such an entry is held back until
+ * its WAL reports it synced, so no source ships an edit that is not durable, nor gets ahead of
+ * what a reader of the file could see. The entry is copied by a thread of the cache rather than
+ * the one appending to the WAL; if the copy is not done by the time the entry is synced, after
+ * which the appended cells may be reused, only its position is published. Sources waiting for new edits are woken up as entries
+ * become available, see {@link #awaitEntry(String, long, long)}. Entries no source will ship are
+ * not copied, only their position is published, see
+ * {@link #appendUnreplicated(WAL, String, long, long, long)}; the sources read them from the file.
+ */
+@InterfaceAudience.Private
+public class ReplicationWALEntryCache {
+
+  /** Heap size of the entries cached, 0 disables sharing */
+  public static final String CACHE_SIZE_KEY = "hbase.replication.source.shared.entry.cache.size";
+  public static final long DEFAULT_CACHE_SIZE = 64L * 1024 * 1024;
+
+  /** An entry and the offset of the entry after it */
+  static final class CachedEntry {
+    // null if the entry is only known to be there, and has to be read from the file
+    private final Entry entry;
+    private final long endPosition;
+    private final long heapSize;
+
+    CachedEntry(Entry entry, long endPosition) {
+      this.entry = entry;
+      this.endPosition = endPosition;
+      this.heapSize = entry == null ? 0 : entry.getEdit().heapSize();
+    }
+
+    /**
+     * @return a copy of the entry the caller may modify
+     */
+    Entry getEntry() {
+      return copy(entry);
+    }
+
+    long getEndPosition() {
+      return endPosition;
+    }
+  }
+
+  private final long maxSize;
+  private final LinkedHashMap<String, CachedEntry> entries =
+      new LinkedHashMap<String, CachedEntry>();
+  private long size = 0;
+
+  /** Marks a pending entry that is synced or evicted, and is not to be copied any more */
+  private static final CachedEntry DISCARDED = new CachedEntry(null, -1);
+
+  /** An entry appended to a WAL that is not synced yet */
+  private static final class PendingEntry {
+    private final WAL wal;
+    private final String key;
+    private final long txid;
+    private final long endPosition;
+    // The appended entry, null if it is not to be copied
+    private final Entry appended;
+    // The copy of the appended entry once made, or DISCARDED
+    private final AtomicReference<CachedEntry> cached = new AtomicReference<CachedEntry>();
+
+    PendingEntry(WAL wal, String key, long txid, long endPosition, Entry appended) {
+      this.wal = wal;
+      this.key = key;
+      this.txid = txid;
+      this.endPosition = endPosition;
+      this.appended = appended;
+      if (appended == null) {
+        cached.set(new CachedEntry(null, endPosition));
+      }
+    }
+
+    /**
+     * Stops the entry from being copied.
+     * @return the copy, or a position only entry if it was not copied yet
+     */
+    CachedEntry discard() {
+      CachedEntry c = cached.getAndSet(DISCARDED);
+      return c == null || c == DISCARDED ? new CachedEntry(null, endPosition) : c;
+    }
+  }
+
+  // Appended entries waiting for their WAL to sync, per WAL in txid order. A WAL keeps its queue
+  // across rolls, so there are only as many as the server has WALs.
+  private final ConcurrentMap<WAL, ArrayDeque<PendingEntry>> pending =
+      new ConcurrentHashMap<WAL, ArrayDeque<PendingEntry>>();
+  private final AtomicLong pendingSize = new AtomicLong();
+  // Copies the appended entries off the threads appending to the WALs
+  private final ThreadPoolExecutor copier;
+  private final AtomicLong copyBacklog = new AtomicLong();
+
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+
+  public ReplicationWALEntryCache(long maxSize) {
+    this.maxSize = maxSize;
+    this.copier = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<Runnable>(), new ThreadFactoryBuilder()
+            .setNameFormat("ReplicationWALEntryCopier-%d").setDaemon(true).build());
+    this.copier.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Stops copying appended entries.
+   */
+  void close() {
+    copier.shutdownNow();
+  }
+
+  /**
+   * @return the cache configured for the replication sources, or null if sharing is disabled
+   */
+  public static ReplicationWALEntryCache create(Configuration conf) {
+    long maxSize = conf.getLong(CACHE_SIZE_KEY, DEFAULT_CACHE_SIZE);
+    if (maxSize <= 0 || conf.getBoolean(HConstants.ENABLE_WAL_COMPRESSION, false)) {
+      return null;
+    }
+    return new ReplicationWALEntryCache(maxSize);
+  }
+
+  private static String key(String walName, long position) {
+    return walName + "@" + position;
+  }
+
+  /**
+   * @param walName the name of the WAL file
+   * @param position the offset to read the next entry at
+   * @return the entry starting at the offset, or null if it is not cached
+   */
+  CachedEntry get(String walName, long position) {
+    CachedEntry cached;
+    synchronized (this) {
+      cached = entries.get(key(walName, position));
+    }
+    if (cached == null || cached.entry == null) {
+      missCount.increment();
+      return null;
+    }
+    hitCount.increment();
+    return cached;
+  }
+
+  /**
+   * Publishes an entry just read from a WAL. The entry is copied, the caller keeps ownership of
+   * the one passed in.
+   * @param walName the name of the WAL file
+   * @param position the offset the entry starts at
+   * @param endPosition the offset of the entry after it
+   * @param entry the entry
+   */
+  void put(String walName, long position, long endPosition, Entry entry) {
+    CachedEntry cached = new CachedEntry(copy(entry), endPosition);
+    if (cached.heapSize > maxSize) {
+      return;
+    }
+    synchronized (this) {
+      add(key(walName, position), cached);
+    }
+  }
+
+  /**
+   * Publishes an entry as it is appended to a WAL. It is handed out once
+   * {@link #synced(WAL, long)} reports its txid; until then it counts against the size of the
+   * cache separately, and the oldest pending entries are dropped when they do not fit, leaving
+   * them to be read from the file.
+   * @param wal the WAL the entry was appended to
+   * @param walName the name of the WAL file
+   * @param position the offset the entry starts at
+   * @param endPosition the offset of the entry after it
+   * @param txid the txid of the append in the WAL
+   * @param entry the entry, which is copied along with its cells by a thread of the cache until
+   *          its txid is synced
+   */
+  void append(WAL wal, String walName, long position, long endPosition, long txid, Entry entry) {
+    final PendingEntry p =
+        new PendingEntry(wal, key(walName, position), txid, endPosition, entry);
+    final ArrayDeque<PendingEntry> queue = addPending(p);
+    copyBacklog.incrementAndGet();
+    try {
+      copier.execute(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            copy(p, queue);
+          } finally {
+            copyBacklog.decrementAndGet();
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // Closed, the sources read the entry from the file.
+      copyBacklog.decrementAndGet();
+      p.discard();
+    }
+  }
+
+  private void copy(PendingEntry p, ArrayDeque<PendingEntry> queue) {
+    if (p.cached.get() != null) {
+      return;
+    }
+    // The cells may be reused once the entry is synced, a copy made from them then is dropped
+    // here as the entry is discarded by then.
+    CachedEntry copy = new CachedEntry(deepCopy(p.appended), p.endPosition);
+    if (copy.heapSize > maxSize || !p.cached.compareAndSet(null, copy)) {
+      return;
+    }
+    if (pendingSize.addAndGet(copy.heapSize) > maxSize) {
+      evictPending(queue);
+    }
+  }
+
+  /**
+   * Publishes the position of an entry appended to a WAL that no source will ship, without
+   * copying it. Sources waiting for it wake up once it is synced and read it from the file.
+   * @param wal the WAL the entry was appended to
+   * @param walName the name of the WAL file
+   * @param position the offset the entry starts at
+   * @param endPosition the offset of the entry after it
+   * @param txid the txid of the append in the WAL
+   */
+  void appendUnreplicated(WAL wal, String walName, long position, long endPosition, long txid) {
+    addPending(new PendingEntry(wal, key(walName, position), txid, endPosition, null));
+  }
+
+  private ArrayDeque<PendingEntry> addPending(PendingEntry p) {
+    ArrayDeque<PendingEntry> queue = pending.get(p.wal);
+    if (queue == null) {
+      queue = new ArrayDeque<PendingEntry>();
+      ArrayDeque<PendingEntry> existing = pending.putIfAbsent(p.wal, queue);
+      if (existing != null) {
+        queue = existing;
+      }
+    }
+    synchronized (queue) {
+      // A WAL appends in txid order, the queue stays sorted
+      queue.addLast(p);
+    }
+    return queue;
+  }
+
+  /**
+   * Drops the oldest pending entries, of the given queue first, until they fit again.
+   */
+  private void evictPending(ArrayDeque<PendingEntry> first) {
+    if (evictPendingFrom(first)) {
+      return;
+    }
+    for (ArrayDeque<PendingEntry> queue : pending.values()) {
+      if (queue != first && evictPendingFrom(queue)) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return whether the pending entries fit after evicting from the queue
+   */
+  private boolean evictPendingFrom(ArrayDeque<PendingEntry> queue) {
+    synchronized (queue) {
+      while (pendingSize.get() > maxSize && !queue.isEmpty()) {
+        pendingSize.addAndGet(-queue.removeFirst().discard().heapSize);
+      }
+    }
+    return pendingSize.get() <= maxSize;
+  }
+
+  /**
+   * Makes the pending entries of a WAL up to the given txid available to the sources.
+   * @param wal the WAL synced
+   * @param syncedTxid the highest txid of the WAL that is synced
+   */
+  void synced(WAL wal, long syncedTxid) {
+    ArrayDeque<PendingEntry> queue = pending.get(wal);
+    if (queue == null) {
+      return;
+    }
+    List<PendingEntry> synced = null;
+    List<CachedEntry> cached = null;
+    synchronized (queue) {
+      for (PendingEntry p = queue.peekFirst(); p != null && p.txid <= syncedTxid;
+          p = queue.peekFirst()) {
+        queue.removeFirst();
+        CachedEntry c = p.discard();
+        pendingSize.addAndGet(-c.heapSize);
+        if (synced == null) {
+          synced = new ArrayList<PendingEntry>();
+          cached = new ArrayList<CachedEntry>();
+        }
+        synced.add(p);
+        cached.add(c);
+      }
+    }
+    if (synced == null) {
+      return;
+    }
+    synchronized (this) {
+      for (int i = 0; i < synced.size(); i++) {
+        add(synced.get(i).key, cached.get(i));
+      }
+      notifyAll();
+    }
+  }
+
+  /**
+   * Waits for the entry at the given offset of a WAL to be published.
+   * @param walName the name of the WAL file
+   * @param position the offset to read the next entry at
+   * @param timeoutMs how long to wait at most
+   * @return true if the entry is cached, false if the wait timed out
+   */
+  boolean awaitEntry(String walName, long position, long timeoutMs) throws InterruptedException {
+    String key = key(walName, position);
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    synchronized (this) {
+      while (!entries.containsKey(key)) {
+        long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+        if (remainingMs <= 0) {
+          return false;
+        }
+        wait(remainingMs);
+      }
+      return true;
+    }
+  }
+
+  private void add(String key, CachedEntry cached) {
+    CachedEntry previous = entries.put(key, cached);
+    if (previous != null) {
+      size -= previous.heapSize;
+    }
+    size += cached.heapSize;
+    Iterator<CachedEntry> it = entries.values().iterator();
+    while (size > maxSize && it.hasNext()) {
+      size -= it.next().heapSize;
+      it.remove();
+    }
+  }
+
+  static Entry copy(Entry entry) {
+    WALKey key = entry.getKey();
+    Map<byte[], Integer> scopes = key.getReplicationScopes();
+    TreeMap<byte[], Integer> scopesCopy = null;
+    if (scopes != null) {
+      scopesCopy = new TreeMap<byte[], Integer>(Bytes.BYTES_COMPARATOR);
+      scopesCopy.putAll(scopes);
+    }
+    WALKey keyCopy = new WALKey(key.getEncodedRegionName(), key.getTablename(),
+        key.getSequenceId(), key.getWriteTime(), new ArrayList<>(key.getClusterIds()),
+        key.getNonceGroup(), key.getNonce(), null, scopesCopy);
+    keyCopy.setOrigLogSeqNum(key.getOrigLogSeqNum());
+    WALEdit edit = entry.getEdit();
+    WALEdit editCopy = new WALEdit(edit.size(), edit.isReplay());
+    editCopy.setCells(new ArrayList<>(edit.getCells()));
+    return new Entry(keyCopy, editCopy);
+  }
+
+  /**
+   * @return a copy of the entry that shares nothing with it, cells included; what a reader of the
+   *         WAL would decode for it
+   */
+  static Entry deepCopy(Entry entry) {
+    Entry copy = copy(entry);
+    List<Cell> cells = copy.getEdit().getCells();
+    for (int i = 0; i < cells.size(); i++) {
+      cells.set(i, KeyValueUtil.copyToNewKeyValue(cells.get(i)));
+    }
+    return copy;
+  }
+
+  synchronized long getSize() {
+    return size;
+  }
+
+  synchronized int getEntryCount() {
+    return entries.size();
+  }
+
+  int getPendingEntryCount() {
+    int count = 0;
+    for (ArrayDeque<PendingEntry> queue : pending.values()) {
+      synchronized (queue) {
+        count += queue.size();
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return the number of appended entries not copied yet
+   */
+  long getCopyBacklog() {
+    return copyBacklog.get();
+  }
+
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "ReplicationWALEntryCache{size=" + getSize() + ", maxSize=" + maxSize + ", entries="
+        + getEntryCount() + ", pending=" + getPendingEntryCount() + ", hits=" + getHitCount()
+        + ", misses=" + getMissCount() + "}";
+  }
+}
@@ -44,6 +44,11 @@ public class ReplicationWALReaderManager {
   private long position = 0;
   private Reader reader;
   private Path lastPath;
+  // Entries decoded by the sources of other peers, null if not shared
+  private ReplicationWALEntryCache entryCache;
+  // Whether entries were taken from the cache since the reader last read, so that it has to seek
+  // to the position before reading again
+  private boolean readerBehind = false;
 
   /**
    * Creates the helper but doesn't open any file
@@ -65,6 +70,7 @@ public class ReplicationWALReaderManager {
   public Reader openReader(Path path) throws IOException {
     // Detect if this is a new file, if so get a new reader else
     // reset the current reader so that we see the new data
+    this.readerBehind = this.position != 0;
     if (this.reader == null || !this.lastPath.equals(path)) {
       this.closeReader();
       this.reader = WALFactory.createReader(this.fs, path, this.conf);
@@ -85,6 +91,21 @@ public class ReplicationWALReaderManager {
    * @throws IOException
    */
   public Entry readNextAndSetPosition() throws IOException {
+    if (this.entryCache != null) {
+      long start = this.readerBehind ? this.position : this.reader.getPosition();
+      ReplicationWALEntryCache.CachedEntry cached = this.entryCache.get(this.lastPath.getName(),
+        start);
+      if (cached != null) {
+        this.position = cached.getEndPosition();
+        this.readerBehind = true;
+        return cached.getEntry();
+      }
+    }
+    if (this.readerBehind) {
+      this.reader.seek(this.position);
+      this.readerBehind = false;
+    }
+    long start = this.reader.getPosition();
     Entry entry = this.reader.next();
     // Store the position so that in the future the reader can start
     // reading from here. If the above call to next() throws an
@@ -94,10 +115,22 @@ public class ReplicationWALReaderManager {
     // We need to set the CC to null else it will be compressed when sent to the sink
     if (entry != null) {
       entry.setCompressionContext(null);
+      if (this.entryCache != null) {
+        this.entryCache.put(this.lastPath.getName(), start, this.position, entry);
+      }
     }
     return entry;
   }
 
+  /**
+   * Shares the entries this reader decodes with, and takes the ones it has not read yet from,
+   * the given cache. Not to be used with WAL compression.
+   * @param entryCache the cache, or null to stop sharing
+   */
+  public void setEntryCache(ReplicationWALEntryCache entryCache) {
+    this.entryCache = entryCache;
+  }
+
   /**
    * Advance the reader to the current position
    * @throws IOException
@@ -106,6 +139,7 @@ public class ReplicationWALReaderManager {
     if (this.position != 0) {
       this.reader.seek(this.position);
     }
+    this.readerBehind = false;
   }
 
   /**
@@ -118,6 +152,17 @@ public class ReplicationWALReaderManager {
 
   public void setPosition(long pos) {
     this.position = pos;
+    this.readerBehind = pos != 0;
+  }
+
+  /**
+   * @return the length of the WAL the reader is open on as far as it can see, or -1 if unknown
+   */
+  public long getVisibleLength() throws IOException {
+    if (reader instanceof ProtobufLogReader) {
+      return ((ProtobufLogReader) reader).getVisibleLength();
+    }
+    return -1;
   }
 
   public long currentTrailerSize() {
@@ -145,6 +190,7 @@ public class ReplicationWALReaderManager {
    */
   void finishCurrentFile() {
     this.position = 0;
+    this.readerBehind = false;
     try {
       this.closeReader();
     } catch (IOException e) {
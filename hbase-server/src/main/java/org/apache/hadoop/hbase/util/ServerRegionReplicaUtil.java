@@ -59,6 +59,16 @@ public class ServerRegionReplicaUtil extends RegionReplicaUtil {
   private static final boolean DEFAULT_REGION_REPLICA_REPLICATION = false;
   private static final String REGION_REPLICA_REPLICATION_PEER = "region_replica_replication";
 
+  /**
+   * Whether, with region replica replication enabled, the WALs hand the entries they append to
+   * the replication sources in memory once synced, so the edits reach the secondary replicas
+   * without being read back from the WAL files. The sources fall back to reading the files for
+   * what does not fit in the in memory entry cache.
+   */
+  public static final String REGION_REPLICA_WAL_TAIL_CONF_KEY
+    = "hbase.region.replica.replication.wal.tail.enabled";
+  private static final boolean DEFAULT_REGION_REPLICA_WAL_TAIL = true;
+
   /**
    * Enables or disables refreshing store files of secondary region replicas when the memory is
    * above the global memstore lower limit. Refreshing the store files means that we will do a file
@@ -177,6 +187,11 @@ public class ServerRegionReplicaUtil extends RegionReplicaUtil {
       DEFAULT_REGION_REPLICA_REPLICATION);
   }
 
+  public static boolean isRegionReplicaWALTailEnabled(Configuration conf) {
+    return isRegionReplicaReplicationEnabled(conf)
+        && conf.getBoolean(REGION_REPLICA_WAL_TAIL_CONF_KEY, DEFAULT_REGION_REPLICA_WAL_TAIL);
+  }
+
   public static boolean isRegionReplicaWaitForPrimaryFlushEnabled(Configuration conf) {
     return conf.getBoolean(REGION_REPLICA_WAIT_FOR_PRIMARY_FLUSH_CONF_KEY,
       DEFAULT_REGION_REPLICA_WAIT_FOR_PRIMARY_FLUSH);
@@ -0,0 +1,202 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.wal;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.classification.InterfaceAudience;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.wal.RegionGroupingProvider.RegionGroupingStrategy;
+
+/**
+ * A WAL grouping strategy that, like {@link BoundedGroupingStrategy}, uses
+ * "hbase.wal.regiongrouping.numgroups" groups, but places regions by how much they write rather
+ * than round robin.
+ * <p>
+ * {@link RegionGroupingProvider} reports every append to the strategy, which keeps the bytes
+ * appended per group and per region, halved every "hbase.wal.regiongrouping.loadaware.halflife"
+ * milliseconds so they follow the recent write load. Whenever a region is opened it goes to the
+ * group with the least load, not counting the region's own load on the group it was in before.
+ * Regions keep their WAL for as long as they are open, so the groups are rebalanced as regions
+ * are moved, split, merged or reopened, never under a region that is open: asking again for the
+ * group of an open region, as the region server does for every report, gets the group it is on.
+ * The provider tells the strategy a region closed when it sees the region's close marker.
+ */
+@InterfaceAudience.Private
+public class LoadAwareGroupingStrategy implements RegionGroupingStrategy {
+  private static final Log LOG = LogFactory.getLog(LoadAwareGroupingStrategy.class);
+
+  static final String LOAD_HALFLIFE = "hbase.wal.regiongrouping.loadaware.halflife";
+  static final long DEFAULT_LOAD_HALFLIFE = 5 * 60 * 1000L;
+
+  private final ConcurrentMap<String, LongAdder> groupLoads =
+      new ConcurrentHashMap<String, LongAdder>();
+  private final ConcurrentMap<String, LongAdder> regionLoads =
+      new ConcurrentHashMap<String, LongAdder>();
+  /** The group each region was last placed on */
+  private final ConcurrentMap<String, String> regionGroups =
+      new ConcurrentHashMap<String, String>();
+  /** The regions placed since they last closed */
+  private final Set<String> openRegions =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private String[] groupNames;
+  private long halflife;
+  private long lastDecay;
+  private int next = 0;
+
+  @Override
+  public void init(Configuration config, String providerId) {
+    int regionGroupNumber = config.getInt(BoundedGroupingStrategy.NUM_REGION_GROUPS,
+      BoundedGroupingStrategy.DEFAULT_NUM_REGION_GROUPS);
+    groupNames = new String[regionGroupNumber];
+    for (int i = 0; i < regionGroupNumber; i++) {
+      groupNames[i] = providerId + GROUP_NAME_DELIMITER + "regiongroup-" + i;
+      groupLoads.put(groupNames[i], new LongAdder());
+    }
+    halflife = Math.max(1, config.getLong(LOAD_HALFLIFE, DEFAULT_LOAD_HALFLIFE));
+    lastDecay = EnvironmentEdgeManager.currentTime();
+  }
+
+  @Override
+  public synchronized String group(byte[] identifier, byte[] namespace) {
+    decay();
+    String region = Bytes.toString(identifier);
+    String previous = regionGroups.get(region);
+    if (previous != null && openRegions.contains(region)) {
+      return previous;
+    }
+    LongAdder regionLoad = regionLoads.get(region);
+    long ownLoad = regionLoad == null ? 0 : regionLoad.sum();
+    // Start from the next group in turn, so groups with equal load, e.g. all of them before
+    // anything was written, are filled round robin.
+    String best = null;
+    long bestLoad = Long.MAX_VALUE;
+    for (int i = 0; i < groupNames.length; i++) {
+      String group = groupNames[(next + i) % groupNames.length];
+      long load = groupLoads.get(group).sum();
+      if (group.equals(previous)) {
+        load -= ownLoad;
+      }
+      if (load < bestLoad) {
+        best = group;
+        bestLoad = load;
+      }
+    }
+    next = (next + 1) % groupNames.length;
+    if (previous != null && !previous.equals(best)) {
+      // The region's load moves with it.
+      groupLoads.get(previous).add(-ownLoad);
+      groupLoads.get(best).add(ownLoad);
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Moving region " + region + " from WAL group " + previous + " to " + best
+            + ", recent load " + ownLoad + " bytes");
+      }
+    }
+    regionGroups.put(region, best);
+    openRegions.add(region);
+    return best;
+  }
+
+  /**
+   * Records that a region closed, so that it is placed again when it next opens.
+   * @param region the encoded name of the region
+   */
+  void regionClosed(byte[] region) {
+    openRegions.remove(Bytes.toString(region));
+  }
+
+  /**
+   * Records an append to the WAL of a group.
+   * @param group the group whose WAL was appended to
+   * @param region the encoded name of the region that appended
+   * @param size the size of the append
+   */
+  void recordAppend(String group, byte[] region, long size) {
+    LongAdder groupLoad = groupLoads.get(group);
+    if (groupLoad == null) {
+      // Not one of ours, e.g. the meta WAL.
+      return;
+    }
+    groupLoad.add(size);
+    String regionName = Bytes.toString(region);
+    LongAdder regionLoad = regionLoads.get(regionName);
+    if (regionLoad == null) {
+      regionLoad = new LongAdder();
+      LongAdder existing = regionLoads.putIfAbsent(regionName, regionLoad);
+      if (existing != null) {
+        regionLoad = existing;
+      }
+    }
+    regionLoad.add(size);
+  }
+
+  /**
+   * Halves the loads once for every half life passed since they were last halved, and forgets
+   * closed regions that have not written for long enough for their load to decay to nothing.
+   */
+  private void decay() {
+    long now = EnvironmentEdgeManager.currentTime();
+    long halvings = (now - lastDecay) / halflife;
+    if (halvings <= 0) {
+      return;
+    }
+    lastDecay += halvings * halflife;
+    int shift = (int) Math.min(halvings, Long.SIZE - 1);
+    for (LongAdder load : groupLoads.values()) {
+      long sum = load.sum();
+      load.add((sum >> shift) - sum);
+    }
+    for (Iterator<Map.Entry<String, LongAdder>> it = regionLoads.entrySet().iterator();
+        it.hasNext();) {
+      Map.Entry<String, LongAdder> e = it.next();
+      long sum = e.getValue().sum();
+      e.getValue().add((sum >> shift) - sum);
+      if (sum >> shift == 0) {
+        it.remove();
+      }
+    }
+    for (Iterator<String> it = regionGroups.keySet().iterator(); it.hasNext();) {
+      String region = it.next();
+      if (!openRegions.contains(region) && !regionLoads.containsKey(region)) {
+        it.remove();
+      }
+    }
+  }
+
+  boolean isOpen(byte[] region) {
+    return openRegions.contains(Bytes.toString(region));
+  }
+
+  long getGroupLoad(String group) {
+    return groupLoads.get(group).sum();
+  }
+
+  String[] getGroupNames() {
+    return groupNames;
+  }
+}
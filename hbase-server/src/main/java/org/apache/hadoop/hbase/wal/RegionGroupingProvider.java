@@ -32,9 +32,14 @@ import java.util.concurrent.locks.Lock;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CompatibilitySingletonFactory;
 import org.apache.hadoop.hbase.classification.InterfaceAudience;
 // imports for classes still in regionserver.wal
+import org.apache.hadoop.hbase.regionserver.wal.MetricsWALSource;
 import org.apache.hadoop.hbase.regionserver.wal.WALActionsListener;
+import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos.RegionEventDescriptor;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.IdReadWriteLock;
 
@@ -51,8 +56,12 @@ import org.apache.hadoop.hbase.util.IdReadWriteLock;
  *                                  "bounded".</li>
  *   <li><em>identity</em> : each region belongs to its own group.</li>
  *   <li><em>bounded</em> : bounded number of groups and region evenly assigned to each group.</li>
+ *   <li><em>loadaware</em> : bounded number of groups, regions placed on the group with the
+ *                            least recent write load when they open.</li>
  * </ul>
  * Optionally, a FQCN to a custom implementation may be given.
+ * <p>
+ * The appends and syncs of every group's WAL are also published as per group metrics.
  */
 @InterfaceAudience.Private
 public class RegionGroupingProvider implements WALProvider {
@@ -78,7 +87,8 @@ public class RegionGroupingProvider implements WALProvider {
     defaultStrategy(BoundedGroupingStrategy.class),
     identity(IdentityGroupingStrategy.class),
     bounded(BoundedGroupingStrategy.class),
-    namespace(NamespaceGroupingStrategy.class);
+    namespace(NamespaceGroupingStrategy.class),
+    loadaware(LoadAwareGroupingStrategy.class);
 
     final Class<? extends RegionGroupingStrategy> clazz;
     Strategies(Class<? extends RegionGroupingStrategy> clazz) {
@@ -139,6 +149,7 @@ public class RegionGroupingProvider implements WALProvider {
   private List<WALActionsListener> listeners = null;
   private String providerId = null;
   private Class<? extends WALProvider> providerClass;
+  private MetricsWALSource metricsSource;
 
   @Override
   public void init(final WALFactory factory, final Configuration conf,
@@ -159,6 +170,11 @@ public class RegionGroupingProvider implements WALProvider {
     this.providerId = sb.toString();
     this.strategy = getStrategy(conf, REGION_GROUPING_STRATEGY, DEFAULT_REGION_GROUPING_STRATEGY);
     this.providerClass = factory.getProviderClass(DELEGATE_PROVIDER, DEFAULT_DELEGATE_PROVIDER);
+    this.metricsSource = CompatibilitySingletonFactory.getInstance(MetricsWALSource.class);
+  }
+
+  RegionGroupingStrategy getRegionGroupingStrategy() {
+    return strategy;
   }
 
   private WALProvider createProvider(String group) throws IOException {
@@ -187,6 +203,7 @@ public class RegionGroupingProvider implements WALProvider {
         provider = cached.get(group);
         if (provider == null) {
           provider = createProvider(group);
+          provider.getWAL(null, null).registerWALActionsListener(new GroupListener(group));
           cached.put(group, provider);
         }
       } finally {
@@ -247,6 +264,47 @@ public class RegionGroupingProvider implements WALProvider {
     }
   }
 
+  /**
+   * Feeds the appends and syncs of the WAL of one group to the per group metrics and, for the
+   * load aware strategy, the appends and the region closes to the strategy.
+   */
+  private class GroupListener extends WALActionsListener.Base {
+    private final String group;
+    private final MetricsWALSource.GroupMetrics groupMetrics;
+
+    GroupListener(String group) {
+      this.group = group;
+      // The provider id is the server name, leave it out of the metric names.
+      String prefix = providerId + RegionGroupingStrategy.GROUP_NAME_DELIMITER;
+      this.groupMetrics = metricsSource.getGroupMetrics(
+        group.startsWith(prefix) ? group.substring(prefix.length()) : group);
+    }
+
+    @Override
+    public void postAppend(long entryLen, long elapsedTimeMillis, WALKey logKey,
+        WALEdit logEdit) throws IOException {
+      groupMetrics.incrementAppendSize(entryLen);
+      if (strategy instanceof LoadAwareGroupingStrategy) {
+        LoadAwareGroupingStrategy loadAware = (LoadAwareGroupingStrategy) strategy;
+        loadAware.recordAppend(group, logKey.getEncodedRegionName(), entryLen);
+        if (logEdit.isMetaEdit()) {
+          for (Cell cell : logEdit.getCells()) {
+            RegionEventDescriptor event = WALEdit.getRegionEventDescriptor(cell);
+            if (event != null
+                && event.getEventType() == RegionEventDescriptor.EventType.REGION_CLOSE) {
+              loadAware.regionClosed(logKey.getEncodedRegionName());
+            }
+          }
+        }
+      }
+    }
+
+    @Override
+    public void postSync(long timeInNanos, int handlerSyncs) {
+      groupMetrics.incrementSyncTime(timeInNanos / 1000000L);
+    }
+  }
+
   static class IdentityGroupingStrategy implements RegionGroupingStrategy {
     @Override
     public void init(Configuration config, String providerId) {}
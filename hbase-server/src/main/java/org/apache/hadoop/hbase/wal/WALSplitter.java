@@ -62,16 +62,20 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.fs.PathFilter;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
 import org.apache.hadoop.hbase.CellScanner;
 import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.CoordinatedStateManager;
 import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.HRegionInfo;
 import org.apache.hadoop.hbase.HRegionLocation;
 import org.apache.hadoop.hbase.MetaTableAccessor;
+import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.ServerName;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.TableInfoMissingException;
 import org.apache.hadoop.hbase.TableNotFoundException;
 import org.apache.hadoop.hbase.classification.InterfaceAudience;
 import org.apache.hadoop.hbase.client.ClusterConnection;
@@ -86,11 +90,18 @@ import org.apache.hadoop.hbase.coordination.BaseCoordinatedStateManager;
 import org.apache.hadoop.hbase.coordination.ZKSplitLogManagerCoordination;
 import org.apache.hadoop.hbase.exceptions.RegionOpeningException;
 import org.apache.hadoop.hbase.io.HeapSize;
+import org.apache.hadoop.hbase.io.compress.Compression;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFile;
+import org.apache.hadoop.hbase.io.hfile.HFileContext;
+import org.apache.hadoop.hbase.io.hfile.HFileContextBuilder;
 import org.apache.hadoop.hbase.master.SplitLogManager;
 import org.apache.hadoop.hbase.monitoring.MonitoredTask;
 import org.apache.hadoop.hbase.monitoring.TaskMonitor;
 import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.HStore;
 import org.apache.hadoop.hbase.regionserver.LastSequenceId;
+import org.apache.hadoop.hbase.regionserver.StoreFileWriter;
 import org.apache.hadoop.hbase.regionserver.wal.AbstractFSWAL;
 import org.apache.hadoop.hbase.regionserver.wal.WALCellCodec;
 import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
@@ -112,6 +123,7 @@ import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.CancelableProgressable;
 import org.apache.hadoop.hbase.util.ClassSize;
 import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.FSTableDescriptors;
 import org.apache.hadoop.hbase.util.FSUtils;
 import org.apache.hadoop.hbase.util.Pair;
 import org.apache.hadoop.hbase.util.Threads;
@@ -134,6 +146,20 @@ public class WALSplitter {
   /** By default we retry errors in splitting, rather than skipping. */
   public static final boolean SPLIT_SKIP_ERRORS_DEFAULT = false;
 
+  /**
+   * Whether to split the edits of user tables straight into HFiles under each region's
+   * {@link #RECOVERED_HFILES_DIR}, which the region commits into its stores on open, rather than
+   * into recovered.edits files it has to replay through its memstore and flush.
+   */
+  public static final String SPLIT_WAL_TO_HFILES_KEY = "hbase.wal.split.to.hfile";
+  public static final boolean DEFAULT_SPLIT_WAL_TO_HFILES = false;
+
+  /**
+   * Region subdirectory holding the HFiles split from WALs, one directory per family. The leading
+   * dot keeps it from being taken for a column family.
+   */
+  public static final String RECOVERED_HFILES_DIR = ".recovered.hfiles";
+
   // Parameters for split process
   protected final Path rootDir;
   protected final FileSystem fs;
@@ -208,7 +234,11 @@ public class WALSplitter {
         LOG.info("ZooKeeperWatcher is passed in as NULL so disable distrubitedLogRepaly.");
       }
       this.distributedLogReplay = false;
-      outputSink = new LogRecoveredEditsOutputSink(controller, entryBuffers, numWriterThreads);
+      if (this.conf.getBoolean(SPLIT_WAL_TO_HFILES_KEY, DEFAULT_SPLIT_WAL_TO_HFILES)) {
+        outputSink = new RecoveredHFilesOutputSink(controller, entryBuffers, numWriterThreads);
+      } else {
+        outputSink = new LogRecoveredEditsOutputSink(controller, entryBuffers, numWriterThreads);
+      }
     }
 
   }
@@ -510,6 +540,35 @@ public class WALSplitter {
     }
   }
 
+  private void filterCellByStore(Entry logEntry) {
+    Map<byte[], Long> maxSeqIdInStores =
+        regionMaxSeqIdInStores.get(Bytes.toString(logEntry.getKey().getEncodedRegionName()));
+    if (maxSeqIdInStores == null || maxSeqIdInStores.isEmpty()) {
+      return;
+    }
+    // Create the array list for the cells that aren't filtered.
+    // We make the assumption that most cells will be kept.
+    ArrayList<Cell> keptCells = new ArrayList<Cell>(logEntry.getEdit().getCells().size());
+    for (Cell cell : logEntry.getEdit().getCells()) {
+      if (CellUtil.matchingFamily(cell, WALEdit.METAFAMILY)) {
+        keptCells.add(cell);
+      } else {
+        byte[] family = CellUtil.cloneFamily(cell);
+        Long maxSeqId = maxSeqIdInStores.get(family);
+        // Do not skip cell even if maxSeqId is null. Maybe we are in a rolling upgrade,
+        // or the master was crashed before and we can not get the information.
+        if (maxSeqId == null || maxSeqId.longValue() < logEntry.getKey().getSequenceId()) {
+          keptCells.add(cell);
+        }
+      }
+    }
+
+    // Anything in the keptCells array list is still live.
+    // So rather than removing the cells from the array list
+    // which would be an O(n^2) operation, we just replace the list
+    logEntry.getEdit().setCells(keptCells);
+  }
+
   /**
    * Path to a file under RECOVERED_EDITS_DIR directory of the region found in
    * <code>logEntry</code> named for the sequenceid in the passed
@@ -601,6 +660,25 @@ public class WALSplitter {
     return new Path(regiondir, HConstants.RECOVERED_EDITS_DIR);
   }
 
+  /**
+   * @param regiondir This regions directory in the filesystem.
+   * @param familyName the column family
+   * @return The directory that holds the HFiles split from WALs for the family of the region
+   *         <code>regiondir</code>
+   */
+  public static Path getRegionDirRecoveredHFilesDir(final Path regiondir,
+      final String familyName) {
+    return new Path(new Path(regiondir, RECOVERED_HFILES_DIR), familyName);
+  }
+
+  /**
+   * @param path a file written by the splitter
+   * @return whether the file is still being written, or was left over by a failed split
+   */
+  public static boolean isTmpRecoveredFile(final Path path) {
+    return path.getName().endsWith(RECOVERED_LOG_TMPFILE_SUFFIX);
+  }
+
   /**
    * Returns sorted set of edit files made by splitter, excluding files
    * with '.temp' suffix.
@@ -1548,35 +1626,6 @@ public class WALSplitter {
       return new WriterAndPath(regionedits, w, entry.getKey().getSequenceId());
     }
 
-    private void filterCellByStore(Entry logEntry) {
-      Map<byte[], Long> maxSeqIdInStores =
-          regionMaxSeqIdInStores.get(Bytes.toString(logEntry.getKey().getEncodedRegionName()));
-      if (maxSeqIdInStores == null || maxSeqIdInStores.isEmpty()) {
-        return;
-      }
-      // Create the array list for the cells that aren't filtered.
-      // We make the assumption that most cells will be kept.
-      ArrayList<Cell> keptCells = new ArrayList<Cell>(logEntry.getEdit().getCells().size());
-      for (Cell cell : logEntry.getEdit().getCells()) {
-        if (CellUtil.matchingFamily(cell, WALEdit.METAFAMILY)) {
-          keptCells.add(cell);
-        } else {
-          byte[] family = CellUtil.cloneFamily(cell);
-          Long maxSeqId = maxSeqIdInStores.get(family);
-          // Do not skip cell even if maxSeqId is null. Maybe we are in a rolling upgrade,
-          // or the master was crashed before and we can not get the information.
-          if (maxSeqId == null || maxSeqId.longValue() < logEntry.getKey().getSequenceId()) {
-            keptCells.add(cell);
-          }
-        }
-      }
-
-      // Anything in the keptCells array list is still live.
-      // So rather than removing the cells from the array list
-      // which would be an O(n^2) operation, we just replace the list
-      logEntry.getEdit().setCells(keptCells);
-    }
-
     @Override
     public void append(RegionEntryBuffer buffer) throws IOException {
       List<Entry> entries = buffer.entryBuffer;
@@ -1652,6 +1701,415 @@ public class WALSplitter {
     }
   }
 
+  /**
+   * Class that writes the edits of user table regions straight into HFiles under each region's
+   * {@link #RECOVERED_HFILES_DIR}. The cells of all the buffers of a region are kept until the
+   * split finishes and then written as one HFile per column family, so the split usually leaves
+   * one file per family where it wrote a recovered.edits file per region before. The kept cells
+   * are bounded by the split buffer size too: once they go over it the region holding the most
+   * is written out early, and that region gets one more file per family.
+   * The region commits the files into its stores when it opens, so it neither replays the edits
+   * into its memstore nor flushes them again.
+   * <p>
+   * System tables, tables with encrypted families and the region events that have to be replayed
+   * are still written to recovered.edits files by a wrapped {@link LogRecoveredEditsOutputSink}.
+   */
+  class RecoveredHFilesOutputSink extends OutputSink {
+    private final LogRecoveredEditsOutputSink logRecoveredEditsOutputSink;
+
+    private final Map<TableName, HTableDescriptor> tableDescriptors =
+        new ConcurrentHashMap<TableName, HTableDescriptor>();
+    /* Tables whose edits go to recovered.edits files */
+    private final Set<TableName> recoveredEditsTables =
+        Collections.newSetFromMap(new ConcurrentHashMap<TableName, Boolean>());
+
+    private final Map<byte[], Long> editsWritten =
+        Collections.synchronizedMap(new TreeMap<byte[], Long>(Bytes.BYTES_COMPARATOR));
+    /* The cells of every region, accumulated over all its buffers and written on close */
+    private final Map<byte[], RecoveredRegionCells> regionCells =
+        Collections.synchronizedMap(new TreeMap<byte[], RecoveredRegionCells>(
+            Bytes.BYTES_COMPARATOR));
+    /* Heap size of the cells kept in regionCells */
+    private final AtomicLong cellsHeapSize = new AtomicLong();
+    /* Files written before the split finished, to keep the kept cells under the buffer size */
+    private final List<Path> hfilesWrittenEarly =
+        Collections.synchronizedList(new ArrayList<Path>());
+
+    public RecoveredHFilesOutputSink(PipelineController controller, EntryBuffers entryBuffers,
+        int numWriters) {
+      super(controller, entryBuffers, numWriters);
+      this.logRecoveredEditsOutputSink = new LogRecoveredEditsOutputSink(controller,
+        entryBuffers, numWriters);
+    }
+
+    @Override
+    void setReporter(CancelableProgressable reporter) {
+      super.setReporter(reporter);
+      this.logRecoveredEditsOutputSink.setReporter(reporter);
+    }
+
+    /**
+     * @return the descriptor of the table if its edits can be split into HFiles, null if they
+     *         have to go to recovered.edits files
+     */
+    private HTableDescriptor getTableDescriptor(TableName tableName) throws IOException {
+      if (tableName.isSystemTable() || recoveredEditsTables.contains(tableName)) {
+        return null;
+      }
+      HTableDescriptor htd = tableDescriptors.get(tableName);
+      if (htd != null) {
+        return htd;
+      }
+      try {
+        htd = FSTableDescriptors.getTableDescriptorFromFs(fs, rootDir, tableName);
+      } catch (TableInfoMissingException e) {
+        LOG.warn("No descriptor for " + tableName + ", splitting its edits to recovered.edits");
+        recoveredEditsTables.add(tableName);
+        return null;
+      }
+      for (HColumnDescriptor family : htd.getColumnFamilies()) {
+        if (family.getEncryptionType() != null) {
+          LOG.info(tableName + " has encrypted families, splitting its edits to recovered.edits");
+          recoveredEditsTables.add(tableName);
+          return null;
+        }
+      }
+      tableDescriptors.put(tableName, htd);
+      return htd;
+    }
+
+    @Override
+    public void append(RegionEntryBuffer buffer) throws IOException {
+      List<Entry> entries = buffer.entryBuffer;
+      if (entries.isEmpty()) {
+        LOG.warn("got an empty buffer, skipping");
+        return;
+      }
+      HTableDescriptor htd = getTableDescriptor(buffer.tableName);
+      if (htd == null) {
+        logRecoveredEditsOutputSink.append(buffer);
+        return;
+      }
+      byte[] region = buffer.encodedRegionName;
+      if (blacklistedRegions.contains(region)) {
+        return;
+      }
+      Path regionDir = HRegion.getRegionDir(FSUtils.getTableDir(rootDir, buffer.tableName),
+        Bytes.toString(region));
+      if (!fs.exists(regionDir)) {
+        LOG.info("This region's directory doesn't exist: " + regionDir + ". It is very likely"
+            + " that it was already split so it's safe to discard those edits.");
+        blacklistedRegions.add(region);
+        return;
+      }
+
+      RecoveredRegionCells cells;
+      synchronized (regionCells) {
+        cells = regionCells.get(region);
+        if (cells == null) {
+          cells = new RecoveredRegionCells(regionDir, htd);
+          regionCells.put(region, cells);
+        }
+      }
+      // A region's buffers are written by one thread at a time, the lock only publishes the
+      // cells to the next writer thread and to finishWritingAndClose.
+      synchronized (cells) {
+        RegionEntryBuffer regionEvents = null;
+        long editsCount = 0;
+        for (Entry logEntry : entries) {
+          if (logEntry.getEdit().isMetaEdit()) {
+            // Only the compaction markers get this far, see keepRegionEvent.
+            if (regionEvents == null) {
+              regionEvents = new RegionEntryBuffer(buffer.tableName, region);
+            }
+            regionEvents.appendEntry(logEntry);
+            continue;
+          }
+          filterCellByStore(logEntry);
+          if (logEntry.getEdit().isEmpty()) {
+            skippedEdits.incrementAndGet();
+            continue;
+          }
+          long seqId = logEntry.getKey().getSequenceId();
+          for (Cell cell : logEntry.getEdit().getCells()) {
+            byte[] family = CellUtil.cloneFamily(cell);
+            if (!htd.hasFamily(family)) {
+              // The family was removed from the table, replay would drop the cell too.
+              continue;
+            }
+            // The sequence id becomes the cell's mvcc version in the HFile.
+            CellUtil.setSequenceId(cell, seqId);
+            cells.add(family, cell);
+            cellsHeapSize.addAndGet(CellUtil.estimatedHeapSizeOf(cell));
+          }
+          cells.updateSequenceIds(seqId);
+          updateRegionMaximumEditLogSeqNum(logEntry);
+          editsCount++;
+        }
+        if (regionEvents != null) {
+          logRecoveredEditsOutputSink.append(regionEvents);
+        }
+        synchronized (editsWritten) {
+          Long count = editsWritten.get(region);
+          editsWritten.put(region, (count == null ? 0 : count) + editsCount);
+        }
+      }
+      while (cellsHeapSize.get() > entryBuffers.maxHeapUsage) {
+        if (!writeLargestRegion()) {
+          break;
+        }
+      }
+    }
+
+    /**
+     * Writes the kept cells of the region holding the most of them and drops them from the heap.
+     * The files are named for the first sequence id they hold, so the next file of the region
+     * does not replace them.
+     * @return false if no region had cells to write
+     */
+    private boolean writeLargestRegion() throws IOException {
+      RecoveredRegionCells largest = null;
+      synchronized (regionCells) {
+        for (RecoveredRegionCells cells : regionCells.values()) {
+          if (largest == null || cells.heapSize > largest.heapSize) {
+            largest = cells;
+          }
+        }
+      }
+      if (largest == null) {
+        return false;
+      }
+      synchronized (largest) {
+        if (largest.heapSize == 0) {
+          // Another writer thread wrote it out first.
+          return true;
+        }
+        for (Map.Entry<byte[], List<Cell>> e : largest.familyCells.entrySet()) {
+          hfilesWrittenEarly.add(writeRecoveredHFile(largest, e.getKey(), e.getValue()));
+        }
+        cellsHeapSize.addAndGet(-largest.heapSize);
+        largest.clear();
+      }
+      return true;
+    }
+
+    /**
+     * Writes the accumulated cells of every region, one HFile per family, using the writer
+     * threads' parallelism.
+     * @return the files written
+     */
+    private List<Path> writeRecoveredHFiles() throws IOException {
+      final List<Path> paths = Collections.synchronizedList(new ArrayList<Path>());
+      ThreadPoolExecutor writeThreadPool = Threads.getBoundedCachedThreadPool(numThreads, 30L,
+        TimeUnit.SECONDS, Threads.newDaemonThreadFactory("split-log-writeHFile"));
+      CompletionService<Void> completionService =
+          new ExecutorCompletionService<Void>(writeThreadPool);
+      int tasks = 0;
+      synchronized (regionCells) {
+        for (final RecoveredRegionCells cells : regionCells.values()) {
+          synchronized (cells) {
+            for (final Map.Entry<byte[], List<Cell>> e : cells.familyCells.entrySet()) {
+              completionService.submit(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                  paths.add(writeRecoveredHFile(cells, e.getKey(), e.getValue()));
+                  return null;
+                }
+              });
+              tasks++;
+            }
+          }
+        }
+      }
+      try {
+        for (int i = 0; i < tasks; i++) {
+          completionService.take().get();
+          if (reporter != null && !reporter.progress()) {
+            throw new IOException("Split of " + fileBeingSplit.getPath()
+                + " cancelled while writing recovered hfiles");
+          }
+        }
+      } catch (InterruptedException e) {
+        IOException iie = new InterruptedIOException();
+        iie.initCause(e);
+        throw iie;
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RemoteException) {
+          cause = ((RemoteException) cause).unwrapRemoteException();
+        }
+        LOG.fatal(" Got while writing recovered hfile", cause);
+        throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+      } finally {
+        writeThreadPool.shutdownNow();
+      }
+      return paths;
+    }
+
+    /**
+     * Writes the cells of a family to a file named for the WAL being split and the first
+     * sequence id of the region's edits, so a second attempt at splitting the WAL overwrites it.
+     */
+    private Path writeRecoveredHFile(RecoveredRegionCells region, byte[] familyName,
+        List<Cell> cells) throws IOException {
+      Path regionDir = region.regionDir;
+      HColumnDescriptor family = region.htd.getFamily(familyName);
+      long firstSeqId = region.firstSeqId;
+      long maxSeqId = region.maxSeqId;
+      Path familyDir = getRegionDirRecoveredHFilesDir(regionDir, family.getNameAsString());
+      if (!fs.exists(familyDir) && !fs.mkdirs(familyDir)) {
+        LOG.warn("mkdir failed on " + familyDir);
+      }
+      String fileName = formatRecoveredEditsFileName(firstSeqId) + "-"
+          + fileBeingSplit.getPath().getName();
+      // A file left by an earlier, failed attempt at splitting the WAL is not always replaced
+      // when the cells are written out early at other points, but it only repeats cells with
+      // the same keys and sequence ids.
+      Path tmpPath = new Path(familyDir, getTmpRecoveredEditsFileName(fileName));
+      Path path = new Path(familyDir, fileName);
+
+      Collections.sort(cells, CellComparator.COMPARATOR);
+      Compression.Algorithm compression = family.getCompressionType();
+      HFileContext context = new HFileContextBuilder()
+          .withIncludesMvcc(true)
+          .withIncludesTags(true)
+          .withCompression(compression == null ? HFile.DEFAULT_COMPRESSION_ALGORITHM
+              : compression)
+          .withCompressTags(family.isCompressTags())
+          .withChecksumType(HStore.getChecksumType(conf))
+          .withBytesPerCheckSum(HStore.getBytesPerChecksum(conf))
+          .withBlockSize(family.getBlocksize())
+          .withHBaseCheckSum(true)
+          .withDataBlockEncoding(family.getDataBlockEncoding())
+          .withCreateTime(EnvironmentEdgeManager.currentTime())
+          .build();
+      StoreFileWriter writer = new StoreFileWriter.Builder(conf, CacheConfig.DISABLED, fs)
+          .withFilePath(tmpPath)
+          .withComparator(CellComparator.COMPARATOR)
+          .withBloomType(family.getBloomFilterType())
+          .withMaxKeyCount(cells.size())
+          .withFileContext(context)
+          .build();
+      try {
+        for (Cell cell : cells) {
+          writer.append(cell);
+        }
+        writer.appendMetadata(maxSeqId, false);
+      } finally {
+        writer.close();
+      }
+      if (fs.exists(path) && !fs.delete(path, false)) {
+        throw new IOException("Failed delete of old " + path);
+      }
+      if (!fs.rename(tmpPath, path)) {
+        throw new IOException("Failed rename of " + tmpPath + " to " + path);
+      }
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Wrote " + cells.size() + " cells, sequence ids " + firstSeqId + " to "
+            + maxSeqId + ", to " + path);
+      }
+      return path;
+    }
+
+    @Override
+    public List<Path> finishWritingAndClose() throws IOException {
+      boolean isSuccessful = false;
+      List<Path> hfilesWritten = null;
+      List<Path> recoveredEdits = null;
+      try {
+        isSuccessful = finishWriting(false);
+        if (isSuccessful) {
+          hfilesWritten = writeRecoveredHFiles();
+          hfilesWritten.addAll(hfilesWrittenEarly);
+        }
+      } finally {
+        regionCells.clear();
+        cellsHeapSize.set(0);
+        recoveredEdits = logRecoveredEditsOutputSink.finishWritingAndClose();
+      }
+      if (isSuccessful) {
+        splits = new ArrayList<Path>(hfilesWritten);
+        if (recoveredEdits != null) {
+          splits.addAll(recoveredEdits);
+        }
+      }
+      return splits;
+    }
+
+    @Override
+    int getNumOpenWriters() {
+      return logRecoveredEditsOutputSink.getNumOpenWriters();
+    }
+
+    /**
+     * The cells of one region, by family, and the sequence ids they span. A region gets a single
+     * HFile per family for the whole WAL rather than one per buffer of its edits, so the cells of
+     * all its buffers are kept until the split finishes, or until they are written out early, and
+     * only sorted then.
+     */
+    private final class RecoveredRegionCells {
+      final Path regionDir;
+      final HTableDescriptor htd;
+      final Map<byte[], List<Cell>> familyCells =
+          new TreeMap<byte[], List<Cell>>(Bytes.BYTES_COMPARATOR);
+      long firstSeqId = -1;
+      long maxSeqId = -1;
+      /* Read without the lock when looking for the largest region, an estimate is enough */
+      volatile long heapSize = 0;
+
+      RecoveredRegionCells(Path regionDir, HTableDescriptor htd) {
+        this.regionDir = regionDir;
+        this.htd = htd;
+      }
+
+      void add(byte[] family, Cell cell) {
+        List<Cell> cells = familyCells.get(family);
+        if (cells == null) {
+          cells = new ArrayList<Cell>();
+          familyCells.put(family, cells);
+        }
+        cells.add(cell);
+        heapSize += CellUtil.estimatedHeapSizeOf(cell);
+      }
+
+      void clear() {
+        familyCells.clear();
+        firstSeqId = -1;
+        maxSeqId = -1;
+        heapSize = 0;
+      }
+
+      void updateSequenceIds(long seqId) {
+        if (firstSeqId < 0 || seqId < firstSeqId) {
+          firstSeqId = seqId;
+        }
+        maxSeqId = Math.max(maxSeqId, seqId);
+      }
+    }
+
+    @Override
+    public boolean keepRegionEvent(Entry entry) {
+      return logRecoveredEditsOutputSink.keepRegionEvent(entry);
+    }
+
+    @Override
+    public Map<byte[], Long> getOutputCounts() {
+      Map<byte[], Long> ret = logRecoveredEditsOutputSink.getOutputCounts();
+      synchronized (editsWritten) {
+        for (Map.Entry<byte[], Long> entry : editsWritten.entrySet()) {
+          Long count = ret.get(entry.getKey());
+          ret.put(entry.getKey(), (count == null ? 0 : count) + entry.getValue());
+        }
+      }
+      return ret;
+    }
+
+    @Override
+    public int getNumberOfRecoveredRegions() {
+      return getOutputCounts().size();
+    }
+  }
+
   /**
    * Class wraps the actual writer which writes data out and related statistics
    */
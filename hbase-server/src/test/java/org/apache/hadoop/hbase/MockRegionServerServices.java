@@ -49,6 +49,7 @@ import org.apache.hadoop.hbase.regionserver.RegionServerAccounting;
 import org.apache.hadoop.hbase.regionserver.RegionServerServices;
 import org.apache.hadoop.hbase.regionserver.SecureBulkLoadManager;
 import org.apache.hadoop.hbase.regionserver.ServerNonceManager;
+import org.apache.hadoop.hbase.regionserver.throttle.ThroughputBudget;
 import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.wal.WAL;
@@ -341,6 +342,11 @@ public class MockRegionServerServices implements RegionServerServices {
     return 0;
   }
 
+  @Override
+  public ThroughputBudget getThroughputBudget() {
+    return null;
+  }
+
   @Override
   public MetricsRegionServer getMetrics() {
     return null;
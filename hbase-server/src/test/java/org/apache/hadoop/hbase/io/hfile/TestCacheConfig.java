@@ -414,6 +414,45 @@ public class TestCacheConfig {
     assertDataBlockCount(lrubc, 1);
   }
 
+  /**
+   * Test that with an index tier configured, index and bloom blocks are cached in the index tier
+   * only and data blocks never land there.
+   */
+  @Test
+  public void testIndexBlockTier() {
+    this.conf.setInt(CacheConfig.INDEX_TIER_SIZE_KEY, 32);
+    this.conf.set(CacheConfig.INDEX_TIER_IOENGINE_KEY, "heap");
+    CacheConfig cc = new CacheConfig(this.conf);
+    basicBlockCacheOps(cc, false, false);
+    assertTrue(cc.getBlockCache() instanceof IndexBlockTierCache);
+    IndexBlockTierCache ibtc = (IndexBlockTierCache)cc.getBlockCache();
+    assertTrue(ibtc.getDataCache() instanceof LruBlockCache);
+    assertTrue(ibtc.getIndexTier() instanceof BucketCache);
+    assertEquals(32, ((BucketCache)ibtc.getIndexTier()).getMaxSize() / (1024 * 1024));
+    BlockCache dataCache = ibtc.getDataCache();
+    BlockCache indexTier = ibtc.getIndexTier();
+
+    cacheDataBlock(cc, "data");
+    assertEquals(1, dataCache.getBlockCount());
+    assertEquals(0, indexTier.getBlockCount());
+
+    BlockCacheKey indexKey = new BlockCacheKey("index", 0, true, BlockType.INTERMEDIATE_INDEX);
+    ibtc.cacheBlock(indexKey, new MetaCacheEntry(), cc.isInMemory(), cc.isCacheDataInL1());
+    assertEquals(1, dataCache.getBlockCount());
+    assertEquals(1, indexTier.getBlockCount());
+    assertTrue(ibtc.getBlock(indexKey, true, false, true) != null);
+    // The bucket cache writer threads need to run before the block shows up in the iterator.
+    while (ibtc.getIndexTierSizeByFile().isEmpty()) Threads.sleep(10);
+    assertTrue(ibtc.getIndexTierSizeByFile().containsKey("index"));
+
+    // Evicting everything from the data cache must leave the index tier alone.
+    dataCache.evictBlocksByHfileName("data");
+    assertEquals(0, dataCache.getBlockCount());
+    assertEquals(1, indexTier.getBlockCount());
+    assertEquals(1, ibtc.evictBlocksByHfileName("index"));
+    assertEquals(0, indexTier.getBlockCount());
+  }
+
   private void assertDataBlockCount(final LruBlockCache bc, final int expected) {
     Map<BlockType, Integer> blocks = bc.getBlockTypeCountsForTest();
     assertEquals(expected, blocks == null? 0:
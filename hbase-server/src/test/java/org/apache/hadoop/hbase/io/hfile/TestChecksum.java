@@ -25,10 +25,12 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -46,6 +48,8 @@ import org.apache.hadoop.hbase.fs.HFileSystem;
 import org.apache.hadoop.hbase.io.FSDataInputStreamWrapper;
 import org.apache.hadoop.hbase.io.compress.Compression;
 import org.apache.hadoop.hbase.nio.ByteBuff;
+import org.apache.hadoop.hbase.nio.MultiByteBuff;
+import org.apache.hadoop.hbase.nio.SingleByteBuff;
 import org.apache.hadoop.hbase.testclassification.IOTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
 import org.apache.hadoop.hbase.util.ChecksumType;
@@ -98,6 +102,60 @@ public class TestChecksum {
     assertEquals(b.getChecksumType(), ChecksumType.getDefaultChecksumType().getCode());
   }
 
+  /**
+   * Test checksum validation directly on heap, direct and multi buffers, with chunks spanning
+   * the buffers of the multi buffer.
+   */
+  @Test
+  public void testValidateChecksumOnByteBuffs() throws IOException {
+    for (ChecksumType cktype : ChecksumType.values()) {
+      for (int bytesPerChecksum : BYTES_PER_CHECKSUM) {
+        HFileContext meta = new HFileContextBuilder().withChecksumType(cktype)
+            .withBytesPerCheckSum(bytesPerChecksum).build();
+        HFileBlock.Writer hbw = new HFileBlock.Writer(null, meta);
+        DataOutputStream dos = hbw.startWriting(BlockType.DATA);
+        for (int i = 0; i < 1000; ++i) {
+          dos.writeInt(i);
+        }
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        hbw.writeHeaderAndData(new FSDataOutputStream(baos, null));
+        byte[] block = baos.toByteArray();
+        for (ByteBuff buf : asByteBuffs(block)) {
+          assertTrue(cktype + "/" + bytesPerChecksum + " " + buf,
+            ChecksumUtil.validateChecksum(buf, "test", 0, HConstants.HFILEBLOCK_HEADER_SIZE));
+        }
+        block[block.length / 3] ^= 1;
+        for (ByteBuff buf : asByteBuffs(block)) {
+          assertEquals(cktype + "/" + bytesPerChecksum + " " + buf, cktype == ChecksumType.NULL,
+            ChecksumUtil.validateChecksum(buf, "test", 0, HConstants.HFILEBLOCK_HEADER_SIZE));
+        }
+      }
+    }
+  }
+
+  private static List<ByteBuff> asByteBuffs(byte[] bytes) {
+    List<ByteBuff> bufs = new ArrayList<>();
+    bufs.add(new SingleByteBuff(ByteBuffer.wrap(bytes)));
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+    direct.put(bytes);
+    direct.rewind();
+    bufs.add(new SingleByteBuff(direct));
+    int[] splits = { 7, bytes.length / 2 + 3, bytes.length - 1, bytes.length };
+    ByteBuffer[] heapItems = new ByteBuffer[splits.length];
+    ByteBuffer[] directItems = new ByteBuffer[splits.length];
+    int begin = 0;
+    for (int i = 0; i < splits.length; i++) {
+      heapItems[i] = ByteBuffer.wrap(Arrays.copyOfRange(bytes, begin, splits[i]));
+      directItems[i] = ByteBuffer.allocateDirect(splits[i] - begin);
+      directItems[i].put(bytes, begin, splits[i] - begin);
+      directItems[i].rewind();
+      begin = splits[i];
+    }
+    bufs.add(new MultiByteBuff(heapItems));
+    bufs.add(new MultiByteBuff(directItems));
+    return bufs;
+  }
+
   /**
    * Test all checksum types by writing and reading back blocks.
    */
@@ -0,0 +1,176 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.io.hfile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.testclassification.IOTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({IOTests.class, SmallTests.class})
+public class TestHotKeyRanges {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final byte[] VALUE = new byte[100];
+  private static final int NUM_ROWS = 1000;
+
+  private Configuration conf;
+  private FileSystem fs;
+  private LruBlockCache blockCache;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = TEST_UTIL.getConfiguration();
+    fs = TEST_UTIL.getTestFileSystem();
+    blockCache = new LruBlockCache(32 * 1024 * 1024, 1024, false, conf);
+  }
+
+  private static Cell key(int row) {
+    return new KeyValue(Bytes.toBytes(String.format("row%04d", row)), FAMILY, QUALIFIER,
+        VALUE);
+  }
+
+  private static Cell[] range(int start, Integer end) {
+    return new Cell[] { key(start), end == null ? null : key(end) };
+  }
+
+  @Test
+  public void testMergeAndOverlaps() {
+    List<Cell[]> ranges = new ArrayList<Cell[]>();
+    ranges.add(range(50, 60));
+    ranges.add(range(10, 20));
+    ranges.add(range(15, 30));
+    ranges.add(range(80, null));
+    ranges.add(range(90, 95));
+    HotKeyRanges hotKeyRanges = new HotKeyRanges(CellComparator.COMPARATOR, ranges);
+    assertEquals(3, hotKeyRanges.size());
+
+    assertFalse(hotKeyRanges.overlaps(key(0), key(9)));
+    assertTrue(hotKeyRanges.overlaps(key(0), key(10)));
+    assertTrue(hotKeyRanges.overlaps(key(25), key(26)));
+    // Range ends are exclusive.
+    assertFalse(hotKeyRanges.overlaps(key(30), key(49)));
+    assertTrue(hotKeyRanges.overlaps(key(40), key(70)));
+    assertFalse(hotKeyRanges.overlaps(key(60), key(79)));
+    assertTrue(hotKeyRanges.overlaps(key(200), key(300)));
+  }
+
+  @Test
+  public void testCacheHotRangesOnWrite() throws IOException {
+    CacheConfig cacheConf = new CacheConfig(blockCache, true, false, false, false, false, false,
+        false, false, false, false);
+    Path input = writeFile("input", cacheConf);
+    HFile.Reader reader = HFile.createReader(fs, input, cacheConf, conf);
+    reader.loadFileInfo();
+    try {
+      // Nothing has been read yet.
+      assertNull(HotKeyRanges.fromBlockCache(blockCache, Collections.singletonList(reader)));
+
+      // Read the whole file once, then rows 400 to 499 again to make their blocks hot.
+      HFileScanner scanner = reader.getScanner(true, true);
+      assertTrue(scanner.seekTo());
+      while (scanner.next()) {
+        continue;
+      }
+      assertEquals(0, scanner.seekTo(key(400)));
+      for (int i = 400; i < 500; i++) {
+        assertTrue(scanner.next());
+      }
+      scanner.close();
+
+      HotKeyRanges hotKeyRanges =
+          HotKeyRanges.fromBlockCache(blockCache, Collections.singletonList(reader));
+      assertNotNull(hotKeyRanges);
+      assertTrue(hotKeyRanges.overlaps(key(450), key(450)));
+      assertFalse(hotKeyRanges.overlaps(key(100), key(100)));
+      assertFalse(hotKeyRanges.overlaps(key(900), key(900)));
+
+      // Write the data again, caching only the hot ranges.
+      CacheConfig writeCacheConf = new CacheConfig(cacheConf);
+      writeCacheConf.setCacheOnWriteKeyRanges(hotKeyRanges);
+      Path output = writeFile("output", writeCacheConf);
+      int cachedBlocks = 0;
+      for (CachedBlock cb : blockCache) {
+        if (cb.getFilename().equals(output.getName())
+            && cb.getBlockType().getCategory() == BlockType.BlockCategory.DATA) {
+          cachedBlocks++;
+        }
+      }
+      HFile.Reader outputReader = HFile.createReader(fs, output, cacheConf, conf);
+      outputReader.loadFileInfo();
+      try {
+        long dataBlocks = outputReader.getTrailer().getDataIndexCount();
+        assertTrue(cachedBlocks > 0);
+        assertTrue("cached " + cachedBlocks + " of " + dataBlocks, cachedBlocks < dataBlocks / 2);
+        assertEquals(cachedBlocks, countCachedBlocksOnRead(outputReader, 400, 500));
+      } finally {
+        outputReader.close(false);
+      }
+    } finally {
+      reader.close(false);
+    }
+  }
+
+  private Path writeFile(String name, CacheConfig cacheConf) throws IOException {
+    Path path = new Path(TEST_UTIL.getDataTestDir(), name);
+    HFileContext context = new HFileContextBuilder().withBlockSize(1024).build();
+    HFile.Writer writer = HFile.getWriterFactory(conf, cacheConf).withPath(fs, path)
+        .withFileContext(context).create();
+    for (int i = 0; i < NUM_ROWS; i++) {
+      writer.append(key(i));
+    }
+    writer.close();
+    return path;
+  }
+
+  /**
+   * @return the number of cache hits reading rows start to end of the file, one per block
+   */
+  private long countCachedBlocksOnRead(HFile.Reader reader, int start, int end)
+      throws IOException {
+    long hitsBefore = blockCache.getStats().getHitCount();
+    HFileScanner scanner = reader.getScanner(false, true);
+    assertEquals(0, scanner.seekTo(key(start)));
+    for (int i = start; i < end - 1; i++) {
+      assertTrue(scanner.next());
+    }
+    scanner.close();
+    return blockCache.getStats().getHitCount() - hitsBefore;
+  }
+}
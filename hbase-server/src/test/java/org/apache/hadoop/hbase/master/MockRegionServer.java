@@ -113,6 +113,7 @@ import org.apache.hadoop.hbase.regionserver.RegionServerAccounting;
 import org.apache.hadoop.hbase.regionserver.RegionServerServices;
 import org.apache.hadoop.hbase.regionserver.SecureBulkLoadManager;
 import org.apache.hadoop.hbase.regionserver.ServerNonceManager;
+import org.apache.hadoop.hbase.regionserver.throttle.ThroughputBudget;
 import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
 import org.apache.hadoop.hbase.shaded.com.google.protobuf.RpcController;
 import org.apache.hadoop.hbase.shaded.com.google.protobuf.ServiceException;
@@ -692,6 +693,11 @@ ClientProtos.ClientService.BlockingInterface, RegionServerServices {
     return 0;
   }
 
+  @Override
+  public ThroughputBudget getThroughputBudget() {
+    return null;
+  }
+
   @Override
   public MetricsRegionServer getMetrics() {
     return null;
@@ -65,6 +65,21 @@ public class MetricsRegionServerWrapperStub implements MetricsRegionServerWrappe
     return 1025;
   }
 
+  @Override
+  public long getMemStoreChunksInUse() {
+    return 12;
+  }
+
+  @Override
+  public double getMemStoreChunkFragmentationPercent() {
+    return 7.5;
+  }
+
+  @Override
+  public long getMemStoreOverflowChunkCount() {
+    return 2;
+  }
+
   @Override
   public long getStoreFileSize() {
     return 1900;
@@ -260,6 +275,36 @@ public class MetricsRegionServerWrapperStub implements MetricsRegionServerWrappe
     return 36;
   }
 
+  @Override
+  public long getBlockCacheIndexTierSize() {
+    return 4096;
+  }
+
+  @Override
+  public long getBlockCacheIndexTierFreeSize() {
+    return 1024;
+  }
+
+  @Override
+  public long getBlockCacheIndexTierCount() {
+    return 3;
+  }
+
+  @Override
+  public long getBlockCacheIndexTierHitCount() {
+    return 17;
+  }
+
+  @Override
+  public long getBlockCacheIndexTierMissCount() {
+    return 4;
+  }
+
+  @Override
+  public long getBlockCacheIndexTierEvictedCount() {
+    return 1;
+  }
+
   @Override
   public long getUpdatesBlockedTime() {
     return 419;
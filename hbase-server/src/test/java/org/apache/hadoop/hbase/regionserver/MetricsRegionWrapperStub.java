@@ -130,6 +130,21 @@ public class MetricsRegionWrapperStub implements MetricsRegionWrapper {
     return 0;
   }
 
+  @Override
+  public double getStoreFilesReadPerGet() {
+    return 1.5;
+  }
+
+  @Override
+  public double getBlocksReadPerScanRow() {
+    return 2.5;
+  }
+
+  @Override
+  public double getCompactionWriteAmplification() {
+    return 3.5;
+  }
+
   @Override
   public int getRegionHashCode() {
     return 42;
@@ -0,0 +1,141 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({RegionServerTests.class, SmallTests.class})
+public class TestAdaptiveBlockSizeTracker {
+  private static final int MIN = 8 * 1024;
+  private static final int MAX = 256 * 1024;
+  private static final int FAMILY_BLOCKSIZE = HConstants.DEFAULT_BLOCKSIZE;
+
+  private Configuration conf;
+
+  @Before
+  public void setUp() {
+    conf = HBaseConfiguration.create();
+    conf.setBoolean(AdaptiveBlockSizeTracker.ADAPTIVE_BLOCKSIZE_ENABLED_KEY, true);
+    conf.setInt(AdaptiveBlockSizeTracker.ADAPTIVE_BLOCKSIZE_MIN_KEY, MIN);
+    conf.setInt(AdaptiveBlockSizeTracker.ADAPTIVE_BLOCKSIZE_MAX_KEY, MAX);
+    conf.setLong(AdaptiveBlockSizeTracker.ADAPTIVE_BLOCKSIZE_MIN_READS_KEY, 100);
+    conf.setLong(AdaptiveBlockSizeTracker.ADAPTIVE_BLOCKSIZE_SCAN_CELLS_KEY, 1000);
+  }
+
+  @Test
+  public void testDisabled() {
+    conf.setBoolean(AdaptiveBlockSizeTracker.ADAPTIVE_BLOCKSIZE_ENABLED_KEY, false);
+    AdaptiveBlockSizeTracker tracker = new AdaptiveBlockSizeTracker(conf);
+    record(tracker, 0, 1000, 10000);
+    assertEquals(0, tracker.getScanCount());
+    assertEquals(FAMILY_BLOCKSIZE, tracker.getCompactionBlockSize(FAMILY_BLOCKSIZE));
+  }
+
+  @Test
+  public void testInvalidBoundsWhenDisabled() {
+    conf.setBoolean(AdaptiveBlockSizeTracker.ADAPTIVE_BLOCKSIZE_ENABLED_KEY, false);
+    conf.setInt(AdaptiveBlockSizeTracker.ADAPTIVE_BLOCKSIZE_MIN_KEY, MAX);
+    conf.setInt(AdaptiveBlockSizeTracker.ADAPTIVE_BLOCKSIZE_MAX_KEY, MIN);
+    AdaptiveBlockSizeTracker tracker = new AdaptiveBlockSizeTracker(conf);
+    assertEquals(FAMILY_BLOCKSIZE, tracker.getCompactionBlockSize(FAMILY_BLOCKSIZE));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidBoundsWhenEnabled() {
+    conf.setInt(AdaptiveBlockSizeTracker.ADAPTIVE_BLOCKSIZE_MIN_KEY, MAX);
+    conf.setInt(AdaptiveBlockSizeTracker.ADAPTIVE_BLOCKSIZE_MAX_KEY, MIN);
+    new AdaptiveBlockSizeTracker(conf);
+  }
+
+  @Test
+  public void testTooFewReads() {
+    AdaptiveBlockSizeTracker tracker = new AdaptiveBlockSizeTracker(conf);
+    record(tracker, 50, 0, 0);
+    assertEquals(FAMILY_BLOCKSIZE, tracker.getCompactionBlockSize(FAMILY_BLOCKSIZE));
+  }
+
+  @Test
+  public void testPointReads() {
+    AdaptiveBlockSizeTracker tracker = new AdaptiveBlockSizeTracker(conf);
+    record(tracker, 1000, 0, 0);
+    assertEquals(MIN, tracker.getCompactionBlockSize(FAMILY_BLOCKSIZE));
+    // Scans that only walk a couple of cells are point reads too.
+    tracker = new AdaptiveBlockSizeTracker(conf);
+    record(tracker, 0, 1000, 2);
+    assertEquals(MIN, tracker.getCompactionBlockSize(FAMILY_BLOCKSIZE));
+  }
+
+  @Test
+  public void testLongScans() {
+    AdaptiveBlockSizeTracker tracker = new AdaptiveBlockSizeTracker(conf);
+    record(tracker, 0, 1000, 5000);
+    assertEquals(MAX, tracker.getCompactionBlockSize(FAMILY_BLOCKSIZE));
+  }
+
+  @Test
+  public void testMixedReads() {
+    AdaptiveBlockSizeTracker tracker = new AdaptiveBlockSizeTracker(conf);
+    // 60% of the reads are full length scans: 8k * (256k / 8k)^0.6 = 64k.
+    record(tracker, 400, 600, 1000);
+    int blockSize = tracker.getCompactionBlockSize(FAMILY_BLOCKSIZE);
+    assertEquals(Integer.highestOneBit(blockSize), blockSize);
+    assertEquals(64 * 1024, blockSize);
+  }
+
+  @Test
+  public void testComputeBlockSizeBounds() {
+    AdaptiveBlockSizeTracker tracker = new AdaptiveBlockSizeTracker(conf);
+    assertEquals(MIN, tracker.computeBlockSize(0));
+    assertEquals(MAX, tracker.computeBlockSize(1));
+    assertEquals(16 * 1024, tracker.computeBlockSize(0.2));
+    assertEquals(128 * 1024, tracker.computeBlockSize(0.8));
+  }
+
+  @Test
+  public void testDecay() {
+    AdaptiveBlockSizeTracker tracker = new AdaptiveBlockSizeTracker(conf);
+    record(tracker, 0, 1000, 5000);
+    assertEquals(MAX, tracker.getCompactionBlockSize(FAMILY_BLOCKSIZE));
+    // The workload turns into point reads; after a few compactions they dominate.
+    for (int i = 0; i < 4; i++) {
+      record(tracker, 1000, 0, 0);
+      tracker.decay();
+    }
+    assertEquals(63, tracker.getScanCount());
+    assertEquals(MIN, tracker.getCompactionBlockSize(FAMILY_BLOCKSIZE));
+  }
+
+  private static void record(AdaptiveBlockSizeTracker tracker, int gets, int scans,
+      long cellsPerScan) {
+    for (int i = 0; i < gets; i++) {
+      tracker.recordRead(true, 1);
+    }
+    for (int i = 0; i < scans; i++) {
+      tracker.recordRead(false, cellsPerScan);
+    }
+  }
+}
@@ -0,0 +1,205 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.MemoryCompactionPolicy;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.wal.WAL;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({RegionServerTests.class, SmallTests.class})
+public class TestAppendingCellSet {
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+
+  private static byte[] row(int row) {
+    return Bytes.toBytes(String.format("row%05d", row));
+  }
+
+  private static KeyValue cell(int row) {
+    return new KeyValue(row(row), FAMILY, QUALIFIER, Bytes.toBytes(row));
+  }
+
+  private static List<Cell> toList(Iterator<Cell> it) {
+    List<Cell> cells = new ArrayList<Cell>();
+    while (it.hasNext()) {
+      cells.add(it.next());
+    }
+    return cells;
+  }
+
+  @Test
+  public void testAppendInOrder() {
+    AppendingCellSet set = new AppendingCellSet(CellComparator.COMPARATOR);
+    assertTrue(set.isEmpty());
+    // More than the initial capacity, so the array grows.
+    int numCells = 5000;
+    for (int i = 0; i < numCells; i++) {
+      assertTrue(set.add(cell(i)));
+    }
+    assertTrue(set.isAppending());
+    assertEquals(numCells, set.size());
+    assertTrue(CellUtil.equals(cell(0), set.first()));
+    assertTrue(CellUtil.equals(cell(numCells - 1), set.last()));
+    assertTrue(set.contains(cell(1234)));
+    assertTrue(CellUtil.equals(cell(1234), set.get(cell(1234))));
+    assertNull(set.get(cell(numCells)));
+
+    assertEquals(numCells - 100, set.tailSet(cell(100)).size());
+    assertEquals(100, set.headSet(cell(100)).size());
+    assertTrue(CellUtil.equals(cell(100), set.tailSet(cell(100)).first()));
+    List<Cell> descending = toList(set.descendingIterator());
+    assertEquals(numCells, descending.size());
+    assertTrue(CellUtil.equals(cell(numCells - 1), descending.get(0)));
+
+    // Adding the same key again replaces the cell.
+    KeyValue replacement = cell(numCells - 1);
+    assertFalse(set.add(replacement));
+    assertSame(replacement, set.last());
+    assertEquals(numCells, set.size());
+    assertTrue(set.isAppending());
+  }
+
+  @Test
+  public void testFallBackOnOutOfOrderCell() {
+    AppendingCellSet set = new AppendingCellSet(CellComparator.COMPARATOR);
+    for (int i = 0; i < 10; i += 2) {
+      set.add(cell(i));
+    }
+    // An iterator taken before the fall back keeps seeing the cells it saw.
+    Iterator<Cell> before = set.iterator();
+    assertTrue(set.add(cell(5)));
+    assertFalse(set.isAppending());
+    assertEquals(5, toList(before).size());
+
+    assertTrue(set.add(cell(3)));
+    assertEquals(7, set.size());
+    List<Cell> cells = toList(set.iterator());
+    int[] expected = { 0, 2, 3, 4, 5, 6, 8 };
+    for (int i = 0; i < expected.length; i++) {
+      assertTrue(CellUtil.equals(cell(expected[i]), cells.get(i)));
+    }
+    assertTrue(set.remove(cell(3)));
+    assertEquals(6, set.size());
+  }
+
+  @Test
+  public void testAppendMemStore() throws IOException {
+    HBaseTestingUtility util = new HBaseTestingUtility();
+    HTableDescriptor htd = new HTableDescriptor(TableName.valueOf("testAppendMemStore"));
+    htd.addFamily(new HColumnDescriptor(FAMILY)
+        .setInMemoryCompaction(MemoryCompactionPolicy.APPEND));
+    HRegion region = util.createLocalHRegion(htd, null, null);
+    try {
+      HStore store = (HStore) region.getStore(FAMILY);
+      CompactingMemStore memstore = (CompactingMemStore) store.memstore;
+      for (int i = 0; i < 100; i++) {
+        region.put(new Put(row(i)).addColumn(FAMILY, QUALIFIER, Bytes.toBytes(i)));
+      }
+      AppendingCellSet active = (AppendingCellSet) memstore.getActive().getCellSet();
+      assertTrue(active.isAppending());
+      assertEquals(100, active.size());
+
+      memstore.disableCompaction();
+      memstore.flushInMemory();
+      memstore.enableCompaction();
+      region.put(new Put(row(50)).addColumn(FAMILY, QUALIFIER, Bytes.toBytes(-1)));
+      region.put(new Put(row(10)).addColumn(FAMILY, QUALIFIER, Bytes.toBytes(-1)));
+      active = (AppendingCellSet) memstore.getActive().getCellSet();
+      assertFalse(active.isAppending());
+      region.put(new Put(row(100)).addColumn(FAMILY, QUALIFIER, Bytes.toBytes(100)));
+      memstore.flushInMemory();
+
+      region.flush(true);
+      assertEquals(1, store.getStorefilesCount());
+      List<Cell> results = new ArrayList<Cell>();
+      try (RegionScanner scanner = region.getScanner(new Scan())) {
+        boolean more;
+        do {
+          more = scanner.next(results);
+        } while (more);
+      }
+      assertEquals(101, results.size());
+      for (int i = 0; i <= 100; i++) {
+        int expected = i == 10 || i == 50 ? -1 : i;
+        assertArrayEquals(Bytes.toBytes(expected), CellUtil.cloneValue(results.get(i)));
+      }
+      Result result = region.get(new Get(row(10)));
+      assertArrayEquals(Bytes.toBytes(-1), result.getValue(FAMILY, QUALIFIER));
+    } finally {
+      WAL wal = region.getWAL();
+      region.close();
+      wal.close();
+    }
+  }
+
+  @Test
+  public void testAppendPipelineMerged() throws IOException {
+    HBaseTestingUtility util = new HBaseTestingUtility();
+    HTableDescriptor htd = new HTableDescriptor(TableName.valueOf("testAppendPipelineMerged"));
+    htd.addFamily(new HColumnDescriptor(FAMILY)
+        .setInMemoryCompaction(MemoryCompactionPolicy.APPEND));
+    HRegion region = util.createLocalHRegion(htd, null, null);
+    try {
+      HStore store = (HStore) region.getStore(FAMILY);
+      CompactingMemStore memstore = (CompactingMemStore) store.memstore;
+      // Every in-memory flush pushes one more segment, the pipeline must still stay bounded
+      for (int i = 0; i < 100; i++) {
+        region.put(new Put(row(i)).addColumn(FAMILY, QUALIFIER, Bytes.toBytes(i)));
+        memstore.flushInMemory();
+        assertTrue(memstore.getImmutableSegments().getNumOfSegments() <= 31);
+      }
+      assertTrue(memstore.getImmutableSegments().getNumOfSegments() < 100);
+      for (int i = 0; i < 100; i++) {
+        Result result = region.get(new Get(row(i)));
+        assertArrayEquals(Bytes.toBytes(i), result.getValue(FAMILY, QUALIFIER));
+      }
+    } finally {
+      WAL wal = region.getWAL();
+      region.close();
+      wal.close();
+    }
+  }
+}
@@ -22,6 +22,9 @@ import static org.apache.hadoop.hbase.HBaseTestingUtility.START_KEY;
 import static org.apache.hadoop.hbase.HBaseTestingUtility.START_KEY_BYTES;
 import static org.apache.hadoop.hbase.HBaseTestingUtility.fam1;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
@@ -48,6 +51,8 @@ import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Durability;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.io.hfile.CacheConfig;
+import org.apache.hadoop.hbase.io.hfile.HFile;
 import org.apache.hadoop.hbase.io.hfile.HFileScanner;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionContext;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
@@ -281,6 +286,92 @@ public class TestCompaction {
         "thrown while completing a corrupt file");
   }
 
+  @Test
+  public void testParallelKeyRangeCompaction() throws Exception {
+    for (int i = 0; i < compactionThreshold; i++) {
+      createStoreFile(r);
+    }
+    // Delete some rows so the major compaction drops cells in the middle of ranges.
+    for (char c = 'b'; c <= 'y'; c += 3) {
+      r.delete(new Delete(Bytes.toBytes(c + "aa")));
+    }
+    r.flush(true);
+    HStore store = (HStore) r.getStore(COLUMN_FAMILY);
+    Collection<StoreFile> storeFiles = store.getStorefiles();
+
+    List<Path> serial = new DefaultCompactor(conf, store).compactForTesting(storeFiles, true);
+    assertEquals(1, serial.size());
+    Configuration parallelConf = new Configuration(conf);
+    parallelConf.setInt(DefaultCompactor.PARALLEL_SUBTASKS_KEY, 4);
+    parallelConf.setLong(DefaultCompactor.PARALLEL_MIN_SIZE_KEY, 0);
+    List<Path> parallel =
+        new DefaultCompactor(parallelConf, store).compactForTesting(storeFiles, true);
+    assertEquals(4, parallel.size());
+
+    // The ranges' files in order hold exactly the cells of the single file.
+    List<Cell> expected = readCells(store, serial);
+    List<Cell> actual = readCells(store, parallel);
+    assertTrue(expected.size() > 0);
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertTrue(expected.get(i) + " != " + actual.get(i),
+        CellUtil.equals(expected.get(i), actual.get(i))
+            && CellUtil.matchingValue(expected.get(i), actual.get(i)));
+    }
+  }
+
+  @Test
+  public void testParallelCompactionOutputNotCompactedAgain() throws Exception {
+    Configuration parallelConf = new Configuration(conf);
+    parallelConf.setInt(DefaultCompactor.PARALLEL_SUBTASKS_KEY, 4);
+    parallelConf.setLong(DefaultCompactor.PARALLEL_MIN_SIZE_KEY, 0);
+    HRegion region = HBaseTestingUtility.createRegionAndWAL(new HRegionInfo(htd.getTableName()),
+      UTIL.getDataTestDir(name.getMethodName()), parallelConf, htd);
+    try {
+      for (int i = 0; i < compactionThreshold; i++) {
+        createStoreFile(region);
+      }
+      HStore store = (HStore) region.getStore(COLUMN_FAMILY);
+      // A minor compaction that happens to select all files is split into ranges.
+      CompactionContext context = store.requestCompaction();
+      assertNotNull(context);
+      assertFalse(context.getRequest().isMajor());
+      assertTrue(context.getRequest().isAllFiles());
+      store.compact(context, NoLimitThroughputController.INSTANCE, null);
+      assertTrue(store.getStorefilesCount() > 1);
+      // The range files are about the same size, but are left alone until the next major.
+      assertNull(store.requestCompaction());
+      store.triggerMajorCompaction();
+      context = store.requestCompaction(Store.PRIORITY_USER, null);
+      assertNotNull(context);
+      assertTrue(context.getRequest().isMajor());
+      assertEquals(store.getStorefilesCount(), context.getRequest().getFiles().size());
+      store.cancelRequestedCompaction(context);
+    } finally {
+      HBaseTestingUtility.closeRegionAndWAL(region);
+    }
+  }
+
+  private List<Cell> readCells(HStore store, List<Path> paths) throws IOException {
+    List<Cell> cells = new ArrayList<Cell>();
+    for (Path path : paths) {
+      HFile.Reader reader = HFile.createReader(store.getFileSystem(), path,
+        new CacheConfig(conf), conf);
+      try {
+        reader.loadFileInfo();
+        HFileScanner scanner = reader.getScanner(false, false);
+        if (scanner.seekTo()) {
+          do {
+            cells.add(KeyValueUtil.copyToNewKeyValue(scanner.getCell()));
+          } while (scanner.next());
+        }
+      } finally {
+        reader.close(false);
+      }
+    }
+    return cells;
+  }
+
   /**
    * Create a custom compaction request and be sure that we can track it through the queue, knowing
    * when the compaction is completed.
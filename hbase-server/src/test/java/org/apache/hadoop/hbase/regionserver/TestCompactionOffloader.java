@@ -0,0 +1,164 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.regionserver.throttle.NoLimitThroughputController;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.FSTableDescriptors;
+import org.apache.hadoop.hbase.wal.WAL;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+/**
+ * Test compactions run by an {@link ExternalCompactionWorker} process.
+ */
+@Category({ RegionServerTests.class, MediumTests.class })
+public class TestCompactionOffloader {
+  private static final HBaseTestingUtility UTIL = new HBaseTestingUtility();
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int NUM_FILES = 3;
+  private static final int ROWS_PER_FILE = 100;
+
+  @Rule
+  public TestName name = new TestName();
+
+  private HRegion region;
+
+  @After
+  public void tearDown() throws IOException {
+    if (region != null) {
+      WAL wal = region.getWAL();
+      region.close();
+      wal.close();
+    }
+  }
+
+  private void createRegion(String command) throws IOException {
+    Configuration conf = UTIL.getConfiguration();
+    conf.setBoolean(CompactionOffloader.COMPACTION_OFFLOAD_ENABLED_KEY, true);
+    conf.setLong(CompactionOffloader.COMPACTION_OFFLOAD_MIN_SIZE_KEY, 0);
+    if (command != null) {
+      conf.set(CompactionOffloader.COMPACTION_OFFLOAD_COMMAND_KEY, command);
+    } else {
+      conf.unset(CompactionOffloader.COMPACTION_OFFLOAD_COMMAND_KEY);
+    }
+    HTableDescriptor htd = new HTableDescriptor(TableName.valueOf(name.getMethodName()));
+    htd.addFamily(new HColumnDescriptor(FAMILY));
+    region = UTIL.createLocalHRegion(htd, null, null);
+    // The worker reads the table descriptor from the file system.
+    FileSystem fs = region.getRegionFileSystem().getFileSystem();
+    new FSTableDescriptors(conf, fs, UTIL.getDataTestDir()).createTableDescriptorForTableDirectory(
+      region.getRegionFileSystem().getTableDir(), htd, false);
+  }
+
+  private void loadFiles() throws IOException {
+    for (int file = 0; file < NUM_FILES; file++) {
+      for (int i = 0; i < ROWS_PER_FILE; i++) {
+        byte[] row = Bytes.toBytes(String.format("row%04d", i));
+        region.put(new Put(row).addColumn(FAMILY, QUALIFIER, Bytes.toBytes(file)));
+      }
+      if (file == NUM_FILES - 1) {
+        region.delete(new Delete(Bytes.toBytes("row0000")));
+      }
+      region.flush(true);
+    }
+    assertEquals(NUM_FILES, region.getStore(FAMILY).getStorefilesCount());
+  }
+
+  private List<Path> getFiles() {
+    List<Path> paths = new ArrayList<Path>();
+    for (StoreFile sf : region.getStore(FAMILY).getStorefiles()) {
+      paths.add(sf.getPath());
+    }
+    return paths;
+  }
+
+  private void assertNoWorkerOutputLeft() throws IOException {
+    FileSystem fs = region.getRegionFileSystem().getFileSystem();
+    Path familyTempDir = new Path(region.getRegionFileSystem().getTempDir(),
+        Bytes.toString(FAMILY));
+    for (FileStatus status : fs.listStatus(region.getRegionFileSystem().getTempDir())) {
+      assertEquals(familyTempDir.getName(), status.getPath().getName());
+    }
+    if (fs.exists(familyTempDir)) {
+      assertEquals(0, fs.listStatus(familyTempDir).length);
+    }
+  }
+
+  @Test
+  public void testOffloadedMajorCompaction() throws IOException {
+    createRegion(null);
+    loadFiles();
+    region.compact(true);
+
+    Collection<StoreFile> files = region.getStore(FAMILY).getStorefiles();
+    assertEquals(1, files.size());
+    assertEquals(ROWS_PER_FILE - 1, files.iterator().next().getReader().getEntries());
+    assertTrue(region.get(new Get(Bytes.toBytes("row0000"))).isEmpty());
+    for (int i = 1; i < ROWS_PER_FILE; i++) {
+      Result result = region.get(new Get(Bytes.toBytes(String.format("row%04d", i))));
+      assertArrayEquals(Bytes.toBytes(NUM_FILES - 1), result.getValue(FAMILY, QUALIFIER));
+    }
+    assertNoWorkerOutputLeft();
+  }
+
+  @Test
+  public void testFailedWorker() throws IOException {
+    createRegion("false");
+    loadFiles();
+    List<Path> before = getFiles();
+    HStore store = (HStore) region.getStore(FAMILY);
+    store.triggerMajorCompaction();
+    try {
+      store.compact(store.requestCompaction(), NoLimitThroughputController.INSTANCE, null);
+      fail("Compaction of a failed worker should fail");
+    } catch (IOException e) {
+      // expected
+    }
+    assertEquals(before, getFiles());
+    assertNoWorkerOutputLeft();
+  }
+}
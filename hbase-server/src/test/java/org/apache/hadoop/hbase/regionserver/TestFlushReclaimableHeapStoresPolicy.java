@@ -0,0 +1,133 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.MemoryCompactionPolicy;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+@Category({RegionServerTests.class, MediumTests.class})
+public class TestFlushReclaimableHeapStoresPolicy {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  /** Many tiny cells, whose heap overhead is a few times their data */
+  private static final byte[] COUNTERS = Bytes.toBytes("c");
+  /** Fewer large cells */
+  private static final byte[] BLOBS = Bytes.toBytes("b");
+  /** A handful of tiny cells */
+  private static final byte[] SMALL = Bytes.toBytes("s");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+
+  @Rule public TestName name = new TestName();
+
+  private HRegion region;
+
+  @After
+  public void tearDown() throws IOException {
+    if (region != null) {
+      HBaseTestingUtility.closeRegionAndWAL(region);
+    }
+  }
+
+  private HRegion initHRegion(long lowerBound) throws IOException {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.set(FlushPolicyFactory.HBASE_FLUSH_POLICY_KEY,
+      FlushReclaimableHeapStoresPolicy.class.getName());
+    conf.set(CompactingMemStore.COMPACTING_MEMSTORE_TYPE_KEY,
+      String.valueOf(MemoryCompactionPolicy.NONE));
+    conf.setLong(FlushLargeStoresPolicy.HREGION_COLUMNFAMILY_FLUSH_SIZE_LOWER_BOUND_MIN,
+      lowerBound);
+    TableName tableName = TableName.valueOf(name.getMethodName());
+    HTableDescriptor htd = new HTableDescriptor(tableName);
+    for (byte[] family : new byte[][] { COUNTERS, BLOBS, SMALL }) {
+      htd.addFamily(new HColumnDescriptor(family));
+    }
+    HRegionInfo info = new HRegionInfo(tableName, null, null, false);
+    Path path = TEST_UTIL.getDataTestDir(name.getMethodName());
+    return HBaseTestingUtility.createRegionAndWAL(info, path, conf, htd);
+  }
+
+  private void load() throws IOException {
+    for (int i = 0; i < 3000; i++) {
+      Put put = new Put(Bytes.toBytes(String.format("row%05d", i)));
+      put.addColumn(COUNTERS, QUALIFIER, Bytes.toBytes((byte) i));
+      region.put(put);
+    }
+    for (int i = 0; i < 30; i++) {
+      Put put = new Put(Bytes.toBytes(String.format("row%05d", i)));
+      put.addColumn(BLOBS, QUALIFIER, new byte[4000]);
+      region.put(put);
+    }
+    for (int i = 0; i < 10; i++) {
+      Put put = new Put(Bytes.toBytes(String.format("row%05d", i)));
+      put.addColumn(SMALL, QUALIFIER, Bytes.toBytes((byte) i));
+      region.put(put);
+    }
+    MemstoreSize counters = region.getStore(COUNTERS).getSizeOfMemStore();
+    assertTrue(counters.toString(), counters.getHeapOverhead() > 2 * counters.getDataSize());
+  }
+
+  @Test
+  public void testFlushMostReclaimableHeapPerByte() throws IOException {
+    // Both the counters and the blobs are above the lower bound, but flushing the counters alone
+    // reclaims more than half of the heap.
+    region = initHRegion(64 * 1024);
+    load();
+    region.flush(false);
+    assertEquals(1, region.getStore(COUNTERS).getStorefilesCount());
+    assertEquals(0, region.getStore(BLOBS).getStorefilesCount());
+    assertEquals(0, region.getStore(SMALL).getStorefilesCount());
+  }
+
+  @Test
+  public void testNoLargeStoreDoesNotFlushAll() throws IOException {
+    region = initHRegion(16 * 1024 * 1024);
+    load();
+    region.flush(false);
+    assertEquals(1, region.getStore(COUNTERS).getStorefilesCount());
+    assertEquals(0, region.getStore(SMALL).getStorefilesCount());
+  }
+
+  @Test
+  public void testForcedFlushFlushesAll() throws IOException {
+    region = initHRegion(64 * 1024);
+    load();
+    region.flush(true);
+    assertEquals(1, region.getStore(COUNTERS).getStorefilesCount());
+    assertEquals(1, region.getStore(BLOBS).getStorefilesCount());
+    assertEquals(1, region.getStore(SMALL).getStorefilesCount());
+  }
+}
@@ -715,6 +715,65 @@ public class TestHRegion {
     }
   }
 
+  @Test
+  public void testParallelRecoveredEditsReplay() throws Exception {
+    byte[][] families = { Bytes.toBytes("f1"), Bytes.toBytes("f2"), Bytes.toBytes("f3") };
+    CONF.setBoolean(HRegion.HREGION_EDITS_REPLAY_PARALLEL, true);
+    CONF.setInt(HRegion.HREGION_EDITS_REPLAY_PARALLEL_BATCH, 7);
+    CONF.setLong(HConstants.HREGION_MEMSTORE_FLUSH_SIZE, 16 * 1024);
+    this.region = initHRegion(tableName, method, CONF, families);
+    final WALFactory wals = new WALFactory(CONF, null, method);
+    try {
+      Path regiondir = region.getRegionFileSystem().getRegionDir();
+      FileSystem fs = region.getRegionFileSystem().getFileSystem();
+      byte[] regionName = region.getRegionInfo().getEncodedNameAsBytes();
+      Path recoveredEditsDir = WALSplitter.getRegionDirRecoveredEditsDir(regiondir);
+
+      long minSeqId = 1000;
+      long maxSeqId = 1999;
+      byte[] value = new byte[100];
+      for (long file = minSeqId; file <= maxSeqId; file += 100) {
+        Path recoveredEdits = new Path(recoveredEditsDir, String.format("%019d", file + 99));
+        fs.create(recoveredEdits);
+        WALProvider.Writer writer = wals.createRecoveredEditsWriter(fs, recoveredEdits);
+        for (long i = file; i < file + 100; i++) {
+          long time = System.nanoTime();
+          WALEdit edit = new WALEdit();
+          // Every edit writes the same column of the row in every family, the last one wins.
+          for (byte[] family : families) {
+            edit.add(new KeyValue(row, family, Bytes.toBytes(i % 10), time, KeyValue.Type.Put,
+                Bytes.add(Bytes.toBytes(i), value)));
+          }
+          writer.append(new WAL.Entry(new WALKey(regionName, tableName, i, time,
+              HConstants.DEFAULT_CLUSTER_ID), edit));
+        }
+        writer.close();
+      }
+      MonitoredTask status = TaskMonitor.get().createStatus(method);
+      Map<byte[], Long> maxSeqIdInStores = new TreeMap<byte[], Long>(Bytes.BYTES_COMPARATOR);
+      for (Store store : region.getStores()) {
+        maxSeqIdInStores.put(store.getColumnFamilyName().getBytes(), minSeqId - 1);
+      }
+      long seqId = region.replayRecoveredEditsIfAny(regiondir, maxSeqIdInStores, null, status);
+      assertEquals(maxSeqId, seqId);
+      region.getMVCC().advanceTo(seqId);
+      Result result = region.get(new Get(row));
+      for (byte[] family : families) {
+        for (long q = 0; q < 10; q++) {
+          List<Cell> kvs = result.getColumnCells(family, Bytes.toBytes(q));
+          assertEquals(1, kvs.size());
+          assertEquals(maxSeqId - 9 + q, Bytes.toLong(CellUtil.cloneValue(kvs.get(0)), 0));
+        }
+        // The memstore filled up during the replay.
+        assertTrue(region.getStore(family).getStorefilesCount() > 1);
+      }
+    } finally {
+      HBaseTestingUtility.closeRegionAndWAL(this.region);
+      this.region = null;
+      wals.close();
+    }
+  }
+
   @Test
   public void testSkipRecoveredEditsReplaySomeIgnored() throws Exception {
     byte[] family = Bytes.toBytes("family");
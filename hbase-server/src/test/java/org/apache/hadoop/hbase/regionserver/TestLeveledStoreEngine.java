@@ -0,0 +1,347 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.KeyValueUtil;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Durability;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.regionserver.compactions.LeveledCompactionPolicy;
+import org.apache.hadoop.hbase.regionserver.compactions.LeveledCompactionPolicy.LeveledCompactionRequest;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.wal.WAL;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({RegionServerTests.class, MediumTests.class})
+public class TestLeveledStoreEngine {
+  private static final HBaseTestingUtility UTIL = new HBaseTestingUtility();
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final long MB = 1024 * 1024;
+
+  private long seqId = 0;
+
+  private LeveledStoreEngine createEngine(Configuration conf) throws Exception {
+    conf.set(StoreEngine.STORE_ENGINE_CLASS_KEY, LeveledStoreEngine.class.getName());
+    return (LeveledStoreEngine) StoreEngine.create(mock(Store.class), conf,
+      CellComparator.COMPARATOR);
+  }
+
+  private LeveledCompactionPolicy createPolicy() throws Exception {
+    return (LeveledCompactionPolicy) createEngine(createConf()).getCompactionPolicy();
+  }
+
+  private static Configuration createConf() {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setInt(HStore.BLOCKING_STOREFILES_KEY, 10);
+    conf.setInt(LeveledCompactionPolicy.LEVEL0_COMPACTION_TRIGGER_KEY, 3);
+    conf.setLong(LeveledCompactionPolicy.LEVEL1_MAX_SIZE_KEY, 10 * MB);
+    conf.setDouble(LeveledCompactionPolicy.LEVEL_SIZE_MULTIPLIER_KEY, 10);
+    return conf;
+  }
+
+  private StoreFile createFile(int level, String firstRow, String lastRow, long size) {
+    StoreFile sf = mock(StoreFile.class);
+    long id = ++seqId;
+    when(sf.getMaxSequenceId()).thenReturn(id);
+    when(sf.getPath()).thenReturn(new Path("file" + id));
+    when(sf.getMetadataValue(LeveledStoreFileManager.LEVEL_KEY))
+        .thenReturn(level == 0 ? null : Bytes.toBytes(level));
+    when(sf.getFirstKey()).thenReturn(KeyValueUtil.createFirstOnRow(Bytes.toBytes(firstRow)));
+    when(sf.getLastKey()).thenReturn(KeyValueUtil.createFirstOnRow(Bytes.toBytes(lastRow)));
+    StoreFileReader reader = mock(StoreFileReader.class);
+    when(reader.length()).thenReturn(size);
+    when(sf.getReader()).thenReturn(reader);
+    return sf;
+  }
+
+  private static List<StoreFile> al(StoreFile... sfs) {
+    return new ArrayList<StoreFile>(Arrays.asList(sfs));
+  }
+
+  @Test
+  public void testGroupByLevel() throws Exception {
+    LeveledStoreFileManager sfm =
+        (LeveledStoreFileManager) createEngine(createConf()).getStoreFileManager();
+    StoreFile l1a = createFile(1, "a", "c", MB);
+    StoreFile l1b = createFile(1, "d", "f", MB);
+    StoreFile l2 = createFile(2, "a", "z", MB);
+    StoreFile flushed = createFile(0, "b", "x", MB);
+    // Overlaps l1a, and is newer, so it is moved to level 0.
+    StoreFile overlapping = createFile(1, "c", "d", MB);
+    sfm.loadFiles(al(l2, l1b, flushed, l1a, overlapping));
+
+    List<List<StoreFile>> levels = sfm.getLevels();
+    assertEquals(3, levels.size());
+    assertEquals(al(flushed, overlapping), levels.get(0));
+    assertEquals(al(l1a, l1b), levels.get(1));
+    assertEquals(al(l2), levels.get(2));
+    // Level 0, plus the files of the other levels holding the row.
+    Collection<StoreFile> forGet =
+        sfm.getFilesForScan(Bytes.toBytes("e"), true, Bytes.toBytes("e"),
+          true);
+    assertEquals(4, forGet.size());
+    assertFalse(forGet.contains(l1a));
+    // Scans get everything.
+    assertEquals(5, sfm.getFilesForScan(Bytes.toBytes("e"), true,
+      Bytes.toBytes("f"), false).size());
+    // Two level 0 files and two levels to merge on reads.
+    assertEquals(10 - 4,
+      sfm.getStoreCompactionPriority());
+  }
+
+  @Test
+  public void testLevel0Compaction() throws Exception {
+    LeveledCompactionPolicy policy = createPolicy();
+    StoreFile l1a = createFile(1, "a", "c", MB);
+    StoreFile l1b = createFile(1, "d", "f", MB);
+    StoreFile l1c = createFile(1, "g", "k", MB);
+    StoreFile l2 = createFile(2, "j", "m", MB);
+    StoreFile f1 = createFile(0, "b", "d", MB);
+    StoreFile f2 = createFile(0, "c", "e", MB);
+    List<List<StoreFile>> levels = new ArrayList<List<StoreFile>>();
+    levels.add(al(f1, f2));
+    levels.add(al(l1a, l1b, l1c));
+    levels.add(al(l2));
+    // Not enough files in level 0 yet.
+    assertNull(policy.selectCompaction(levels, al(), false));
+
+    StoreFile f3 = createFile(0, "b", "e", MB);
+    levels.set(0, al(f1, f2, f3));
+    LeveledCompactionRequest request = policy.selectCompaction(levels, al(), false);
+    assertNotNull(request);
+    assertEquals(1, request.getOutputLevel());
+    assertEquals(5, request.getFiles().size());
+    assertTrue(request.getFiles().containsAll(al(f1, f2, f3, l1a, l1b)));
+    // Nothing below overlaps, so deletes can be dropped.
+    assertTrue(request.isAllFiles());
+    assertFalse(request.isMajor());
+
+    // Level 0 reaching into the level 2 range keeps the deletes.
+    StoreFile f4 = createFile(0, "a", "j", MB);
+    levels.set(0, al(f1, f2, f3, f4));
+    request = policy.selectCompaction(levels, al(), false);
+    assertEquals(7, request.getFiles().size());
+    assertFalse(request.isAllFiles());
+
+    // No level 0 compaction while one of the level 1 files is compacting.
+    assertNull(policy.selectCompaction(levels, al(l1c), false));
+  }
+
+  @Test
+  public void testOversizedLevelCompaction() throws Exception {
+    LeveledCompactionPolicy policy = createPolicy();
+    // Level 1 is 12MB, over its 10MB maximum.
+    StoreFile l1a = createFile(1, "a", "c", 4 * MB);
+    StoreFile l1b = createFile(1, "d", "f", 4 * MB);
+    StoreFile l1c = createFile(1, "g", "k", 4 * MB);
+    StoreFile l2a = createFile(2, "a", "b", 10 * MB);
+    StoreFile l2b = createFile(2, "c", "e", 10 * MB);
+    StoreFile l2c = createFile(2, "h", "i", 2 * MB);
+    List<List<StoreFile>> levels = new ArrayList<List<StoreFile>>();
+    levels.add(al());
+    levels.add(al(l1a, l1b, l1c));
+    levels.add(al(l2a, l2b, l2c));
+    // l1c overlaps the fewest bytes of level 2.
+    LeveledCompactionRequest request = policy.selectCompaction(levels, al(), false);
+    assertNotNull(request);
+    assertEquals(2, request.getOutputLevel());
+    assertEquals(2, request.getFiles().size());
+    assertTrue(request.getFiles().containsAll(al(l1c, l2c)));
+    assertTrue(request.isAllFiles());
+    assertTrue(policy.needsCompaction(levels, al()));
+
+    // Then l1b, while l1c is compacting.
+    request = policy.selectCompaction(levels, al(l1c, l2c), false);
+    assertTrue(request.getFiles().containsAll(al(l1b, l2b)));
+    // l1a overlaps l2b too, which is taken.
+    assertNull(policy.selectCompaction(levels, al(l1c, l2c, l1b, l2b), false));
+
+    // Within its maximum size level 1 stays.
+    levels.set(1, al(l1a, l1b));
+    assertFalse(policy.needsCompaction(levels, al()));
+  }
+
+  @Test
+  public void testOversizedLevelTakesFilesInOutputRange() throws Exception {
+    LeveledCompactionPolicy policy = createPolicy();
+    StoreFile l2a = createFile(2, "b", "e", MB);
+    StoreFile l2b = createFile(2, "x", "z", MB);
+    // Level 1 is 12MB, over its 10MB maximum.
+    StoreFile l1a = createFile(1, "a", "c", 6 * MB);
+    StoreFile l1b = createFile(1, "d", "f", 6 * MB);
+    List<List<StoreFile>> levels = new ArrayList<List<StoreFile>>();
+    levels.add(al());
+    levels.add(al(l1a, l1b));
+    levels.add(al(l2a, l2b));
+    // Either file of level 1 overlaps l2a, whose rows take in the other one, so both go to keep
+    // the newer data of the one left out from ranking below the output.
+    LeveledCompactionRequest request = policy.selectCompaction(levels, al(), false);
+    assertNotNull(request);
+    assertEquals(2, request.getOutputLevel());
+    assertEquals(3, request.getFiles().size());
+    assertTrue(request.getFiles().containsAll(al(l1a, l1b, l2a)));
+    // Not while one of them is compacting.
+    assertNull(policy.selectCompaction(levels, al(l1b), false));
+  }
+
+  @Test
+  public void testExpiredFiles() throws Exception {
+    LeveledStoreFileManager sfm =
+        (LeveledStoreFileManager) createEngine(createConf()).getStoreFileManager();
+    StoreFile l2 = createFile(2, "a", "z", MB);
+    StoreFile l1a = createFile(1, "a", "c", MB);
+    StoreFile l1b = createFile(1, "d", "f", MB);
+    StoreFile flushed = createFile(0, "b", "x", MB);
+    when(l2.getReader().getMaxTimestamp()).thenReturn(50L);
+    when(l1a.getReader().getMaxTimestamp()).thenReturn(100L);
+    when(l1b.getReader().getMaxTimestamp()).thenReturn(300L);
+    when(flushed.getReader().getMaxTimestamp()).thenReturn(10L);
+    sfm.loadFiles(al(l2, l1a, l1b, flushed));
+
+    // The newest file stays even though it expired.
+    Collection<StoreFile> expired = sfm.getUnneededFiles(200, al());
+    assertEquals(2, expired.size());
+    assertTrue(expired.containsAll(al(l2, l1a)));
+    expired = sfm.getUnneededFiles(200, al(l2));
+    assertEquals(al(l1a), expired);
+    assertNull(sfm.getUnneededFiles(20, al()));
+  }
+
+  @Test
+  public void testForceMajor() throws Exception {
+    LeveledCompactionPolicy policy = createPolicy();
+    StoreFile f1 = createFile(0, "b", "d", MB);
+    StoreFile l1 = createFile(1, "a", "c", MB);
+    StoreFile l2 = createFile(2, "a", "z", MB);
+    List<List<StoreFile>> levels = new ArrayList<List<StoreFile>>();
+    levels.add(al(f1));
+    levels.add(al(l1));
+    levels.add(al(l2));
+    LeveledCompactionRequest request = policy.selectCompaction(levels, al(), true);
+    assertEquals(2, request.getOutputLevel());
+    assertEquals(3, request.getFiles().size());
+    assertTrue(request.isMajor());
+    assertNull(policy.selectCompaction(levels, al(f1), true));
+  }
+
+  @Test
+  public void testCompactThroughLevels() throws Exception {
+    HTableDescriptor htd = new HTableDescriptor(TableName.valueOf("testCompactThroughLevels"));
+    HColumnDescriptor hcd = new HColumnDescriptor(FAMILY);
+    hcd.setConfiguration(StoreEngine.STORE_ENGINE_CLASS_KEY, LeveledStoreEngine.class.getName());
+    hcd.setConfiguration(LeveledCompactionPolicy.LEVEL0_COMPACTION_TRIGGER_KEY, "2");
+    hcd.setConfiguration(LeveledCompactionPolicy.LEVEL1_MAX_SIZE_KEY, "20000");
+    hcd.setConfiguration(LeveledCompactionPolicy.LEVEL_SIZE_MULTIPLIER_KEY, "2");
+    hcd.setConfiguration(LeveledCompactionPolicy.TARGET_FILE_SIZE_KEY, "4000");
+    htd.addFamily(hcd);
+    HRegion region = UTIL.createLocalHRegion(htd, null, null);
+    try {
+      int rows = 400;
+      int[] lastRound = new int[rows];
+      byte[] value = new byte[50];
+      for (int round = 0; round < 8; round++) {
+        // Every round writes a different quarter of the rows, in a shuffled order.
+        for (int i = round % 4; i < rows; i += 4) {
+          int row = (i * 7919) % rows;
+          Put put = new Put(Bytes.toBytes(String.format("row%04d", row)));
+          put.setDurability(Durability.SKIP_WAL);
+          Bytes.putInt(value, 0, round);
+          put.addColumn(FAMILY, QUALIFIER, round + 1, value.clone());
+          region.put(put);
+          lastRound[row] = round;
+        }
+        if (round == 5) {
+          // Deletes everything written so far of every tenth row.
+          for (int row = 0; row < rows; row += 10) {
+            region.delete(new Delete(Bytes.toBytes(String.format("row%04d", row)), round + 1));
+            lastRound[row] = -1;
+          }
+        }
+        region.flush(true);
+        for (int i = 0; i < 20 && region.getStore(FAMILY).needsCompaction(); i++) {
+          region.compact(false);
+        }
+      }
+
+      HStore store = (HStore) region.getStore(FAMILY);
+      LeveledStoreFileManager sfm =
+          (LeveledStoreFileManager) store.getStoreEngine().getStoreFileManager();
+      assertFalse(store.needsCompaction());
+      assertTrue(sfm.getLevels().size() > 2);
+      assertTrue(sfm.getLevels().get(0).size() < 2);
+      // Every file is in the level it was written to, so no level has overlapping files.
+      for (int i = 1; i < sfm.getLevels().size(); i++) {
+        for (StoreFile sf : sfm.getLevels().get(i)) {
+          assertEquals(i, LeveledStoreFileManager.getLevel(sf));
+        }
+      }
+      verifyRows(region, lastRound);
+
+      region.compact(true);
+      assertTrue(sfm.getLevels().get(0).isEmpty());
+      for (int i = 1; i < sfm.getLevels().size() - 1; i++) {
+        assertTrue(sfm.getLevels().get(i).isEmpty());
+      }
+      verifyRows(region, lastRound);
+    } finally {
+      WAL wal = region.getWAL();
+      region.close();
+      wal.close();
+    }
+  }
+
+  private static void verifyRows(HRegion region, int[] lastRound) throws Exception {
+    for (int row = 0; row < lastRound.length; row++) {
+      Result result = region.get(new Get(Bytes.toBytes(String.format("row%04d", row))));
+      if (lastRound[row] < 0) {
+        assertTrue("row " + row, result.isEmpty());
+        continue;
+      }
+      byte[] value = result.getValue(FAMILY, QUALIFIER);
+      assertNotNull("row " + row, value);
+      assertEquals("row " + row, lastRound[row], Bytes.toInt(value));
+    }
+  }
+}
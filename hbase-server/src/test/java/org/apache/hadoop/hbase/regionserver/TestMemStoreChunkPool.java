@@ -38,6 +38,7 @@ import java.util.List;
 import java.util.Random;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -58,7 +59,8 @@ public class TestMemStoreChunkPool {
     long globalMemStoreLimit = (long) (ManagementFactory.getMemoryMXBean().getHeapMemoryUsage()
         .getMax() * MemorySizeUtil.getGlobalMemStoreHeapPercent(conf, false));
     chunkPool = MemStoreChunkPool.initialize(globalMemStoreLimit, 0.2f,
-        MemStoreLAB.POOL_INITIAL_SIZE_DEFAULT, MemStoreLABImpl.CHUNK_SIZE_DEFAULT, false);
+        MemStoreLAB.POOL_INITIAL_SIZE_DEFAULT, MemStoreLABImpl.CHUNK_SIZE_DEFAULT, false,
+        MemStoreLAB.POOL_OFFHEAP_OVERFLOW_DEFAULT);
     assertTrue(chunkPool != null);
   }
 
@@ -220,7 +222,8 @@ public class TestMemStoreChunkPool {
     final int initialCount = 5;
     final int chunkSize = 30;
     final int valSize = 7;
-    MemStoreChunkPool pool = new MemStoreChunkPool(chunkSize, maxCount, initialCount, 1, false);
+    MemStoreChunkPool pool = new MemStoreChunkPool(chunkSize, maxCount, initialCount, 1, false,
+        0);
     assertEquals(initialCount, pool.getPoolSize());
     assertEquals(maxCount, pool.getMaxCount());
     MemStoreChunkPool.GLOBAL_INSTANCE = pool;// Replace the global ref with the new one we created.
@@ -255,4 +258,103 @@ public class TestMemStoreChunkPool {
       MemStoreChunkPool.GLOBAL_INSTANCE = oldPool;
     }
   }
+
+  @Test
+  public void testInUseChunksAndFragmentation() throws Exception {
+    MemStoreChunkPool oldPool = MemStoreChunkPool.GLOBAL_INSTANCE;
+    final int chunkSize = 1024;
+    final int maxCount = 2;
+    MemStoreChunkPool pool = new MemStoreChunkPool(chunkSize, maxCount, 0, 1, false, 0);
+    MemStoreChunkPool.GLOBAL_INSTANCE = pool;
+    Configuration labConf = new Configuration(conf);
+    labConf.setInt(MemStoreLAB.CHUNK_SIZE_KEY, chunkSize);
+    labConf.setInt(MemStoreLAB.MAX_ALLOC_KEY, chunkSize);
+    KeyValue kv = new KeyValue(Bytes.toBytes("r"), Bytes.toBytes("f"), Bytes.toBytes("q"),
+        new byte[300]);
+    int size = KeyValueUtil.length(kv);
+    int cellsPerChunk = chunkSize / size;
+    try {
+      MemStoreLAB mslab = new MemStoreLABImpl(labConf);
+      // Fill the two chunks the pool may create and then one more.
+      for (int i = 0; i < cellsPerChunk * (maxCount + 1); i++) {
+        mslab.copyCellInto(kv);
+      }
+      assertEquals(maxCount, pool.getInUseChunkCount());
+      assertEquals(1, pool.getOverflowChunkCount());
+      float expected = 1 - (float) (size * cellsPerChunk * maxCount) / (chunkSize * maxCount);
+      assertEquals(expected, pool.getFragmentation(), 0.0001);
+
+      mslab.close();
+      assertEquals(0, pool.getInUseChunkCount());
+      assertEquals(0, pool.getFragmentation(), 0);
+      assertEquals(maxCount, pool.getPoolSize());
+    } finally {
+      MemStoreChunkPool.GLOBAL_INSTANCE = oldPool;
+    }
+  }
+
+  @Test
+  public void testChunkNotKeptIsGivenBack() throws Exception {
+    MemStoreChunkPool oldPool = MemStoreChunkPool.GLOBAL_INSTANCE;
+    MemStoreChunkPool pool = new MemStoreChunkPool(1024, 1, 0, 1, false, 0);
+    MemStoreChunkPool.GLOBAL_INSTANCE = pool;
+    Configuration labConf = new Configuration(conf);
+    labConf.setInt(MemStoreLAB.CHUNK_SIZE_KEY, 1024);
+    labConf.setInt(MemStoreLAB.MAX_ALLOC_KEY, 1024);
+    try {
+      MemStoreLABImpl mslab = new MemStoreLABImpl(labConf);
+      mslab.close();
+      // A closed MemStoreLAB can not keep a pooled chunk, so it does not use one either.
+      mslab.copyCellInto(new KeyValue(Bytes.toBytes("r"), Bytes.toBytes("f"),
+          Bytes.toBytes("q"), new byte[10]));
+      assertFalse(mslab.getCurrentChunk().fromPool);
+      assertEquals(1, pool.getOverflowChunkCount());
+      assertEquals(0, pool.getInUseChunkCount());
+      assertEquals(1, pool.getPoolSize());
+      // The chunk given back still counts against the max count.
+      assertTrue(pool.getChunk() != null);
+      assertEquals(null, pool.getChunk());
+    } finally {
+      MemStoreChunkPool.GLOBAL_INSTANCE = oldPool;
+    }
+  }
+
+  @Test
+  public void testOffheapOverflowBounded() throws Exception {
+    MemStoreChunkPool oldPool = MemStoreChunkPool.GLOBAL_INSTANCE;
+    final int chunkSize = 1024;
+    MemStoreChunkPool pool = new MemStoreChunkPool(chunkSize, 1, 0, 1, true, 1);
+    MemStoreChunkPool.GLOBAL_INSTANCE = pool;
+    Configuration labConf = new Configuration(conf);
+    labConf.setInt(MemStoreLAB.CHUNK_SIZE_KEY, chunkSize);
+    labConf.setInt(MemStoreLAB.MAX_ALLOC_KEY, chunkSize);
+    KeyValue kv = new KeyValue(Bytes.toBytes("r"), Bytes.toBytes("f"), Bytes.toBytes("q"),
+        new byte[300]);
+    int cellsPerChunk = chunkSize / KeyValueUtil.length(kv);
+    try {
+      MemStoreLABImpl mslab = new MemStoreLABImpl(labConf);
+      // The pooled chunk, one off heap overflow chunk and then an on heap one.
+      for (int i = 0; i < cellsPerChunk * 2; i++) {
+        mslab.copyCellInto(kv);
+      }
+      assertTrue(mslab.getCurrentChunk() instanceof OffheapChunk);
+      mslab.copyCellInto(kv);
+      assertTrue(mslab.getCurrentChunk() instanceof OnheapChunk);
+      assertEquals(2, pool.getOverflowChunkCount());
+      assertEquals(1, pool.getOffheapOverflowChunkCount());
+
+      mslab.close();
+      assertEquals(0, pool.getOffheapOverflowChunkCount());
+      assertEquals(1, pool.getPoolSize());
+      // Off heap overflow chunks can be made again.
+      mslab = new MemStoreLABImpl(labConf);
+      for (int i = 0; i < cellsPerChunk * 2; i++) {
+        mslab.copyCellInto(kv);
+      }
+      assertTrue(mslab.getCurrentChunk() instanceof OffheapChunk);
+      mslab.close();
+    } finally {
+      MemStoreChunkPool.GLOBAL_INSTANCE = oldPool;
+    }
+  }
 }
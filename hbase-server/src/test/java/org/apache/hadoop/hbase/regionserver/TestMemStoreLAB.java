@@ -62,7 +62,7 @@ public class TestMemStoreLAB {
     long globalMemStoreLimit = (long) (ManagementFactory.getMemoryMXBean().getHeapMemoryUsage()
         .getMax() * MemorySizeUtil.getGlobalMemStoreHeapPercent(conf, false));
     MemStoreChunkPool.initialize(globalMemStoreLimit, 0.2f, MemStoreLAB.POOL_INITIAL_SIZE_DEFAULT,
-        MemStoreLABImpl.CHUNK_SIZE_DEFAULT, false);
+        MemStoreLABImpl.CHUNK_SIZE_DEFAULT, false, MemStoreLAB.POOL_OFFHEAP_OVERFLOW_DEFAULT);
   }
 
   /**
@@ -70,6 +70,9 @@ public class TestMetricsRegionServer {
     HELPER.assertGauge("hlogFileSize", 1024000, serverSource);
     HELPER.assertGauge("storeFileCount", 300, serverSource);
     HELPER.assertGauge("memstoreSize", 1025, serverSource);
+    HELPER.assertGauge("memStoreChunksInUse", 12, serverSource);
+    HELPER.assertGauge("memStoreChunkFragmentationPercent", 7.5, serverSource);
+    HELPER.assertCounter("memStoreOverflowChunkCount", 2, serverSource);
     HELPER.assertGauge("storeFileSize", 1900, serverSource);
     HELPER.assertCounter("totalRequestCount", 899, serverSource);
     HELPER.assertCounter("readRequestCount", 997, serverSource);
@@ -0,0 +1,212 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellComparator;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.regionserver.throttle.ThroughputController;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+/**
+ * Test flushes that write several files concurrently, see
+ * {@link StoreFlusher#PARALLEL_FLUSH_WRITERS_KEY}.
+ */
+@Category({RegionServerTests.class, MediumTests.class})
+public class TestParallelFlush {
+  private static final HBaseTestingUtility TEST_UTIL = HBaseTestingUtility.createLocalHTU();
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[][] QUALIFIERS = { Bytes.toBytes("q1"), Bytes.toBytes("q2") };
+  private static final int NUM_ROWS = 1000;
+  private static final int WRITERS = 4;
+
+  @Rule
+  public TestName name = new TestName();
+
+  private Configuration conf;
+  private HRegion region;
+
+  /** Fails the last key range of the next flush after it wrote its cells. */
+  public static class FailingLastRangeFlusher extends DefaultStoreFlusher {
+    static final AtomicBoolean FAIL = new AtomicBoolean();
+
+    public FailingLastRangeFlusher(Configuration conf, Store store) {
+      super(conf, store);
+    }
+
+    @Override
+    protected void performFlush(InternalScanner scanner, CellSink sink, long smallestReadPoint,
+        ThroughputController throughputController, byte[] stopRow) throws IOException {
+      super.performFlush(scanner, sink, smallestReadPoint, throughputController, stopRow);
+      if (stopRow == null && FAIL.compareAndSet(true, false)) {
+        throw new IOException("Injected failure");
+      }
+    }
+  }
+
+  @Before
+  public void setUp() {
+    conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setInt(StoreFlusher.PARALLEL_FLUSH_WRITERS_KEY, WRITERS);
+    conf.setLong(StoreFlusher.PARALLEL_FLUSH_PART_SIZE_KEY, 1);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    if (region != null) {
+      HBaseTestingUtility.closeRegionAndWAL(region);
+    }
+  }
+
+  private HRegion createRegion() throws IOException {
+    HTableDescriptor htd = new HTableDescriptor(TableName.valueOf(name.getMethodName()));
+    htd.addFamily(new HColumnDescriptor(FAMILY));
+    HRegionInfo hri = new HRegionInfo(htd.getTableName(), null, null);
+    return HBaseTestingUtility.createRegionAndWAL(hri,
+      TEST_UTIL.getDataTestDir(name.getMethodName()), conf, htd);
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row%04d", i));
+  }
+
+  private void loadAndFlush(String value) throws IOException {
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Put put = new Put(row(i));
+      for (byte[] qualifier : QUALIFIERS) {
+        put.addColumn(FAMILY, qualifier, Bytes.toBytes(value));
+      }
+      region.put(put);
+    }
+    region.flush(true);
+  }
+
+  private void verifyRows(String value) throws IOException {
+    List<Cell> cells = new ArrayList<Cell>();
+    try (RegionScanner scanner = region.getScanner(new Scan())) {
+      boolean more;
+      do {
+        more = scanner.next(cells);
+      } while (more);
+    }
+    assertEquals(NUM_ROWS * QUALIFIERS.length, cells.size());
+    for (int i = 0; i < cells.size(); i++) {
+      assertArrayEquals(row(i / QUALIFIERS.length), CellUtil.cloneRow(cells.get(i)));
+      assertArrayEquals(Bytes.toBytes(value), CellUtil.cloneValue(cells.get(i)));
+    }
+  }
+
+  /**
+   * @return the store files of the family sorted by first key, checking they do not overlap
+   */
+  private List<StoreFile> getDisjointStoreFiles() {
+    List<StoreFile> files = new ArrayList<StoreFile>(region.getStore(FAMILY).getStorefiles());
+    Collections.sort(files,
+      (a, b) -> CellComparator.COMPARATOR.compareRows(a.getFirstKey(), b.getFirstKey()));
+    for (int i = 1; i < files.size(); i++) {
+      assertTrue(CellComparator.COMPARATOR.compareRows(files.get(i - 1).getLastKey(),
+        files.get(i).getFirstKey()) < 0);
+    }
+    return files;
+  }
+
+  @Test
+  public void testDefaultStoreFlush() throws IOException {
+    region = createRegion();
+    loadAndFlush("v1");
+    List<StoreFile> files = getDisjointStoreFiles();
+    assertEquals(WRITERS, files.size());
+    long entries = 0;
+    for (StoreFile file : files) {
+      assertEquals(region.getMaxFlushedSeqId(), file.getMaxSequenceId());
+      entries += file.getReader().getEntries();
+    }
+    assertEquals(NUM_ROWS * QUALIFIERS.length, entries);
+    verifyRows("v1");
+  }
+
+  @Test
+  public void testFailedFlushLeavesNoTmpFiles() throws IOException {
+    conf.set(DefaultStoreEngine.DEFAULT_STORE_FLUSHER_CLASS_KEY,
+      FailingLastRangeFlusher.class.getName());
+    region = createRegion();
+    // The store retries the flush, the files of the failed attempt must all be gone.
+    FailingLastRangeFlusher.FAIL.set(true);
+    loadAndFlush("v1");
+    assertEquals(WRITERS, region.getStore(FAMILY).getStorefilesCount());
+    verifyRows("v1");
+    FileSystem fs = region.getRegionFileSystem().getFileSystem();
+    Path tmpDir = new Path(region.getRegionFileSystem().getTempDir(), Bytes.toString(FAMILY));
+    assertTrue(!fs.exists(tmpDir) || fs.listStatus(tmpDir).length == 0);
+  }
+
+  @Test
+  public void testSingleWriterBelowPartSize() throws IOException {
+    conf.setLong(StoreFlusher.PARALLEL_FLUSH_PART_SIZE_KEY, 64L * 1024 * 1024);
+    region = createRegion();
+    loadAndFlush("v1");
+    assertEquals(1, region.getStore(FAMILY).getStorefilesCount());
+    verifyRows("v1");
+  }
+
+  @Test
+  public void testStripeStoreFlush() throws IOException {
+    conf.set(StoreEngine.STORE_ENGINE_CLASS_KEY, StripeStoreEngine.class.getName());
+    conf.setBoolean(StripeStoreConfig.FLUSH_TO_L0_KEY, false);
+    conf.setInt(StripeStoreConfig.INITIAL_STRIPE_COUNT_KEY, WRITERS);
+    region = createRegion();
+    // The first flush creates the stripes, the second writes into them in parallel.
+    loadAndFlush("v1");
+    loadAndFlush("v2");
+    StripeStoreFileManager fileManager =
+        (StripeStoreFileManager) ((HStore) region.getStore(FAMILY)).getStoreEngine()
+            .getStoreFileManager();
+    assertEquals(WRITERS, fileManager.getStripeCount());
+    assertEquals(0, fileManager.getLevel0Files().size());
+    assertEquals(2 * WRITERS, region.getStore(FAMILY).getStorefilesCount());
+    verifyRows("v2");
+  }
+}
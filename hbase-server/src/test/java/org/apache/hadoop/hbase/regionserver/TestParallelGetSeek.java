@@ -0,0 +1,97 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.Table;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Test Gets whose store files are seeked in parallel, see
+ * {@link StoreScanner#STORESCANNER_PARALLEL_GET_SEEK_ENABLE}.
+ */
+@Category({RegionServerTests.class, MediumTests.class})
+public class TestParallelGetSeek {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final int NUM_FILES = 4;
+  private static final int NUM_QUALIFIERS = 8;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws Exception {
+    TEST_UTIL.getConfiguration().setBoolean(StoreScanner.STORESCANNER_PARALLEL_SEEK_ENABLE, true);
+    TEST_UTIL.getConfiguration().setBoolean(StoreScanner.STORESCANNER_PARALLEL_GET_SEEK_ENABLE,
+      true);
+    TEST_UTIL.startMiniCluster(1);
+  }
+
+  @AfterClass
+  public static void tearDownAfterClass() throws Exception {
+    TEST_UTIL.shutdownMiniCluster();
+  }
+
+  @Test
+  public void testMultiColumnGetAcrossStoreFiles() throws Exception {
+    TableName tableName = TableName.valueOf("testMultiColumnGetAcrossStoreFiles");
+    byte[] row = Bytes.toBytes("row");
+    try (Table table = TEST_UTIL.createTable(tableName, FAMILY)) {
+      // Every file has a version of every other qualifier so the newest value of a column may
+      // be in any of the files.
+      for (int file = 0; file < NUM_FILES; file++) {
+        Put put = new Put(row);
+        for (int q = file % 2; q < NUM_QUALIFIERS; q += 2) {
+          put.addColumn(FAMILY, Bytes.toBytes("q" + q), Bytes.toBytes("v" + file));
+        }
+        table.put(put);
+        TEST_UTIL.flush(tableName);
+      }
+      HRegion region = TEST_UTIL.getMiniHBaseCluster().getRegions(tableName).get(0);
+      assertEquals(NUM_FILES, region.getStore(FAMILY).getStorefilesCount());
+
+      Get get = new Get(row);
+      for (int q = 0; q < NUM_QUALIFIERS; q++) {
+        get.addColumn(FAMILY, Bytes.toBytes("q" + q));
+      }
+      Result result = table.get(get);
+      assertEquals(NUM_QUALIFIERS, result.size());
+      for (int q = 0; q < NUM_QUALIFIERS; q++) {
+        int newestFile = q % 2 == 0 ? NUM_FILES - 2 : NUM_FILES - 1;
+        assertArrayEquals(Bytes.toBytes("v" + newestFile),
+          result.getValue(FAMILY, Bytes.toBytes("q" + q)));
+      }
+
+      Result missing = table.get(new Get(Bytes.toBytes("absent")).addColumn(FAMILY,
+        Bytes.toBytes("q0")).addColumn(FAMILY, Bytes.toBytes("q1")));
+      assertTrue(missing.isEmpty());
+    }
+  }
+}
@@ -0,0 +1,144 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver;
+
+import static org.apache.hadoop.hbase.HBaseTestingUtility.fam1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.wal.WAL;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+@Category({RegionServerTests.class, MediumTests.class})
+public class TestStoreAmplificationTracker {
+  @Rule public TestName name = new TestName();
+
+  private static final HBaseTestingUtility UTIL = HBaseTestingUtility.createLocalHTU();
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int NUM_FILES = 3;
+  private static final int ROWS_PER_FILE = 10;
+
+  private HRegion region;
+
+  @Before
+  public void setUp() throws Exception {
+    region = UTIL.createLocalHRegion(UTIL.createTableDescriptor(name.getMethodName()), null,
+      null);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    WAL wal = region.getWAL();
+    region.close();
+    wal.close();
+  }
+
+  @Test
+  public void testRatios() {
+    assertEquals(0, StoreAmplificationTracker.ratio(5, 0), 0);
+    assertEquals(2.5, StoreAmplificationTracker.ratio(5, 2), 0);
+    assertEquals(0, StoreAmplificationTracker.writeAmplification(0, 100), 0);
+    assertEquals(3, StoreAmplificationTracker.writeAmplification(50, 100), 0);
+  }
+
+  @Test
+  public void testReadAndWriteAmplification() throws Exception {
+    // Each file holds its own rows, so the row Bloom filters leave one file for every Get.
+    for (int file = 0; file < NUM_FILES; file++) {
+      for (int i = 0; i < ROWS_PER_FILE; i++) {
+        Put put = new Put(row(file * ROWS_PER_FILE + i));
+        put.addColumn(fam1, QUALIFIER, Bytes.toBytes(i));
+        region.put(put);
+      }
+      region.flush(true);
+    }
+    Store store = region.getStore(fam1);
+    assertEquals(NUM_FILES, store.getStorefilesCount());
+
+    for (int i = 0; i < NUM_FILES * ROWS_PER_FILE; i++) {
+      assertEquals(1, region.get(new Get(row(i))).size());
+    }
+    assertEquals(NUM_FILES * ROWS_PER_FILE, store.getGetCount());
+    assertEquals(NUM_FILES * ROWS_PER_FILE, store.getGetStoreFilesReadCount());
+
+    try (RegionScanner scanner = region.getScanner(new Scan())) {
+      List<Cell> cells = new ArrayList<Cell>();
+      while (scanner.next(cells)) {
+        continue;
+      }
+    }
+    assertEquals(NUM_FILES * ROWS_PER_FILE, store.getScanRowCount());
+    assertTrue(store.getScanBlocksReadCount() >= NUM_FILES);
+    assertEquals(0, store.getCompactedOutputFileSize());
+
+    region.compact(true);
+    assertEquals(1, store.getStorefilesCount());
+    assertTrue(store.getCompactedOutputFileSize() > 0);
+    double writeAmplification = StoreAmplificationTracker.writeAmplification(
+      store.getFlushedOutputFileSize(), store.getCompactedOutputFileSize());
+    assertTrue("write amplification " + writeAmplification, writeAmplification > 1);
+  }
+
+  @Test
+  public void testScanBlocksReadAcrossFlush() throws Exception {
+    for (int file = 0; file < NUM_FILES; file++) {
+      for (int i = 0; i < ROWS_PER_FILE; i++) {
+        Put put = new Put(row(file * ROWS_PER_FILE + i));
+        put.addColumn(fam1, QUALIFIER, Bytes.toBytes(i));
+        region.put(put);
+      }
+      region.flush(true);
+    }
+    Store store = region.getStore(fam1);
+    try (RegionScanner scanner = region.getScanner(new Scan())) {
+      List<Cell> cells = new ArrayList<Cell>();
+      assertTrue(scanner.next(cells));
+      // The flush resets the scanner stack, what the old scanners read still counts
+      Put put = new Put(row(NUM_FILES * ROWS_PER_FILE));
+      put.addColumn(fam1, QUALIFIER, Bytes.toBytes(0));
+      region.put(put);
+      region.flush(true);
+      while (scanner.next(cells)) {
+        continue;
+      }
+    }
+    // The row put after the scanner opened is not visible to it
+    assertEquals(NUM_FILES * ROWS_PER_FILE, store.getScanRowCount());
+    assertTrue(store.getScanBlocksReadCount() >= NUM_FILES + 1);
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row%04d", i));
+  }
+}
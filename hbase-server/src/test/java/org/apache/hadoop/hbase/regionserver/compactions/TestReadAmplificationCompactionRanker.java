@@ -0,0 +1,122 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.regionserver.Region;
+import org.apache.hadoop.hbase.regionserver.Store;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.ManualEnvironmentEdge;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RegionServerTests.class, SmallTests.class })
+public class TestReadAmplificationCompactionRanker {
+  private static final long MB = 1024 * 1024;
+
+  private ManualEnvironmentEdge edge;
+
+  @Before
+  public void setUp() {
+    edge = new ManualEnvironmentEdge();
+    edge.setValue(1000);
+    EnvironmentEdgeManager.injectEdge(edge);
+  }
+
+  @After
+  public void tearDown() {
+    EnvironmentEdgeManager.reset();
+  }
+
+  private static Region mockRegion(String name) {
+    Region region = mock(Region.class);
+    when(region.getRegionInfo()).thenReturn(new HRegionInfo(TableName.valueOf("t"),
+        Bytes.toBytes(name), Bytes.toBytes(name + "z")));
+    return region;
+  }
+
+  private static Store mockStore(int files, long size) {
+    Store store = mock(Store.class);
+    when(store.getStorefilesCount()).thenReturn(files);
+    when(store.getStorefilesSize()).thenReturn(size);
+    return store;
+  }
+
+  private static CompactionRequest mockRequest(int files, long size) {
+    Collection<StoreFile> storeFiles = new ArrayList<StoreFile>();
+    for (int i = 0; i < files; i++) {
+      storeFiles.add(mock(StoreFile.class));
+    }
+    CompactionRequest request = mock(CompactionRequest.class);
+    when(request.getFiles()).thenReturn(storeFiles);
+    when(request.getSize()).thenReturn(size);
+    return request;
+  }
+
+  @Test
+  public void testFilesRemovedPerByte() {
+    ReadAmplificationCompactionRanker ranker = new ReadAmplificationCompactionRanker();
+    Region region = mockRegion("a");
+    Store store = mockStore(0, 0);
+    assertEquals(0, ranker.rank(region, store, mockRequest(1, 100 * MB)), 0);
+    // 10 files in 100MB remove 9 seeks per read for 100MB written.
+    assertEquals(0.09, ranker.rank(region, store, mockRequest(10, 100 * MB)), 0.0001);
+    // Small compactions cost at least a megabyte.
+    assertEquals(3, ranker.rank(region, store, mockRequest(4, 1024)), 0.0001);
+    // Without a selection the store's files are ranked.
+    assertEquals(0.19, ranker.rank(region, mockStore(20, 100 * MB), null), 0.0001);
+  }
+
+  @Test
+  public void testHotRegionsRankHigher() {
+    ReadAmplificationCompactionRanker ranker = new ReadAmplificationCompactionRanker();
+    Region hot = mockRegion("hot");
+    Region cold = mockRegion("cold");
+    when(hot.getReadRequestsCount()).thenReturn(0L);
+    when(cold.getReadRequestsCount()).thenReturn(0L);
+    assertEquals(0, ranker.getReadRate(hot), 0);
+    assertEquals(0, ranker.getReadRate(cold), 0);
+
+    edge.incValue(10000);
+    when(hot.getReadRequestsCount()).thenReturn(100000L);
+    when(cold.getReadRequestsCount()).thenReturn(10L);
+    assertEquals(10000, ranker.getReadRate(hot), 0.0001);
+    assertEquals(1, ranker.getReadRate(cold), 0.0001);
+
+    // A small compaction of the hot region beats a larger one removing more files from the cold.
+    Store store = mockStore(0, 0);
+    double hotRank = ranker.rank(hot, store, mockRequest(3, 50 * MB));
+    double coldRank = ranker.rank(cold, store, mockRequest(20, 10 * MB));
+    assertTrue(hotRank + " <= " + coldRank, hotRank > coldRank);
+  }
+}
@@ -0,0 +1,246 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.compactions;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.HStore;
+import org.apache.hadoop.hbase.regionserver.Store;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdge;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.wal.WAL;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+/**
+ * Test major compactions leaving out the files they would not change, see
+ * {@link CompactionConfiguration#HBASE_HSTORE_COMPACTION_SKIP_UNCHANGED_FILES_KEY}.
+ */
+@Category({ RegionServerTests.class, MediumTests.class })
+public class TestUnchangedFileFilter {
+  private static final HBaseTestingUtility UTIL = new HBaseTestingUtility();
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final long MAJOR_COMPACTION_PERIOD = 60 * 60 * 1000L;
+
+  @Rule
+  public TestName name = new TestName();
+
+  private HRegion region;
+
+  @Before
+  public void setUp() throws IOException {
+    UTIL.getConfiguration().setBoolean(
+      CompactionConfiguration.HBASE_HSTORE_COMPACTION_SKIP_UNCHANGED_FILES_KEY, true);
+    UTIL.getConfiguration().setLong(HConstants.MAJOR_COMPACTION_PERIOD, MAJOR_COMPACTION_PERIOD);
+    UTIL.getConfiguration().setFloat("hbase.hregion.majorcompaction.jitter", 0);
+    HTableDescriptor htd = new HTableDescriptor(TableName.valueOf(name.getMethodName()));
+    htd.addFamily(new HColumnDescriptor(FAMILY).setMaxVersions(1));
+    region = UTIL.createLocalHRegion(htd, null, null);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    WAL wal = region.getWAL();
+    region.close();
+    wal.close();
+  }
+
+  private void putAndFlush(String... rows) throws IOException {
+    for (String row : rows) {
+      region.put(new Put(Bytes.toBytes(row)).addColumn(FAMILY, QUALIFIER, Bytes.toBytes(row)));
+    }
+    region.flush(true);
+  }
+
+  private List<String> getFileNames() {
+    List<String> names = new ArrayList<String>();
+    for (StoreFile sf : region.getStore(FAMILY).getStorefiles()) {
+      names.add(sf.getPath().getName());
+    }
+    return names;
+  }
+
+  private void assertRow(String row, boolean present) throws IOException {
+    Result result = region.get(new Get(Bytes.toBytes(row)));
+    if (present) {
+      assertArrayEquals(Bytes.toBytes(row), result.getValue(FAMILY, QUALIFIER));
+    } else {
+      assertTrue(result.isEmpty());
+    }
+  }
+
+  @Test
+  public void testDisjointFilesLeftAlone() throws IOException {
+    putAndFlush("a1", "a2");
+    putAndFlush("b1", "b2");
+    putAndFlush("c1", "c2");
+    List<String> before = getFileNames();
+    assertEquals(3, before.size());
+
+    region.compact(true);
+    assertEquals(before, getFileNames());
+    for (String row : new String[] { "a1", "a2", "b1", "b2", "c1", "c2" }) {
+      assertRow(row, true);
+    }
+  }
+
+  @Test
+  public void testDeletesAndVersionsRewritten() throws IOException {
+    putAndFlush("a1", "a2");
+    putAndFlush("b1", "b2");
+    // A newer version of b1 and a delete of b2: both files of the b rows have to be rewritten.
+    region.put(new Put(Bytes.toBytes("b1")).addColumn(FAMILY, QUALIFIER, Bytes.toBytes("b1")));
+    region.delete(new Delete(Bytes.toBytes("b2")));
+    region.flush(true);
+    putAndFlush("c1", "c2");
+    Store store = region.getStore(FAMILY);
+    assertEquals(4, store.getStorefilesCount());
+    List<String> before = getFileNames();
+
+    region.compact(true);
+    List<String> after = getFileNames();
+    assertEquals(3, after.size());
+    assertTrue(after.contains(before.get(0)));
+    assertFalse(after.contains(before.get(1)));
+    assertFalse(after.contains(before.get(2)));
+    assertTrue(after.contains(before.get(3)));
+    for (String row : new String[] { "a1", "a2", "b1", "c1", "c2" }) {
+      assertRow(row, true);
+    }
+    assertRow("b2", false);
+    for (StoreFile sf : store.getStorefiles()) {
+      assertEquals(0, Bytes.toLong(sf.getMetadataValue(StoreFile.DELETE_COUNT)));
+      assertEquals(1, Bytes.toInt(sf.getMetadataValue(StoreFile.MAX_VERSIONS_KEY)));
+    }
+
+    // Nothing left to change.
+    region.compact(true);
+    assertEquals(after, getFileNames());
+  }
+
+  @Test
+  public void testNewerVersionRewrittenWithOlder() throws IOException {
+    putAndFlush("a1", "b1");
+    putAndFlush("b1", "c1");
+    // The newer file holds the version to keep, but has to be compacted with the older one or
+    // both versions would stay.
+    region.compact(true);
+    Store store = region.getStore(FAMILY);
+    assertEquals(1, store.getStorefilesCount());
+    assertEquals(1, Bytes.toInt(
+      store.getStorefiles().iterator().next().getMetadataValue(StoreFile.MAX_VERSIONS_KEY)));
+    for (String row : new String[] { "a1", "b1", "c1" }) {
+      assertRow(row, true);
+    }
+  }
+
+  @Test
+  public void testMinorCompactionNotFiltered() throws IOException {
+    putAndFlush("a1", "a2");
+    putAndFlush("b1", "b2");
+    putAndFlush("c1", "c2");
+    assertEquals(3, getFileNames().size());
+    // Selects all files, but is not a major compaction: it still has to merge them.
+    region.compact(false);
+    assertEquals(1, getFileNames().size());
+  }
+
+  /**
+   * Runs two selections in a row once the major compaction period has elapsed, as the compaction
+   * checker would.
+   * @return the requests selected
+   */
+  private CompactionRequest[] selectTwiceAfterPeriod() throws IOException {
+    Store store = region.getStore(FAMILY);
+    SortedCompactionPolicy policy =
+        (SortedCompactionPolicy) ((HStore) store).getStoreEngine().getCompactionPolicy();
+    final long offset = 2 * MAJOR_COMPACTION_PERIOD;
+    EnvironmentEdgeManager.injectEdge(new EnvironmentEdge() {
+      @Override
+      public long currentTime() {
+        return System.currentTimeMillis() + offset;
+      }
+    });
+    try {
+      List<StoreFile> noFiles = Collections.emptyList();
+      assertTrue(policy.shouldPerformMajorCompaction(store.getStorefiles()));
+      CompactionRequest first =
+          policy.selectCompaction(store.getStorefiles(), noFiles, false, false, false);
+      // The files left out are as old as before, the store was still major compacted.
+      assertFalse(policy.shouldPerformMajorCompaction(store.getStorefiles()));
+      CompactionRequest second =
+          policy.selectCompaction(store.getStorefiles(), noFiles, false, false, false);
+      return new CompactionRequest[] { first, second };
+    } finally {
+      EnvironmentEdgeManager.reset();
+    }
+  }
+
+  @Test
+  public void testNothingToRewriteSelectsMinor() throws IOException {
+    putAndFlush("a1", "a2");
+    putAndFlush("b1", "b2");
+    putAndFlush("c1", "c2");
+    for (CompactionRequest request : selectTwiceAfterPeriod()) {
+      // Not an empty major compaction, the files still get compacted.
+      assertFalse(request.isMajor());
+      assertEquals(3, request.getFiles().size());
+    }
+  }
+
+  @Test
+  public void testFilteredMajorNotRepeated() throws IOException {
+    putAndFlush("a1", "a2");
+    putAndFlush("b1", "b2");
+    region.delete(new Delete(Bytes.toBytes("b2")));
+    region.flush(true);
+    putAndFlush("c1", "c2");
+    CompactionRequest[] requests = selectTwiceAfterPeriod();
+    assertTrue(requests[0].isMajor());
+    assertEquals(2, requests[0].getFiles().size());
+    assertFalse(requests[1].isMajor());
+    assertEquals(4, requests[1].getFiles().size());
+  }
+}
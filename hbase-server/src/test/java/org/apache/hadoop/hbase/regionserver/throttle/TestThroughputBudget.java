@@ -0,0 +1,88 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.regionserver.throttle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.ManualEnvironmentEdge;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RegionServerTests.class, SmallTests.class })
+public class TestThroughputBudget {
+  private static final double MB = 1024 * 1024;
+  private static final double DELTA = 0.001;
+
+  private ManualEnvironmentEdge edge;
+
+  @Before
+  public void setUp() {
+    edge = new ManualEnvironmentEdge();
+    edge.setValue(1000);
+    EnvironmentEdgeManager.injectEdge(edge);
+  }
+
+  @After
+  public void tearDown() {
+    EnvironmentEdgeManager.reset();
+  }
+
+  @Test
+  public void testNoBudgetByDefault() {
+    assertNull(ThroughputBudget.create(HBaseConfiguration.create()));
+  }
+
+  @Test
+  public void testCompactionsShareWhatFlushesLeave() {
+    Configuration conf = HBaseConfiguration.create();
+    conf.setLong(ThroughputBudget.THROUGHPUT_BUDGET_KEY, (long) (100 * MB));
+    ThroughputBudget budget = ThroughputBudget.create(conf);
+    budget.start(false);
+    budget.start(false);
+    // No flushes: the compactions split the whole budget.
+    assertEquals(50 * MB, budget.getMaxThroughputPerOperation(false, 10 * MB), DELTA);
+
+    // Flushes write 60MB in a second, leaving 40MB for the compactions.
+    budget.start(true);
+    assertEquals(100 * MB, budget.getMaxThroughputPerOperation(true, 10 * MB), DELTA);
+    budget.recordFlush((long) (60 * MB));
+    edge.incValue(1000);
+    budget.recordFlush(0);
+    assertEquals(60 * MB, budget.getFlushRate(), DELTA);
+    assertEquals(20 * MB, budget.getMaxThroughputPerOperation(false, 10 * MB), DELTA);
+
+    // Flushes using up the budget leave the compactions their lower bound.
+    budget.recordFlush((long) (150 * MB));
+    edge.incValue(1000);
+    assertEquals(5 * MB, budget.getMaxThroughputPerOperation(false, 10 * MB), DELTA);
+
+    // Once the flushes are done their rate drops out.
+    budget.finish(true);
+    edge.incValue(1000);
+    budget.finish(false);
+    assertEquals(100 * MB, budget.getMaxThroughputPerOperation(false, 10 * MB), DELTA);
+  }
+}
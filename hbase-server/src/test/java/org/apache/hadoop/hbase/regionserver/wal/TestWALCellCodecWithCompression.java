@@ -19,13 +19,16 @@
 package org.apache.hadoop.hbase.regionserver.wal;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HConstants;
@@ -34,8 +37,11 @@ import org.apache.hadoop.hbase.OffheapKeyValue;
 import org.apache.hadoop.hbase.Tag;
 import org.apache.hadoop.hbase.TagUtil;
 import org.apache.hadoop.hbase.ArrayBackedTag;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.codec.Codec.Decoder;
 import org.apache.hadoop.hbase.codec.Codec.Encoder;
+import org.apache.hadoop.hbase.io.compress.Compression;
 import org.apache.hadoop.hbase.io.util.LRUDictionary;
 import org.apache.hadoop.hbase.testclassification.RegionServerTests;
 import org.apache.hadoop.hbase.testclassification.SmallTests;
@@ -61,6 +67,80 @@ public class TestWALCellCodecWithCompression {
     doTest(true, true);
   }
 
+  @Test
+  public void testEncodeDecodeKVsWithValueCompression() throws Exception {
+    StringBuilder json = new StringBuilder();
+    for (int i = 0; i < 50; i++) {
+      json.append("{\"id\":").append(i).append(",\"name\":\"user").append(i)
+          .append("\",\"active\":true},");
+    }
+    byte[] row = Bytes.toBytes("myRow");
+    byte[] cf = Bytes.toBytes("myCF");
+    byte[] q = Bytes.toBytes("myQualifier");
+    List<Tag> tags = new ArrayList<Tag>();
+    tags.add(new ArrayBackedTag((byte) 1, Bytes.toBytes("tagValue1")));
+    List<KeyValue> kvs = new ArrayList<KeyValue>();
+    // Compressible, too short to compress, empty and incompressible values.
+    kvs.add(new KeyValue(row, cf, q, 1L, Bytes.toBytes(json.toString())));
+    kvs.add(new KeyValue(row, cf, q, 2L, Bytes.toBytes("myValue"), tags));
+    kvs.add(new KeyValue(row, cf, q, 3L, new byte[0]));
+    byte[] random = new byte[1000];
+    new Random(42).nextBytes(random);
+    kvs.add(new KeyValue(row, cf, q, 4L, random, tags));
+    KeyValue offheapSource = new KeyValue(row, cf, q, 5L, Bytes.toBytes(json.toString()), tags);
+    ByteBuffer dbb = ByteBuffer.allocateDirect(offheapSource.getBuffer().length);
+    dbb.put(offheapSource.getBuffer());
+    Cell offheapKV = new OffheapKeyValue(dbb, 0, offheapSource.getBuffer().length);
+
+    Configuration conf = new Configuration(false);
+    WALCellCodec codec = new WALCellCodec(conf, new CompressionContext(LRUDictionary.class, false,
+        true, Compression.Algorithm.GZ));
+    ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
+    Encoder encoder = codec.getEncoder(bos);
+    long rawSize = 0;
+    for (KeyValue kv : kvs) {
+      encoder.write(kv);
+      rawSize += kv.getLength();
+    }
+    encoder.write(offheapKV);
+    rawSize += offheapSource.getLength();
+    encoder.flush();
+    assertTrue("encoded " + bos.size() + " of " + rawSize, bos.size() < rawSize / 2);
+
+    Decoder decoder = codec.getDecoder(new ByteArrayInputStream(bos.toByteArray()));
+    for (KeyValue kv : kvs) {
+      assertTrue(decoder.advance());
+      assertCellEquals(kv, decoder.current());
+    }
+    assertTrue(decoder.advance());
+    assertCellEquals(offheapSource, decoder.current());
+    assertEquals(false, decoder.advance());
+  }
+
+  @Test
+  public void testCloseReturnsValueCodecs() throws Exception {
+    byte[] value = new byte[1000];
+    Arrays.fill(value, (byte) 'a');
+    CompressionContext context = new CompressionContext(LRUDictionary.class, false, false,
+        Compression.Algorithm.GZ);
+    for (int i = 0; i < 2; i++) {
+      byte[] compressed = context.valueCompressor.compress(value, 0, value.length);
+      byte[] decompressed = new byte[value.length];
+      context.valueCompressor.decompress(new ByteArrayInputStream(compressed),
+        compressed.length, decompressed, 0, decompressed.length);
+      assertTrue(Bytes.equals(value, decompressed));
+      // Closing returns the codecs to the pool, a closed context takes them again when used
+      context.close();
+    }
+  }
+
+  private static void assertCellEquals(Cell expected, Cell actual) {
+    assertTrue(CellUtil.equals(expected, actual));
+    assertEquals(expected.getTimestamp(), actual.getTimestamp());
+    assertTrue(CellUtil.matchingValue(expected, actual));
+    assertTrue(Bytes.equals(CellUtil.cloneTags(expected), CellUtil.cloneTags(actual)));
+  }
+
   private void doTest(boolean compressTags, boolean offheapKV) throws Exception {
     Configuration conf = new Configuration(false);
     conf.setBoolean(CompressionContext.ENABLE_WAL_TAGS_COMPRESSION, compressTags);
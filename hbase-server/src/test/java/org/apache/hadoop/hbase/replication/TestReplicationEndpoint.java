@@ -23,29 +23,36 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.Waiter;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.HRegionServer;
 import org.apache.hadoop.hbase.replication.regionserver.*;
 import org.apache.hadoop.hbase.testclassification.MediumTests;
 import org.apache.hadoop.hbase.testclassification.ReplicationTests;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.apache.hadoop.hbase.util.JVMClusterUtil.RegionServerThread;
 import org.apache.hadoop.hbase.util.Threads;
+import org.apache.hadoop.hbase.wal.AbstractFSWALProvider;
 import org.apache.hadoop.hbase.wal.WAL.Entry;
 import org.apache.hadoop.hbase.zookeeper.ZKConfig;
 import org.apache.hadoop.metrics2.lib.DynamicMetricsRegistry;
+import org.apache.hadoop.metrics2.lib.MutableGaugeLong;
+import org.apache.hadoop.metrics2.lib.MutableHistogram;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Before;
@@ -53,7 +60,11 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -288,6 +299,55 @@ public class TestReplicationEndpoint extends TestReplicationBase {
   }
 
 
+  @Test (timeout=120000)
+  public void testSizeOfLogQueueOfOpenWAL() throws Exception {
+    final String id = "testSizeOfLogQueueOfOpenWAL";
+    BlockingReplicationEndpoint.permits.drainPermits();
+    admin.addPeer(id,
+      new ReplicationPeerConfig().setClusterKey(ZKConfig.getZooKeeperClusterKey(conf1))
+        .setReplicationEndpointImpl(BlockingReplicationEndpoint.class.getName()), null);
+    try {
+      // The source ships the first edit and blocks there
+      doPut(Bytes.toBytes("row0"));
+      Waiter.waitFor(conf1, 60000, new Waiter.Predicate<Exception>() {
+        @Override
+        public boolean evaluate() throws Exception {
+          return ReplicationEndpointForTest.replicateCount.get() >= 1;
+        }
+      });
+      try (Connection connection = ConnectionFactory.createConnection(conf1)) {
+        for (int i = 1; i <= 100; i++) {
+          doPut(connection, Bytes.toBytes("row" + i));
+        }
+      }
+      HRegionServer rs = utility1.getRSForFirstRegionInTable(tableName);
+      Path wal = AbstractFSWALProvider.getCurrentFileName(rs.getWAL(null));
+      final String walGroupId = AbstractFSWALProvider.getWALPrefixFromWALName(wal.getName());
+      ReplicationSource source = null;
+      for (ReplicationSourceInterface src : ((Replication) rs.getReplicationSourceService())
+          .getReplicationManager().getSources()) {
+        if (id.equals(src.getPeerClusterZnode())) {
+          source = (ReplicationSource) src;
+        }
+      }
+      Assert.assertNotNull(source);
+      final MetricsSource metrics = source.getSourceMetrics();
+      // Before reading on, the source counts the edits it has not read from the WAL still being
+      // written to, whose length the NameNode does not know yet.
+      BlockingReplicationEndpoint.permits.release();
+      Waiter.waitFor(conf1, 60000, new Waiter.Predicate<Exception>() {
+        @Override
+        public boolean evaluate() throws Exception {
+          return metrics.getSizeOfLogQueueInBytes(walGroupId) > 0;
+        }
+      });
+      Assert.assertEquals(wal, AbstractFSWALProvider.getCurrentFileName(rs.getWAL(null)));
+    } finally {
+      BlockingReplicationEndpoint.permits.release(Integer.MAX_VALUE / 2);
+      admin.removePeer(id);
+    }
+  }
+
   @Test
   public void testMetricsSourceBaseSourcePassthrough(){
     /*
@@ -344,6 +404,61 @@ public class TestReplicationEndpoint extends TestReplicationBase {
     verify(globalRms).updateHistogram(counterName, count);
   }
 
+  @Test
+  public void testMetricsSourcePerWALGroupAndTable() {
+    String id = "id";
+    DynamicMetricsRegistry mockRegistry = mock(DynamicMetricsRegistry.class);
+    MutableHistogram histogram = mock(MutableHistogram.class);
+    MutableGaugeLong gauge = mock(MutableGaugeLong.class);
+    when(mockRegistry.getHistogram(anyString())).thenReturn(histogram);
+    when(mockRegistry.getGauge(anyString(), anyLong())).thenReturn(gauge);
+    MetricsReplicationSourceImpl singleRms = mock(MetricsReplicationSourceImpl.class);
+    when(singleRms.getMetricsRegistry()).thenReturn(mockRegistry);
+    MetricsReplicationSourceImpl globalRms = mock(MetricsReplicationSourceImpl.class);
+    when(globalRms.getMetricsRegistry()).thenReturn(mockRegistry);
+    MetricsSource source = new MetricsSource(id,
+        new MetricsReplicationSourceSourceImpl(singleRms, id),
+        new MetricsReplicationGlobalSourceSource(globalRms));
+
+    source.updateWALReadTime("group1", 5);
+    source.updateFilterTime("group1", 6);
+    source.updateShipTime("group2", 7);
+    source.updateShippedBatchSize("group2", 1024);
+    // the source and the global histograms both get the value, the wal group one is dynamic
+    verify(histogram, times(2)).add(5);
+    verify(histogram, times(2)).add(6);
+    verify(histogram, times(2)).add(7);
+    verify(histogram, times(2)).add(1024);
+    verify(singleRms).updateHistogram("source.id.walGroup.group1.walReadTime", 5);
+    verify(singleRms).updateHistogram("source.id.walGroup.group1.filterTime", 6);
+    verify(singleRms).updateHistogram("source.id.walGroup.group2.shipTime", 7);
+    verify(singleRms).updateHistogram("source.id.walGroup.group2.shippedBatchSize", 1024);
+
+    source.setSizeOfLogQueueInBytes("group1", 100);
+    source.setSizeOfLogQueueInBytes("group1", 40);
+    source.setSizeOfLogQueueInBytes("group2", 30);
+    Assert.assertEquals(40, source.getSizeOfLogQueueInBytes("group1"));
+    Assert.assertEquals(30, source.getSizeOfLogQueueInBytes("group2"));
+    verify(gauge, times(2)).incr(100);
+    verify(gauge, times(2)).decr(60);
+    verify(gauge, times(2)).incr(30);
+    verify(singleRms).setGauge("source.id.walGroup.group1.sizeOfLogQueueInBytes", 40);
+
+    source.shipTableEdits(TableName.valueOf("ns", "t1"), 3, 300, System.currentTimeMillis());
+    verify(singleRms).incCounters("source.id.table.ns_t1.shippedEdits", 3);
+    verify(singleRms).incCounters("source.id.table.ns_t1.shippedBytes", 300);
+    verify(singleRms).setGauge(eq("source.id.table.ns_t1.ageOfLastShippedOp"), anyLong());
+
+    // clearing removes the dynamic metrics and takes the queue size off the global gauge
+    source.clear();
+    verify(singleRms).removeMetric("source.id.walGroup.group1.walReadTime");
+    verify(singleRms).removeMetric("source.id.walGroup.group1.sizeOfLogQueueInBytes");
+    verify(singleRms).removeMetric("source.id.table.ns_t1.shippedEdits");
+    verify(singleRms).removeMetric("source.id.table.ns_t1.ageOfLastShippedOp");
+    verify(gauge).decr(70);
+    Assert.assertEquals(0, source.getSizeOfLogQueueInBytes("group1"));
+  }
+
   private void doPut(byte[] row) throws IOException {
     try (Connection connection = ConnectionFactory.createConnection(conf1)) {
       doPut(connection, row);
@@ -460,6 +575,22 @@ public class TestReplicationEndpoint extends TestReplicationBase {
     }
   }
 
+  public static class BlockingReplicationEndpoint extends ReplicationEndpointForTest {
+    static final Semaphore permits = new Semaphore(0);
+
+    @Override
+    public boolean replicate(ReplicateContext replicateContext) {
+      super.replicate(replicateContext);
+      try {
+        permits.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      return true;
+    }
+  }
+
   public static class ReplicationEndpointReturningFalse extends ReplicationEndpointForTest {
     static int COUNT = 10;
     static AtomicReference<Exception> ex = new AtomicReference<Exception>(null);
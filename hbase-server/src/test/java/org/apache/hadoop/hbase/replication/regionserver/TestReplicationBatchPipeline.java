@@ -0,0 +1,168 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.replication.regionserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
+import org.apache.hadoop.hbase.testclassification.ReplicationTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.wal.WAL;
+import org.apache.hadoop.hbase.wal.WALKey;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ReplicationTests.class, SmallTests.class})
+public class TestReplicationBatchPipeline {
+  private static final TableName TABLE = TableName.valueOf("test");
+  private static final int NUM_LANES = 4;
+
+  private static WAL.Entry entry(byte[] region, long seqId) {
+    WALEdit edit = new WALEdit();
+    edit.add(new KeyValue(region, region, region));
+    return new WAL.Entry(new WALKey(region, TABLE, seqId, 0, HConstants.DEFAULT_CLUSTER_ID),
+        edit);
+  }
+
+  private static ReplicationBatchPipeline.Batch batch(long position, WAL.Entry... entries) {
+    List<WAL.Entry> list = new ArrayList<>();
+    Collections.addAll(list, entries);
+    return new ReplicationBatchPipeline.Batch(list, null, position, false, 0, list.size(), 0);
+  }
+
+  /**
+   * @return two region names that ship in different lanes
+   */
+  private static byte[][] regionsInDifferentLanes() {
+    byte[] first = Bytes.toBytes("region0");
+    for (int i = 1;; i++) {
+      byte[] other = Bytes.toBytes("region" + i);
+      if (ReplicationBatchPipeline.getLane(entry(other, 0), NUM_LANES)
+          != ReplicationBatchPipeline.getLane(entry(first, 0), NUM_LANES)) {
+        return new byte[][] { first, other };
+      }
+    }
+  }
+
+  @Test
+  public void testOutOfOrderAcks() throws Exception {
+    byte[][] regions = regionsInDifferentLanes();
+    final byte[] slowRegion = regions[0];
+    final CountDownLatch slowLane = new CountDownLatch(1);
+    final Map<String, List<Long>> shipped = new ConcurrentHashMap<>();
+    ReplicationBatchPipeline pipeline = new ReplicationBatchPipeline("test", NUM_LANES,
+        new ReplicationBatchPipeline.LaneShipper() {
+          @Override
+          public boolean ship(List<WAL.Entry> entries, int size) {
+            if (Bytes.equals(entries.get(0).getKey().getEncodedRegionName(), slowRegion)) {
+              try {
+                slowLane.await();
+              } catch (InterruptedException e) {
+                return false;
+              }
+            }
+            for (WAL.Entry entry : entries) {
+              String region = Bytes.toString(entry.getKey().getEncodedRegionName());
+              List<Long> seqIds = shipped.get(region);
+              if (seqIds == null) {
+                seqIds = Collections.synchronizedList(new ArrayList<Long>());
+                shipped.put(region, seqIds);
+              }
+              seqIds.add(entry.getKey().getSequenceId());
+            }
+            return true;
+          }
+        });
+    try {
+      ReplicationBatchPipeline.Batch first =
+          batch(100, entry(regions[0], 1), entry(regions[1], 2), entry(regions[0], 3));
+      ReplicationBatchPipeline.Batch second = batch(200, entry(regions[1], 4));
+      ReplicationBatchPipeline.Batch third = batch(300, entry(regions[0], 5),
+        entry(regions[1], 6));
+      pipeline.submit(first);
+      pipeline.submit(second);
+      pipeline.submit(third);
+      assertEquals(3, pipeline.getInFlightCount());
+
+      // The second batch is shipped before the first, but is not handed back ahead of it.
+      long deadline = System.currentTimeMillis() + 10000;
+      while (!shipped.containsKey(Bytes.toString(regions[1]))
+          || shipped.get(Bytes.toString(regions[1])).size() < 3) {
+        assertTrue(System.currentTimeMillis() < deadline);
+        Thread.sleep(10);
+      }
+      assertTrue(pipeline.awaitAcked(3).isEmpty());
+      assertEquals(3, pipeline.getInFlightCount());
+
+      slowLane.countDown();
+      List<ReplicationBatchPipeline.Batch> acked = pipeline.awaitAcked(0);
+      assertEquals(3, acked.size());
+      assertSame(first, acked.get(0));
+      assertSame(second, acked.get(1));
+      assertSame(third, acked.get(2));
+      assertEquals(0, pipeline.getInFlightCount());
+
+      // The edits of every region were shipped in WAL order.
+      assertEquals(Arrays.asList(1L, 3L, 5L), shipped.get(Bytes.toString(regions[0])));
+      assertEquals(Arrays.asList(2L, 4L, 6L), shipped.get(Bytes.toString(regions[1])));
+    } finally {
+      pipeline.close();
+    }
+  }
+
+  @Test
+  public void testFailedBatchIsNotAcked() throws Exception {
+    final byte[][] regions = regionsInDifferentLanes();
+    ReplicationBatchPipeline pipeline = new ReplicationBatchPipeline("test", NUM_LANES,
+        new ReplicationBatchPipeline.LaneShipper() {
+          @Override
+          public boolean ship(List<WAL.Entry> entries, int size) {
+            // The source stopped before the first region could be shipped.
+            return !Bytes.equals(entries.get(0).getKey().getEncodedRegionName(), regions[0]);
+          }
+        });
+    ReplicationBatchPipeline.Batch shippedBatch = batch(100, entry(regions[1], 1));
+    ReplicationBatchPipeline.Batch failedBatch = batch(200, entry(regions[0], 2));
+    ReplicationBatchPipeline.Batch laterBatch = batch(300, entry(regions[1], 3));
+    pipeline.submit(shippedBatch);
+    pipeline.submit(failedBatch);
+    pipeline.submit(laterBatch);
+    List<ReplicationBatchPipeline.Batch> acked = pipeline.awaitAcked(0);
+    // Nothing past the failed batch is handed back, even though it was shipped.
+    assertEquals(1, acked.size());
+    assertSame(shippedBatch, acked.get(0));
+    List<ReplicationBatchPipeline.Batch> remaining = pipeline.close();
+    assertEquals(2, remaining.size());
+    assertSame(failedBatch, remaining.get(0));
+    assertSame(laterBatch, remaining.get(1));
+  }
+}
@@ -42,14 +42,18 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.hbase.Cell;
 import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.Stoppable;
 import org.apache.hadoop.hbase.TableName;
 import org.apache.hadoop.hbase.client.Connection;
 import org.apache.hadoop.hbase.client.ConnectionFactory;
+import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
@@ -61,6 +65,7 @@ import org.apache.hadoop.hbase.shaded.com.google.protobuf.UnsafeByteOperations;
 import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos;
 import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos.WALKey;
+import org.apache.hadoop.hbase.regionserver.HRegion;
 import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
 import org.apache.hadoop.hbase.testclassification.MediumTests;
 import org.apache.hadoop.hbase.testclassification.ReplicationTests;
@@ -265,6 +270,127 @@ public class TestReplicationSink {
     assertEquals(0, res.size());
   }
 
+  /**
+   * Edits of a table with a serial replication scope are applied in the order they were written,
+   * even when a batch carries several edits of the same row and timestamp.
+   */
+  @Test
+  public void testSerialEntriesAppliedInOrder() throws Exception {
+    byte[] row = Bytes.toBytes(0);
+    long ts = System.currentTimeMillis();
+    List<WALEntry> entries = new ArrayList<WALEntry>();
+    List<Cell> cells = new ArrayList<Cell>();
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      cells.add(new KeyValue(row, FAM_NAME1, FAM_NAME1, ts, KeyValue.Type.Put, Bytes.toBytes(i)));
+      WALEntry.Builder builder = createWALEntryBuilder(TABLE_NAME1);
+      WALKey.Builder keyBuilder = builder.getKey().toBuilder();
+      keyBuilder.addScopes(WALProtos.FamilyScope.newBuilder()
+          .setFamily(UnsafeByteOperations.unsafeWrap(FAM_NAME1))
+          .setScopeType(WALProtos.ScopeType.REPLICATION_SCOPE_SERIAL));
+      entries.add(builder.setKey(keyBuilder).build());
+    }
+    SINK.replicateEntries(entries, CellUtil.createCellScanner(cells.iterator()),
+      replicationClusterId, baseNamespaceDir, hfileArchiveDir);
+    Result res = table1.get(new Get(row));
+    assertEquals(1, res.size());
+    assertEquals(BATCH_SIZE - 1, Bytes.toInt(res.getValue(FAM_NAME1, FAM_NAME1)));
+
+    // Every mutation of the row went in its own batch, other rows share batches.
+    ReplicationSink.SerialBatches batches = new ReplicationSink.SerialBatches();
+    batches.add(new Put(Bytes.toBytes(1)));
+    batches.add(new Put(Bytes.toBytes(2)));
+    batches.add(new Delete(Bytes.toBytes(1)));
+    batches.add(new Put(Bytes.toBytes(3)));
+    assertEquals(2, batches.batches.size());
+    assertEquals(2, batches.batches.get(0).size());
+    assertEquals(2, batches.batches.get(1).size());
+  }
+
+  /**
+   * Edits that lag far enough behind are bulk loaded instead of written through the client.
+   */
+  @Test
+  public void testBulkLoadLaggingEntries() throws Exception {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setLong(ReplicationSink.REPLICATION_SINK_BULKLOAD_LAG_KEY, 60000);
+    conf.setLong(ReplicationSink.REPLICATION_SINK_BULKLOAD_MIN_SIZE_KEY, 1);
+    ReplicationSink sink = new ReplicationSink(conf, STOPPABLE);
+    try {
+      long writeTime = System.currentTimeMillis() - 3600000;
+      List<WALEntry> entries = new ArrayList<WALEntry>();
+      List<Cell> cells = new ArrayList<Cell>();
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        entries.add(createEntry(TABLE_NAME1, i, KeyValue.Type.Put, cells));
+      }
+      // Overwrite a row with the same key, the later edit has to win.
+      Cell first = cells.get(0);
+      cells.add(new KeyValue(CellUtil.cloneRow(first), FAM_NAME1, FAM_NAME1,
+          first.getTimestamp(), KeyValue.Type.Put, Bytes.toBytes("latest")));
+      entries.add(createWALEntryBuilder(TABLE_NAME1).build());
+      // Delete a row
+      entries.add(createEntry(TABLE_NAME1, 1, KeyValue.Type.DeleteFamily, cells));
+      List<WALEntry> oldEntries = new ArrayList<WALEntry>();
+      for (WALEntry entry : entries) {
+        oldEntries.add(entry.toBuilder()
+            .setKey(entry.getKey().toBuilder().setWriteTime(writeTime)).build());
+      }
+      HRegion region = TEST_UTIL.getHBaseCluster().getRegions(TABLE_NAME1).get(0);
+      region.flush(true);
+      int storefiles = region.getStore(FAM_NAME1).getStorefilesCount();
+      sink.replicateEntries(oldEntries, CellUtil.createCellScanner(cells.iterator()),
+        replicationClusterId, baseNamespaceDir, hfileArchiveDir);
+
+      assertEquals(0, region.getMemstoreSize());
+      assertEquals(storefiles + 1, region.getStore(FAM_NAME1).getStorefilesCount());
+      Scan scan = new Scan();
+      ResultScanner scanRes = table1.getScanner(scan);
+      assertEquals(BATCH_SIZE - 1, scanRes.next(BATCH_SIZE).length);
+      assertEquals("latest",
+        Bytes.toString(table1.get(new Get(Bytes.toBytes(0))).getValue(FAM_NAME1, FAM_NAME1)));
+      assertTrue(table1.get(new Get(Bytes.toBytes(1))).isEmpty());
+    } finally {
+      sink.stopReplicationSinkServices();
+    }
+  }
+
+  /**
+   * Lagging edits of a table that is replicated itself are applied through the client, so they
+   * go through this cluster's WAL and are replicated on.
+   */
+  @Test
+  public void testNoBulkLoadOfReplicatedTable() throws Exception {
+    TableName tableName = TableName.valueOf("testNoBulkLoadOfReplicatedTable");
+    HTableDescriptor htd = new HTableDescriptor(tableName);
+    htd.addFamily(new HColumnDescriptor(FAM_NAME2).setScope(HConstants.REPLICATION_SCOPE_GLOBAL));
+    Table table = TEST_UTIL.createTable(htd, null);
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    conf.setLong(ReplicationSink.REPLICATION_SINK_BULKLOAD_LAG_KEY, 60000);
+    conf.setLong(ReplicationSink.REPLICATION_SINK_BULKLOAD_MIN_SIZE_KEY, 1);
+    ReplicationSink sink = new ReplicationSink(conf, STOPPABLE);
+    try {
+      long writeTime = System.currentTimeMillis() - 3600000;
+      List<WALEntry> entries = new ArrayList<WALEntry>();
+      List<Cell> cells = new ArrayList<Cell>();
+      for (int i = 0; i < BATCH_SIZE; i++) {
+        WALEntry entry = createEntry(tableName, i, KeyValue.Type.Put, cells);
+        entries.add(entry.toBuilder()
+            .setKey(entry.getKey().toBuilder().setWriteTime(writeTime)).build());
+      }
+      sink.replicateEntries(entries, CellUtil.createCellScanner(cells.iterator()),
+        replicationClusterId, baseNamespaceDir, hfileArchiveDir);
+
+      HRegion region = TEST_UTIL.getHBaseCluster().getRegions(tableName).get(0);
+      assertTrue(region.getMemstoreSize() > 0);
+      assertEquals(0, region.getStore(FAM_NAME2).getStorefilesCount());
+      ResultScanner scanRes = table.getScanner(new Scan());
+      assertEquals(BATCH_SIZE, scanRes.next(BATCH_SIZE).length);
+    } finally {
+      sink.stopReplicationSinkServices();
+      table.close();
+      TEST_UTIL.deleteTable(tableName);
+    }
+  }
+
   /**
    * Test replicateEntries with a bulk load entry for 25 HFiles
    */
@@ -0,0 +1,426 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.replication.regionserver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.regionserver.MultiVersionConcurrencyControl;
+import org.apache.hadoop.hbase.regionserver.wal.WALActionsListener;
+import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
+import org.apache.hadoop.hbase.testclassification.ReplicationTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.FSUtils;
+import org.apache.hadoop.hbase.wal.AbstractFSWALProvider;
+import org.apache.hadoop.hbase.wal.WAL;
+import org.apache.hadoop.hbase.wal.WALFactory;
+import org.apache.hadoop.hbase.wal.WALKey;
+import org.apache.hadoop.hbase.wal.WALProvider;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.mockito.Mockito;
+
+@Category({ReplicationTests.class, SmallTests.class})
+public class TestReplicationWALEntryCache {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final TableName TABLE = TableName.valueOf("test");
+  private static final byte[] REGION = Bytes.toBytes("region");
+  private static final int NUM_ENTRIES = 20;
+
+  private static Configuration conf;
+  private static FileSystem fs;
+  private static Path wal;
+
+  @BeforeClass
+  public static void setUpBeforeClass() throws IOException {
+    conf = TEST_UTIL.getConfiguration();
+    fs = FileSystem.getLocal(conf);
+    wal = new Path(TEST_UTIL.getDataTestDir(), "wal.1");
+    fs.mkdirs(wal.getParent());
+    WALProvider.Writer writer = WALFactory.createWALWriter(fs, wal, conf);
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      byte[] row = Bytes.toBytes(String.format("row%02d", i));
+      WALEdit edit = new WALEdit();
+      edit.add(new KeyValue(row, row, row));
+      writer.append(new WAL.Entry(new WALKey(REGION, TABLE, i, 0,
+          HConstants.DEFAULT_CLUSTER_ID), edit));
+    }
+    writer.sync();
+    writer.close();
+  }
+
+  private static ReplicationWALReaderManager openReader(ReplicationWALEntryCache cache)
+      throws IOException {
+    ReplicationWALReaderManager reader = new ReplicationWALReaderManager(fs, conf);
+    reader.setEntryCache(cache);
+    reader.openReader(wal);
+    reader.seek();
+    return reader;
+  }
+
+  private static void assertEntry(int i, WAL.Entry entry) {
+    assertNotNull(entry);
+    assertEquals(i, entry.getKey().getSequenceId());
+    assertArrayEquals(Bytes.toBytes(String.format("row%02d", i)),
+      CellUtil.cloneRow(entry.getEdit().getCells().get(0)));
+  }
+
+  @Test
+  public void testSharedDecode() throws IOException {
+    ReplicationWALEntryCache cache = new ReplicationWALEntryCache(64 * 1024 * 1024);
+    ReplicationWALReaderManager leader = openReader(cache);
+    ReplicationWALReaderManager follower = openReader(cache);
+    long[] positions = new long[NUM_ENTRIES];
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      assertEntry(i, leader.readNextAndSetPosition());
+      positions[i] = leader.getPosition();
+    }
+    assertNull(leader.readNextAndSetPosition());
+    assertEquals(NUM_ENTRIES, cache.getEntryCount());
+
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      WAL.Entry entry = follower.readNextAndSetPosition();
+      assertEntry(i, entry);
+      assertEquals(positions[i], follower.getPosition());
+      // What a source does to the entries it ships must not leak to the other sources.
+      entry.getKey().addClusterId(UUID.randomUUID());
+      entry.getEdit().setCells(new ArrayList<>());
+    }
+    assertEquals(NUM_ENTRIES, cache.getHitCount());
+    // The follower's reader has to seek past the cached entries to find the end of the file.
+    assertNull(follower.readNextAndSetPosition());
+    assertEquals(positions[NUM_ENTRIES - 1], follower.getPosition());
+
+    ReplicationWALReaderManager third = openReader(cache);
+    WAL.Entry entry = third.readNextAndSetPosition();
+    assertEntry(0, entry);
+    assertEquals(1, entry.getKey().getClusterIds().size());
+    assertEquals(1, entry.getEdit().size());
+    leader.closeReader();
+    follower.closeReader();
+    third.closeReader();
+  }
+
+  @Test
+  public void testReadOnAfterCachedEntries() throws IOException {
+    ReplicationWALEntryCache cache = new ReplicationWALEntryCache(64 * 1024 * 1024);
+    ReplicationWALReaderManager leader = openReader(cache);
+    for (int i = 0; i < NUM_ENTRIES / 2; i++) {
+      assertEntry(i, leader.readNextAndSetPosition());
+    }
+    ReplicationWALReaderManager follower = openReader(cache);
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      assertEntry(i, follower.readNextAndSetPosition());
+    }
+    assertEquals(NUM_ENTRIES / 2, cache.getHitCount());
+    // The follower published the rest, the leader does not decode them again.
+    for (int i = NUM_ENTRIES / 2; i < NUM_ENTRIES; i++) {
+      assertEntry(i, leader.readNextAndSetPosition());
+    }
+    assertEquals(NUM_ENTRIES, cache.getHitCount());
+
+    // Positions survive reopening the file, with or without the cache.
+    long position = leader.getPosition();
+    leader.closeReader();
+    ReplicationWALReaderManager reopened = new ReplicationWALReaderManager(fs, conf);
+    reopened.setPosition(position);
+    reopened.openReader(wal);
+    reopened.seek();
+    assertNull(reopened.readNextAndSetPosition());
+    follower.closeReader();
+    reopened.closeReader();
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    ReplicationWALReaderManager reader = openReader(null);
+    WAL.Entry entry = reader.readNextAndSetPosition();
+    long entrySize = entry.getEdit().heapSize();
+    ReplicationWALEntryCache cache = new ReplicationWALEntryCache(entrySize * 3);
+    reader.setEntryCache(cache);
+    long[] positions = new long[NUM_ENTRIES];
+    for (int i = 1; i < NUM_ENTRIES; i++) {
+      assertEntry(i, reader.readNextAndSetPosition());
+      positions[i] = reader.getPosition();
+    }
+    assertEquals(3, cache.getEntryCount());
+    assertTrue(cache.getSize() <= entrySize * 3);
+    reader.closeReader();
+
+    // Only the last entries are left.
+    ReplicationWALReaderManager follower = new ReplicationWALReaderManager(fs, conf);
+    follower.setEntryCache(cache);
+    follower.setPosition(positions[NUM_ENTRIES - 4]);
+    follower.openReader(wal);
+    follower.seek();
+    for (int i = NUM_ENTRIES - 3; i < NUM_ENTRIES; i++) {
+      assertEntry(i, follower.readNextAndSetPosition());
+    }
+    assertEquals(3, cache.getHitCount());
+    follower.closeReader();
+
+    follower = openReader(cache);
+    assertEntry(0, follower.readNextAndSetPosition());
+    assertEquals(3, cache.getHitCount());
+    follower.closeReader();
+  }
+
+  @Test
+  public void testTailHeldBackUntilSynced() throws Exception {
+    // What the sources would read from the file, and where
+    ReplicationWALReaderManager reader = new ReplicationWALReaderManager(fs, conf);
+    List<WAL.Entry> read = new ArrayList<>();
+    long[] positions = new long[NUM_ENTRIES + 1];
+    positions[0] = reader.openReader(wal).getPosition();
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      read.add(reader.readNextAndSetPosition());
+      positions[i + 1] = reader.getPosition();
+    }
+    reader.closeReader();
+
+    ReplicationWALEntryCache cache = new ReplicationWALEntryCache(64 * 1024 * 1024);
+    WAL log = Mockito.mock(WAL.class);
+    WAL otherLog = Mockito.mock(WAL.class);
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      cache.append(log, wal.getName(), positions[i], positions[i + 1], i + 1, read.get(i));
+    }
+    waitForCopies(cache);
+    // The cells are copied, the WAL owns the ones appended.
+    Cell appended = read.get(0).getEdit().getCells().get(0);
+    appended.getRowArray()[appended.getRowOffset()] = 'x';
+    assertEquals(0, cache.getEntryCount());
+    assertEquals(NUM_ENTRIES, cache.getPendingEntryCount());
+    cache.synced(otherLog, NUM_ENTRIES);
+    assertEquals(0, cache.getEntryCount());
+
+    cache.synced(log, NUM_ENTRIES / 2);
+    assertEquals(NUM_ENTRIES / 2, cache.getEntryCount());
+    assertEquals(NUM_ENTRIES / 2, cache.getPendingEntryCount());
+    assertFalse(cache.awaitEntry(wal.getName(), positions[NUM_ENTRIES / 2], 10));
+    ReplicationWALReaderManager follower = openReader(cache);
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      assertEntry(i, follower.readNextAndSetPosition());
+      assertEquals(positions[i + 1], follower.getPosition());
+    }
+    assertEquals(NUM_ENTRIES / 2, cache.getHitCount());
+    follower.closeReader();
+
+    // A source waiting for the next entry wakes up once it is synced.
+    ReplicationWALEntryCache tail = new ReplicationWALEntryCache(64 * 1024 * 1024);
+    tail.append(log, wal.getName(), positions[1], positions[2], 2, read.get(1));
+    waitForCopies(tail);
+    Thread syncer = new Thread(() -> tail.synced(log, 2));
+    syncer.start();
+    assertTrue(tail.awaitEntry(wal.getName(), positions[1], 60000));
+    syncer.join();
+    assertEquals(0, tail.getPendingEntryCount());
+  }
+
+  @Test
+  public void testTailUnreplicatedEntries() throws Exception {
+    ReplicationWALReaderManager reader = new ReplicationWALReaderManager(fs, conf);
+    List<WAL.Entry> read = new ArrayList<>();
+    long[] positions = new long[NUM_ENTRIES + 1];
+    positions[0] = reader.openReader(wal).getPosition();
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      read.add(reader.readNextAndSetPosition());
+      positions[i + 1] = reader.getPosition();
+    }
+    reader.closeReader();
+
+    ReplicationWALEntryCache cache = new ReplicationWALEntryCache(64 * 1024 * 1024);
+    WAL log = Mockito.mock(WAL.class);
+    WAL otherLog = Mockito.mock(WAL.class);
+    // Every other entry is not replicated, and the other WAL appends in between.
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      if (i % 2 == 0) {
+        cache.append(log, wal.getName(), positions[i], positions[i + 1], i + 1, read.get(i));
+      } else {
+        cache.appendUnreplicated(log, wal.getName(), positions[i], positions[i + 1], i + 1);
+      }
+      cache.appendUnreplicated(otherLog, "other", i, i + 1, i + 1);
+    }
+    waitForCopies(cache);
+    assertEquals(2 * NUM_ENTRIES, cache.getPendingEntryCount());
+    cache.synced(log, NUM_ENTRIES / 2);
+    assertEquals(NUM_ENTRIES / 2, cache.getEntryCount());
+    assertEquals(NUM_ENTRIES / 2 + NUM_ENTRIES, cache.getPendingEntryCount());
+    // Only the position of an unreplicated entry is cached, a source waiting for it wakes up.
+    assertEquals(NUM_ENTRIES / 4 * entrySize(read), cache.getSize());
+    assertTrue(cache.awaitEntry(wal.getName(), positions[1], 10));
+    assertFalse(cache.awaitEntry(wal.getName(), positions[NUM_ENTRIES / 2], 10));
+
+    // Sources read the unreplicated entries from the file.
+    ReplicationWALReaderManager follower = openReader(cache);
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      assertEntry(i, follower.readNextAndSetPosition());
+      assertEquals(positions[i + 1], follower.getPosition());
+    }
+    assertEquals(NUM_ENTRIES / 4, cache.getHitCount());
+    follower.closeReader();
+    cache.synced(otherLog, NUM_ENTRIES);
+    assertEquals(NUM_ENTRIES / 2, cache.getPendingEntryCount());
+  }
+
+  @Test
+  public void testTailNotCopiedBeforeSync() throws Exception {
+    ReplicationWALReaderManager reader = new ReplicationWALReaderManager(fs, conf);
+    List<WAL.Entry> read = new ArrayList<>();
+    long[] positions = new long[NUM_ENTRIES + 1];
+    positions[0] = reader.openReader(wal).getPosition();
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      read.add(reader.readNextAndSetPosition());
+      positions[i + 1] = reader.getPosition();
+    }
+    reader.closeReader();
+
+    ReplicationWALEntryCache cache = new ReplicationWALEntryCache(64 * 1024 * 1024);
+    WAL log = Mockito.mock(WAL.class);
+    // Nothing copies the entries, they are synced before they are copied.
+    cache.close();
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      cache.append(log, wal.getName(), positions[i], positions[i + 1], i + 1, read.get(i));
+    }
+    cache.synced(log, NUM_ENTRIES);
+    assertEquals(0, cache.getPendingEntryCount());
+    assertEquals(0, cache.getSize());
+    // Only their positions are published, a source waiting for them wakes up and reads them.
+    assertTrue(cache.awaitEntry(wal.getName(), positions[0], 10));
+    ReplicationWALReaderManager follower = openReader(cache);
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      assertEntry(i, follower.readNextAndSetPosition());
+      assertEquals(positions[i + 1], follower.getPosition());
+    }
+    assertEquals(0, cache.getHitCount());
+    follower.closeReader();
+  }
+
+  private static void waitForCopies(ReplicationWALEntryCache cache) throws Exception {
+    TEST_UTIL.waitFor(10000, () -> cache.getCopyBacklog() == 0);
+  }
+
+  private static long entrySize(List<WAL.Entry> entries) {
+    // All the test entries are the same size
+    return entries.get(0).getEdit().heapSize();
+  }
+
+  @Test
+  public void testTailFromWAL() throws IOException {
+    Configuration c = HBaseConfiguration.create(conf);
+    FSUtils.setRootDir(c, TEST_UTIL.getDataTestDir("testTailFromWAL"));
+    ReplicationWALEntryCache cache = new ReplicationWALEntryCache(64 * 1024 * 1024);
+    List<WALActionsListener> listeners = new ArrayList<>();
+    listeners.add(new WALActionsListener.Base() {
+      @Override
+      public void postWrite(WAL wal, Path path, long startPosition, long endPosition, long txid,
+          WAL.Entry entry) {
+        cache.append(wal, path.getName(), startPosition, endPosition, txid, entry);
+        // As if the sync took longer than copying the entry.
+        try {
+          waitForCopies(cache);
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
+
+      @Override
+      public void postSynced(WAL wal, long syncedTxid) {
+        cache.synced(wal, syncedTxid);
+      }
+    });
+    WALFactory wals = new WALFactory(c, listeners, "testTailFromWAL");
+    HRegionInfo hri = new HRegionInfo(TABLE);
+    WAL log = wals.getWAL(hri.getEncodedNameAsBytes(), hri.getTable().getNamespace());
+    MultiVersionConcurrencyControl mvcc = new MultiVersionConcurrencyControl();
+    NavigableMap<byte[], Integer> scopes = new TreeMap<byte[], Integer>(Bytes.BYTES_COMPARATOR);
+    Path path = AbstractFSWALProvider.getCurrentFileName(log);
+    long[] sequenceIds = new long[NUM_ENTRIES];
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      byte[] row = Bytes.toBytes(String.format("row%02d", i));
+      WALEdit edit = new WALEdit();
+      edit.add(new KeyValue(row, row, row));
+      WALKey key = new WALKey(hri.getEncodedNameAsBytes(), TABLE, System.currentTimeMillis(),
+          mvcc, scopes);
+      log.sync(log.append(hri, key, edit, true));
+      sequenceIds[i] = key.getSequenceId();
+    }
+    // Listeners learn about a sync after the waiting handlers are released.
+    TEST_UTIL.waitFor(10000, () -> cache.getEntryCount() == NUM_ENTRIES);
+    assertEquals(0, cache.getPendingEntryCount());
+    log.rollWriter();
+
+    // Everything the reader would decode, and at the same offsets, is in the cache.
+    ReplicationWALReaderManager reader = new ReplicationWALReaderManager(fs, c);
+    reader.openReader(path);
+    reader.seek();
+    ReplicationWALReaderManager follower = new ReplicationWALReaderManager(fs, c);
+    follower.setEntryCache(cache);
+    follower.openReader(path);
+    follower.seek();
+    for (int i = 0; i < NUM_ENTRIES; i++) {
+      WAL.Entry fromFile = reader.readNextAndSetPosition();
+      WAL.Entry fromCache = follower.readNextAndSetPosition();
+      assertEquals(sequenceIds[i], fromFile.getKey().getSequenceId());
+      assertEquals(sequenceIds[i], fromCache.getKey().getSequenceId());
+      assertEquals(fromFile.getKey().getWriteTime(), fromCache.getKey().getWriteTime());
+      assertTrue(CellUtil.equals(fromFile.getEdit().getCells().get(0),
+        fromCache.getEdit().getCells().get(0)));
+      assertEquals(reader.getPosition(), follower.getPosition());
+    }
+    assertEquals(NUM_ENTRIES, cache.getHitCount());
+    assertNull(follower.readNextAndSetPosition());
+    reader.closeReader();
+    follower.closeReader();
+    wals.close();
+  }
+
+  @Test
+  public void testCreate() {
+    Configuration c = HBaseConfiguration.create(conf);
+    assertNotNull(ReplicationWALEntryCache.create(c));
+    c.setLong(ReplicationWALEntryCache.CACHE_SIZE_KEY, 0);
+    assertNull(ReplicationWALEntryCache.create(c));
+    c = HBaseConfiguration.create(conf);
+    c.setBoolean(HConstants.ENABLE_WAL_COMPRESSION, true);
+    assertNull(ReplicationWALEntryCache.create(c));
+  }
+}
@@ -0,0 +1,206 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.wal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.CompatibilitySingletonFactory;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.ServerName;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.regionserver.MultiVersionConcurrencyControl;
+import org.apache.hadoop.hbase.regionserver.wal.MetricsWALSource;
+import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
+import org.apache.hadoop.hbase.regionserver.wal.WALUtil;
+import org.apache.hadoop.hbase.shaded.protobuf.ProtobufUtil;
+import org.apache.hadoop.hbase.shaded.protobuf.generated.WALProtos.RegionEventDescriptor;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.testclassification.SmallTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.EnvironmentEdgeManager;
+import org.apache.hadoop.hbase.util.FSUtils;
+import org.apache.hadoop.hbase.util.ManualEnvironmentEdge;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category({ RegionServerTests.class, SmallTests.class })
+public class TestLoadAwareGroupingStrategy {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final long HALFLIFE = 60000;
+
+  private ManualEnvironmentEdge edge;
+  private LoadAwareGroupingStrategy strategy;
+  private String[] groups;
+
+  @Before
+  public void setUp() {
+    edge = new ManualEnvironmentEdge();
+    edge.setValue(1);
+    EnvironmentEdgeManager.injectEdge(edge);
+    Configuration conf = new Configuration(false);
+    conf.setInt(BoundedGroupingStrategy.NUM_REGION_GROUPS, 2);
+    conf.setLong(LoadAwareGroupingStrategy.LOAD_HALFLIFE, HALFLIFE);
+    strategy = new LoadAwareGroupingStrategy();
+    strategy.init(conf, "test");
+    groups = strategy.getGroupNames();
+  }
+
+  @After
+  public void tearDown() {
+    EnvironmentEdgeManager.reset();
+  }
+
+  private String group(String region) {
+    return strategy.group(Bytes.toBytes(region), null);
+  }
+
+  @Test
+  public void testRoundRobinWithoutLoad() {
+    Map<String, Integer> counts = new HashMap<String, Integer>();
+    for (int i = 0; i < 8; i++) {
+      String group = group("region" + i);
+      Integer count = counts.get(group);
+      counts.put(group, count == null ? 1 : count + 1);
+    }
+    assertEquals(2, counts.size());
+    assertEquals(4, counts.get(groups[0]).intValue());
+    assertEquals(4, counts.get(groups[1]).intValue());
+  }
+
+  @Test
+  public void testPlaceOnLeastLoadedGroup() {
+    assertEquals(groups[0], group("r0"));
+    assertEquals(groups[1], group("r1"));
+    assertEquals(groups[0], group("r2"));
+    assertEquals(groups[1], group("r3"));
+    strategy.recordAppend(groups[0], Bytes.toBytes("r0"), 1000);
+    strategy.recordAppend(groups[0], Bytes.toBytes("r2"), 1000);
+    strategy.recordAppend(groups[1], Bytes.toBytes("r1"), 10);
+    strategy.recordAppend(groups[1], Bytes.toBytes("r3"), 10);
+
+    // Reopening r2 moves it, and its load, off the hot group.
+    strategy.regionClosed(Bytes.toBytes("r2"));
+    assertEquals(groups[1], group("r2"));
+    assertEquals(1000, strategy.getGroupLoad(groups[0]));
+    assertEquals(1020, strategy.getGroupLoad(groups[1]));
+    // Reopening r0 keeps it where it is, without it that group is the emptiest.
+    strategy.regionClosed(Bytes.toBytes("r0"));
+    assertEquals(groups[0], group("r0"));
+    assertEquals(1000, strategy.getGroupLoad(groups[0]));
+    // A new region goes to the group with less load.
+    assertEquals(groups[0], group("r4"));
+    strategy.recordAppend(groups[0], Bytes.toBytes("r4"), 100);
+    assertEquals(groups[1], group("r5"));
+  }
+
+  @Test
+  public void testOpenRegionStaysPut() {
+    assertEquals(groups[0], group("r0"));
+    assertEquals(groups[1], group("r1"));
+    assertEquals(groups[0], group("r2"));
+    strategy.recordAppend(groups[0], Bytes.toBytes("r0"), 1000);
+    strategy.recordAppend(groups[0], Bytes.toBytes("r2"), 500);
+    strategy.recordAppend(groups[1], Bytes.toBytes("r1"), 10);
+    // The region server asks again for the group of every open region on every report. Were
+    // r0 reopened it would move to the other group, being asked again moves neither it nor
+    // its load.
+    for (int i = 0; i < 2; i++) {
+      assertEquals(groups[0], group("r0"));
+      assertEquals(groups[0], group("r2"));
+      assertEquals(groups[1], group("r1"));
+      assertEquals(1500, strategy.getGroupLoad(groups[0]));
+      assertEquals(10, strategy.getGroupLoad(groups[1]));
+    }
+  }
+
+  @Test
+  public void testLoadDecays() {
+    assertEquals(groups[0], group("r0"));
+    strategy.recordAppend(groups[0], Bytes.toBytes("r0"), 1024);
+    edge.incValue(HALFLIFE);
+    assertEquals(groups[1], group("r1"));
+    assertEquals(512, strategy.getGroupLoad(groups[0]));
+    edge.incValue(10 * HALFLIFE);
+    group("r2");
+    assertEquals(0, strategy.getGroupLoad(groups[0]));
+  }
+
+  @Test
+  public void testProviderReportsAppends() throws Exception {
+    Configuration conf = new Configuration(TEST_UTIL.getConfiguration());
+    FSUtils.setRootDir(conf, TEST_UTIL.getDataTestDir("testProviderReportsAppends"));
+    conf.set(WALFactory.WAL_PROVIDER, WALFactory.Providers.multiwal.name());
+    conf.set(RegionGroupingProvider.REGION_GROUPING_STRATEGY,
+      RegionGroupingProvider.Strategies.loadaware.name());
+    EnvironmentEdgeManager.reset();
+    WALFactory wals = new WALFactory(conf, null, "testProviderReportsAppends");
+    try {
+      RegionGroupingProvider provider = (RegionGroupingProvider) wals.getWALProvider();
+      HRegionInfo hri = new HRegionInfo(TableName.valueOf("testProviderReportsAppends"));
+      byte[] family = Bytes.toBytes("f");
+      WAL wal = wals.getWAL(hri.getEncodedNameAsBytes(), null);
+      NavigableMap<byte[], Integer> scopes = new TreeMap<byte[], Integer>(Bytes.BYTES_COMPARATOR);
+      scopes.put(family, 0);
+      MultiVersionConcurrencyControl mvcc = new MultiVersionConcurrencyControl();
+      for (int i = 0; i < 10; i++) {
+        WALEdit edit = new WALEdit();
+        edit.add(new KeyValue(Bytes.toBytes("row" + i), family, family, new byte[100]));
+        wal.append(hri, new WALKey(hri.getEncodedNameAsBytes(), hri.getTable(),
+            System.currentTimeMillis(), mvcc, scopes), edit, true);
+      }
+      wal.sync();
+
+      LoadAwareGroupingStrategy loadAware =
+          (LoadAwareGroupingStrategy) provider.getRegionGroupingStrategy();
+      assertTrue(loadAware.isOpen(hri.getEncodedNameAsBytes()));
+      // The close marker of the region tells the strategy to place it again when it reopens.
+      WALUtil.writeRegionEventMarker(wal, scopes, hri,
+        ProtobufUtil.toRegionEventDescriptor(RegionEventDescriptor.EventType.REGION_CLOSE, hri,
+          mvcc.getReadPoint(), ServerName.valueOf("localhost", 1, 1),
+          new TreeMap<byte[], List<Path>>(Bytes.BYTES_COMPARATOR)), mvcc);
+      assertFalse(loadAware.isOpen(hri.getEncodedNameAsBytes()));
+      MetricsWALSource source = CompatibilitySingletonFactory.getInstance(MetricsWALSource.class);
+      int loadedGroups = 0;
+      for (String group : loadAware.getGroupNames()) {
+        if (loadAware.getGroupLoad(group) > 0) {
+          loadedGroups++;
+          // Metric names leave the provider id out.
+          String metricsName = group.substring(group.lastIndexOf('.') + 1);
+          assertEquals(loadAware.getGroupLoad(group), source.getGroupAppendSize(metricsName));
+        }
+      }
+      assertEquals(1, loadedGroups);
+    } finally {
+      wals.close();
+    }
+  }
+}
@@ -0,0 +1,281 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.hadoop.hbase.wal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HConstants;
+import org.apache.hadoop.hbase.HRegionInfo;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.wal.FSHLog;
+import org.apache.hadoop.hbase.testclassification.MediumTests;
+import org.apache.hadoop.hbase.testclassification.RegionServerTests;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.hadoop.hbase.util.FSTableDescriptors;
+import org.apache.hadoop.hbase.util.FSUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TestName;
+
+/**
+ * Test splitting WALs into HFiles, see {@link WALSplitter#SPLIT_WAL_TO_HFILES_KEY}.
+ */
+@Category({RegionServerTests.class, MediumTests.class})
+public class TestWALSplitToHFile {
+  private static final HBaseTestingUtility TEST_UTIL = new HBaseTestingUtility();
+  private static final byte[] FAMILY_A = Bytes.toBytes("a");
+  private static final byte[] FAMILY_B = Bytes.toBytes("b");
+  private static final byte[] QUALIFIER = Bytes.toBytes("q");
+  private static final int NUM_ROWS = 100;
+
+  @Rule
+  public TestName name = new TestName();
+
+  private Configuration conf;
+  private FileSystem fs;
+  private Path rootDir;
+  private Path oldLogDir;
+  private String logName;
+  private WALFactory wals;
+
+  @Before
+  public void setUp() throws IOException {
+    conf = HBaseConfiguration.create(TEST_UTIL.getConfiguration());
+    conf.setBoolean(WALSplitter.SPLIT_WAL_TO_HFILES_KEY, true);
+    rootDir = TEST_UTIL.getDataTestDir(name.getMethodName());
+    FSUtils.setRootDir(conf, rootDir);
+    fs = rootDir.getFileSystem(conf);
+    oldLogDir = new Path(rootDir, HConstants.HREGION_OLDLOGDIR_NAME);
+    logName = AbstractFSWALProvider.getWALDirectoryName(name.getMethodName());
+    wals = new WALFactory(conf, null, name.getMethodName());
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    wals.close();
+    fs.delete(rootDir, true);
+  }
+
+  @Test
+  public void testSplitToHFileAndReopen() throws IOException {
+    TableName tableName = TableName.valueOf(name.getMethodName());
+    HTableDescriptor htd = new HTableDescriptor(tableName);
+    htd.addFamily(new HColumnDescriptor(FAMILY_A));
+    htd.addFamily(new HColumnDescriptor(FAMILY_B));
+    new FSTableDescriptors(conf, fs, rootDir).createTableDescriptorForTableDirectory(
+      FSUtils.getTableDir(rootDir, tableName), htd, false);
+    HRegionInfo hri = new HRegionInfo(tableName, null, null, false);
+    HBaseTestingUtility.closeRegionAndWAL(
+      HBaseTestingUtility.createRegionAndWAL(hri, rootDir, conf, htd));
+
+    // Half the rows are flushed, the other half and a delete are only in the WAL.
+    WAL wal = createWAL();
+    HRegion region = HRegion.openHRegion(conf, fs, rootDir, hri, htd, wal);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Put put = new Put(row(i));
+      put.addColumn(FAMILY_A, QUALIFIER, value(i, 1));
+      put.addColumn(FAMILY_B, QUALIFIER, value(i, 1));
+      region.put(put);
+      if (i == NUM_ROWS / 2) {
+        region.flush(true);
+      }
+    }
+    region.delete(new Delete(row(10)).addFamily(FAMILY_A));
+    crashAndSplit(region, wal, hri);
+
+    wal = createWAL();
+    region = HRegion.openHRegion(conf, fs, rootDir, hri, htd, wal);
+    assertTrue(region.getStore(FAMILY_A).getStorefilesCount() > 1);
+    assertTrue(region.getStore(FAMILY_B).getStorefilesCount() > 1);
+    assertFalse(fs.exists(new Path(region.getRegionFileSystem().getRegionDir(),
+      WALSplitter.RECOVERED_HFILES_DIR)));
+    verifyRows(region, 1);
+
+    // The sequence ids of the loaded files are accounted for: newer edits written after the
+    // region reopened win over the recovered ones after another crash.
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Put put = new Put(row(i));
+      put.addColumn(FAMILY_A, QUALIFIER, value(i, 2));
+      put.addColumn(FAMILY_B, QUALIFIER, value(i, 2));
+      region.put(put);
+    }
+    crashAndSplit(region, wal, hri);
+
+    wal = createWAL();
+    region = HRegion.openHRegion(conf, fs, rootDir, hri, htd, wal);
+    try {
+      verifyRows(region, 2);
+    } finally {
+      region.close();
+      wal.close();
+    }
+  }
+
+  @Test
+  public void testOneHFilePerFamily() throws IOException {
+    // The writer threads take many buffers of the region's edits, all of which fit in the
+    // split buffer size.
+    conf.setInt("hbase.regionserver.hlog.splitlog.buffersize", 1024 * 1024);
+    TableName tableName = TableName.valueOf(name.getMethodName());
+    HTableDescriptor htd = new HTableDescriptor(tableName);
+    htd.addFamily(new HColumnDescriptor(FAMILY_A));
+    htd.addFamily(new HColumnDescriptor(FAMILY_B));
+    new FSTableDescriptors(conf, fs, rootDir).createTableDescriptorForTableDirectory(
+      FSUtils.getTableDir(rootDir, tableName), htd, false);
+    HRegionInfo hri = new HRegionInfo(tableName, null, null, false);
+    HBaseTestingUtility.closeRegionAndWAL(
+      HBaseTestingUtility.createRegionAndWAL(hri, rootDir, conf, htd));
+
+    WAL wal = createWAL();
+    HRegion region = HRegion.openHRegion(conf, fs, rootDir, hri, htd, wal);
+    // Write the rows in reverse so no single buffer is sorted with respect to the others.
+    for (int i = NUM_ROWS - 1; i >= 0; i--) {
+      Put put = new Put(row(i));
+      put.addColumn(FAMILY_A, QUALIFIER, value(i, 1));
+      put.addColumn(FAMILY_B, QUALIFIER, value(i, 1));
+      region.put(put);
+    }
+    region.delete(new Delete(row(10)).addFamily(FAMILY_A));
+    crashAndSplit(region, wal, hri);
+    Path recoveredHFilesDir = new Path(HRegion.getRegionDir(
+      FSUtils.getTableDir(rootDir, tableName), hri.getEncodedName()),
+      WALSplitter.RECOVERED_HFILES_DIR);
+    for (byte[] family : new byte[][] { FAMILY_A, FAMILY_B }) {
+      assertEquals(1,
+        fs.listStatus(new Path(recoveredHFilesDir, Bytes.toString(family))).length);
+    }
+
+    wal = createWAL();
+    region = HRegion.openHRegion(conf, fs, rootDir, hri, htd, wal);
+    try {
+      assertEquals(1, region.getStore(FAMILY_A).getStorefilesCount());
+      assertEquals(1, region.getStore(FAMILY_B).getStorefilesCount());
+      verifyRows(region, 1);
+    } finally {
+      region.close();
+      wal.close();
+    }
+  }
+
+  @Test
+  public void testKeptCellsBoundedBySplitBuffer() throws IOException {
+    // The cells of the region do not fit in the split buffer, so they are written out early.
+    conf.setInt("hbase.regionserver.hlog.splitlog.buffersize", 1024);
+    TableName tableName = TableName.valueOf(name.getMethodName());
+    HTableDescriptor htd = new HTableDescriptor(tableName);
+    htd.addFamily(new HColumnDescriptor(FAMILY_A));
+    htd.addFamily(new HColumnDescriptor(FAMILY_B));
+    new FSTableDescriptors(conf, fs, rootDir).createTableDescriptorForTableDirectory(
+      FSUtils.getTableDir(rootDir, tableName), htd, false);
+    HRegionInfo hri = new HRegionInfo(tableName, null, null, false);
+    HBaseTestingUtility.closeRegionAndWAL(
+      HBaseTestingUtility.createRegionAndWAL(hri, rootDir, conf, htd));
+
+    WAL wal = createWAL();
+    HRegion region = HRegion.openHRegion(conf, fs, rootDir, hri, htd, wal);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Put put = new Put(row(i));
+      put.addColumn(FAMILY_A, QUALIFIER, value(i, 1));
+      put.addColumn(FAMILY_B, QUALIFIER, value(i, 1));
+      region.put(put);
+    }
+    region.delete(new Delete(row(10)).addFamily(FAMILY_A));
+    crashAndSplit(region, wal, hri);
+    Path recoveredHFilesDir = new Path(HRegion.getRegionDir(
+      FSUtils.getTableDir(rootDir, tableName), hri.getEncodedName()),
+      WALSplitter.RECOVERED_HFILES_DIR);
+    for (byte[] family : new byte[][] { FAMILY_A, FAMILY_B }) {
+      assertTrue(
+        fs.listStatus(new Path(recoveredHFilesDir, Bytes.toString(family))).length > 1);
+    }
+
+    wal = createWAL();
+    region = HRegion.openHRegion(conf, fs, rootDir, hri, htd, wal);
+    try {
+      assertTrue(region.getStore(FAMILY_A).getStorefilesCount() > 1);
+      assertTrue(region.getStore(FAMILY_B).getStorefilesCount() > 1);
+      verifyRows(region, 1);
+    } finally {
+      region.close();
+      wal.close();
+    }
+  }
+
+  private WAL createWAL() throws IOException {
+    return new FSHLog(fs, rootDir, logName, conf);
+  }
+
+  /**
+   * Closes the region without flushing, as if its server died, and splits its WAL.
+   */
+  private void crashAndSplit(HRegion region, WAL wal, HRegionInfo hri) throws IOException {
+    region.close(true);
+    wal.shutdown();
+    List<Path> splits = WALSplitter.split(rootDir, new Path(rootDir, logName), oldLogDir, fs,
+      conf, wals);
+    // Only HFiles, at least one per family, and no recovered.edits.
+    assertTrue("splits=" + splits, splits.size() >= 2);
+    for (Path split : splits) {
+      assertEquals(WALSplitter.RECOVERED_HFILES_DIR, split.getParent().getParent().getName());
+    }
+    Path regionDir = HRegion.getRegionDir(FSUtils.getTableDir(rootDir, hri.getTable()),
+      hri.getEncodedName());
+    assertTrue(WALSplitter.getSplitEditFilesSorted(fs, regionDir).isEmpty());
+  }
+
+  private static void verifyRows(HRegion region, int version) throws IOException {
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Result result = region.get(new Get(row(i)));
+      if (i == 10 && version == 1) {
+        assertTrue(result.getValue(FAMILY_A, QUALIFIER) == null);
+      } else {
+        assertArrayEquals(value(i, version), result.getValue(FAMILY_A, QUALIFIER));
+      }
+      assertArrayEquals(value(i, version), result.getValue(FAMILY_B, QUALIFIER));
+    }
+  }
+
+  private static byte[] row(int i) {
+    return Bytes.toBytes(String.format("row%03d", i));
+  }
+
+  private static byte[] value(int i, int version) {
+    return Bytes.toBytes("v" + version + "-" + i);
+  }
+}